@@ -39,6 +39,7 @@ import org.thingsboard.rule.engine.api.notification.SlackService;
 import org.thingsboard.rule.engine.api.sms.SmsSenderFactory;
 import org.thingsboard.script.api.js.JsInvokeService;
 import org.thingsboard.script.api.tbel.TbelInvokeService;
+import org.thingsboard.server.actors.ruleChain.RuleNodeDebugSampler;
 import org.thingsboard.server.actors.service.ActorService;
 import org.thingsboard.server.actors.tenant.DebugTbRateLimits;
 import org.thingsboard.server.cluster.TbClusterService;
@@ -91,6 +92,7 @@ import org.thingsboard.server.dao.tenant.TenantProfileService;
 import org.thingsboard.server.dao.tenant.TenantService;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.dao.user.UserService;
+import org.thingsboard.server.dao.util.DbTypeInfoComponent;
 import org.thingsboard.server.dao.widget.WidgetTypeService;
 import org.thingsboard.server.dao.widget.WidgetsBundleService;
 import org.thingsboard.server.queue.discovery.DiscoveryService;
@@ -122,6 +124,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -148,7 +151,11 @@ public class ActorSystemContext {
 
         @Override
         public void onFailure(Throwable th) {
-            log.error("Could not save debug Event for Node", th);
+            if (th instanceof RejectedExecutionException) {
+                log.trace("Debug Event for Node was dropped: {}", th.getMessage());
+            } else {
+                log.error("Could not save debug Event for Node", th);
+            }
         }
     };
 
@@ -467,6 +474,10 @@ public class ActorSystemContext {
     @Getter
     private EntityService entityService;
 
+    @Autowired
+    @Getter
+    private DbTypeInfoComponent dbTypeInfoComponent;
+
     @Value("${actors.session.max_concurrent_sessions_per_device:1}")
     @Getter
     private long maxConcurrentSessionsPerDevice;
@@ -479,10 +490,26 @@ public class ActorSystemContext {
     @Getter
     private long ruleChainErrorPersistFrequency;
 
+    @Value("${actors.rule.chain.inline_execution_enabled:false}")
+    @Getter
+    private boolean ruleChainInlineExecutionEnabled;
+
     @Value("${actors.rule.node.error_persist_frequency:3000}")
     @Getter
     private long ruleNodeErrorPersistFrequency;
 
+    @Value("${actors.rule.node.debug_sampling.every_nth_msg:1}")
+    private int debugSamplingEveryNthMsg;
+
+    @Value("${actors.rule.node.debug_sampling.max_events_per_interval:0}")
+    private int debugSamplingMaxEventsPerInterval;
+
+    @Value("${actors.rule.node.debug_sampling.interval_ms:60000}")
+    private long debugSamplingIntervalMs;
+
+    @Getter
+    private RuleNodeDebugSampler ruleNodeDebugSampler;
+
     @Value("${actors.statistics.enabled:true}")
     @Getter
     private boolean statisticsEnabled;
@@ -505,6 +532,7 @@ public class ActorSystemContext {
     @PostConstruct
     public void init() {
         this.localCacheType = "caffeine".equals(cacheType);
+        this.ruleNodeDebugSampler = new RuleNodeDebugSampler(debugSamplingEveryNthMsg, debugSamplingMaxEventsPerInterval, debugSamplingIntervalMs);
     }
 
     @Scheduled(fixedDelayString = "${actors.statistics.js_print_interval_ms}")
@@ -665,7 +693,7 @@ public class ActorSystemContext {
     }
 
     private void persistDebugAsync(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, String relationType, Throwable error, String failureMessage) {
-        if (checkLimits(tenantId, tbMsg, error)) {
+        if (ruleNodeDebugSampler.isSampled(entityId, tbMsg, error != null || failureMessage != null) && checkLimits(tenantId, tbMsg, error)) {
             try {
                 RuleNodeDebugEvent.RuleNodeDebugEventBuilder event = RuleNodeDebugEvent.builder()
                         .tenantId(tenantId)
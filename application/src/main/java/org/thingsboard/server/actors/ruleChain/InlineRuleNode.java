@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.rule.engine.api.TbNode;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.queue.RuleNodeInfo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Instance of the rule node that is executed by the rule chain actor, see {@link org.thingsboard.rule.engine.api.RuleNode#inlineExecution()}.
+ * The rule node actor keeps its own instance that processes the messages sent to itself and the partition changes.
+ */
+@Slf4j
+final class InlineRuleNode {
+
+    private static final ConcurrentMap<String, Boolean> inlineTypes = new ConcurrentHashMap<>();
+
+    @Getter
+    private final RuleNode ruleNode;
+    @Getter
+    private final RuleNodeInfo info;
+    @Getter
+    private final DefaultTbContext ctx;
+    @Getter
+    private final TbNode tbNode;
+    private long messagesProcessed;
+
+    InlineRuleNode(RuleNode ruleNode, String ruleChainName, DefaultTbContext ctx) throws Exception {
+        this.ruleNode = ruleNode;
+        this.info = new RuleNodeInfo(ruleNode.getId(), ruleChainName, ruleNode.getName());
+        this.ctx = ctx;
+        this.tbNode = (TbNode) Class.forName(ruleNode.getType()).getDeclaredConstructor().newInstance();
+        this.tbNode.init(ctx, new TbNodeConfiguration(ruleNode.getConfiguration()));
+    }
+
+    static boolean isSupported(RuleNode ruleNode) {
+        // Singleton rule nodes are processed on the server that owns the partition of the rule node
+        return !ruleNode.isSingletonMode() && inlineTypes.computeIfAbsent(ruleNode.getType(), InlineRuleNode::isInlineType);
+    }
+
+    private static boolean isInlineType(String type) {
+        try {
+            var annotation = Class.forName(type).getAnnotation(org.thingsboard.rule.engine.api.RuleNode.class);
+            return annotation != null && annotation.inlineExecution();
+        } catch (ClassNotFoundException e) {
+            log.debug("[{}] Rule node class not found", type);
+            return false;
+        }
+    }
+
+    void increaseMessagesProcessedCount() {
+        messagesProcessed++;
+    }
+
+    long getAndResetMessagesProcessed() {
+        long result = messagesProcessed;
+        messagesProcessed = 0;
+        return result;
+    }
+
+    void destroy() {
+        try {
+            tbNode.destroy();
+        } catch (Exception e) {
+            log.debug("[{}] Failed to destroy inline rule node", ruleNode.getId(), e);
+        }
+    }
+
+}
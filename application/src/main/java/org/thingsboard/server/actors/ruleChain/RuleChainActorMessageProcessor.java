@@ -18,11 +18,14 @@ package org.thingsboard.server.actors.ruleChain;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.TbActorCtx;
+import org.thingsboard.server.actors.TbActorId;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.actors.TbEntityActorId;
 import org.thingsboard.server.actors.service.DefaultActorService;
 import org.thingsboard.server.actors.shared.ComponentMsgProcessor;
+import org.thingsboard.server.actors.stats.StatsPersistMsg;
 import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.RuleChainId;
@@ -35,6 +38,7 @@ import org.thingsboard.server.common.data.relation.EntityRelation;
 import org.thingsboard.server.common.data.rule.RuleChain;
 import org.thingsboard.server.common.data.rule.RuleChainType;
 import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
 import org.thingsboard.server.common.msg.plugin.RuleNodeUpdatedMsg;
@@ -50,11 +54,13 @@ import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.common.MultipleTbQueueTbMsgCallbackWrapper;
 import org.thingsboard.server.queue.common.TbQueueTbMsgCallbackWrapper;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -73,6 +79,10 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     private final RuleChainService service;
     private final TbClusterService clusterService;
     private final TbApiUsageReportClient apiUsageClient;
+    private final Map<RuleNodeId, InlineRuleNode> inlineNodes;
+    private final Queue<TbActorMsg> inlineMsgs;
+    private final TbActorRef inlineChainActor;
+    private volatile Thread inlineThread;
     private String ruleChainName;
 
     private RuleNodeId firstId;
@@ -89,6 +99,9 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         this.nodeRoutes = new HashMap<>();
         this.service = systemContext.getRuleChainService();
         this.clusterService = systemContext.getClusterService();
+        this.inlineNodes = new HashMap<>();
+        this.inlineMsgs = new ArrayDeque<>();
+        this.inlineChainActor = new InlineChainActorRef();
     }
 
     @Override
@@ -110,6 +123,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                     nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode));
                 }
                 initRoutes(ruleChain, ruleNodeList);
+                initInlineNodes(ruleNodeList);
                 started = true;
             }
         } else {
@@ -146,6 +160,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             });
 
             initRoutes(ruleChain, ruleNodeList);
+            initInlineNodes(ruleNodeList);
         }
     }
 
@@ -155,6 +170,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         nodeActors.values().stream().map(RuleNodeCtx::getSelfActor).map(TbActorRef::getActorId).forEach(ctx::stop);
         nodeActors.clear();
         nodeRoutes.clear();
+        destroyInlineNodes();
         started = false;
     }
 
@@ -389,13 +405,138 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
 
     private void pushMsgToNode(RuleNodeCtx nodeCtx, TbMsg msg, String fromRelationType) {
         if (nodeCtx != null) {
-            nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, ruleChainName, nodeCtx), msg, fromRelationType));
+            InlineRuleNode inlineNode = inlineNodes.get(nodeCtx.getSelf().getId());
+            if (inlineNode != null) {
+                executeInline(inlineNode, msg, fromRelationType);
+            } else {
+                nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, ruleChainName, nodeCtx), msg, fromRelationType));
+            }
         } else {
             log.error("[{}][{}] RuleNodeCtx is empty", entityId, ruleChainName);
             msg.getCallback().onFailure(new RuleEngineException("Rule Node CTX is empty"));
         }
     }
 
+    void onStatsPersistTick() {
+        inlineNodes.values().forEach(inlineNode -> {
+            long messagesProcessed = inlineNode.getAndResetMessagesProcessed();
+            if (messagesProcessed > 0) {
+                systemContext.getStatsActor().tell(new StatsPersistMsg(messagesProcessed, 0, tenantId, inlineNode.getRuleNode().getId()));
+            }
+        });
+    }
+
+    private void initInlineNodes(List<RuleNode> ruleNodeList) {
+        destroyInlineNodes();
+        if (!systemContext.isRuleChainInlineExecutionEnabled()) {
+            return;
+        }
+        for (RuleNode ruleNode : ruleNodeList) {
+            RuleNodeCtx nodeCtx = nodeActors.get(ruleNode.getId());
+            if (nodeCtx != null && InlineRuleNode.isSupported(ruleNode)) {
+                // The messages that the rule node sends to the rule chain are processed within the same actor task
+                RuleNodeCtx inlineCtx = new RuleNodeCtx(tenantId, inlineChainActor, nodeCtx.getSelfActor(), ruleNode);
+                try {
+                    inlineNodes.put(ruleNode.getId(), new InlineRuleNode(ruleNode, ruleChainName, new DefaultTbContext(systemContext, ruleChainName, inlineCtx)));
+                } catch (Exception e) {
+                    log.debug("[{}][{}] Failed to init inline rule node [{}], the rule node actor is used instead", tenantId, entityId, ruleNode.getId(), e);
+                }
+            }
+        }
+        log.debug("[{}][{}] Rule chain has {} inline rule nodes", tenantId, entityId, inlineNodes.size());
+    }
+
+    private void destroyInlineNodes() {
+        inlineNodes.values().forEach(InlineRuleNode::destroy);
+        inlineNodes.clear();
+    }
+
+    /**
+     * Executes the rule node the same way as {@link RuleNodeActorMessageProcessor#onRuleChainToRuleNodeMsg} does.
+     * The messages produced by the rule node are queued and processed in a loop by the outermost call,
+     * so a run of inline rule nodes doesn't grow the stack.
+     */
+    private void executeInline(InlineRuleNode inlineNode, TbMsg msg, String fromRelationType) {
+        boolean outermost = inlineThread == null;
+        if (outermost) {
+            inlineThread = Thread.currentThread();
+        }
+        try {
+            onInlineRuleNodeMsg(inlineNode, msg, fromRelationType);
+            if (outermost) {
+                TbActorMsg inlineMsg;
+                while ((inlineMsg = inlineMsgs.poll()) != null) {
+                    processInlineMsg(inlineMsg);
+                }
+            }
+        } finally {
+            if (outermost) {
+                inlineThread = null;
+            }
+        }
+    }
+
+    private void onInlineRuleNodeMsg(InlineRuleNode inlineNode, TbMsg msg, String fromRelationType) {
+        if (!msg.isValid()) {
+            log.trace("Skip processing of message: {} because it is no longer valid!", msg);
+            return;
+        }
+        msg.getCallback().onProcessingStart(inlineNode.getInfo());
+        RuleNode ruleNode = inlineNode.getRuleNode();
+        int ruleNodeCount = msg.getAndIncrementRuleNodeCounter();
+        int maxRuleNodeExecutionsPerMessage = getTenantProfileConfiguration().getMaxRuleNodeExecsPerMessage();
+        if (maxRuleNodeExecutionsPerMessage == 0 || ruleNodeCount < maxRuleNodeExecutionsPerMessage) {
+            apiUsageClient.report(tenantId, msg.getCustomerId(), ApiUsageRecordKey.RE_EXEC_COUNT);
+            if (ruleNode.isDebugMode()) {
+                systemContext.persistDebugInput(tenantId, ruleNode.getId(), msg, fromRelationType);
+            }
+            try {
+                inlineNode.getTbNode().onMsg(inlineNode.getCtx(), msg);
+            } catch (Exception e) {
+                inlineNode.getCtx().tellFailure(msg, e);
+            }
+            inlineNode.increaseMessagesProcessedCount();
+        } else {
+            msg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, ruleNode));
+        }
+    }
+
+    private void processInlineMsg(TbActorMsg msg) {
+        try {
+            switch (msg.getMsgType()) {
+                case RULE_TO_RULE_CHAIN_TELL_NEXT_MSG -> onTellNext((RuleNodeToRuleChainTellNextMsg) msg);
+                case RULE_CHAIN_INPUT_MSG -> onRuleChainInputMsg((RuleChainInputMsg) msg);
+                case RULE_CHAIN_OUTPUT_MSG -> onRuleChainOutputMsg((RuleChainOutputMsg) msg);
+                default -> self.tell(msg);
+            }
+        } catch (Exception e) {
+            log.warn("[{}][{}] Failed to process inline message: {}", tenantId, entityId, msg, e);
+        }
+    }
+
+    private class InlineChainActorRef implements TbActorRef {
+
+        @Override
+        public TbActorId getActorId() {
+            return self.getActorId();
+        }
+
+        @Override
+        public void tell(TbActorMsg actorMsg) {
+            if (inlineThread == Thread.currentThread()) {
+                inlineMsgs.add(actorMsg);
+            } else {
+                self.tell(actorMsg);
+            }
+        }
+
+        @Override
+        public void tellWithHighPriority(TbActorMsg actorMsg) {
+            self.tellWithHighPriority(actorMsg);
+        }
+
+    }
+
     @Override
     protected RuleNodeException getInactiveException() {
         RuleNode firstRuleNode = firstNode != null ? firstNode.getSelf() : null;
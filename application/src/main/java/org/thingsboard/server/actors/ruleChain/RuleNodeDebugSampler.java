@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides which debug events of the rule nodes are persisted.
+ * Every Nth message is selected by the message id, so the input and output events of the same message are either all kept or all skipped.
+ * On top of that, each rule node persists at most the configured number of events per interval.
+ */
+public class RuleNodeDebugSampler {
+
+    private final int everyNthMsg;
+    private final int maxEventsPerInterval;
+    private final long intervalMs;
+    private final ConcurrentMap<EntityId, EventsWindow> windows = new ConcurrentHashMap<>();
+
+    public RuleNodeDebugSampler(int everyNthMsg, int maxEventsPerInterval, long intervalMs) {
+        this.everyNthMsg = Math.max(1, everyNthMsg);
+        this.maxEventsPerInterval = maxEventsPerInterval;
+        this.intervalMs = intervalMs;
+    }
+
+    public boolean isSampled(EntityId ruleNodeId, TbMsg msg, boolean error) {
+        // Events with an error are always kept by the 1 in N sampling, since they are the most useful ones
+        if (!error && everyNthMsg > 1 && Math.floorMod(msg.getId().hashCode(), everyNthMsg) != 0) {
+            return false;
+        }
+        if (maxEventsPerInterval <= 0) {
+            return true;
+        }
+        return windows.computeIfAbsent(ruleNodeId, id -> new EventsWindow()).tryAcquire(System.currentTimeMillis());
+    }
+
+    public void remove(EntityId ruleNodeId) {
+        windows.remove(ruleNodeId);
+    }
+
+    private class EventsWindow {
+
+        private long startTs;
+        private int count;
+
+        synchronized boolean tryAcquire(long ts) {
+            if (ts - startTs >= intervalMs) {
+                startTs = ts;
+                count = 0;
+            }
+            if (count < maxEventsPerInterval) {
+                count++;
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
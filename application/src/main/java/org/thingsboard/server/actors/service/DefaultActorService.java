@@ -24,6 +24,8 @@ import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActorDispatcherStats;
+import org.thingsboard.server.actors.TbActorMailboxType;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.actors.TbActorSystem;
 import org.thingsboard.server.actors.TbActorSystemSettings;
@@ -32,6 +34,7 @@ import org.thingsboard.server.actors.app.AppInitMsg;
 import org.thingsboard.server.actors.stats.StatsActor;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.queue.discovery.TbApplicationEventListener;
 import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
 import org.thingsboard.server.queue.util.AfterStartUp;
@@ -50,9 +53,14 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     public static final String DEVICE_DISPATCHER_NAME = "device-dispatcher";
     public static final String RULE_DISPATCHER_NAME = "rule-dispatcher";
 
+    private static final String VIRTUAL_DISPATCHER_TYPE = "virtual";
+
     @Autowired
     private ActorSystemContext actorContext;
 
+    @Autowired
+    private StatsFactory statsFactory;
+
     private TbActorSystem system;
 
     private TbActorRef appActor;
@@ -60,6 +68,15 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.throughput:5}")
     private int actorThroughput;
 
+    @Value("${actors.system.mailbox_type:default}")
+    private String mailboxType;
+
+    @Value("${actors.system.dispatcher_type:platform}")
+    private String dispatcherType;
+
+    @Value("${actors.system.virtual_dispatcher_max_concurrency:256}")
+    private int virtualDispatcherMaxConcurrency;
+
     @Value("${actors.system.max_actor_init_attempts:10}")
     private int maxActorInitAttempts;
 
@@ -82,13 +99,14 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     public void initActorSystem() {
         log.info("Initializing actor system.");
         actorContext.setActorService(this);
-        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
+        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts,
+                TbActorMailboxType.valueOf(mailboxType.toUpperCase()));
         system = new DefaultTbActorSystem(settings);
 
-        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize));
-        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize));
-        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize));
-        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize));
+        createDispatcher(APP_DISPATCHER_NAME, appDispatcherSize);
+        createDispatcher(TENANT_DISPATCHER_NAME, tenantDispatcherSize);
+        createDispatcher(DEVICE_DISPATCHER_NAME, deviceDispatcherSize);
+        createDispatcher(RULE_DISPATCHER_NAME, ruleDispatcherSize);
 
         actorContext.setActorSystem(system);
 
@@ -101,7 +119,22 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         log.info("Actor system initialized.");
     }
 
+    private void createDispatcher(String dispatcherName, int poolSize) {
+        system.createDispatcher(dispatcherName, initDispatcherExecutor(dispatcherName, poolSize));
+        TbActorDispatcherStats stats = system.getDispatcherStats(dispatcherName);
+        statsFactory.createGauge("actors.dispatcher.mailboxDepth", stats.getMailboxDepth(), "dispatcher", dispatcherName);
+        statsFactory.createGauge("actors.dispatcher.processedMsgs", stats.getProcessedMsgs(), "dispatcher", dispatcherName);
+        statsFactory.createGauge("actors.dispatcher.processingTimeNanos", stats.getProcessingTimeNanos(), "dispatcher", dispatcherName);
+    }
+
     private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize) {
+        if (VIRTUAL_DISPATCHER_TYPE.equalsIgnoreCase(dispatcherType)) {
+            ExecutorService executor = ThingsBoardExecutors.newVirtualThreadPool(virtualDispatcherMaxConcurrency, dispatcherName);
+            if (executor != null) {
+                return executor;
+            }
+            log.warn("[{}] Falling back to the platform thread dispatcher", dispatcherName);
+        }
         if (poolSize == 0) {
             int cores = Runtime.getRuntime().availableProcessors();
             poolSize = Math.max(1, cores / 2);
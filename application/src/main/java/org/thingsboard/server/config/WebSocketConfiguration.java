@@ -17,16 +17,24 @@ package org.thingsboard.server.config;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeHandler;
 import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import org.thingsboard.server.controller.plugin.TbWebSocketHandler;
 import org.thingsboard.server.queue.util.TbCoreComponent;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Configuration
 @TbCoreComponent
 @EnableWebSocket
@@ -37,9 +45,13 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
     public static final String WS_API_ENDPOINT = "/api/ws";
     public static final String WS_PLUGINS_ENDPOINT = "/api/ws/plugins/";
     private static final String WS_API_MAPPING = "/api/ws/**";
+    private static final String PERMESSAGE_DEFLATE_EXTENSION = "permessage-deflate";
 
     private final WebSocketHandler wsHandler;
 
+    @Value("${server.ws.permessage_deflate_enabled:true}")
+    private boolean perMessageDeflateEnabled;
+
     @Bean
     public ServletServerContainerFactoryBean createWebSocketContainer() {
         ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
@@ -54,7 +66,25 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
             log.error("TbWebSocketHandler expected but [{}] provided", wsHandler);
             throw new RuntimeException("TbWebSocketHandler expected but " + wsHandler + " provided");
         }
-        registry.addHandler(wsHandler, WS_API_MAPPING).setAllowedOriginPatterns("*");
+        registry.addHandler(wsHandler, WS_API_MAPPING)
+                .setHandshakeHandler(createHandshakeHandler())
+                .setAllowedOriginPatterns("*");
+    }
+
+    private HandshakeHandler createHandshakeHandler() {
+        return new DefaultHandshakeHandler() {
+            @Override
+            protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request, List<WebSocketExtension> requestedExtensions,
+                                                                         List<WebSocketExtension> supportedExtensions) {
+                List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+                if (perMessageDeflateEnabled) {
+                    return extensions;
+                }
+                return extensions.stream()
+                        .filter(extension -> !PERMESSAGE_DEFLATE_EXTENSION.equalsIgnoreCase(extension.getName()))
+                        .collect(Collectors.toList());
+            }
+        };
     }
 
 }
@@ -68,6 +68,7 @@ import org.thingsboard.server.service.ws.telemetry.cmd.TelemetryCmdsWrapper;
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.security.InvalidParameterException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
@@ -89,6 +90,9 @@ import static org.thingsboard.server.service.ws.DefaultWebSocketService.NUMBER_O
 @RequiredArgsConstructor
 public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocketMsgEndpoint {
 
+    public static final String CONFLATE_PARAM = "conflate";
+    private static final int NO_CMD_ID = Integer.MIN_VALUE;
+
     private final ConcurrentMap<String, SessionMetaData> internalSessionMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, String> externalSessionMap = new ConcurrentHashMap<>();
 
@@ -109,6 +113,10 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     private int wsMaxQueueMessagesPerSession;
     @Value("${server.ws.auth_timeout_ms:10000}")
     private int authTimeoutMs;
+    @Value("${server.ws.conflation.enabled:false}")
+    private boolean conflationEnabled;
+    @Value("${server.ws.conflation.max_updates_per_frame:100}")
+    private int conflationMaxUpdatesPerFrame;
 
     private final ConcurrentMap<String, WebSocketSessionRef> blacklistedSessions = new ConcurrentHashMap<>();
 
@@ -328,16 +336,20 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         }
 
         SecurityUser securityCtx = null;
-        String token = StringUtils.substringAfter(session.getUri().getQuery(), "token=");
+        String query = session.getUri().getQuery();
+        String token = StringUtils.substringBefore(StringUtils.substringAfter(query, "token="), "&");
         if (StringUtils.isNotEmpty(token)) {
             securityCtx = authenticationProvider.authenticate(token);
         }
+        boolean conflated = conflationEnabled && StringUtils.isNotEmpty(query)
+                && Arrays.asList(query.split("&")).contains(CONFLATE_PARAM + "=true");
         return WebSocketSessionRef.builder()
                 .sessionId(UUID.randomUUID().toString())
                 .securityCtx(securityCtx)
                 .localAddress(session.getLocalAddress())
                 .remoteAddress(session.getRemoteAddress())
                 .sessionType(sessionType)
+                .conflated(conflated)
                 .build();
     }
 
@@ -357,6 +369,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         final AtomicBoolean isSending = new AtomicBoolean(false);
         private final Queue<TbWebSocketMsg<?>> outboundMsgQueue = new ConcurrentLinkedQueue<>();
         private final AtomicInteger outboundMsgQueueSize = new AtomicInteger();
+        private final TbWebSocketUpdatesBuffer updatesBuffer;
         @Setter
         private int maxMsgQueueSize = wsMaxQueueMessagesPerSession;
 
@@ -371,6 +384,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
             this.asyncRemote = nativeSession.getAsyncRemote();
             this.sessionRef = sessionRef;
+            this.updatesBuffer = sessionRef.isConflated() ? new TbWebSocketUpdatesBuffer(conflationMaxUpdatesPerFrame) : null;
             this.lastActivityTime = System.currentTimeMillis();
         }
 
@@ -396,6 +410,9 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                 log.trace("{} Session transport error", sessionRef, ioe);
             } finally {
                 outboundMsgQueue.clear();
+                if (updatesBuffer != null) {
+                    updatesBuffer.clear();
+                }
             }
         }
 
@@ -408,6 +425,10 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         }
 
         void sendMsg(TbWebSocketMsg<?> msg) {
+            if (updatesBuffer != null && TbWebSocketMsgType.TEXT.equals(msg.getType())) {
+                sendUpdate(NO_CMD_ID, msg.getMsg());
+                return;
+            }
             if (outboundMsgQueueSize.get() < maxMsgQueueSize) {
                 outboundMsgQueue.add(msg);
                 outboundMsgQueueSize.incrementAndGet();
@@ -418,6 +439,17 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             }
         }
 
+        void sendUpdate(int cmdId, Object update) {
+            if (updatesBuffer == null) {
+                sendMsg(new TbWebSocketTextMsg((String) update));
+            } else if (updatesBuffer.add(cmdId, update) <= maxMsgQueueSize) {
+                processNextMsg();
+            } else {
+                log.info("{} Session closed due to updates queue size exceeded", sessionRef);
+                closeSession(CloseStatus.POLICY_VIOLATION.withReason("Max pending updates limit reached!"));
+            }
+        }
+
         private void sendMsgInternal(TbWebSocketMsg<?> msg) {
             try {
                 if (TbWebSocketMsgType.TEXT.equals(msg.getType())) {
@@ -449,18 +481,29 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         }
 
         private void processNextMsg() {
-            if (outboundMsgQueue.isEmpty() || !isSending.compareAndSet(false, true)) {
+            if (!hasPendingMsgs() || !isSending.compareAndSet(false, true)) {
                 return;
             }
             TbWebSocketMsg<?> msg = outboundMsgQueue.poll();
             if (msg != null) {
                 outboundMsgQueueSize.decrementAndGet();
+            } else if (updatesBuffer != null) {
+                msg = updatesBuffer.poll();
+            }
+            if (msg != null) {
                 sendMsgInternal(msg);
             } else {
                 isSending.set(false);
+                if (hasPendingMsgs()) {
+                    processNextMsg();
+                }
             }
         }
 
+        private boolean hasPendingMsgs() {
+            return !outboundMsgQueue.isEmpty() || (updatesBuffer != null && !updatesBuffer.isEmpty());
+        }
+
         public void onMsg(String msg) throws IOException {
             inboundMsgQueue.add(msg);
             tryProcessInboundMsgs();
@@ -486,6 +529,15 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
 
     @Override
     public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
+        sendUpdate(sessionRef, subscriptionId, msg);
+    }
+
+    @Override
+    public void sendConflatable(WebSocketSessionRef sessionRef, int cmdId, Object update) throws IOException {
+        sendUpdate(sessionRef, cmdId, update);
+    }
+
+    private void sendUpdate(WebSocketSessionRef sessionRef, int subscriptionId, Object msg) {
         log.debug("{} Sending {}", sessionRef, msg);
         String externalId = sessionRef.getSessionId();
         String internalId = externalSessionMap.get(externalId);
@@ -503,7 +555,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                     log.debug("{} Session is no longer blacklisted.", sessionRef);
                     blacklistedSessions.remove(externalId);
                 }
-                sessionMd.sendMsg(msg);
+                sessionMd.sendUpdate(subscriptionId, msg);
             } else {
                 log.warn("[{}][{}] Failed to find session by internal id", externalId, internalId);
             }
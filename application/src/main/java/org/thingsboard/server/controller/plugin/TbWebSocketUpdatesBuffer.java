@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.controller.plugin;
+
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.service.ws.WsUpdatesConflator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending updates of the WebSocket session with enabled conflation.
+ * <p>
+ * A latest-values update is merged into the pending update of the same command, if any.
+ * Updates that can't be merged are kept in the arrival order. Several pending updates
+ * are sent to the client in one text frame as a JSON array.
+ */
+class TbWebSocketUpdatesBuffer {
+
+    private final int maxUpdatesPerFrame;
+    private final Deque<PendingUpdate> pendingUpdates = new ArrayDeque<>();
+    private final Map<Integer, PendingUpdate> conflatableUpdates = new HashMap<>();
+
+    TbWebSocketUpdatesBuffer(int maxUpdatesPerFrame) {
+        this.maxUpdatesPerFrame = Math.max(1, maxUpdatesPerFrame);
+    }
+
+    /**
+     * @return the number of the pending updates after the update is added
+     */
+    synchronized int add(int cmdId, Object update) {
+        PendingUpdate pendingUpdate = conflatableUpdates.get(cmdId);
+        if (pendingUpdate != null) {
+            Object merged = WsUpdatesConflator.merge(pendingUpdate.update, update);
+            if (merged != null) {
+                pendingUpdate.update = merged;
+                return pendingUpdates.size();
+            }
+        }
+        pendingUpdate = new PendingUpdate(cmdId, update);
+        pendingUpdates.add(pendingUpdate);
+        if (!(update instanceof String) && WsUpdatesConflator.isConflatable(update)) {
+            conflatableUpdates.put(cmdId, pendingUpdate);
+        } else {
+            // Updates that arrive later must not be merged into updates sent before this one.
+            conflatableUpdates.remove(cmdId);
+        }
+        return pendingUpdates.size();
+    }
+
+    synchronized boolean isEmpty() {
+        return pendingUpdates.isEmpty();
+    }
+
+    synchronized int size() {
+        return pendingUpdates.size();
+    }
+
+    synchronized void clear() {
+        pendingUpdates.clear();
+        conflatableUpdates.clear();
+    }
+
+    /**
+     * @return the text frame with the next pending updates, or null if there are no pending updates
+     */
+    TbWebSocketTextMsg poll() {
+        List<Object> updates;
+        synchronized (this) {
+            if (pendingUpdates.isEmpty()) {
+                return null;
+            }
+            updates = new ArrayList<>(Math.min(pendingUpdates.size(), maxUpdatesPerFrame));
+            PendingUpdate pendingUpdate;
+            while (updates.size() < maxUpdatesPerFrame && (pendingUpdate = pendingUpdates.poll()) != null) {
+                conflatableUpdates.remove(pendingUpdate.cmdId, pendingUpdate);
+                updates.add(pendingUpdate.update);
+            }
+        }
+        StringBuilder frame = new StringBuilder("[");
+        for (int i = 0; i < updates.size(); i++) {
+            if (i > 0) {
+                frame.append(',');
+            }
+            Object update = updates.get(i);
+            frame.append(update instanceof String ? (String) update : JacksonUtil.toString(update));
+        }
+        return new TbWebSocketTextMsg(frame.append(']').toString());
+    }
+
+    private static class PendingUpdate {
+        private final int cmdId;
+        private Object update;
+
+        private PendingUpdate(int cmdId, Object update) {
+            this.cmdId = cmdId;
+            this.update = update;
+        }
+    }
+
+}
@@ -24,6 +24,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.service.component.ComponentDiscoveryService;
 import org.thingsboard.server.service.install.DatabaseEntitiesUpgradeService;
+import org.thingsboard.server.service.install.DatabaseTsUpgradeService;
 import org.thingsboard.server.service.install.EntityDatabaseSchemaService;
 import org.thingsboard.server.service.install.InstallScripts;
 import org.thingsboard.server.service.install.NoSqlKeyspaceService;
@@ -68,6 +69,9 @@ public class ThingsboardInstallService {
     @Autowired
     private DatabaseEntitiesUpgradeService databaseEntitiesUpgradeService;
 
+    @Autowired
+    private DatabaseTsUpgradeService databaseTsUpgradeService;
+
     @Autowired
     private ComponentDiscoveryService componentDiscoveryService;
 
@@ -140,6 +144,7 @@ public class ThingsboardInstallService {
                         case "3.7.0":
                             log.info("Upgrading ThingsBoard from version 3.7.0 to 3.7.1 ...");
                             databaseEntitiesUpgradeService.upgradeDatabase("3.7.0");
+                            databaseTsUpgradeService.upgradeDatabase("3.7.0");
                             //TODO DON'T FORGET to update switch statement in the CacheCleanupService if you need to clear the cache
                             break;
                         default:
@@ -57,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static org.thingsboard.server.common.data.StringUtils.isBlank;
@@ -71,7 +72,9 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
     private final TelemetrySubscriptionService tsSubService;
     private final TimeseriesService tsService;
 
-    final Map<TenantId, Map<EntityId, List<EntityView>>> localCache = new ConcurrentHashMap<>();
+    final Map<TenantId, Map<EntityId, List<EntityViewDefinition>>> localCache = new ConcurrentHashMap<>();
+    // Incremented on every change of the entity views, so the results loaded before the change are not indexed.
+    private final AtomicLong localCacheVersion = new AtomicLong();
 
     @Override
     public EntityView save(EntityView entityView, EntityView existingEntityView, User user) throws Exception {
@@ -83,7 +86,10 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
             autoCommit(user, savedEntityView.getId());
             logEntityActionService.logEntityAction(savedEntityView.getTenantId(), savedEntityView.getId(), savedEntityView,
                     null, actionType, user);
-            localCache.computeIfAbsent(savedEntityView.getTenantId(), (k) -> new ConcurrentReferenceHashMap<>()).clear();
+            evictFromLocalCache(tenantId, savedEntityView.getEntityId());
+            if (existingEntityView != null) {
+                evictFromLocalCache(tenantId, existingEntityView.getEntityId());
+            }
             return savedEntityView;
         } catch (Exception e) {
             logEntityActionService.logEntityAction(user.getTenantId(), emptyId(EntityType.ENTITY_VIEW), entityView, actionType, user, e);
@@ -131,7 +137,7 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
             logEntityActionService.logEntityAction(tenantId, entityViewId, entityView, entityView.getCustomerId(),
                     ActionType.DELETED, user, entityViewId.toString());
 
-            localCache.computeIfAbsent(tenantId, (k) -> new ConcurrentReferenceHashMap<>()).clear();
+            evictFromLocalCache(tenantId, entityView.getEntityId());
         } catch (Exception e) {
             logEntityActionService.logEntityAction(tenantId, emptyId(EntityType.ENTITY_VIEW),
                     ActionType.DELETED, user, e, entityViewId.toString());
@@ -223,46 +229,63 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
 
     @Override
     public ListenableFuture<List<EntityView>> findEntityViewsByTenantIdAndEntityIdAsync(TenantId tenantId, EntityId entityId) {
-        Map<EntityId, List<EntityView>> localCacheByTenant = localCache.computeIfAbsent(tenantId, (k) -> new ConcurrentReferenceHashMap<>());
-        List<EntityView> fromLocalCache = localCacheByTenant.get(entityId);
+        return entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, entityId);
+    }
+
+    @Override
+    public List<EntityViewDefinition> findIndexedEntityViewDefinitions(TenantId tenantId, EntityId entityId) {
+        Map<EntityId, List<EntityViewDefinition>> localCacheByTenant = localCache.get(tenantId);
+        return localCacheByTenant != null ? localCacheByTenant.get(entityId) : null;
+    }
+
+    @Override
+    public ListenableFuture<List<EntityViewDefinition>> findEntityViewDefinitionsAsync(TenantId tenantId, EntityId entityId) {
+        List<EntityViewDefinition> fromLocalCache = findIndexedEntityViewDefinitions(tenantId, entityId);
         if (fromLocalCache != null) {
             return Futures.immediateFuture(fromLocalCache);
         }
-
+        long version = localCacheVersion.get();
         ListenableFuture<List<EntityView>> future = entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, entityId);
-
         return Futures.transform(future, (entityViewList) -> {
-            localCacheByTenant.put(entityId, entityViewList);
-            return entityViewList;
+            List<EntityViewDefinition> definitions = entityViewList == null || entityViewList.isEmpty() ? Collections.emptyList() :
+                    entityViewList.stream().map(EntityViewDefinition::new).toList();
+            if (localCacheVersion.get() == version) {
+                localCache.computeIfAbsent(tenantId, (k) -> new ConcurrentReferenceHashMap<>()).put(entityId, definitions);
+            }
+            return definitions;
         }, MoreExecutors.directExecutor());
     }
 
     @Override
     public void onComponentLifecycleMsg(ComponentLifecycleMsg componentLifecycleMsg) {
-        Map<EntityId, List<EntityView>> localCacheByTenant = localCache.computeIfAbsent(componentLifecycleMsg.getTenantId(), (k) -> new ConcurrentReferenceHashMap<>());
+        TenantId tenantId = componentLifecycleMsg.getTenantId();
         EntityViewId entityViewId = new EntityViewId(componentLifecycleMsg.getEntityId().getId());
-        deleteOldCacheValue(localCacheByTenant, entityViewId);
+        localCacheVersion.incrementAndGet();
+        Map<EntityId, List<EntityViewDefinition>> localCacheByTenant = localCache.get(tenantId);
+        if (localCacheByTenant != null) {
+            // The entity view may have been moved to another entity, so it is removed from all entities of the tenant.
+            localCacheByTenant.replaceAll((entityId, definitions) -> removeEntityView(definitions, entityViewId));
+        }
         if (componentLifecycleMsg.getEvent() != ComponentLifecycleEvent.DELETED) {
-            EntityView entityView = entityViewService.findEntityViewById(componentLifecycleMsg.getTenantId(), entityViewId);
+            EntityView entityView = entityViewService.findEntityViewById(tenantId, entityViewId);
             if (entityView != null) {
-                localCacheByTenant.remove(entityView.getEntityId());
+                evictFromLocalCache(tenantId, entityView.getEntityId());
             }
         }
     }
 
-    private void deleteOldCacheValue(Map<EntityId, List<EntityView>> localCacheByTenant, EntityViewId entityViewId) {
-        for (var entry : localCacheByTenant.entrySet()) {
-            EntityView toDelete = null;
-            for (EntityView view : entry.getValue()) {
-                if (entityViewId.equals(view.getId())) {
-                    toDelete = view;
-                    break;
-                }
-            }
-            if (toDelete != null) {
-                entry.getValue().remove(toDelete);
-                break;
-            }
+    private static List<EntityViewDefinition> removeEntityView(List<EntityViewDefinition> definitions, EntityViewId entityViewId) {
+        if (definitions.stream().noneMatch(definition -> entityViewId.equals(definition.getId()))) {
+            return definitions;
+        }
+        return definitions.stream().filter(definition -> !entityViewId.equals(definition.getId())).toList();
+    }
+
+    private void evictFromLocalCache(TenantId tenantId, EntityId entityId) {
+        localCacheVersion.incrementAndGet();
+        Map<EntityId, List<EntityViewDefinition>> localCacheByTenant = localCache.get(tenantId);
+        if (localCacheByTenant != null && entityId != null) {
+            localCacheByTenant.remove(entityId);
         }
     }
 
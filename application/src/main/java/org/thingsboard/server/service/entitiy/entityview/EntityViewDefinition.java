@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.entitiy.entityview;
+
+import lombok.Value;
+import org.thingsboard.server.common.data.EntityView;
+import org.thingsboard.server.common.data.id.EntityViewId;
+
+import java.util.List;
+
+/**
+ * The part of the entity view that is needed to copy the latest time series of the entity to the entity view.
+ */
+@Value
+public class EntityViewDefinition {
+
+    EntityViewId id;
+    /**
+     * Time series keys of the entity view, or null if the entity view includes all keys of the entity.
+     */
+    List<String> timeseries;
+    long startTs;
+    long endTs;
+
+    public EntityViewDefinition(EntityView entityView) {
+        this.id = entityView.getId();
+        this.timeseries = entityView.getKeys() != null && entityView.getKeys().getTimeseries() != null ?
+                List.copyOf(entityView.getKeys().getTimeseries()) : null;
+        this.startTs = entityView.getStartTimeMs();
+        this.endTs = entityView.getEndTimeMs() == 0 ? Long.MAX_VALUE : entityView.getEndTimeMs();
+    }
+
+    public boolean isInTimeRange(long ts) {
+        return ts > startTs && ts <= endTs;
+    }
+
+}
@@ -48,4 +48,16 @@ public interface TbEntityViewService extends ComponentLifecycleListener {
     EntityView unassignEntityViewFromCustomer(TenantId tenantId, EntityViewId entityViewId, Customer customer, User user) throws ThingsboardException;
 
     ListenableFuture<List<EntityView>> findEntityViewsByTenantIdAndEntityIdAsync(TenantId tenantId, EntityId entityId);
+
+    /**
+     * Returns the entity views of the entity from the local index without querying the database,
+     * or null if the entity views of the entity are not indexed yet.
+     */
+    List<EntityViewDefinition> findIndexedEntityViewDefinitions(TenantId tenantId, EntityId entityId);
+
+    /**
+     * Loads the entity views of the entity from the database and adds them to the local index.
+     */
+    ListenableFuture<List<EntityViewDefinition>> findEntityViewDefinitionsAsync(TenantId tenantId, EntityId entityId);
+
 }
@@ -16,19 +16,32 @@
 package org.thingsboard.server.service.install;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.dao.util.NoSqlTsDao;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 @Service
 @NoSqlTsDao
 @Profile("install")
 @Slf4j
 public class CassandraTsDatabaseUpgradeService extends AbstractCassandraDatabaseUpgradeService implements DatabaseTsUpgradeService {
 
+    @Autowired
+    private InstallScripts installScripts;
+
     @Override
     public void upgradeDatabase(String fromVersion) throws Exception {
         switch (fromVersion) {
+            case "3.7.0":
+                log.info("Updating timeseries schema ...");
+                Path schemaUpdateFile = Paths.get(installScripts.getDataDir(), "upgrade", "3.7.0", "schema_update_ts.cql");
+                loadCql(schemaUpdateFile);
+                log.info("Timeseries schema updated!");
+                break;
             default:
                 throw new RuntimeException("Unable to upgrade Cassandra database, unsupported fromVersion: " + fromVersion);
         }
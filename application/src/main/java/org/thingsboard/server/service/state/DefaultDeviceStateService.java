@@ -23,6 +23,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -47,6 +48,7 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.id.UUIDBased;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
 import org.thingsboard.server.common.data.kv.BooleanDataEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
@@ -69,6 +71,7 @@ import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
@@ -89,11 +92,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -140,6 +141,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, LAST_CONNECT_TIME),
             new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, LAST_DISCONNECT_TIME));
 
+    private static final Set<String> WRITE_BEHIND_KEYS = Set.of(LAST_ACTIVITY_TIME, LAST_CONNECT_TIME, LAST_DISCONNECT_TIME);
+
+    private static final long DEFAULT_INACTIVITY_CHECK_INTERVAL_MS = 100;
+
     public static final List<String> PERSISTENT_ATTRIBUTES = Arrays.asList(ACTIVITY_STATE, LAST_CONNECT_TIME,
             LAST_DISCONNECT_TIME, LAST_ACTIVITY_TIME, INACTIVITY_ALARM_TIME, INACTIVITY_TIMEOUT);
     private static final List<EntityKey> PERSISTENT_ENTITY_FIELDS = Arrays.asList(
@@ -159,6 +164,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private final NotificationRuleProcessor notificationRuleProcessor;
     @Autowired @Lazy
     private TelemetrySubscriptionService tsSubService;
+    @Autowired
+    private StatsFactory statsFactory;
 
     @Value("${state.defaultInactivityTimeoutInSec}")
     @Getter
@@ -170,9 +177,13 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Setter
     private long defaultInactivityTimeoutMs;
 
-    @Value("${state.defaultStateCheckIntervalInSec}")
-    @Getter
-    private int defaultStateCheckIntervalInSec;
+    // Empty by default, so the deprecated state.defaultStateCheckIntervalInSec is still used when it is set
+    @Value("${state.inactivityCheckIntervalInMs:}")
+    private Long inactivityCheckIntervalInMs;
+
+    @Deprecated
+    @Value("${state.defaultStateCheckIntervalInSec:}")
+    private Integer defaultStateCheckIntervalInSec;
 
     @Value("${usage.stats.devices.report_interval:60}")
     @Getter
@@ -191,10 +202,24 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Getter
     private int telemetryTtl;
 
+    @Value("${state.writeBehind.enabled:false}")
+    @Getter
+    private boolean writeBehindEnabled;
+
+    @Value("${state.writeBehind.flushIntervalInMs:1000}")
+    @Getter
+    private long writeBehindFlushIntervalInMs;
+
     private ListeningExecutorService deviceStateExecutor;
     private ListeningExecutorService deviceStateCallbackExecutor;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
+    final InactivityDeadlineQueue inactivityDeadlines = new InactivityDeadlineQueue();
+
+    // The latest values of the write-behind keys that are not saved yet
+    final ConcurrentMap<DeviceId, Map<String, TsKvEntry>> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingWritesCount = new AtomicInteger();
+    private Timer flushTimer;
 
     @PostConstruct
     public void init() {
@@ -203,12 +228,31 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 Math.max(4, Runtime.getRuntime().availableProcessors()), "device-state"));
         deviceStateCallbackExecutor = MoreExecutors.listeningDecorator(ThingsBoardExecutors.newWorkStealingPool(
                 Math.max(4, Runtime.getRuntime().availableProcessors()), "device-state-callback"));
-        scheduledExecutor.scheduleWithFixedDelay(this::checkStates, new Random().nextInt(defaultStateCheckIntervalInSec), defaultStateCheckIntervalInSec, TimeUnit.SECONDS);
+        long checkIntervalMs = getInactivityCheckIntervalInMs();
+        scheduledExecutor.scheduleWithFixedDelay(this::checkStates, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
         scheduledExecutor.scheduleWithFixedDelay(this::reportActivityStats, defaultActivityStatsIntervalInSec, defaultActivityStatsIntervalInSec, TimeUnit.SECONDS);
+        if (writeBehindEnabled) {
+            statsFactory.createGauge("deviceState.pendingWrites", pendingWritesCount);
+            flushTimer = statsFactory.createTimer("deviceState.writeBehindFlush");
+            scheduledExecutor.scheduleWithFixedDelay(this::flushPendingWrites, writeBehindFlushIntervalInMs, writeBehindFlushIntervalInMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getInactivityCheckIntervalInMs() {
+        if (inactivityCheckIntervalInMs != null) {
+            return inactivityCheckIntervalInMs;
+        }
+        if (defaultStateCheckIntervalInSec != null) {
+            log.warn("Parameter 'state.defaultStateCheckIntervalInSec' (DEFAULT_STATE_CHECK_INTERVAL) is deprecated, " +
+                    "use 'state.inactivityCheckIntervalInMs' (STATE_INACTIVITY_CHECK_INTERVAL_MS) instead");
+            return TimeUnit.SECONDS.toMillis(defaultStateCheckIntervalInSec);
+        }
+        return DEFAULT_INACTIVITY_CHECK_INTERVAL_MS;
     }
 
     @PreDestroy
     public void stop() {
+        flushPendingWrites();
         super.stop();
         if (deviceStateExecutor != null) {
             deviceStateExecutor.shutdownNow();
@@ -277,6 +321,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                     save(deviceId, INACTIVITY_ALARM_TIME, 0);
                 }
                 onDeviceActivityStatusChange(deviceId, true, stateData);
+                scheduleInactivityCheck(deviceId, stateData);
             }
         } else {
             log.debug("updateActivityState - fetched state IS NULL for device {}, lastReportedActivity {}", deviceId, lastReportedActivity);
@@ -473,13 +518,17 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 }
             }
         }
+        // The inactivity timeout may be decreased
+        scheduleInactivityCheck(deviceId, state);
     }
 
     private boolean addDeviceUsingState(TopicPartitionInfo tpi, DeviceStateData state) {
         Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
         if (deviceIds != null) {
             deviceIds.add(state.getDeviceId());
-            deviceStates.putIfAbsent(state.getDeviceId(), state);
+            if (deviceStates.putIfAbsent(state.getDeviceId(), state) == null) {
+                scheduleInactivityCheck(state.getDeviceId(), state);
+            }
             return true;
         } else {
             log.debug("[{}] Device belongs to external partition {}", state.getDeviceId(), tpi.getFullTopicName());
@@ -487,37 +536,53 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    /**
+     * Checks only the devices whose inactivity deadline has expired. The devices that reported activity after the deadline
+     * was scheduled are rescheduled to the new deadline.
+     */
     void checkStates() {
         try {
             final long ts = getCurrentTimeMillis();
-            partitionedEntities.forEach((tpi, deviceIds) -> {
-                log.debug("Calculating state updates. tpi {} for {} devices", tpi.getFullTopicName(), deviceIds.size());
-                Set<DeviceId> idsFromRemovedTenant = new HashSet<>();
-                for (DeviceId deviceId : deviceIds) {
-                    DeviceStateData stateData;
-                    try {
-                        stateData = getOrFetchDeviceStateData(deviceId);
-                    } catch (Exception e) {
-                        log.error("[{}] Failed to get or fetch device state data", deviceId, e);
-                        continue;
+            List<DeviceId> expired = inactivityDeadlines.pollExpired(ts);
+            if (!expired.isEmpty()) {
+                log.debug("Calculating state updates for {} devices", expired.size());
+            }
+            for (DeviceId deviceId : expired) {
+                DeviceStateData stateData = deviceStates.get(deviceId);
+                if (stateData == null) {
+                    // The device was deleted or moved to another server
+                    continue;
+                }
+                try {
+                    updateInactivityStateIfExpired(ts, deviceId, stateData);
+                    if (deviceStates.get(deviceId) == stateData) {
+                        scheduleInactivityCheck(deviceId, stateData);
                     }
-                    try {
-                        updateInactivityStateIfExpired(ts, deviceId, stateData);
-                    } catch (Exception e) {
-                        if (e instanceof TenantNotFoundException) {
-                            idsFromRemovedTenant.add(deviceId);
-                        } else {
-                            log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
-                        }
+                } catch (Exception e) {
+                    if (e instanceof TenantNotFoundException) {
+                        partitionedEntities.values().forEach(deviceIds -> deviceIds.remove(deviceId));
+                    } else {
+                        log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
+                        scheduleInactivityCheck(deviceId, stateData);
                     }
                 }
-                deviceIds.removeAll(idsFromRemovedTenant);
-            });
+            }
         } catch (Throwable t) {
             log.warn("Failed to check devices states", t);
         }
     }
 
+    /**
+     * Schedules the inactivity check unless the inactivity of the device was already reported after its last activity.
+     */
+    void scheduleInactivityCheck(DeviceId deviceId, DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        if (state.getLastInactivityAlarmTime() == 0L || state.getLastInactivityAlarmTime() <= state.getLastActivityTime()) {
+            long deadline = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime()) + state.getInactivityTimeout();
+            inactivityDeadlines.schedule(deviceId, deadline);
+        }
+    }
+
     void reportActivityStats() {
         try {
             Map<TenantId, Pair<AtomicInteger, AtomicInteger>> stats = new HashMap<>();
@@ -578,7 +643,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Nonnull
     DeviceStateData getOrFetchDeviceStateData(DeviceId deviceId) {
-        return deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+        DeviceStateData stateData = deviceStates.get(deviceId);
+        if (stateData == null) {
+            stateData = deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+            scheduleInactivityCheck(deviceId, stateData);
+        }
+        return stateData;
     }
 
     DeviceStateData fetchDeviceStateDataUsingSeparateRequests(final DeviceId deviceId) {
@@ -596,6 +666,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void onDeviceActivityStatusChange(DeviceId deviceId, boolean active, DeviceStateData stateData) {
+        flushPendingWrites(deviceId);
         save(deviceId, ACTIVITY_STATE, active);
         pushRuleEngineMessage(stateData, active ? TbMsgType.ACTIVITY_EVENT : TbMsgType.INACTIVITY_EVENT);
         TbMsgMetaData metaData = stateData.getMetaData();
@@ -620,6 +691,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void onDeviceDeleted(TenantId tenantId, DeviceId deviceId) {
+        removePendingWrites(deviceId);
         cleanupEntity(deviceId);
         TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_CORE, tenantId, deviceId);
         Set<DeviceId> deviceIdSet = partitionedEntities.get(tpi);
@@ -634,7 +706,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void cleanupEntity(DeviceId deviceId) {
+        // The device is released, so the new owner has to fetch the latest values
+        flushPendingWrites(deviceId);
         deviceStates.remove(deviceId);
+        inactivityDeadlines.remove(deviceId);
     }
 
 
@@ -862,6 +937,18 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void save(DeviceId deviceId, String key, long value) {
+        if (writeBehindEnabled && WRITE_BEHIND_KEYS.contains(key)) {
+            TsKvEntry entry = new BasicTsKvEntry(getCurrentTimeMillis(), new LongDataEntry(key, value));
+            pendingWrites.compute(deviceId, (id, entries) -> {
+                if (entries == null) {
+                    entries = new HashMap<>();
+                }
+                entries.put(key, entry);
+                return entries;
+            });
+            pendingWritesCount.set(pendingWrites.size());
+            return;
+        }
         if (persistToTelemetry) {
             tsSubService.saveAndNotifyInternal(
                     TenantId.SYS_TENANT_ID, deviceId,
@@ -883,10 +970,90 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    void flushPendingWrites() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        try {
+            long startTs = System.currentTimeMillis();
+            List<DeviceId> deviceIds = new ArrayList<>(pendingWrites.keySet());
+            AtomicInteger remaining = new AtomicInteger(deviceIds.size());
+            Runnable onDone = () -> {
+                if (remaining.decrementAndGet() == 0 && flushTimer != null) {
+                    flushTimer.record(System.currentTimeMillis() - startTs, TimeUnit.MILLISECONDS);
+                }
+            };
+            log.debug("Saving pending activity keys of {} devices", deviceIds.size());
+            for (DeviceId deviceId : deviceIds) {
+                if (!flushPendingWrites(deviceId, onDone)) {
+                    onDone.run();
+                }
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to save pending activity keys", t);
+        }
+    }
+
+    private void flushPendingWrites(DeviceId deviceId) {
+        flushPendingWrites(deviceId, () -> {});
+    }
+
+    private boolean flushPendingWrites(DeviceId deviceId, Runnable onDone) {
+        Map<String, TsKvEntry> entries = removePendingWrites(deviceId);
+        if (entries == null) {
+            return false;
+        }
+        List<TsKvEntry> tsEntries = new ArrayList<>(entries.values());
+        if (persistToTelemetry) {
+            tsSubService.saveAndNotifyInternal(TenantId.SYS_TENANT_ID, deviceId, tsEntries, telemetryTtl,
+                    new WriteBehindCallback<>(deviceId, entries.keySet(), onDone));
+        } else {
+            List<AttributeKvEntry> attributes = tsEntries.stream()
+                    .map(entry -> (AttributeKvEntry) new BaseAttributeKvEntry(entry, entry.getTs()))
+                    .toList();
+            tsSubService.saveAndNotify(TenantId.SYS_TENANT_ID, deviceId, AttributeScope.SERVER_SCOPE, attributes,
+                    new WriteBehindCallback<>(deviceId, entries.keySet(), onDone));
+        }
+        return true;
+    }
+
+    private Map<String, TsKvEntry> removePendingWrites(DeviceId deviceId) {
+        if (!writeBehindEnabled) {
+            return null;
+        }
+        Map<String, TsKvEntry> entries = pendingWrites.remove(deviceId);
+        pendingWritesCount.set(pendingWrites.size());
+        return entries;
+    }
+
     long getCurrentTimeMillis() {
         return System.currentTimeMillis();
     }
 
+    private static class WriteBehindCallback<T> implements FutureCallback<T> {
+        private final DeviceId deviceId;
+        private final Set<String> keys;
+        private final Runnable onDone;
+
+        WriteBehindCallback(DeviceId deviceId, Set<String> keys, Runnable onDone) {
+            this.deviceId = deviceId;
+            this.keys = keys;
+            this.onDone = onDone;
+        }
+
+        @Override
+        public void onSuccess(@Nullable T result) {
+            log.trace("[{}] Successfully updated attributes {}", deviceId, keys);
+            onDone.run();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            log.warn("[{}] Failed to update attributes {}", deviceId, keys, t);
+            onDone.run();
+        }
+    }
+
     private static class TelemetrySaveCallback<T> implements FutureCallback<T> {
         private final DeviceId deviceId;
         private final String key;
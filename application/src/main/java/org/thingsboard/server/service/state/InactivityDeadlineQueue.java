@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index of the devices by the time when their inactivity should be checked.
+ * <p>
+ * Each device has at most one deadline. Scheduling a later deadline for the device that is already scheduled is a no-op,
+ * so the activity events don't touch the queue; the device is rescheduled when the outdated deadline expires.
+ */
+class InactivityDeadlineQueue {
+
+    private final Lock lock = new ReentrantLock();
+    private final Map<DeviceId, Long> deadlines = new HashMap<>();
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>(Comparator.comparingLong(Deadline::ts));
+
+    void schedule(DeviceId deviceId, long ts) {
+        lock.lock();
+        try {
+            Long current = deadlines.get(deviceId);
+            if (current == null || ts < current) {
+                deadlines.put(deviceId, ts);
+                // The later deadline, if any, stays in the queue and is skipped once polled
+                queue.add(new Deadline(deviceId, ts));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(DeviceId deviceId) {
+        lock.lock();
+        try {
+            deadlines.remove(deviceId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    List<DeviceId> pollExpired(long ts) {
+        List<DeviceId> result = new ArrayList<>();
+        lock.lock();
+        try {
+            Deadline deadline;
+            while ((deadline = queue.peek()) != null && deadline.ts() <= ts) {
+                queue.poll();
+                if (deadlines.remove(deadline.deviceId(), deadline.ts())) {
+                    result.add(deadline.deviceId());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return deadlines.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            deadlines.clear();
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Deadline(DeviceId deviceId, long ts) {}
+
+}
@@ -28,7 +28,6 @@ import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.EntityType;
-import org.thingsboard.server.common.data.EntityView;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -47,6 +46,7 @@ import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.dao.util.KvUtils;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
+import org.thingsboard.server.service.entitiy.entityview.EntityViewDefinition;
 import org.thingsboard.server.service.entitiy.entityview.TbEntityViewService;
 import org.thingsboard.server.service.subscription.TbSubscriptionUtils;
 
@@ -83,6 +83,9 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @Value("${sql.ts.value_no_xss_validation:false}")
     private boolean valueNoXssValidation;
 
+    @Value("${sql.ts.callback_thread_pool_size:1}")
+    private int tsCallbackThreadPoolSize;
+
     public DefaultTelemetrySubscriptionService(AttributesService attrService,
                                                TimeseriesService tsService,
                                                @Lazy TbEntityViewService tbEntityViewService,
@@ -98,7 +101,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @PostConstruct
     public void initExecutor() {
         super.initExecutor();
-        tsCallBackExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("ts-service-ts-callback"));
+        tsCallBackExecutor = Executors.newFixedThreadPool(Math.max(1, tsCallbackThreadPoolSize), ThingsBoardThreadFactory.forName("ts-service-ts-callback"));
     }
 
     @Override
@@ -189,42 +192,17 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
 
     private void addEntityViewCallback(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts) {
         if (EntityType.DEVICE.equals(entityId.getEntityType()) || EntityType.ASSET.equals(entityId.getEntityType())) {
-            Futures.addCallback(this.tbEntityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, entityId),
+            List<EntityViewDefinition> entityViews = this.tbEntityViewService.findIndexedEntityViewDefinitions(tenantId, entityId);
+            if (entityViews != null) {
+                copyLatestToEntityViews(tenantId, entityViews, ts);
+                return;
+            }
+            Futures.addCallback(this.tbEntityViewService.findEntityViewDefinitionsAsync(tenantId, entityId),
                     new FutureCallback<>() {
                         @Override
-                        public void onSuccess(@Nullable List<EntityView> result) {
-                            if (result != null && !result.isEmpty()) {
-                                Map<String, List<TsKvEntry>> tsMap = new HashMap<>();
-                                for (TsKvEntry entry : ts) {
-                                    tsMap.computeIfAbsent(entry.getKey(), s -> new ArrayList<>()).add(entry);
-                                }
-                                for (EntityView entityView : result) {
-                                    List<String> keys = entityView.getKeys() != null && entityView.getKeys().getTimeseries() != null ?
-                                            entityView.getKeys().getTimeseries() : new ArrayList<>(tsMap.keySet());
-                                    List<TsKvEntry> entityViewLatest = new ArrayList<>();
-                                    long startTs = entityView.getStartTimeMs();
-                                    long endTs = entityView.getEndTimeMs() == 0 ? Long.MAX_VALUE : entityView.getEndTimeMs();
-                                    for (String key : keys) {
-                                        List<TsKvEntry> entries = tsMap.get(key);
-                                        if (entries != null) {
-                                            Optional<TsKvEntry> tsKvEntry = entries.stream()
-                                                    .filter(entry -> entry.getTs() > startTs && entry.getTs() <= endTs)
-                                                    .max(Comparator.comparingLong(TsKvEntry::getTs));
-                                            tsKvEntry.ifPresent(entityViewLatest::add);
-                                        }
-                                    }
-                                    if (!entityViewLatest.isEmpty()) {
-                                        saveLatestAndNotify(tenantId, entityView.getId(), entityViewLatest, new FutureCallback<>() {
-                                            @Override
-                                            public void onSuccess(@Nullable Void tmp) {
-                                            }
-
-                                            @Override
-                                            public void onFailure(Throwable t) {
-                                            }
-                                        });
-                                    }
-                                }
+                        public void onSuccess(@Nullable List<EntityViewDefinition> result) {
+                            if (result != null) {
+                                copyLatestToEntityViews(tenantId, result, ts);
                             }
                         }
 
@@ -236,6 +214,40 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
         }
     }
 
+    private void copyLatestToEntityViews(TenantId tenantId, List<EntityViewDefinition> entityViews, List<TsKvEntry> ts) {
+        if (entityViews.isEmpty()) {
+            return;
+        }
+        Map<String, List<TsKvEntry>> tsMap = new HashMap<>();
+        for (TsKvEntry entry : ts) {
+            tsMap.computeIfAbsent(entry.getKey(), s -> new ArrayList<>()).add(entry);
+        }
+        for (EntityViewDefinition entityView : entityViews) {
+            Collection<String> keys = entityView.getTimeseries() != null ? entityView.getTimeseries() : tsMap.keySet();
+            List<TsKvEntry> entityViewLatest = new ArrayList<>();
+            for (String key : keys) {
+                List<TsKvEntry> entries = tsMap.get(key);
+                if (entries != null) {
+                    Optional<TsKvEntry> tsKvEntry = entries.stream()
+                            .filter(entry -> entityView.isInTimeRange(entry.getTs()))
+                            .max(Comparator.comparingLong(TsKvEntry::getTs));
+                    tsKvEntry.ifPresent(entityViewLatest::add);
+                }
+            }
+            if (!entityViewLatest.isEmpty()) {
+                saveLatestAndNotify(tenantId, entityView.getId(), entityViewLatest, new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(@Nullable Void tmp) {
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                    }
+                });
+            }
+        }
+    }
+
     @Override
     public void saveAndNotify(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes, FutureCallback<Void> callback) {
         saveAndNotify(tenantId, entityId, scope, attributes, true, callback);
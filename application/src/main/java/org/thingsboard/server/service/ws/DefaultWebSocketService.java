@@ -845,6 +845,17 @@ public class DefaultWebSocketService implements WebSocketService {
     }
 
     private void sendUpdate(WebSocketSessionRef sessionRef, int cmdId, Object update) {
+        if (sessionRef.isConflated() && WsUpdatesConflator.isConflatable(update)) {
+            // Serialization is postponed until the update is merged with the other pending updates of the command.
+            executor.submit(() -> {
+                try {
+                    msgEndpoint.sendConflatable(sessionRef, cmdId, update);
+                } catch (IOException e) {
+                    log.warn("[{}] Failed to send reply: {}", sessionRef.getSessionId(), update, e);
+                }
+            });
+            return;
+        }
         try {
             String msg = JacksonUtil.OBJECT_MAPPER.writeValueAsString(update);
             executor.submit(() -> {
@@ -37,6 +37,7 @@ public class WebSocketSessionRef {
     private final InetSocketAddress localAddress;
     private final InetSocketAddress remoteAddress;
     private final WebSocketSessionType sessionType;
+    private final boolean conflated;
     private final AtomicInteger sessionSubIdSeq = new AtomicInteger();
 
     @Override
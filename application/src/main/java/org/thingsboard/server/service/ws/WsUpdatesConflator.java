@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.query.ComparisonTsValue;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Merges pending WebSocket updates of the same command for the sessions with enabled conflation.
+ * Only the updates that carry the latest values are merged; the most recent value of each key is kept.
+ * Initial data, history, page data and errors are never merged and are delivered as is.
+ */
+public class WsUpdatesConflator {
+
+    private WsUpdatesConflator() {
+    }
+
+    public static boolean isConflatable(Object update) {
+        if (update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+            return telemetryUpdate.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && telemetryUpdate.getData() != null
+                    && telemetryUpdate.getData().values().stream().allMatch(values -> values.size() == 1);
+        } else if (update instanceof EntityDataUpdate entityDataUpdate) {
+            return entityDataUpdate.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode()
+                    && entityDataUpdate.getData() == null && entityDataUpdate.getUpdate() != null
+                    && entityDataUpdate.getUpdate().stream().allMatch(entityData -> entityData.getTimeseries() == null || entityData.getTimeseries().isEmpty());
+        }
+        return false;
+    }
+
+    /**
+     * @return the update that combines both updates, or null if the updates can't be merged
+     */
+    public static Object merge(Object previous, Object update) {
+        if (!isConflatable(previous) || !isConflatable(update)) {
+            return null;
+        }
+        if (previous instanceof TelemetrySubscriptionUpdate previousUpdate && update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+            return merge(previousUpdate, telemetryUpdate);
+        } else if (previous instanceof EntityDataUpdate previousUpdate && update instanceof EntityDataUpdate entityDataUpdate) {
+            return merge(previousUpdate, entityDataUpdate);
+        }
+        return null;
+    }
+
+    private static TelemetrySubscriptionUpdate merge(TelemetrySubscriptionUpdate previous, TelemetrySubscriptionUpdate update) {
+        Map<String, List<Object>> data = new TreeMap<>(previous.getData());
+        data.putAll(update.getData());
+        return new TelemetrySubscriptionUpdate(update.getSubscriptionId(), data);
+    }
+
+    private static EntityDataUpdate merge(EntityDataUpdate previous, EntityDataUpdate update) {
+        Map<EntityId, EntityData> entities = new LinkedHashMap<>();
+        for (EntityData entityData : previous.getUpdate()) {
+            entities.merge(entityData.getEntityId(), entityData, WsUpdatesConflator::merge);
+        }
+        for (EntityData entityData : update.getUpdate()) {
+            entities.merge(entityData.getEntityId(), entityData, WsUpdatesConflator::merge);
+        }
+        return new EntityDataUpdate(update.getCmdId(), null, new ArrayList<>(entities.values()), update.getAllowedEntities());
+    }
+
+    private static EntityData merge(EntityData previous, EntityData update) {
+        Map<EntityKeyType, Map<String, TsValue>> latest = null;
+        if (previous.getLatest() != null || update.getLatest() != null) {
+            latest = new HashMap<>();
+            mergeLatest(latest, previous.getLatest());
+            mergeLatest(latest, update.getLatest());
+        }
+        Map<Integer, ComparisonTsValue> aggLatest = null;
+        if (previous.getAggLatest() != null || update.getAggLatest() != null) {
+            aggLatest = new HashMap<>();
+            if (previous.getAggLatest() != null) {
+                aggLatest.putAll(previous.getAggLatest());
+            }
+            if (update.getAggLatest() != null) {
+                aggLatest.putAll(update.getAggLatest());
+            }
+        }
+        Map<String, TsValue[]> timeseries = update.getTimeseries() != null ? update.getTimeseries() : previous.getTimeseries();
+        return new EntityData(update.getEntityId(), latest, timeseries, aggLatest);
+    }
+
+    private static void mergeLatest(Map<EntityKeyType, Map<String, TsValue>> target, Map<EntityKeyType, Map<String, TsValue>> source) {
+        if (source != null) {
+            source.forEach((keyType, values) -> target.computeIfAbsent(keyType, type -> new HashMap<>()).putAll(values));
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.filter.TbMsgTypeSwitchNode;
+import org.thingsboard.rule.engine.transform.TbRenameKeysNode;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.TbActorCtx;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbEntityActorId;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.TenantProfile;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.rule.RuleChain;
+import org.thingsboard.server.common.data.rule.RuleChainType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
+import org.thingsboard.server.common.data.tenant.profile.TenantProfileData;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.TbApiUsageReportClient;
+import org.thingsboard.server.dao.rule.RuleChainService;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RuleChainActorMessageProcessorTest {
+
+    private static final String SAVE_NODE_TYPE = "org.thingsboard.rule.engine.telemetry.TbMsgTimeseriesNode";
+
+    TenantId tenantId = TenantId.fromUUID(UUID.fromString("5a2b6a9e-7b35-4d0c-9f3c-0c4ac5a3b1f2"));
+    DeviceId deviceId = DeviceId.fromString("78bf9b26-74ef-4af2-9cfb-ad6cf24ad2ec");
+    RuleChainId ruleChainId = new RuleChainId(UUID.fromString("1c9d5b2e-3f4a-4c5d-8e6f-7a8b9c0d1e2f"));
+
+    ActorSystemContext systemContext;
+    RuleChainService ruleChainService;
+    TbActorCtx ctx;
+    Map<RuleNodeId, TbActorRef> nodeActors;
+
+    RuleNode switchNode;
+    RuleNode renameNode;
+    RuleNode saveNode;
+
+    @Before
+    public void setUp() {
+        systemContext = mock(ActorSystemContext.class);
+        ruleChainService = mock(RuleChainService.class);
+        ctx = mock(TbActorCtx.class);
+        nodeActors = new HashMap<>();
+
+        when(systemContext.getRuleChainService()).thenReturn(ruleChainService);
+        when(systemContext.getClusterService()).thenReturn(mock(TbClusterService.class));
+        when(systemContext.getApiUsageClient()).thenReturn(mock(TbApiUsageReportClient.class));
+        when(systemContext.resolve(any(TenantId.class), any(EntityId.class), any(TbMsg.class)))
+                .thenReturn(new TopicPartitionInfo("Main", tenantId, 0, true));
+        TbTenantProfileCache tenantProfileCache = mock(TbTenantProfileCache.class);
+        TenantProfile tenantProfile = new TenantProfile();
+        TenantProfileData profileData = new TenantProfileData();
+        profileData.setConfiguration(new DefaultTenantProfileConfiguration());
+        tenantProfile.setProfileData(profileData);
+        when(tenantProfileCache.get(tenantId)).thenReturn(tenantProfile);
+        when(systemContext.getTenantProfileCache()).thenReturn(tenantProfileCache);
+
+        switchNode = createRuleNode(TbMsgTypeSwitchNode.class.getName(), JacksonUtil.newObjectNode());
+        renameNode = createRuleNode(TbRenameKeysNode.class.getName(),
+                JacksonUtil.toJsonNode("{\"renameIn\":\"DATA\",\"renameKeysMapping\":{\"temp\":\"temperature\"}}"));
+        saveNode = createRuleNode(SAVE_NODE_TYPE, JacksonUtil.newObjectNode());
+
+        RuleChain ruleChain = new RuleChain(ruleChainId);
+        ruleChain.setTenantId(tenantId);
+        ruleChain.setName("Root Rule Chain");
+        ruleChain.setType(RuleChainType.CORE);
+        ruleChain.setFirstRuleNodeId(switchNode.getId());
+        when(ruleChainService.findRuleChainById(tenantId, ruleChainId)).thenReturn(ruleChain);
+        when(ruleChainService.getRuleChainNodes(tenantId, ruleChainId)).thenReturn(List.of(switchNode, renameNode, saveNode));
+        when(ruleChainService.getRuleNodeRelations(TenantId.SYS_TENANT_ID, switchNode.getId()))
+                .thenReturn(List.of(new EntityRelation(switchNode.getId(), renameNode.getId(), TbMsgType.POST_TELEMETRY_REQUEST.getRuleNodeConnection())));
+        when(ruleChainService.getRuleNodeRelations(TenantId.SYS_TENANT_ID, renameNode.getId()))
+                .thenReturn(List.of(new EntityRelation(renameNode.getId(), saveNode.getId(), TbNodeConnectionType.SUCCESS)));
+        when(ruleChainService.getRuleNodeRelations(TenantId.SYS_TENANT_ID, saveNode.getId())).thenReturn(List.of());
+
+        when(ctx.getOrCreateChildActor(any(), any(), any(), any())).thenAnswer(invocation -> {
+            TbEntityActorId actorId = invocation.getArgument(0);
+            return nodeActors.computeIfAbsent((RuleNodeId) actorId.getEntityId(), id -> mock(TbActorRef.class));
+        });
+    }
+
+    @Test
+    public void givenInlineExecutionEnabled_whenMsgIsPushed_thenStatelessNodesAreExecutedByRuleChainActor() {
+        when(systemContext.isRuleChainInlineExecutionEnabled()).thenReturn(true);
+        RuleChainActorMessageProcessor processor = createProcessor();
+
+        processor.onQueueToRuleEngineMsg(new QueueToRuleEngineMsg(tenantId, createMsg(), null, null));
+
+        verify(nodeActors.get(switchNode.getId()), never()).tell(any());
+        verify(nodeActors.get(renameNode.getId()), never()).tell(any());
+        ArgumentCaptor<RuleChainToRuleNodeMsg> msgCaptor = ArgumentCaptor.forClass(RuleChainToRuleNodeMsg.class);
+        verify(nodeActors.get(saveNode.getId())).tell(msgCaptor.capture());
+        RuleChainToRuleNodeMsg ruleNodeMsg = msgCaptor.getValue();
+        assertThat(ruleNodeMsg.getFromRelationType()).isEqualTo(TbNodeConnectionType.SUCCESS);
+        assertThat(JacksonUtil.toJsonNode(ruleNodeMsg.getMsg().getData()).has("temperature")).isTrue();
+    }
+
+    @Test
+    public void givenInlineExecutionDisabled_whenMsgIsPushed_thenFirstRuleNodeActorReceivesMsg() {
+        when(systemContext.isRuleChainInlineExecutionEnabled()).thenReturn(false);
+        RuleChainActorMessageProcessor processor = createProcessor();
+
+        processor.onQueueToRuleEngineMsg(new QueueToRuleEngineMsg(tenantId, createMsg(), null, null));
+
+        verify(nodeActors.get(switchNode.getId())).tell(any(RuleChainToRuleNodeMsg.class));
+        verify(nodeActors.get(renameNode.getId()), never()).tell(any());
+        verify(nodeActors.get(saveNode.getId()), never()).tell(any());
+    }
+
+    private RuleChainActorMessageProcessor createProcessor() {
+        RuleChain ruleChain = ruleChainService.findRuleChainById(tenantId, ruleChainId);
+        RuleChainActorMessageProcessor processor = new RuleChainActorMessageProcessor(tenantId, ruleChain, systemContext, mock(TbActorRef.class), mock(TbActorRef.class));
+        processor.start(ctx);
+        return processor;
+    }
+
+    private TbMsg createMsg() {
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, new TbMsgMetaData(), "{\"temp\":42}");
+    }
+
+    private RuleNode createRuleNode(String type, JsonNode configuration) {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        ruleNode.setRuleChainId(ruleChainId);
+        ruleNode.setName(type.substring(type.lastIndexOf('.') + 1));
+        ruleNode.setType(type);
+        ruleNode.setConfiguration(configuration);
+        return ruleNode;
+    }
+
+}
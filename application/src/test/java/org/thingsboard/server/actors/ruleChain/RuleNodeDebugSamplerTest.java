@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleNodeDebugSamplerTest {
+
+    private final RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+
+    @Test
+    public void givenEveryNthMsg_whenSampled_thenOnlyEveryNthMsgIsKept() {
+        RuleNodeDebugSampler sampler = new RuleNodeDebugSampler(10, 0, 60000);
+
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            TbMsg msg = createMsg();
+            boolean in = sampler.isSampled(ruleNodeId, msg, false);
+            assertThat(sampler.isSampled(ruleNodeId, msg, false)).isEqualTo(in);
+            if (in) {
+                sampled++;
+            }
+        }
+
+        assertThat(sampled).isBetween(700, 1300);
+    }
+
+    @Test
+    public void givenEveryNthMsg_whenMsgHasError_thenMsgIsKept() {
+        RuleNodeDebugSampler sampler = new RuleNodeDebugSampler(Integer.MAX_VALUE, 0, 60000);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(sampler.isSampled(ruleNodeId, createMsg(), true)).isTrue();
+        }
+    }
+
+    @Test
+    public void givenMaxEventsPerInterval_whenLimitIsReached_thenEventsAreSkippedPerRuleNode() {
+        RuleNodeDebugSampler sampler = new RuleNodeDebugSampler(1, 3, 60000);
+        RuleNodeId otherRuleNodeId = new RuleNodeId(UUID.randomUUID());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(sampler.isSampled(ruleNodeId, createMsg(), false)).isTrue();
+        }
+        assertThat(sampler.isSampled(ruleNodeId, createMsg(), false)).isFalse();
+        assertThat(sampler.isSampled(otherRuleNodeId, createMsg(), false)).isTrue();
+
+        sampler.remove(ruleNodeId);
+        assertThat(sampler.isSampled(ruleNodeId, createMsg(), false)).isTrue();
+    }
+
+    private TbMsg createMsg() {
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{}");
+    }
+
+}
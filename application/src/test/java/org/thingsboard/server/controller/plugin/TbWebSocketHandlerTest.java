@@ -15,22 +15,29 @@
  */
 package org.thingsboard.server.controller.plugin;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.service.ws.WebSocketSessionRef;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
 
 import jakarta.websocket.RemoteEndpoint;
 import jakarta.websocket.SendHandler;
 import jakarta.websocket.SendResult;
 import jakarta.websocket.Session;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
@@ -163,6 +170,77 @@ class TbWebSocketHandlerTest {
         verify(asyncRemote, times(1)).sendText(anyString(), any());
     }
 
+    @Test
+    void sendHandler_conflatedSession_latestValuesMergedIntoOneFrame() {
+        willReturn(true).given(sessionRef).isConflated();
+        ReflectionTestUtils.setField(wsHandler, "conflationMaxUpdatesPerFrame", 100);
+        TbWebSocketHandler.SessionMetaData conflatedMd = wsHandler.new SessionMetaData(session, sessionRef);
+        conflatedMd.setMaxMsgQueueSize(maxMsgQueuePerSession);
+        List<String> outputs = new ArrayList<>();
+        willAnswer(invocation -> outputs.add(invocation.getArgument(0))).given(asyncRemote).sendText(anyString(), any());
+
+        conflatedMd.sendUpdate(1, latestUpdate(1, "temperature", 1L, "20"));
+        // the first frame stays in-flight, so the next updates are pending
+        for (int i = 2; i <= 2 * maxMsgQueuePerSession; i++) {
+            conflatedMd.sendUpdate(1, latestUpdate(1, "temperature", i, String.valueOf(i)));
+            conflatedMd.sendUpdate(2, latestUpdate(2, "humidity", i, String.valueOf(i)));
+        }
+        conflatedMd.onResult(new SendResult());
+
+        assertThat(outputs).hasSize(2);
+        JsonNode frame = JacksonUtil.toJsonNode(outputs.get(1));
+        assertThat(frame.isArray()).isTrue();
+        assertThat(frame).hasSize(2);
+        assertThat(frame.get(0).get("subscriptionId").asInt()).isEqualTo(1);
+        assertThat(frame.get(0).get("data").get("temperature").get(0).get(1).asText()).isEqualTo(String.valueOf(2 * maxMsgQueuePerSession));
+        assertThat(frame.get(1).get("subscriptionId").asInt()).isEqualTo(2);
+        assertThat(frame.get(1).get("data").get("humidity")).hasSize(1);
+    }
+
+    @Test
+    void sendHandler_conflatedSession_notConflatableUpdatesKeepOrder() {
+        willReturn(true).given(sessionRef).isConflated();
+        ReflectionTestUtils.setField(wsHandler, "conflationMaxUpdatesPerFrame", 100);
+        TbWebSocketHandler.SessionMetaData conflatedMd = wsHandler.new SessionMetaData(session, sessionRef);
+        conflatedMd.setMaxMsgQueueSize(maxMsgQueuePerSession);
+        List<String> outputs = new ArrayList<>();
+        willAnswer(invocation -> outputs.add(invocation.getArgument(0))).given(asyncRemote).sendText(anyString(), any());
+
+        conflatedMd.sendUpdate(1, "{\"cmdId\":1,\"initial\":true}");
+        conflatedMd.sendUpdate(1, latestUpdate(1, "temperature", 1L, "1"));
+        conflatedMd.sendUpdate(1, "{\"cmdId\":1,\"errorCode\":1}");
+        conflatedMd.sendUpdate(1, latestUpdate(1, "temperature", 2L, "2"));
+        conflatedMd.sendUpdate(1, latestUpdate(1, "temperature", 3L, "3"));
+        conflatedMd.onResult(new SendResult());
+
+        assertThat(outputs).containsExactly("[{\"cmdId\":1,\"initial\":true}]",
+                "[" + JacksonUtil.toString(latestUpdate(1, "temperature", 1L, "1")) + ",{\"cmdId\":1,\"errorCode\":1},"
+                        + JacksonUtil.toString(latestUpdate(1, "temperature", 3L, "3")) + "]");
+    }
+
+    @Test
+    void sendHandler_conflatedSession_queue_size_exceed() {
+        willReturn(true).given(sessionRef).isConflated();
+        ReflectionTestUtils.setField(wsHandler, "conflationMaxUpdatesPerFrame", 100);
+        TbWebSocketHandler.SessionMetaData conflatedMd = spy(wsHandler.new SessionMetaData(session, sessionRef));
+        conflatedMd.setMaxMsgQueueSize(maxMsgQueuePerSession);
+        willDoNothing().given(asyncRemote).sendText(anyString(), any());
+
+        conflatedMd.sendUpdate(0, "first message to stay in-flight all the time during this test");
+        for (int i = 0; i < maxMsgQueuePerSession * 10; i++) {
+            conflatedMd.sendUpdate(1, latestUpdate(1, "temperature", i, String.valueOf(i)));
+        }
+        verify(conflatedMd, never()).closeSession(any());
+        for (int i = 0; i < maxMsgQueuePerSession; i++) {
+            conflatedMd.sendUpdate(i, "not conflatable " + i);
+        }
+        verify(conflatedMd, times(1)).closeSession(eq(new CloseStatus(1008, "Max pending updates limit reached!")));
+    }
+
+    private static TelemetrySubscriptionUpdate latestUpdate(int subscriptionId, String key, long ts, String value) {
+        return new TelemetrySubscriptionUpdate(subscriptionId, List.of(new BasicTsKvEntry(ts, new StringDataEntry(key, value))));
+    }
+
     @Test
     void sendHandler_onMsg_allProcessed() throws Exception {
         Deque<String> msgs = new ConcurrentLinkedDeque<>();
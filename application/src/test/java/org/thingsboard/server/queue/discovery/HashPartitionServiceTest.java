@@ -394,6 +394,47 @@ public class HashPartitionServiceTest {
         });
     }
 
+    @Test
+    public void testConsistentHashPartitionsAssignment() {
+        ReflectionTestUtils.setField(partitionService, "assignmentStrategy", HashPartitionService.CONSISTENT_HASH_STRATEGY);
+        ReflectionTestUtils.setField(partitionService, "consistentHashVirtualNodes", 64);
+        ReflectionTestUtils.setField(partitionService, "consistentHashLoadFactor", 1.25);
+        ReflectionTestUtils.setField(partitionService, "corePartitions", 100);
+        partitionService.init();
+
+        List<ServiceInfo> cores = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            cores.add(ServiceInfo.newBuilder()
+                    .setServiceId("tb-core-" + i)
+                    .addAllServiceTypes(List.of(ServiceType.TB_CORE.name()))
+                    .build());
+        }
+        Map<Integer, String> before = getCorePartitionsOwners(cores.subList(0, 4));
+        Map<Integer, String> after = getCorePartitionsOwners(cores);
+
+        assertThat(before).hasSize(100);
+        assertThat(after.keySet()).containsExactlyInAnyOrderElementsOf(before.keySet());
+        assertThat(after).containsValue("tb-core-4");
+        long moved = after.entrySet().stream().filter(entry -> !entry.getValue().equals(before.get(entry.getKey()))).count();
+        // with modulo assignment 80 of 100 partitions change the owner on 4 -> 5 services scale-out
+        assertThat(moved).isLessThan(40);
+    }
+
+    private Map<Integer, String> getCorePartitionsOwners(List<ServiceInfo> cores) {
+        Map<Integer, String> owners = new HashMap<>();
+        QueueKey coreKey = new QueueKey(ServiceType.TB_CORE);
+        for (ServiceInfo core : cores) {
+            List<ServiceInfo> other = new ArrayList<>(cores);
+            other.remove(core);
+            partitionService.recalculatePartitions(core, other);
+            List<Integer> partitions = partitionService.getMyPartitions(coreKey);
+            if (partitions != null) {
+                partitions.forEach(partition -> assertThat(owners.put(partition, core.getServiceId())).isNull());
+            }
+        }
+        return owners;
+    }
+
     private void verifyPartitionChangeEvent(Predicate<PartitionChangeEvent> predicate) {
         verify(applicationEventPublisher).publishEvent(argThat(event -> event instanceof PartitionChangeEvent && predicate.test((PartitionChangeEvent) event)));
     }
@@ -0,0 +1,123 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.entitiy.entityview;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.EntityView;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityViewId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.objects.TelemetryEntityView;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
+import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.entityview.EntityViewService;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultTbEntityViewServiceTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    private EntityViewService entityViewService;
+    private DefaultTbEntityViewService service;
+
+    @BeforeEach
+    public void setUp() {
+        entityViewService = mock(EntityViewService.class);
+        service = new DefaultTbEntityViewService(entityViewService, mock(AttributesService.class),
+                mock(TelemetrySubscriptionService.class), mock(TimeseriesService.class));
+    }
+
+    @Test
+    public void givenEntityWithoutViews_whenFindDefinitions_thenIndexesEmptyList() throws Exception {
+        when(entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+
+        assertThat(service.findIndexedEntityViewDefinitions(tenantId, deviceId)).isNull();
+        assertThat(service.findEntityViewDefinitionsAsync(tenantId, deviceId).get()).isEmpty();
+        assertThat(service.findIndexedEntityViewDefinitions(tenantId, deviceId)).isEmpty();
+        assertThat(service.findEntityViewDefinitionsAsync(tenantId, deviceId).get()).isEmpty();
+
+        verify(entityViewService, times(1)).findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId);
+    }
+
+    @Test
+    public void givenEntityView_whenFindDefinitions_thenReturnsKeysAndTimeRange() throws Exception {
+        EntityView entityView = createEntityView(List.of("temperature"), 100, 0);
+        when(entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(List.of(entityView)));
+
+        List<EntityViewDefinition> definitions = service.findEntityViewDefinitionsAsync(tenantId, deviceId).get();
+
+        assertThat(definitions).hasSize(1);
+        EntityViewDefinition definition = definitions.get(0);
+        assertThat(definition.getId()).isEqualTo(entityView.getId());
+        assertThat(definition.getTimeseries()).containsExactly("temperature");
+        assertThat(definition.isInTimeRange(100)).isFalse();
+        assertThat(definition.isInTimeRange(101)).isTrue();
+        assertThat(definition.isInTimeRange(Long.MAX_VALUE)).isTrue();
+    }
+
+    @Test
+    public void givenIndexedEntityView_whenEntityViewMovedToAnotherEntity_thenRemovesItFromIndex() throws Exception {
+        EntityView entityView = createEntityView(null, 0, 0);
+        when(entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(List.of(entityView)));
+        service.findEntityViewDefinitionsAsync(tenantId, deviceId).get();
+        assertThat(service.findIndexedEntityViewDefinitions(tenantId, deviceId)).hasSize(1);
+
+        DeviceId otherDeviceId = new DeviceId(UUID.randomUUID());
+        when(entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, otherDeviceId))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        service.findEntityViewDefinitionsAsync(tenantId, otherDeviceId).get();
+
+        EntityView movedEntityView = createEntityView(null, 0, 0);
+        movedEntityView.setId(entityView.getId());
+        movedEntityView.setEntityId(otherDeviceId);
+        when(entityViewService.findEntityViewById(tenantId, entityView.getId())).thenReturn(movedEntityView);
+        service.onComponentLifecycleMsg(new ComponentLifecycleMsg(tenantId, entityView.getId(), ComponentLifecycleEvent.UPDATED));
+
+        assertThat(service.findIndexedEntityViewDefinitions(tenantId, deviceId)).isEmpty();
+        assertThat(service.findIndexedEntityViewDefinitions(tenantId, otherDeviceId)).isNull();
+    }
+
+    private EntityView createEntityView(List<String> timeseries, long startTs, long endTs) {
+        EntityView entityView = new EntityView(new EntityViewId(UUID.randomUUID()));
+        entityView.setTenantId(tenantId);
+        entityView.setEntityId(deviceId);
+        if (timeseries != null) {
+            entityView.setKeys(new TelemetryEntityView(timeseries, null));
+        }
+        entityView.setStartTimeMs(startTs);
+        entityView.setEndTimeMs(endTs);
+        return entityView;
+    }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.limits;
+
+import org.thingsboard.server.cache.limits.RateLimitLease;
+import org.thingsboard.server.cache.limits.RateLimitTokenStore;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for the Redis token store, shared by several rate limit services to emulate the cluster.
+ */
+public class LocalRateLimitTokenStore implements RateLimitTokenStore {
+
+    private final ConcurrentMap<String, TbRateLimits> rateLimits = new ConcurrentHashMap<>();
+    private final AtomicInteger leaseCount = new AtomicInteger();
+    private final AtomicLong lastRequestedTokens = new AtomicLong();
+    private volatile boolean available = true;
+
+    @Override
+    public RateLimitLease lease(String key, String configuration, long tokens) {
+        leaseCount.incrementAndGet();
+        if (!available) {
+            throw new IllegalStateException("Token store is not available");
+        }
+        lastRequestedTokens.set(tokens);
+        long leased = rateLimits.computeIfAbsent(key, k -> new TbRateLimits(configuration)).tryConsumeAsMuchAsPossible(tokens);
+        return leased > 0 ? RateLimitLease.granted(leased) : RateLimitLease.exhausted(TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public int getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    public long getLastRequestedTokens() {
+        return lastRequestedTokens.get();
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+}
@@ -34,6 +34,7 @@ import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.dao.tenant.DefaultTbTenantProfileCache;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.eq;
@@ -51,7 +52,7 @@ public class RateLimitServiceTest {
     @BeforeEach
     public void beforeEach() {
         tenantProfileCache = Mockito.mock(DefaultTbTenantProfileCache.class);
-        rateLimitService = new DefaultRateLimitService(tenantProfileCache, mock(NotificationRuleProcessor.class), 60, 100);
+        rateLimitService = new DefaultRateLimitService(tenantProfileCache, mock(NotificationRuleProcessor.class), 60, 100, Optional.empty(), 10);
         tenantId = new TenantId(UUID.randomUUID());
     }
 
@@ -98,6 +99,78 @@ public class RateLimitServiceTest {
         testRateLimits(LimitedApi.WS_UPDATES_PER_SESSION, max, wsSessionId);
     }
 
+    @Test
+    public void testClusterRateLimitsAreSharedBetweenNodes() {
+        int max = 10;
+        DefaultTenantProfileConfiguration profileConfiguration = new DefaultTenantProfileConfiguration();
+        profileConfiguration.setTenantEntityExportRateLimit(max + ":600");
+        updateTenantProfileConfiguration(profileConfiguration);
+        LocalRateLimitTokenStore tokenStore = new LocalRateLimitTokenStore();
+        List<RateLimitService> nodes = List.of(createClusterRateLimitService(tokenStore), createClusterRateLimitService(tokenStore));
+
+        int allowed = 0;
+        for (int i = 0; i < max * 3; i++) {
+            if (nodes.get(i % nodes.size()).checkRateLimit(LimitedApi.ENTITY_EXPORT, tenantId)) {
+                allowed++;
+            }
+        }
+
+        Assertions.assertEquals(max, allowed);
+        Assertions.assertTrue(tokenStore.getLeaseCount() < max * 3);
+    }
+
+    @Test
+    public void testClusterRateLimitsFallBackToLocalLimitsWhenStoreIsNotAvailable() {
+        int max = 2;
+        DefaultTenantProfileConfiguration profileConfiguration = new DefaultTenantProfileConfiguration();
+        profileConfiguration.setTenantEntityExportRateLimit(max + ":600");
+        updateTenantProfileConfiguration(profileConfiguration);
+        LocalRateLimitTokenStore tokenStore = new LocalRateLimitTokenStore();
+        tokenStore.setAvailable(false);
+        rateLimitService = createClusterRateLimitService(tokenStore);
+
+        testRateLimits(LimitedApi.ENTITY_EXPORT, max, tenantId);
+        Assertions.assertEquals(0, tokenStore.getLeaseCount());
+    }
+
+    @Test
+    public void testClusterRateLimitsAreNotLeasedAgainUntilExhaustedWindowEnds() {
+        int max = 4;
+        DefaultTenantProfileConfiguration profileConfiguration = new DefaultTenantProfileConfiguration();
+        profileConfiguration.setTenantEntityExportRateLimit(max + ":600");
+        updateTenantProfileConfiguration(profileConfiguration);
+        LocalRateLimitTokenStore tokenStore = new LocalRateLimitTokenStore();
+        rateLimitService = createClusterRateLimitService(tokenStore);
+
+        testRateLimits(LimitedApi.ENTITY_EXPORT, max, tenantId);
+        int leaseCount = tokenStore.getLeaseCount();
+        for (int i = 0; i < max * 3; i++) {
+            Assertions.assertFalse(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, tenantId));
+        }
+
+        Assertions.assertEquals(leaseCount, tokenStore.getLeaseCount());
+    }
+
+    @Test
+    public void testClusterLeaseIsLimitedBySmallestCapacity() {
+        DefaultTenantProfileConfiguration profileConfiguration = new DefaultTenantProfileConfiguration();
+        profileConfiguration.setTenantEntityExportRateLimit("1000:1,10:3600");
+        profileConfiguration.setTenantEntityImportRateLimit("1000:1,100:3600");
+        updateTenantProfileConfiguration(profileConfiguration);
+        LocalRateLimitTokenStore tokenStore = new LocalRateLimitTokenStore();
+        rateLimitService = createClusterRateLimitService(tokenStore);
+
+        Assertions.assertTrue(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, tenantId));
+        Assertions.assertEquals(1, tokenStore.getLastRequestedTokens());
+
+        Assertions.assertTrue(rateLimitService.checkRateLimit(LimitedApi.ENTITY_IMPORT, tenantId));
+        Assertions.assertEquals(3, tokenStore.getLastRequestedTokens());
+    }
+
+    private RateLimitService createClusterRateLimitService(LocalRateLimitTokenStore tokenStore) {
+        return new DefaultRateLimitService(tenantProfileCache, mock(NotificationRuleProcessor.class), 60, 100, Optional.of(tokenStore), 3);
+    }
+
     private void testRateLimits(LimitedApi limitedApi, int max, Object level) {
         for (int i = 1; i <= max; i++) {
             boolean success = rateLimitService.checkRateLimit(limitedApi, tenantId, level);
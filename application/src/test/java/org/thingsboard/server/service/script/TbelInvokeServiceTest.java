@@ -25,14 +25,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.test.context.TestPropertySource;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.script.api.tbel.TbelCompiledScript;
 import org.thingsboard.script.api.tbel.TbelInvokeService;
 import org.thingsboard.script.api.tbel.TbelScript;
+import org.thingsboard.script.api.tbel.TbelScriptStats;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.controller.AbstractControllerTest;
 import org.thingsboard.server.dao.service.DaoSqlTest;
 
-import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -131,7 +133,7 @@ class TbelInvokeServiceTest extends AbstractControllerTest {
 
         Map<UUID, String> scriptIdToHash = getFieldValue(invokeService, "scriptIdToHash");
         Map<String, TbelScript> scriptMap = getFieldValue(invokeService, "scriptMap");
-        Cache<String, Serializable> compiledScriptsCache = getFieldValue(invokeService, "compiledScriptsCache");
+        Cache<String, TbelCompiledScript> compiledScriptsCache = getFieldValue(invokeService, "compiledScriptsCache");
 
         String scriptHash = scriptIdToHash.get(scriptsIds.get(0));
 
@@ -151,7 +153,7 @@ class TbelInvokeServiceTest extends AbstractControllerTest {
 
         Map<UUID, String> scriptIdToHash = getFieldValue(invokeService, "scriptIdToHash");
         Map<String, TbelScript> scriptMap = getFieldValue(invokeService, "scriptMap");
-        Cache<String, Serializable> compiledScriptsCache = getFieldValue(invokeService, "compiledScriptsCache");
+        Cache<String, TbelCompiledScript> compiledScriptsCache = getFieldValue(invokeService, "compiledScriptsCache");
 
         String scriptHash = scriptIdToHash.get(scriptsIds.get(0));
         for (int i = 0; i < 9; i++) {
@@ -168,12 +170,35 @@ class TbelInvokeServiceTest extends AbstractControllerTest {
         assertThat(compiledScriptsCache.getIfPresent(scriptHash)).isNull();
     }
 
+    @Test
+    public void whenInvokingScript_thenCollectPerScriptStats() throws Exception {
+        UUID scriptId = evalScript("return msg.temperature > 20;");
+        UUID sameScriptId = evalScript("return msg.temperature > 20;");
+        UUID otherScriptId = evalScript("return msg.temperature > 30;");
+
+        for (int i = 0; i < 5; i++) {
+            invokeScript(scriptId, "{ \"temperature\": 12 }");
+            invokeScript(sameScriptId, "{ \"temperature\": 12 }");
+        }
+        invokeScript(otherScriptId, "{ \"temperature\": 12 }");
+
+        TbelScriptStats stats = invokeService.getScriptStats(scriptId);
+        assertThat(stats).isSameAs(invokeService.getScriptStats(sameScriptId));
+        assertThat(stats.getInvocations()).isEqualTo(10);
+        assertThat(stats.getFailures()).isZero();
+        assertThat(Arrays.stream(stats.getLatencyHistogram()).sum()).isEqualTo(10);
+        assertThat(invokeService.getScriptStats(otherScriptId).getInvocations()).isEqualTo(1);
+
+        invokeService.release(otherScriptId);
+        assertThat(invokeService.getScriptStats(otherScriptId)).isNull();
+    }
+
     @Test
     @Ignore("This test is based on assumption that Caffeine cache is LRU based but in fact it is based on " +
             "Tiny LFU which is the cause that the tests fail sometime: https://arxiv.org/pdf/1512.00727.pdf")
     public void whenCompiledScriptsCacheIsTooBig_thenRemoveRarelyUsedScripts() throws Exception {
         Map<UUID, String> scriptIdToHash = getFieldValue(invokeService, "scriptIdToHash");
-        Cache<String, Serializable> compiledScriptsCache = getFieldValue(invokeService, "compiledScriptsCache");
+        Cache<String, TbelCompiledScript> compiledScriptsCache = getFieldValue(invokeService, "compiledScriptsCache");
 
         List<UUID> scriptsIds = new ArrayList<>();
         for (int i = 0; i < 110; i++) { // tbel.compiled_scripts_cache_size = 100
@@ -186,7 +211,7 @@ class TbelInvokeServiceTest extends AbstractControllerTest {
             }
         }
 
-        ConcurrentMap<String, Serializable> cache = compiledScriptsCache.asMap();
+        ConcurrentMap<String, TbelCompiledScript> cache = compiledScriptsCache.asMap();
 
         for (int i = 0; i < 10; i++) { // iterating rarely used scripts
             UUID scriptId = scriptsIds.get(i);
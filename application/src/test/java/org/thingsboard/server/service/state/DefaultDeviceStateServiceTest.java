@@ -32,6 +32,7 @@ import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.notification.rule.trigger.DeviceActivityTrigger;
 import org.thingsboard.server.common.data.page.PageData;
@@ -121,7 +122,7 @@ public class DefaultDeviceStateServiceTest {
     public void setUp() {
         service = spy(new DefaultDeviceStateService(deviceService, attributesService, tsService, clusterService, partitionService, entityQueryRepository, null, defaultTbApiUsageReportClient, notificationRuleProcessor));
         ReflectionTestUtils.setField(service, "tsSubService", telemetrySubscriptionService);
-        ReflectionTestUtils.setField(service, "defaultStateCheckIntervalInSec", 60);
+        ReflectionTestUtils.setField(service, "inactivityCheckIntervalInMs", 60000L);
         ReflectionTestUtils.setField(service, "defaultActivityStatsIntervalInSec", 60);
         ReflectionTestUtils.setField(service, "initFetchPackSize", 10);
 
@@ -485,6 +486,7 @@ public class DefaultDeviceStateServiceTest {
     public void givenDeviceIdWithoutDeviceStateInMap_whenGetOrFetchDeviceStateData_thenFetchDeviceStateData() {
         service.deviceStates.clear();
         willReturn(deviceStateDataMock).given(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        given(deviceStateDataMock.getState()).willReturn(DeviceState.builder().build());
         DeviceStateData deviceStateData = service.getOrFetchDeviceStateData(deviceId);
         assertThat(deviceStateData).isEqualTo(deviceStateDataMock);
         verify(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
@@ -712,6 +714,98 @@ public class DefaultDeviceStateServiceTest {
         verify(telemetrySubscriptionService, never()).saveAttrAndNotify(any(), eq(deviceId), any(AttributeScope.class), eq(ACTIVITY_STATE), any(), any());
     }
 
+    @Test
+    public void givenActiveDevice_whenCheckStatesBeforeDeadline_thenDeviceIsNotChecked() throws Exception {
+        final long defaultTimeout = 1000;
+        initStateService(defaultTimeout);
+        DeviceState deviceState = DeviceState.builder().inactivityTimeout(defaultTimeout).build();
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build();
+
+        service.deviceStates.put(deviceId, deviceStateData);
+        service.getPartitionedEntities(tpi).add(deviceId);
+
+        long lastActivityTime = System.currentTimeMillis();
+        service.onDeviceActivity(tenantId, deviceId, lastActivityTime);
+        activityVerify(true);
+        reset(telemetrySubscriptionService);
+
+        // The activity after the deadline was scheduled doesn't touch the queue
+        service.onDeviceActivity(tenantId, deviceId, lastActivityTime + 500);
+        assertThat(service.inactivityDeadlines.size()).isEqualTo(1);
+
+        doReturn(lastActivityTime + defaultTimeout - 1).when(service).getCurrentTimeMillis();
+        service.checkStates();
+        verify(service, never()).updateInactivityStateIfExpired(anyLong(), eq(deviceId), any());
+
+        // The outdated deadline is expired, and the device is rescheduled to the deadline of the last activity
+        doReturn(lastActivityTime + defaultTimeout).when(service).getCurrentTimeMillis();
+        service.checkStates();
+        verify(telemetrySubscriptionService, never()).saveAttrAndNotify(any(), eq(deviceId), any(AttributeScope.class), eq(ACTIVITY_STATE), any(), any());
+        assertThat(service.inactivityDeadlines.size()).isEqualTo(1);
+
+        doReturn(lastActivityTime + 500 + defaultTimeout).when(service).getCurrentTimeMillis();
+        service.checkStates();
+        activityVerify(false);
+        assertThat(service.inactivityDeadlines.size()).isZero();
+    }
+
+    @Test
+    public void givenWriteBehindEnabled_whenActiveDeviceReportsActivity_thenLastActivityTimeIsSavedOnFlush() {
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
+        DeviceState deviceState = DeviceState.builder().active(true).inactivityTimeout(10000).build();
+        service.deviceStates.put(deviceId, DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build());
+
+        long lastActivityTime = System.currentTimeMillis();
+        service.onDeviceActivity(tenantId, deviceId, lastActivityTime);
+        service.onDeviceActivity(tenantId, deviceId, lastActivityTime + 1);
+        then(telemetrySubscriptionService).shouldHaveNoInteractions();
+        assertThat(service.pendingWrites).containsOnlyKeys(deviceId);
+
+        service.flushPendingWrites();
+
+        ArgumentCaptor<List<AttributeKvEntry>> attributesCaptor = ArgumentCaptor.forClass(List.class);
+        then(telemetrySubscriptionService).should().saveAndNotify(eq(TenantId.SYS_TENANT_ID), eq(deviceId), eq(AttributeScope.SERVER_SCOPE), attributesCaptor.capture(), any());
+        assertThat(attributesCaptor.getValue()).singleElement().satisfies(attribute -> {
+            assertThat(attribute.getKey()).isEqualTo(LAST_ACTIVITY_TIME);
+            assertThat(attribute.getLongValue()).hasValue(lastActivityTime + 1);
+        });
+        assertThat(service.pendingWrites).isEmpty();
+    }
+
+    @Test
+    public void givenWriteBehindEnabled_whenDeviceBecomesInactive_thenPendingWritesAreSavedImmediately() {
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
+        DeviceState deviceState = DeviceState.builder().active(true).inactivityTimeout(10000).build();
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build();
+        service.deviceStates.put(deviceId, deviceStateData);
+
+        long lastActivityTime = System.currentTimeMillis();
+        service.onDeviceActivity(tenantId, deviceId, lastActivityTime);
+        given(partitionService.resolve(ServiceType.TB_CORE, tenantId, deviceId)).willReturn(tpi);
+        service.updateInactivityStateIfExpired(lastActivityTime + 10000, deviceId, deviceStateData);
+
+        then(telemetrySubscriptionService).should().saveAndNotify(eq(TenantId.SYS_TENANT_ID), eq(deviceId), eq(AttributeScope.SERVER_SCOPE), any(), any());
+        activityVerify(false);
+        assertThat(service.pendingWrites).isEmpty();
+    }
+
     private void activityVerify(boolean isActive) {
         verify(telemetrySubscriptionService).saveAttrAndNotify(any(), eq(deviceId), any(AttributeScope.class), eq(ACTIVITY_STATE), eq(isActive), any());
     }
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InactivityDeadlineQueueTest {
+
+    private final InactivityDeadlineQueue queue = new InactivityDeadlineQueue();
+
+    @Test
+    public void givenDeadlines_whenPollExpired_thenReturnsExpiredInOrder() {
+        DeviceId first = new DeviceId(UUID.randomUUID());
+        DeviceId second = new DeviceId(UUID.randomUUID());
+        DeviceId third = new DeviceId(UUID.randomUUID());
+        queue.schedule(second, 200);
+        queue.schedule(third, 300);
+        queue.schedule(first, 100);
+
+        assertThat(queue.pollExpired(99)).isEmpty();
+        assertThat(queue.pollExpired(200)).containsExactly(first, second);
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.pollExpired(Long.MAX_VALUE)).containsExactly(third);
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    public void givenScheduledDevice_whenScheduleLaterDeadline_thenKeepsEarlierDeadline() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        queue.schedule(deviceId, 100);
+        queue.schedule(deviceId, 200);
+
+        assertThat(queue.pollExpired(100)).containsExactly(deviceId);
+        assertThat(queue.pollExpired(200)).isEmpty();
+    }
+
+    @Test
+    public void givenScheduledDevice_whenScheduleEarlierDeadline_thenOutdatedDeadlineIsSkipped() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        queue.schedule(deviceId, 200);
+        queue.schedule(deviceId, 100);
+
+        assertThat(queue.pollExpired(100)).containsExactly(deviceId);
+        assertThat(queue.pollExpired(200)).isEmpty();
+    }
+
+    @Test
+    public void givenRemovedDevice_whenPollExpired_thenDeviceIsSkipped() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        queue.schedule(deviceId, 100);
+        queue.remove(deviceId);
+
+        assertThat(queue.pollExpired(100)).isEmpty();
+        assertThat(queue.size()).isZero();
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WsUpdatesConflatorTest {
+
+    private final DeviceId deviceA = new DeviceId(UUID.randomUUID());
+    private final DeviceId deviceB = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void givenTelemetryUpdates_whenMerge_thenKeepLatestValuePerKey() {
+        TelemetrySubscriptionUpdate first = new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(1, new StringDataEntry("temperature", "20")),
+                new BasicTsKvEntry(1, new StringDataEntry("humidity", "50"))));
+        TelemetrySubscriptionUpdate second = new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(2, new StringDataEntry("temperature", "21"))));
+
+        TelemetrySubscriptionUpdate merged = (TelemetrySubscriptionUpdate) WsUpdatesConflator.merge(first, second);
+
+        assertThat(merged.getSubscriptionId()).isEqualTo(1);
+        assertThat(merged.getLatestValues()).containsEntry("temperature", 2L).containsEntry("humidity", 1L);
+        assertThat(first.getData().get("temperature")).hasSize(1);
+        assertThat(((Object[]) first.getData().get("temperature").get(0))[1]).isEqualTo("20");
+    }
+
+    @Test
+    public void givenHistoryOrError_whenCheckConflatable_thenFalse() {
+        TelemetrySubscriptionUpdate history = new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(1, new StringDataEntry("temperature", "20")),
+                new BasicTsKvEntry(2, new StringDataEntry("temperature", "21"))));
+        TelemetrySubscriptionUpdate error = new TelemetrySubscriptionUpdate(1, SubscriptionErrorCode.BAD_REQUEST);
+        EntityDataUpdate pageData = new EntityDataUpdate(1, new PageData<>(), null, 100);
+        EntityDataUpdate timeseries = new EntityDataUpdate(1, null, List.of(new EntityData(deviceA, null,
+                Map.of("temperature", new TsValue[]{new TsValue(1, "20")}))), 100);
+
+        assertThat(WsUpdatesConflator.isConflatable(history)).isFalse();
+        assertThat(WsUpdatesConflator.isConflatable(error)).isFalse();
+        assertThat(WsUpdatesConflator.isConflatable(pageData)).isFalse();
+        assertThat(WsUpdatesConflator.isConflatable(timeseries)).isFalse();
+        assertThat(WsUpdatesConflator.isConflatable("{}")).isFalse();
+        assertThat(WsUpdatesConflator.merge(history, history)).isNull();
+    }
+
+    @Test
+    public void givenEntityDataUpdates_whenMerge_thenMergeLatestValuesPerEntity() {
+        EntityDataUpdate first = new EntityDataUpdate(5, null, List.of(
+                latest(deviceA, EntityKeyType.TIME_SERIES, "temperature", 1, "20"),
+                latest(deviceB, EntityKeyType.TIME_SERIES, "temperature", 1, "30")), 100);
+        EntityDataUpdate second = new EntityDataUpdate(5, null, List.of(
+                latest(deviceA, EntityKeyType.TIME_SERIES, "temperature", 2, "21"),
+                latest(deviceA, EntityKeyType.ATTRIBUTE, "firmware", 2, "1.1")), 100);
+
+        EntityDataUpdate merged = (EntityDataUpdate) WsUpdatesConflator.merge(first, second);
+
+        assertThat(merged.getCmdId()).isEqualTo(5);
+        assertThat(merged.getUpdate()).extracting(EntityData::getEntityId).containsExactly(deviceA, deviceB);
+        EntityData entityA = merged.getUpdate().get(0);
+        assertThat(entityA.getLatest().get(EntityKeyType.TIME_SERIES).get("temperature")).isEqualTo(new TsValue(2, "21"));
+        assertThat(entityA.getLatest().get(EntityKeyType.ATTRIBUTE).get("firmware")).isEqualTo(new TsValue(2, "1.1"));
+        assertThat(merged.getUpdate().get(1).getLatest().get(EntityKeyType.TIME_SERIES).get("temperature")).isEqualTo(new TsValue(1, "30"));
+    }
+
+    private static EntityData latest(DeviceId deviceId, EntityKeyType keyType, String key, long ts, String value) {
+        Map<EntityKeyType, Map<String, TsValue>> latest = new HashMap<>();
+        latest.put(keyType, Map.of(key, new TsValue(ts, value)));
+        return new EntityData(deviceId, latest, null);
+    }
+
+}
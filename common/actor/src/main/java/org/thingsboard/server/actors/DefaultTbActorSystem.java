@@ -72,6 +72,15 @@ public class DefaultTbActorSystem implements TbActorSystem {
         }
     }
 
+    @Override
+    public TbActorDispatcherStats getDispatcherStats(String dispatcherId) {
+        Dispatcher dispatcher = dispatchers.get(dispatcherId);
+        if (dispatcher == null) {
+            throw new RuntimeException("Dispatcher with id [" + dispatcherId + "] is not registered!");
+        }
+        return dispatcher.getStats();
+    }
+
     @Override
     public TbActorRef getActor(TbActorId actorId) {
         return actors.get(actorId);
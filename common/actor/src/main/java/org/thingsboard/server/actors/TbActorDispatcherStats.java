@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collected by the {@link TbActorMailboxType#MPSC} mailboxes only, so the {@link TbActorMailboxType#DEFAULT} ones
+ * do not pay for the extra counters on each message.
+ */
+@Getter
+public class TbActorDispatcherStats {
+
+    /**
+     * Number of messages that are queued in the mailboxes of the dispatcher actors.
+     */
+    private final LongAdder mailboxDepth = new LongAdder();
+    /**
+     * Total number of messages processed by the dispatcher actors.
+     */
+    private final LongAdder processedMsgs = new LongAdder();
+    /**
+     * Total time spent by the dispatcher threads on processing of the actor mailboxes.
+     */
+    private final LongAdder processingTimeNanos = new LongAdder();
+
+}
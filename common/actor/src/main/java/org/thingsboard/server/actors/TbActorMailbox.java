@@ -16,8 +16,9 @@
 package org.thingsboard.server.actors;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.msg.MsgType;
 import org.thingsboard.server.common.msg.TbActorError;
@@ -33,7 +34,6 @@ import java.util.function.Supplier;
 
 @Slf4j
 @Getter
-@RequiredArgsConstructor
 public final class TbActorMailbox implements TbActorCtx {
     private static final boolean HIGH_PRIORITY = true;
     private static final boolean NORMAL_PRIORITY = false;
@@ -44,19 +44,70 @@ public final class TbActorMailbox implements TbActorCtx {
     private static final boolean NOT_READY = false;
     private static final boolean READY = true;
 
+    private static final int MPSC_QUEUE_CHUNK_SIZE = 16;
+
     private final TbActorSystem system;
     private final TbActorSystemSettings settings;
     private final TbActorId selfId;
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final boolean mpsc;
+    // Queues of the DEFAULT mailbox type
+    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs;
+    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs;
+    // Queues of the MPSC mailbox type. High priority messages are rare, so the queue is created with the first of them to save memory per actor
+    private volatile MessagePassingQueue<TbActorMsg> mpscHighPriorityMsgs;
+    private final MessagePassingQueue<TbActorMsg> mpscNormalPriorityMsgs;
+    private final MessagePassingQueue.Consumer<TbActorMsg> mpscMsgProcessor = this::processMpscMsg;
+    private final TbActorDispatcherStats stats;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
     private volatile TbActorStopReason stopReason;
 
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        this.system = system;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        this.mpsc = settings.getMailboxType() == TbActorMailboxType.MPSC;
+        if (mpsc) {
+            this.highPriorityMsgs = null;
+            this.normalPriorityMsgs = null;
+            this.mpscNormalPriorityMsgs = new MpscUnboundedArrayQueue<>(MPSC_QUEUE_CHUNK_SIZE);
+        } else {
+            this.highPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.mpscNormalPriorityMsgs = null;
+        }
+        this.stats = dispatcher.getStats();
+    }
+
+    private MessagePassingQueue<TbActorMsg> getOrCreateMpscHighPriorityMsgs() {
+        MessagePassingQueue<TbActorMsg> queue = mpscHighPriorityMsgs;
+        if (queue == null) {
+            synchronized (this) {
+                queue = mpscHighPriorityMsgs;
+                if (queue == null) {
+                    queue = new MpscUnboundedArrayQueue<>(MPSC_QUEUE_CHUNK_SIZE);
+                    mpscHighPriorityMsgs = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    private boolean hasPendingMsgs() {
+        if (mpsc) {
+            MessagePassingQueue<TbActorMsg> highPriorityMsgs = this.mpscHighPriorityMsgs;
+            return (highPriorityMsgs != null && !highPriorityMsgs.isEmpty()) || !mpscNormalPriorityMsgs.isEmpty();
+        }
+        return !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty();
+    }
+
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
     }
@@ -105,7 +156,14 @@ public final class TbActorMailbox implements TbActorCtx {
 
     private void enqueue(TbActorMsg msg, boolean highPriority) {
         if (!destroyInProgress.get()) {
-            if (highPriority) {
+            if (mpsc) {
+                if (highPriority) {
+                    getOrCreateMpscHighPriorityMsgs().offer(msg);
+                } else {
+                    mpscNormalPriorityMsgs.offer(msg);
+                }
+                stats.getMailboxDepth().increment();
+            } else if (highPriority) {
                 highPriorityMsgs.add(msg);
             } else {
                 normalPriorityMsgs.add(msg);
@@ -130,9 +188,9 @@ public final class TbActorMailbox implements TbActorCtx {
 
     private void tryProcessQueue(boolean newMsg) {
         if (ready.get() == READY) {
-            if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
+            if (newMsg || hasPendingMsgs()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
-                    dispatcher.getExecutor().execute(this::processMailbox);
+                    dispatcher.getExecutor().execute(mpsc ? this::processMpscMailbox : this::processMailbox);
                 } else {
                     log.trace("[{}] MessageBox is busy, new msg: {}", selfId, newMsg);
                 }
@@ -152,19 +210,7 @@ public final class TbActorMailbox implements TbActorCtx {
                 msg = normalPriorityMsgs.poll();
             }
             if (msg != null) {
-                try {
-                    log.debug("[{}] Going to process message: {}", selfId, msg);
-                    actor.process(msg);
-                } catch (TbRuleNodeUpdateException updateException) {
-                    stopReason = TbActorStopReason.INIT_FAILED;
-                    destroy(updateException.getCause());
-                } catch (Throwable t) {
-                    log.debug("[{}] Failed to process message: {}", selfId, msg, t);
-                    ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
-                    if (strategy.isStop()) {
-                        system.stop(selfId);
-                    }
-                }
+                processMsg(msg);
             } else {
                 noMoreElements = true;
                 break;
@@ -178,6 +224,67 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    private void processMpscMailbox() {
+        long startNs = System.nanoTime();
+        int throughput = settings.getActorThroughput();
+        int processed = 0;
+        boolean hasMoreElements;
+        while (true) {
+            processed += drainMpscMailbox(throughput - processed);
+            if (processed >= throughput) {
+                hasMoreElements = true;
+                break;
+            }
+            busy.set(FREE);
+            if (destroyInProgress.get()) {
+                dropPendingMpscMsgs();
+                hasMoreElements = false;
+                break;
+            }
+            // Messages added after the queues were drained, but before the mailbox was released,
+            // are processed on the current thread instead of submitting one more task to the dispatcher.
+            if (ready.get() != READY || !hasPendingMsgs() || !busy.compareAndSet(FREE, BUSY)) {
+                hasMoreElements = false;
+                break;
+            }
+        }
+        stats.getProcessingTimeNanos().add(System.nanoTime() - startNs);
+        if (hasMoreElements) {
+            dispatcher.getExecutor().execute(this::processMpscMailbox);
+        }
+    }
+
+    private int drainMpscMailbox(int limit) {
+        MessagePassingQueue<TbActorMsg> highPriorityMsgs = this.mpscHighPriorityMsgs;
+        int count = highPriorityMsgs != null ? highPriorityMsgs.drain(mpscMsgProcessor, limit) : 0;
+        if (count < limit) {
+            count += mpscNormalPriorityMsgs.drain(mpscMsgProcessor, limit - count);
+        }
+        return count;
+    }
+
+    private void processMpscMsg(TbActorMsg msg) {
+        stats.getMailboxDepth().decrement();
+        stats.getProcessedMsgs().increment();
+        processMsg(msg);
+    }
+
+    private void processMsg(TbActorMsg msg) {
+        try {
+            log.debug("[{}] Going to process message: {}", selfId, msg);
+            actor.process(msg);
+        } catch (TbRuleNodeUpdateException updateException) {
+            stopReason = TbActorStopReason.INIT_FAILED;
+            destroy(updateException.getCause());
+        } catch (Throwable t) {
+            log.debug("[{}] Failed to process message: {}", selfId, msg, t);
+            ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
+            if (strategy.isStop()) {
+                system.stop(selfId);
+            }
+        }
+    }
+
     @Override
     public TbActorId getSelf() {
         return selfId;
@@ -237,14 +344,53 @@ public final class TbActorMailbox implements TbActorCtx {
             try {
                 ready.set(NOT_READY);
                 actor.destroy(stopReason, cause);
-                highPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
-                normalPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
+                if (mpsc) {
+                    dropPendingMpscMsgs();
+                } else {
+                    dropPendingMsgs();
+                }
             } catch (Throwable t) {
                 log.warn("[{}] Failed to destroy actor: {}", selfId, t);
             }
         });
     }
 
+    /**
+     * Removes the messages from the queues, so each message is notified once, even if it is polled concurrently.
+     */
+    private void dropPendingMsgs() {
+        TbActorMsg msg;
+        while ((msg = highPriorityMsgs.poll()) != null) {
+            msg.onTbActorStopped(stopReason);
+        }
+        while ((msg = normalPriorityMsgs.poll()) != null) {
+            msg.onTbActorStopped(stopReason);
+        }
+    }
+
+    /**
+     * The MPSC queues allow a single consumer, so the messages are dropped only by the thread that owns the mailbox.
+     * If the mailbox is busy, the messages are dropped by the processing thread when it releases the mailbox.
+     */
+    private void dropPendingMpscMsgs() {
+        if (busy.compareAndSet(FREE, BUSY)) {
+            try {
+                MessagePassingQueue<TbActorMsg> highPriorityMsgs = this.mpscHighPriorityMsgs;
+                if (highPriorityMsgs != null) {
+                    highPriorityMsgs.drain(this::onMpscMsgDropped);
+                }
+                mpscNormalPriorityMsgs.drain(this::onMpscMsgDropped);
+            } finally {
+                busy.set(FREE);
+            }
+        }
+    }
+
+    private void onMpscMsgDropped(TbActorMsg msg) {
+        stats.getMailboxDepth().decrement();
+        msg.onTbActorStopped(stopReason);
+    }
+
     @Override
     public TbActorId getActorId() {
         return selfId;
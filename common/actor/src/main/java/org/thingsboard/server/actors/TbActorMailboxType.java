@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+public enum TbActorMailboxType {
+
+    /**
+     * Unbounded {@link java.util.concurrent.ConcurrentLinkedQueue}s; the mailbox polls one message at a time
+     * and goes through the dispatcher executor whenever it gets empty.
+     */
+    DEFAULT,
+    /**
+     * Unbounded chunked MPSC array queues; the mailbox drains messages in batches
+     * and keeps processing on the current thread if new messages arrive while it is being released.
+     * Only these mailboxes update the {@link TbActorDispatcherStats}.
+     */
+    MPSC
+
+}
@@ -30,6 +30,8 @@ public interface TbActorSystem {
 
     void destroyDispatcher(String dispatcherId);
 
+    TbActorDispatcherStats getDispatcherStats(String dispatcherId);
+
     TbActorRef getActor(TbActorId actorId);
 
     TbActorRef createRootActor(String dispatcherId, TbActorCreator creator);
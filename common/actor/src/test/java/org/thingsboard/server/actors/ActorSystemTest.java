@@ -24,6 +24,8 @@ import org.junit.jupiter.api.Test;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbActorStopReason;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -55,11 +57,15 @@ public class ActorSystemTest {
         int cores = Runtime.getRuntime().availableProcessors();
         parallelism = Math.max(2, cores / 2);
         log.debug("parallelism {}", parallelism);
-        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42);
+        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42, getMailboxType());
         actorSystem = new DefaultTbActorSystem(settings);
         submitPool = Executors.newFixedThreadPool(parallelism, ThingsBoardThreadFactory.forName(getClass().getSimpleName() + "-submit-test-scope")); //order guaranteed
     }
 
+    protected TbActorMailboxType getMailboxType() {
+        return TbActorMailboxType.DEFAULT;
+    }
+
     @AfterEach
     public void shutdownActorSystem() {
         actorSystem.stop();
@@ -131,6 +137,34 @@ public class ActorSystemTest {
         Assertions.assertFalse(testCtx1.getLatch().await(1, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testPendingMessagesAreDroppedOnceOnDestroy() throws InterruptedException {
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new SlowInitActor.SlowInitActorCreator(
+                new TbEntityActorId(new DeviceId(UUID.randomUUID())), getActorTestCtx(1)));
+        AtomicInteger dropped = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            TbActorMsg msg = new IntTbActorMsg(i) {
+                @Override
+                public void onTbActorStopped(TbActorStopReason reason) {
+                    dropped.incrementAndGet();
+                }
+            };
+            if (i % 2 == 0) {
+                actorRef.tellWithHighPriority(msg);
+            } else {
+                actorRef.tell(msg);
+            }
+        }
+        actorSystem.stop(actorRef.getActorId());
+
+        Awaitility.await().atMost(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS).until(() -> dropped.get() == 10);
+        Thread.sleep(1000);
+        assertThat(dropped.get()).isEqualTo(10);
+        assertThat(actorSystem.getDispatcherStats(ROOT_DISPATCHER).getMailboxDepth().sum()).isZero();
+    }
+
     @Test
     public void testOneActorCreated() throws InterruptedException {
         executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
@@ -218,6 +252,23 @@ public class ActorSystemTest {
     }
 
 
+    @Test
+    public void testDispatcherStats() throws InterruptedException {
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(10, 1000, 1);
+
+        TbActorDispatcherStats stats = actorSystem.getDispatcherStats(ROOT_DISPATCHER);
+        assertThat(stats.getMailboxDepth().sum()).isZero();
+        if (getMailboxType() == TbActorMailboxType.MPSC) {
+            assertThat(stats.getProcessedMsgs().sum()).isEqualTo(10 * 1000);
+            assertThat(stats.getProcessingTimeNanos().sum()).isPositive();
+        } else {
+            assertThat(stats.getProcessedMsgs().sum()).isZero();
+            assertThat(stats.getProcessingTimeNanos().sum()).isZero();
+        }
+    }
+
     public void testActorsAndMessages(int actorsCount, int msgNumber, int times) throws InterruptedException {
         Random random = new Random();
         int[] randomIntegers = new int[msgNumber];
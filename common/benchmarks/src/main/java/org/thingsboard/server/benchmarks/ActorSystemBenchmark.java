@@ -0,0 +1,170 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorMailboxType;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbStringActorId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures enqueue and dispatch throughput of {@link DefaultTbActorSystem#tell}, including mailbox processing.
+ * Every invocation sends a batch of messages to random actors and waits until all of them are processed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ActorSystemBenchmark {
+
+    private static final String DISPATCHER_ID = "benchmark-dispatcher";
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1", "1000", "100000"})
+    private int actorCount;
+
+    @Param({"5", "30"})
+    private int actorThroughput;
+
+    @Param({"4"})
+    private int dispatcherPoolSize;
+
+    @Param({"DEFAULT", "MPSC"})
+    private TbActorMailboxType mailboxType;
+
+    private DefaultTbActorSystem actorSystem;
+    private TbActorId[] actorIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(actorThroughput, 1, 0, mailboxType));
+        actorSystem.createDispatcher(DISPATCHER_ID, ThingsBoardExecutors.newWorkStealingPool(dispatcherPoolSize, DISPATCHER_ID));
+        actorIds = new TbActorId[actorCount];
+        for (int i = 0; i < actorCount; i++) {
+            actorIds[i] = new TbStringActorId("actor-" + i);
+            actorSystem.createRootActor(DISPATCHER_ID, new CountingActorCreator(actorIds[i]));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void tell() throws InterruptedException {
+        sendBatch(false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void tellContended() throws InterruptedException {
+        sendBatch(false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void tellWithHighPriorityContended() throws InterruptedException {
+        sendBatch(true);
+    }
+
+    private void sendBatch(boolean highPriority) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        CountDownMsg msg = new CountDownMsg(latch);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            TbActorId target = actorIds[random.nextInt(actorCount)];
+            if (highPriority) {
+                actorSystem.tellWithHighPriority(target, msg);
+            } else {
+                actorSystem.tell(target, msg);
+            }
+        }
+        latch.await();
+    }
+
+    @RequiredArgsConstructor
+    private static class CountDownMsg implements TbActorMsg {
+
+        @Getter
+        private final CountDownLatch latch;
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+        }
+    }
+
+    private static class CountingActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            ((CountDownMsg) msg).getLatch().countDown();
+            return true;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class CountingActorCreator implements TbActorCreator {
+
+        private final TbActorId actorId;
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new CountingActor();
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds a flat telemetry payload with a mix of numeric, boolean, string and JSON values, similar to what devices usually publish.
+     */
+    static String telemetryJson(int keys) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"key").append(i).append("\":");
+            switch (i % 5) {
+                case 0 -> json.append(random.nextInt(1000));
+                case 1 -> json.append(random.nextDouble() * 100);
+                case 2 -> json.append(random.nextBoolean());
+                case 3 -> json.append("\"value-").append(random.nextInt(1000)).append('"');
+                default -> json.append("{\"nested\":").append(random.nextInt(1000)).append('}');
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Wraps {@link #telemetryJson} payloads into the <code>{"ts": ..., "values": {...}}</code> format.
+     */
+    static String telemetryWithTsJson(int keys, int points) {
+        long ts = System.currentTimeMillis();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < points; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"ts\":").append(ts - i * 1000L).append(",\"values\":").append(telemetryJson(keys)).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.DefaultMessagesStats;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsTimer;
+import org.thingsboard.server.common.stats.StatsType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link StatsFactory} backed by a {@link SimpleMeterRegistry}, so that components can be benchmarked without the Spring context.
+ */
+class BenchmarkStatsFactory implements StatsFactory {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Override
+    public StatsCounter createStatsCounter(String key, String statsName, String... otherTags) {
+        return new StatsCounter(new AtomicInteger(0), meterRegistry.counter(key, Tags.of(otherTags).and("statsName", statsName)), statsName);
+    }
+
+    @Override
+    public DefaultCounter createDefaultCounter(String key, String... tags) {
+        return new DefaultCounter(new AtomicInteger(0), meterRegistry.counter(key, tags));
+    }
+
+    @Override
+    public <T extends Number> T createGauge(String key, T number, String... tags) {
+        return meterRegistry.gauge(key, Tags.of(tags), number);
+    }
+
+    @Override
+    public MessagesStats createMessagesStats(String key) {
+        return new DefaultMessagesStats(createStatsCounter(key, "totalMsgs"),
+                createStatsCounter(key, "successfulMsgs"), createStatsCounter(key, "failedMsgs"));
+    }
+
+    @Override
+    public Timer createTimer(String key, String... tags) {
+        return Timer.builder(key).tags(tags).register(meterRegistry);
+    }
+
+    @Override
+    public StatsTimer createTimer(StatsType type, String name, String... tags) {
+        return new StatsTimer(name, Timer.builder(type.getName()).tags(Tags.of(tags).and("statsName", name)).register(meterRegistry));
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.sql.SqlLatestCopyInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.sql.SqlLatestInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlCopyInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlInsertTsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the "batch" and "copy" insert modes of the time-series repositories against a real PostgreSQL database.
+ * Point {@code jdbcUrl} to a scratch database: the benchmark creates {@code ts_kv} and {@code ts_kv_latest} if they do not exist
+ * and keeps the inserted rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InsertTsRepositoryBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"jdbc:postgresql://localhost:5432/thingsboard_benchmark"})
+    private String jdbcUrl;
+
+    @Param({"postgres"})
+    private String username;
+
+    @Param({"postgres"})
+    private String password;
+
+    @Param({"batch", "copy"})
+    private String insertMode;
+
+    private AnnotationConfigApplicationContext context;
+    private InsertTsRepository<TsKvEntity> tsRepository;
+    private InsertLatestTsRepository latestRepository;
+    private UUID[] entityIds;
+    private final AtomicLong ts = new AtomicLong();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(jdbcUrl);
+        dataSource.setUser(username);
+        dataSource.setPassword(password);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ts_kv (entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+                "bool_v boolean, str_v varchar(10000000), long_v bigint, dbl_v double precision, json_v json, " +
+                "CONSTRAINT ts_kv_pkey PRIMARY KEY (entity_id, key, ts)) PARTITION BY RANGE (ts)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ts_kv_indefinite PARTITION OF ts_kv DEFAULT");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ts_kv_latest (entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+                "bool_v boolean, str_v varchar(10000000), long_v bigint, dbl_v double precision, json_v json, " +
+                "CONSTRAINT ts_kv_latest_pkey PRIMARY KEY (entity_id, key))");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "database.ts.type", "sql",
+                "database.ts_latest.type", "sql",
+                "sql.ts.insert_mode", insertMode,
+                "sql.ts_latest.insert_mode", insertMode)));
+        context.registerBean(JdbcTemplate.class, () -> jdbcTemplate);
+        context.registerBean(TransactionTemplate.class, () -> new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        context.register(SqlInsertTsRepository.class, SqlCopyInsertTsRepository.class,
+                SqlLatestInsertTsRepository.class, SqlLatestCopyInsertTsRepository.class);
+        context.refresh();
+        tsRepository = context.getBean(InsertTsRepository.class);
+        latestRepository = context.getBean(InsertLatestTsRepository.class);
+
+        entityIds = new UUID[1000];
+        for (int i = 0; i < entityIds.length; i++) {
+            entityIds[i] = UUID.randomUUID();
+        }
+        ts.set(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveTs() {
+        List<TsKvEntity> entities = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            entities.add(fill(new TsKvEntity()));
+        }
+        tsRepository.saveOrUpdate(entities);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveLatest() {
+        List<TsKvLatestEntity> entities = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            entities.add(fill(new TsKvLatestEntity()));
+        }
+        latestRepository.saveOrUpdate(entities);
+    }
+
+    private <T extends AbstractTsKvEntity> T fill(T entity) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        entity.setEntityId(entityIds[random.nextInt(entityIds.length)]);
+        entity.setKey(random.nextInt(10));
+        entity.setTs(ts.incrementAndGet());
+        if (random.nextBoolean()) {
+            entity.setDoubleValue(random.nextDouble());
+        } else {
+            entity.setStrValue("value-" + random.nextInt(1000));
+        }
+        return entity;
+    }
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.JsonStreamingConverter;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures telemetry parsing by {@link JsonConverter} the same way transports do it: starting from the raw payload bytes.
+ * The <code>streaming*</code> benchmarks convert the same payloads with {@link JsonStreamingConverter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JsonConverterBenchmark {
+
+    @Param({"5", "50"})
+    private int keys;
+
+    @Param({"1", "10"})
+    private int points;
+
+    private byte[] payload;
+    private byte[] payloadWithTs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        payload = BenchmarkData.telemetryJson(keys).getBytes(StandardCharsets.UTF_8);
+        payloadWithTs = BenchmarkData.telemetryWithTsJson(keys, points).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertToTelemetryProto() {
+        return JsonConverter.convertToTelemetryProto(parse(payload));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertToTelemetryProtoWithTs() {
+        return JsonConverter.convertToTelemetryProto(parse(payloadWithTs));
+    }
+
+    @Benchmark
+    public TransportProtos.PostAttributeMsg convertToAttributesProto() {
+        return JsonConverter.convertToAttributesProto(parse(payload));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg streamingConvertToTelemetryProto() {
+        return JsonStreamingConverter.convertToTelemetryProto(payload);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg streamingConvertToTelemetryProtoWithTs() {
+        return JsonStreamingConverter.convertToTelemetryProto(payloadWithTs);
+    }
+
+    @Benchmark
+    public TransportProtos.PostAttributeMsg streamingConvertToAttributesProto() {
+        return JsonStreamingConverter.convertToAttributesProto(payload);
+    }
+
+    @Benchmark
+    public Map<Long, List<KvEntry>> convertToTelemetry() {
+        return JsonConverter.convertToTelemetry(parse(payloadWithTs), System.currentTimeMillis());
+    }
+
+    private static JsonElement parse(byte[] payload) {
+        return JsonParser.parseString(new String(payload, StandardCharsets.UTF_8));
+    }
+
+}
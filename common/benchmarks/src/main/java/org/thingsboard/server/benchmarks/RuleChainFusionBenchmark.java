@@ -0,0 +1,191 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorMailboxType;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbStringActorId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares a chain of stateless rule nodes executed by separate actors with the same chain executed inline by the rule chain actor.
+ * The actor mode mirrors the rule chain actor and rule node actor exchange: every hop goes through two mailboxes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RuleChainFusionBenchmark {
+
+    private static final String DISPATCHER_ID = "benchmark-dispatcher";
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"4"})
+    private int nodeCount;
+
+    @Param({"4"})
+    private int dispatcherPoolSize;
+
+    private DefaultTbActorSystem actorSystem;
+    private TbActorId chainActorId;
+    private TbActorId[] nodeActorIds;
+    private TbMsg msg;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(30, 1, 0, TbActorMailboxType.DEFAULT));
+        actorSystem.createDispatcher(DISPATCHER_ID, ThingsBoardExecutors.newWorkStealingPool(dispatcherPoolSize, DISPATCHER_ID));
+        nodeActorIds = new TbActorId[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeActorIds[i] = new TbStringActorId("rule-node-" + i);
+        }
+        chainActorId = new TbStringActorId("rule-chain");
+        actorSystem.createRootActor(DISPATCHER_ID, new ActorCreator(chainActorId, ChainActor::new));
+        for (TbActorId nodeActorId : nodeActorIds) {
+            actorSystem.createRootActor(DISPATCHER_ID, new ActorCreator(nodeActorId, NodeActor::new));
+        }
+        msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{\"temperature\":42}");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void actorPerNode() throws InterruptedException {
+        sendBatch(false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void inline() throws InterruptedException {
+        sendBatch(true);
+    }
+
+    private void sendBatch(boolean inline) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            actorSystem.tell(chainActorId, new HopMsg(msg, 0, inline, latch));
+        }
+        latch.await();
+    }
+
+    private static TbMsg process(TbMsg msg, int nodeIndex) {
+        TbMsgMetaData metaData = msg.getMetaData().copy();
+        metaData.putValue("node" + nodeIndex, msg.getType());
+        return TbMsg.transformMsgMetadata(msg, metaData);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class HopMsg implements TbActorMsg {
+
+        private final TbMsg msg;
+        private final int nodeIndex;
+        private final boolean inline;
+        private final CountDownLatch latch;
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.RULE_TO_RULE_CHAIN_TELL_NEXT_MSG;
+        }
+    }
+
+    private class ChainActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg actorMsg) {
+            HopMsg hopMsg = (HopMsg) actorMsg;
+            if (hopMsg.isInline()) {
+                TbMsg msg = hopMsg.getMsg();
+                for (int i = 0; i < nodeCount; i++) {
+                    msg = RuleChainFusionBenchmark.process(msg, i);
+                }
+                hopMsg.getLatch().countDown();
+            } else if (hopMsg.getNodeIndex() < nodeCount) {
+                ctx.tell(nodeActorIds[hopMsg.getNodeIndex()], hopMsg);
+            } else {
+                hopMsg.getLatch().countDown();
+            }
+            return true;
+        }
+    }
+
+    private class NodeActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg actorMsg) {
+            HopMsg hopMsg = (HopMsg) actorMsg;
+            TbMsg msg = RuleChainFusionBenchmark.process(hopMsg.getMsg(), hopMsg.getNodeIndex());
+            ctx.tell(chainActorId, new HopMsg(msg, hopMsg.getNodeIndex() + 1, false, hopMsg.getLatch()));
+            return true;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class ActorCreator implements TbActorCreator {
+
+        private final TbActorId actorId;
+        private final Supplier<TbActor> actorSupplier;
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return actorSupplier.get();
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.util.ProtoUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TbMsg#toByteArray}/{@link TbMsg#fromBytes} round-trips and the most frequent {@link ProtoUtils} conversions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TbMsgSerializationBenchmark {
+
+    private static final String QUEUE_NAME = "Main";
+
+    @Param({"5", "20", "100"})
+    private int metadataSize;
+
+    @Param({"10", "50"})
+    private int dataKeys;
+
+    private TbMsg msg;
+    private byte[] msgBytes;
+    private Device device;
+    private TransportProtos.DeviceProto deviceProto;
+    private ComponentLifecycleMsg lifecycleMsg;
+    private TransportProtos.ComponentLifecycleMsgProto lifecycleMsgProto;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A-1");
+        metaData.putValue("deviceType", "thermostat");
+        metaData.putValue("ts", Long.toString(System.currentTimeMillis()));
+        for (int i = metaData.getData().size(); i < metadataSize; i++) {
+            metaData.putValue("ss_attribute" + i, "value-" + UUID.randomUUID());
+        }
+        msg = TbMsg.newMsg(QUEUE_NAME, TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new CustomerId(UUID.randomUUID()),
+                metaData, BenchmarkData.telemetryJson(dataKeys), new RuleChainId(UUID.randomUUID()), new RuleNodeId(UUID.randomUUID()));
+        msgBytes = TbMsg.toByteArray(msg);
+
+        TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+        device = new Device(new DeviceId(UUID.randomUUID()));
+        device.setTenantId(tenantId);
+        device.setCustomerId(new CustomerId(UUID.randomUUID()));
+        device.setCreatedTime(System.currentTimeMillis());
+        device.setName("Thermostat A-1");
+        device.setType("thermostat");
+        device.setLabel("Building A, floor 1");
+        device.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        device.setAdditionalInfo(JacksonUtil.newObjectNode().put("gateway", false).put("description", "Benchmark device"));
+        deviceProto = ProtoUtils.toProto(device);
+
+        lifecycleMsg = new ComponentLifecycleMsg(tenantId, device.getId(), ComponentLifecycleEvent.UPDATED);
+        lifecycleMsgProto = ProtoUtils.toProto(lifecycleMsg);
+    }
+
+    @Benchmark
+    public byte[] tbMsgToByteArray() {
+        return TbMsg.toByteArray(msg);
+    }
+
+    @Benchmark
+    public TbMsg tbMsgFromBytes() {
+        return TbMsg.fromBytes(QUEUE_NAME, msgBytes, TbMsgCallback.EMPTY);
+    }
+
+    @Benchmark
+    public TbMsg tbMsgRoundTrip() {
+        return TbMsg.fromBytes(QUEUE_NAME, TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+    }
+
+    @Benchmark
+    public TransportProtos.DeviceProto deviceToProto() {
+        return ProtoUtils.toProto(device);
+    }
+
+    @Benchmark
+    public Device deviceFromProto() {
+        return ProtoUtils.fromProto(deviceProto);
+    }
+
+    @Benchmark
+    public TransportProtos.ComponentLifecycleMsgProto componentLifecycleMsgToProto() {
+        return ProtoUtils.toProto(lifecycleMsg);
+    }
+
+    @Benchmark
+    public ComponentLifecycleMsg componentLifecycleMsgFromProto() {
+        return ProtoUtils.fromProto(lifecycleMsgProto);
+    }
+
+}
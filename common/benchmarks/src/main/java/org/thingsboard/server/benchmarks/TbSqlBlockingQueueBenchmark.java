@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures batching throughput of {@link TbSqlBlockingQueueWrapper} with an in-memory sink instead of the database.
+ * The sink may simulate a fixed flush latency to mimic a JDBC batch round-trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TbSqlBlockingQueueBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final Comparator<TsEntry> COMPARATOR = Comparator.comparing(TsEntry::entityId)
+            .thenComparing(TsEntry::key)
+            .thenComparingLong(TsEntry::ts);
+
+    @Param({"1000", "10000"})
+    private int batchSize;
+
+    @Param({"1", "4"})
+    private int maxThreads;
+
+    @Param({"0", "2000"})
+    private long sinkLatencyMicros;
+
+    @Param({"false", "true"})
+    private boolean adaptive;
+
+    @Param({"1", "4"})
+    private int maxInFlightBatches;
+
+    private final LongAdder saved = new LongAdder();
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlBlockingQueueWrapper<TsEntry> queue;
+    private UUID[] entityIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Benchmark")
+                .batchSize(batchSize)
+                .maxDelay(100)
+                .statsPrintIntervalMs(10000)
+                .statsNamePrefix("benchmark")
+                .batchSortEnabled(true)
+                .adaptiveBatchEnabled(adaptive)
+                .minBatchSize(100)
+                .targetFlushLatencyMs(50)
+                .maxInFlightBatches(maxInFlightBatches)
+                .build();
+        queue = new TbSqlBlockingQueueWrapper<>(params, entry -> entry.entityId().hashCode(), maxThreads, new BenchmarkStatsFactory());
+        queue.init(logExecutor, this::save, COMPARATOR);
+        entityIds = new UUID[1000];
+        for (int i = 0; i < entityIds.length; i++) {
+            entityIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.destroy();
+        logExecutor.stop();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void add() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long ts = System.currentTimeMillis();
+        List<ListenableFuture<Void>> futures = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            futures.add(queue.add(new TsEntry(entityIds[random.nextInt(entityIds.length)], "temperature", ts + i, random.nextDouble())));
+        }
+        Futures.allAsList(futures).get();
+    }
+
+    private void save(List<TsEntry> entries) {
+        if (sinkLatencyMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(sinkLatencyMicros));
+        }
+        saved.add(entries.size());
+    }
+
+    private record TsEntry(UUID entityId, String key, long ts, double value) {
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limits shared by all nodes of the cluster. The node leases the tokens from {@link RateLimitTokenStore} in batches
+ * and consumes them locally, so the store is called once per batch.
+ * When the store is unavailable, the local bucket with the same configuration is used.
+ */
+@Slf4j
+class ClusterTbRateLimits extends TbRateLimits {
+
+    // A node leases at most this share of the smallest capacity, so it can't take a whole small budget (e.g. "10:3600") at once
+    private static final long MAX_LEASE_FRACTION = 10;
+
+    private final String key;
+    private final RateLimitTokenStore tokenStore;
+    private final long leaseSize;
+    private final AtomicLong leasedTokens = new AtomicLong();
+    private volatile long exhaustedUntil;
+
+    ClusterTbRateLimits(String key, String limitsConfiguration, boolean refillIntervally, RateLimitTokenStore tokenStore, long leaseSize) {
+        super(limitsConfiguration, refillIntervally);
+        this.key = key;
+        this.tokenStore = tokenStore;
+        this.leaseSize = Math.max(1, Math.min(leaseSize, getMinCapacity(limitsConfiguration) / MAX_LEASE_FRACTION));
+    }
+
+    @Override
+    public boolean tryConsume() {
+        return tryConsume(1);
+    }
+
+    @Override
+    public boolean tryConsume(long number) {
+        if (consumeLeased(number)) {
+            return true;
+        }
+        if (!tokenStore.isAvailable()) {
+            return super.tryConsume(number);
+        }
+        if (System.currentTimeMillis() < exhaustedUntil) {
+            return false;
+        }
+        synchronized (this) {
+            if (consumeLeased(number)) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now < exhaustedUntil) {
+                return false;
+            }
+            RateLimitLease lease;
+            try {
+                lease = tokenStore.lease(key, getConfiguration(), Math.max(number, leaseSize));
+            } catch (Exception e) {
+                log.debug("[{}] Failed to lease rate limit tokens, using local rate limit", key, e);
+                return super.tryConsume(number);
+            }
+            if (lease.isExhausted()) {
+                exhaustedUntil = now + lease.retryAfterMs();
+                return false;
+            }
+            leasedTokens.addAndGet(lease.tokens());
+            return consumeLeased(number);
+        }
+    }
+
+    private boolean consumeLeased(long number) {
+        long tokens;
+        do {
+            tokens = leasedTokens.get();
+            if (tokens < number) {
+                return false;
+            }
+        } while (!leasedTokens.compareAndSet(tokens, tokens - number));
+        return true;
+    }
+
+    private static long getMinCapacity(String limitsConfiguration) {
+        long minCapacity = Long.MAX_VALUE;
+        for (String limit : limitsConfiguration.split(",")) {
+            minCapacity = Math.min(minCapacity, Long.parseLong(limit.split(":")[0]));
+        }
+        return minCapacity;
+    }
+
+}
@@ -32,6 +32,7 @@ import org.thingsboard.server.common.data.notification.rule.trigger.RateLimitsTr
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
 
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 @Lazy
@@ -45,9 +46,13 @@ public class DefaultRateLimitService implements RateLimitService {
     public DefaultRateLimitService(TenantProfileProvider tenantProfileProvider,
                                    @Lazy NotificationRuleProcessor notificationRuleProcessor,
                                    @Value("${cache.rateLimits.timeToLiveInMinutes:120}") int rateLimitsTtl,
-                                   @Value("${cache.rateLimits.maxSize:200000}") int rateLimitsCacheMaxSize) {
+                                   @Value("${cache.rateLimits.maxSize:200000}") int rateLimitsCacheMaxSize,
+                                   Optional<RateLimitTokenStore> rateLimitTokenStore,
+                                   @Value("${cache.rateLimits.cluster.leaseSize:10}") int clusterLeaseSize) {
         this.tenantProfileProvider = tenantProfileProvider;
         this.notificationRuleProcessor = notificationRuleProcessor;
+        this.rateLimitTokenStore = rateLimitTokenStore.orElse(null);
+        this.clusterLeaseSize = clusterLeaseSize;
         this.rateLimits = Caffeine.newBuilder()
                 .expireAfterAccess(rateLimitsTtl, TimeUnit.MINUTES)
                 .maximumSize(rateLimitsCacheMaxSize)
@@ -56,6 +61,9 @@ public class DefaultRateLimitService implements RateLimitService {
 
     private final Cache<RateLimitKey, TbRateLimits> rateLimits;
 
+    private final RateLimitTokenStore rateLimitTokenStore;
+    private final int clusterLeaseSize;
+
     @Override
     public boolean checkRateLimit(LimitedApi api, TenantId tenantId) {
         return checkRateLimit(api, tenantId, tenantId);
@@ -97,19 +105,25 @@ public class DefaultRateLimitService implements RateLimitService {
     @Override
     public boolean checkRateLimit(LimitedApi api, Object level, String rateLimitConfig) {
         RateLimitKey key = new RateLimitKey(api, level);
+        TbRateLimits rateLimit = rateLimits.getIfPresent(key);
         if (StringUtils.isEmpty(rateLimitConfig)) {
-            rateLimits.invalidate(key);
+            if (rateLimit != null) {
+                rateLimits.invalidate(key);
+            }
             return true;
         }
         log.trace("[{}] Checking rate limit for {} ({})", level, api, rateLimitConfig);
 
-        TbRateLimits rateLimit = rateLimits.asMap().compute(key, (k, limit) -> {
-            if (limit == null || !limit.getConfiguration().equals(rateLimitConfig)) {
-                limit = new TbRateLimits(rateLimitConfig, api.isRefillRateLimitIntervally());
-                log.trace("[{}] Created new rate limit bucket for {} ({})", level, api, rateLimitConfig);
-            }
-            return limit;
-        });
+        // The bucket is replaced only when it is missing or the configuration was changed, so the lookup doesn't lock the map
+        if (rateLimit == null || !rateLimit.getConfiguration().equals(rateLimitConfig)) {
+            rateLimit = rateLimits.asMap().compute(key, (k, limit) -> {
+                if (limit == null || !limit.getConfiguration().equals(rateLimitConfig)) {
+                    limit = createRateLimits(key, rateLimitConfig);
+                    log.trace("[{}] Created new rate limit bucket for {} ({})", level, api, rateLimitConfig);
+                }
+                return limit;
+            });
+        }
         boolean success = rateLimit.tryConsume();
         if (!success) {
             log.debug("[{}] Rate limit exceeded for {} ({})", level, api, rateLimitConfig);
@@ -123,6 +137,14 @@ public class DefaultRateLimitService implements RateLimitService {
         rateLimits.invalidate(key);
     }
 
+    private TbRateLimits createRateLimits(RateLimitKey key, String rateLimitConfig) {
+        boolean refillIntervally = key.getApi().isRefillRateLimitIntervally();
+        if (rateLimitTokenStore != null) {
+            return new ClusterTbRateLimits(key.getApi().name() + "::" + key.getLevel(), rateLimitConfig, refillIntervally, rateLimitTokenStore, clusterLeaseSize);
+        }
+        return new TbRateLimits(rateLimitConfig, refillIntervally);
+    }
+
     @Data(staticConstructor = "of")
     private static class RateLimitKey {
         private final LimitedApi api;
@@ -0,0 +1,38 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+/**
+ * Result of a lease from the {@link RateLimitTokenStore}.
+ *
+ * @param tokens       the number of leased tokens, 0 when the rate limit is exhausted
+ * @param retryAfterMs when exhausted, the time until the exhausted window ends and tokens may be leased again
+ */
+public record RateLimitLease(long tokens, long retryAfterMs) {
+
+    public static RateLimitLease granted(long tokens) {
+        return new RateLimitLease(tokens, 0);
+    }
+
+    public static RateLimitLease exhausted(long retryAfterMs) {
+        return new RateLimitLease(0, retryAfterMs);
+    }
+
+    public boolean isExhausted() {
+        return tokens <= 0;
+    }
+
+}
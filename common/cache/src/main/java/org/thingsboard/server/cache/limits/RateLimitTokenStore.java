@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+/**
+ * Shared storage of the rate limit tokens, used when the rate limits are enforced for the whole cluster instead of each node.
+ */
+public interface RateLimitTokenStore {
+
+    /**
+     * Takes up to the requested number of tokens from the rate limit shared by all nodes.
+     *
+     * @param key           the rate limit key, the same on all nodes
+     * @param configuration the rate limit configuration, e.g. "100:1,2000:60"
+     * @param tokens        the number of tokens to lease
+     * @return the leased tokens, or the time until the rate limit may be leased again when it is exhausted
+     */
+    RateLimitLease lease(String key, String configuration, long tokens);
+
+    /**
+     * @return false while the store is backing off after a failure, so the callers may skip it without waiting for a timeout
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts the tokens of each bandwidth in fixed windows of the bandwidth duration.
+ * All window keys share the hash tag of the rate limit key, so the script works with Redis cluster as well.
+ */
+@Service
+@ConditionalOnExpression("'${cache.type:caffeine}'=='redis' && '${cache.rateLimits.cluster.enabled:false}'=='true'")
+@Slf4j
+public class RedisRateLimitTokenStore implements RateLimitTokenStore {
+
+    private static final byte[] LEASE_SCRIPT = ("""
+            local granted = tonumber(ARGV[1])
+            local now = tonumber(ARGV[2])
+            local retryAfter = 0
+            local windows = {}
+            for i = 3, #ARGV, 2 do
+                local capacity = tonumber(ARGV[i])
+                local period = tonumber(ARGV[i + 1])
+                local window = KEYS[1] .. ':' .. capacity .. ':' .. period .. ':' .. math.floor(now / period)
+                local used = tonumber(redis.call('GET', window) or '0')
+                granted = math.min(granted, capacity - used)
+                if used >= capacity then
+                    retryAfter = math.max(retryAfter, period - now % period)
+                end
+                windows[#windows + 1] = {window, period}
+            end
+            if granted <= 0 then
+                return -retryAfter
+            end
+            for _, window in ipairs(windows) do
+                redis.call('INCRBY', window[1], granted)
+                redis.call('PEXPIRE', window[1], window[2])
+            end
+            return granted
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final long failureBackoffMs;
+    private final ConcurrentMap<String, byte[][]> bandwidthArgs = new ConcurrentHashMap<>();
+    private volatile long unavailableUntil;
+
+    public RedisRateLimitTokenStore(RedisConnectionFactory redisConnectionFactory,
+                                    @Value("${cache.rateLimits.cluster.failureBackoffMs:1000}") long failureBackoffMs) {
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.failureBackoffMs = failureBackoffMs;
+    }
+
+    @Override
+    public RateLimitLease lease(String key, String configuration, long tokens) {
+        byte[][] bandwidths = bandwidthArgs.computeIfAbsent(configuration, RedisRateLimitTokenStore::toBandwidthArgs);
+        byte[][] keysAndArgs = new byte[bandwidths.length + 3][];
+        keysAndArgs[0] = ("{rateLimits::" + key + "}").getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[1] = toBytes(tokens);
+        keysAndArgs[2] = toBytes(System.currentTimeMillis());
+        System.arraycopy(bandwidths, 0, keysAndArgs, 3, bandwidths.length);
+        Long result;
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            result = connection.scriptingCommands().eval(LEASE_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs);
+        } catch (RuntimeException e) {
+            unavailableUntil = System.currentTimeMillis() + failureBackoffMs;
+            log.warn("Failed to lease rate limit tokens, skipping the store for {} ms", failureBackoffMs, e);
+            throw e;
+        }
+        if (result == null) {
+            return RateLimitLease.exhausted(0);
+        }
+        return result > 0 ? RateLimitLease.granted(result) : RateLimitLease.exhausted(-result);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    private static byte[][] toBandwidthArgs(String configuration) {
+        String[] limits = configuration.split(",");
+        byte[][] args = new byte[limits.length * 2][];
+        for (int i = 0; i < limits.length; i++) {
+            String[] limit = limits[i].split(":");
+            args[i * 2] = toBytes(Long.parseLong(limit[0]));
+            args[i * 2 + 1] = toBytes(Long.parseLong(limit[1]) * 1000);
+        }
+        return args;
+    }
+
+    private static byte[] toBytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the OTA package data in local files and serves the chunks as slices of the memory-mapped files,
+ * so the package data doesn't occupy the heap and a chunk request doesn't copy the data.
+ * <p>
+ * Packages that are missing locally are loaded from the configured cache (caffeine or redis).
+ * The least recently used packages are removed once the total size of the files exceeds the limit.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "cache.ota_file_store", value = "enabled", havingValue = "true")
+public class FileOtaPackageDataCache implements OtaPackageDataCache {
+
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+
+    private final OtaPackageDataCache delegate;
+    private final boolean sharedDelegate;
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<String, PackageFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> oversizedKeys = ConcurrentHashMap.newKeySet();
+    private long totalSize;
+
+    public FileOtaPackageDataCache(OtaPackageDataCache delegate,
+                                   @Value("${cache.type:caffeine}") String cacheType,
+                                   @Value("${cache.ota_file_store.directory:}") String directory,
+                                   @Value("${cache.ota_file_store.max_size_mb:1024}") long maxSizeMb) {
+        this.delegate = delegate;
+        this.sharedDelegate = "redis".equalsIgnoreCase(cacheType);
+        this.directory = StringUtils.isNotBlank(directory) ? Paths.get(directory) : Paths.get(System.getProperty("java.io.tmpdir"), "tb-ota-packages");
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        // Files left by the previous run may belong to the packages that were deleted since then.
+        try (Stream<Path> stale = Files.list(directory)) {
+            stale.filter(path -> {
+                String fileName = path.getFileName().toString();
+                return fileName.endsWith(FILE_SUFFIX) || fileName.endsWith(TMP_FILE_SUFFIX);
+            }).forEach(this::deleteFile);
+        }
+        log.info("Using OTA package file store in [{}] with max size {} bytes", directory, maxSizeBytes);
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return get(key, 0, 0);
+    }
+
+    @Override
+    public byte[] get(String key, int chunkSize, int chunk) {
+        ByteBuffer data = getChunk(key, chunkSize, chunk);
+        if (data == null) {
+            return null;
+        }
+        byte[] result = new byte[data.remaining()];
+        data.get(result);
+        return result;
+    }
+
+    @Override
+    public ByteBuffer getChunk(String key, int chunkSize, int chunk) {
+        MappedByteBuffer data = getData(key);
+        if (data == null) {
+            return delegate.getChunk(key, chunkSize, chunk);
+        }
+        if (chunkSize < 1) {
+            return data.asReadOnlyBuffer();
+        }
+        int startIndex = chunkSize * chunk;
+        int size = Math.min(data.capacity() - startIndex, chunkSize);
+        if (startIndex < data.capacity() && size > 0) {
+            return data.slice(startIndex, size).asReadOnlyBuffer();
+        }
+        return ByteBuffer.allocate(0);
+    }
+
+    @Override
+    public boolean has(String key) {
+        lock.lock();
+        try {
+            if (files.containsKey(key)) {
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.has(key);
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        if (value != null && value.length > maxSizeBytes) {
+            oversizedKeys.add(key);
+        }
+        if (sharedDelegate || oversizedKeys.contains(key) || value == null || !store(key, value)) {
+            delegate.put(key, value);
+        }
+    }
+
+    @Override
+    public void evict(String key) {
+        delegate.evict(key);
+        oversizedKeys.remove(key);
+        lock.lock();
+        try {
+            PackageFile file = files.remove(key);
+            if (file != null) {
+                totalSize -= file.size;
+                deleteFile(file.path);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MappedByteBuffer getData(String key) {
+        lock.lock();
+        try {
+            PackageFile file = files.get(key);
+            if (file != null) {
+                return file.data;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (oversizedKeys.contains(key)) {
+            return null;
+        }
+        byte[] value = delegate.get(key);
+        if (value == null || value.length == 0) {
+            return null;
+        }
+        if (value.length > maxSizeBytes) {
+            oversizedKeys.add(key);
+            return null;
+        }
+        if (!store(key, value)) {
+            return null;
+        }
+        lock.lock();
+        try {
+            PackageFile file = files.get(key);
+            return file != null ? file.data : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean store(String key, byte[] value) {
+        lock.lock();
+        try {
+            if (files.containsKey(key)) {
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // The data is written to a unique temporary file without holding the lock,
+        // so a big package doesn't block the chunk requests for the other packages.
+        Path tmpPath = null;
+        MappedByteBuffer data;
+        try {
+            tmpPath = Files.createTempFile(directory, key + FILE_SUFFIX + ".", TMP_FILE_SUFFIX);
+            Files.write(tmpPath, value);
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.READ)) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, value.length);
+            }
+        } catch (IOException e) {
+            log.warn("[{}] Failed to store OTA package data in the file store", key, e);
+            if (tmpPath != null) {
+                deleteFile(tmpPath);
+            }
+            return false;
+        }
+        Path path = directory.resolve(key + FILE_SUFFIX);
+        lock.lock();
+        try {
+            if (files.containsKey(key)) {
+                deleteFile(tmpPath);
+                return true;
+            }
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            files.put(key, new PackageFile(path, value.length, data));
+            totalSize += value.length;
+            evictLeastRecentlyUsed(key);
+            log.debug("[{}] Stored OTA package data of {} bytes in {}", key, value.length, path);
+            return true;
+        } catch (IOException e) {
+            log.warn("[{}] Failed to store OTA package data in the file store", key, e);
+            deleteFile(tmpPath);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictLeastRecentlyUsed(String keptKey) {
+        Iterator<Map.Entry<String, PackageFile>> iterator = files.entrySet().iterator();
+        while (totalSize > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, PackageFile> entry = iterator.next();
+            if (!entry.getKey().equals(keptKey)) {
+                iterator.remove();
+                totalSize -= entry.getValue().size;
+                // The chunks that are being sent keep the mapping valid until they are garbage collected.
+                deleteFile(entry.getValue().path);
+                log.debug("[{}] Removed least recently used OTA package data from the file store", entry.getKey());
+            }
+        }
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete OTA package file {}", path, e);
+        }
+    }
+
+    private record PackageFile(Path path, long size, MappedByteBuffer data) {}
+
+}
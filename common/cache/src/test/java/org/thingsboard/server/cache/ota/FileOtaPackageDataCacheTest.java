@@ -0,0 +1,213 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileOtaPackageDataCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private InMemoryOtaPackageDataCache delegate;
+    private FileOtaPackageDataCache cache;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        delegate = new InMemoryOtaPackageDataCache();
+        cache = new FileOtaPackageDataCache(delegate, "caffeine", directory.toString(), 2);
+        cache.init();
+    }
+
+    @Test
+    public void givenStoredPackage_whenGetChunk_thenReturnsSliceOfFile() {
+        byte[] value = testBytes(100);
+        cache.put("pkg", value);
+
+        assertThat(delegate.data).doesNotContainKey("pkg");
+        assertThat(Files.exists(directory.resolve("pkg.bin"))).isTrue();
+
+        ByteBuffer chunk = cache.getChunk("pkg", 30, 3);
+        assertThat(chunk.isReadOnly()).isTrue();
+        assertThat(toArray(chunk)).containsExactly(slice(value, 90, 10));
+        assertThat(cache.get("pkg", 30, 1)).containsExactly(slice(value, 30, 30));
+        assertThat(cache.get("pkg")).containsExactly(value);
+        assertThat(cache.getChunk("pkg", 30, 4).remaining()).isZero();
+    }
+
+    @Test
+    public void givenPackageInDelegate_whenGetChunk_thenStoresPackageInFile() {
+        byte[] value = testBytes(64);
+        delegate.put("pkg", value);
+
+        assertThat(cache.get("pkg", 16, 2)).containsExactly(slice(value, 32, 16));
+        assertThat(Files.exists(directory.resolve("pkg.bin"))).isTrue();
+        assertThat(cache.has("pkg")).isTrue();
+        assertThat(cache.get("missing", 16, 0)).isNull();
+        assertThat(cache.has("missing")).isFalse();
+    }
+
+    @Test
+    public void givenConcurrentPutsOfSamePackage_whenPut_thenStoresSingleFile() throws Exception {
+        byte[] value = testBytes(MB);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.put("pkg", value)));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.get("pkg")).containsExactly(value);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactly("pkg.bin");
+        }
+    }
+
+    @Test
+    public void givenTemporaryFileOfPreviousRun_whenInit_thenDeletesFile() throws Exception {
+        Path tmpFile = Files.write(directory.resolve("pkg.bin.123.tmp"), testBytes(10));
+
+        cache.init();
+
+        assertThat(Files.exists(tmpFile)).isFalse();
+    }
+
+    @Test
+    public void givenSizeLimitExceeded_whenPut_thenRemovesLeastRecentlyUsedPackage() {
+        cache.put("first", testBytes(MB));
+        cache.put("second", testBytes(MB));
+        cache.getChunk("first", 1024, 0);
+
+        cache.put("third", testBytes(MB));
+
+        assertThat(cache.has("first")).isTrue();
+        assertThat(cache.has("second")).isFalse();
+        assertThat(cache.has("third")).isTrue();
+        assertThat(Files.exists(directory.resolve("second.bin"))).isFalse();
+    }
+
+    @Test
+    public void givenStoredPackage_whenEvict_thenRemovesFile() {
+        cache.put("pkg", testBytes(10));
+
+        cache.evict("pkg");
+
+        assertThat(cache.has("pkg")).isFalse();
+        assertThat(cache.get("pkg")).isNull();
+        assertThat(Files.exists(directory.resolve("pkg.bin"))).isFalse();
+    }
+
+    @Test
+    public void givenOversizedPackage_whenPut_thenKeepsPackageInDelegate() {
+        byte[] value = testBytes(3 * MB);
+        cache.put("pkg", value);
+
+        assertThat(delegate.data).containsKey("pkg");
+        assertThat(Files.exists(directory.resolve("pkg.bin"))).isFalse();
+        assertThat(cache.get("pkg", MB, 2)).containsExactly(slice(value, 2 * MB, MB));
+    }
+
+    @Test
+    public void givenSharedDelegate_whenPut_thenWritesToDelegate() throws Exception {
+        cache = new FileOtaPackageDataCache(delegate, "redis", directory.toString(), 2);
+        cache.init();
+        byte[] value = testBytes(10);
+
+        cache.put("pkg", value);
+        assertThat(delegate.data).containsKey("pkg");
+
+        assertThat(cache.get("pkg", 5, 1)).containsExactly(slice(value, 5, 5));
+        assertThat(Files.exists(directory.resolve("pkg.bin"))).isTrue();
+    }
+
+    private static byte[] testBytes(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+
+    private static byte[] slice(byte[] value, int from, int size) {
+        byte[] result = new byte[size];
+        System.arraycopy(value, from, result, 0, size);
+        return result;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    private static class InMemoryOtaPackageDataCache implements OtaPackageDataCache {
+
+        private final Map<String, byte[]> data = new HashMap<>();
+
+        @Override
+        public byte[] get(String key) {
+            return data.get(key);
+        }
+
+        @Override
+        public byte[] get(String key, int chunkSize, int chunk) {
+            byte[] value = data.get(key);
+            if (value == null || chunkSize < 1) {
+                return value;
+            }
+            int startIndex = chunkSize * chunk;
+            int size = Math.max(0, Math.min(value.length - startIndex, chunkSize));
+            return slice(value, Math.min(startIndex, value.length), size);
+        }
+
+        @Override
+        public void put(String key, byte[] value) {
+            data.put(key, value);
+        }
+
+        @Override
+        public void evict(String key) {
+            data.remove(key);
+        }
+
+    }
+
+}
@@ -73,7 +73,11 @@ public enum TbMsgType {
     DEVICE_PROFILE_PERIODIC_SELF_MSG(null, true),
     DEVICE_PROFILE_UPDATE_SELF_MSG(null, true),
     DEVICE_UPDATE_SELF_MSG(null, true),
+    DEVICE_PROFILE_SNAPSHOT_SELF_MSG(null, true),
+    DEVICE_PROFILE_PERSIST_STATE_SELF_MSG(null, true),
+    DEVICE_PROFILE_RESTORE_STATE_SELF_MSG(null, true),
     DEDUPLICATION_TIMEOUT_SELF_MSG(null, true),
+    DEDUPLICATION_RESTORE_SELF_MSG(null, true),
     DELAY_TIMEOUT_SELF_MSG(null, true),
     MSG_COUNT_SELF_MSG(null, true),
 
@@ -22,9 +22,13 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.thingsboard.server.common.data.msg.TbMsgType.ALARM;
 import static org.thingsboard.server.common.data.msg.TbMsgType.ALARM_DELETE;
+import static org.thingsboard.server.common.data.msg.TbMsgType.DEDUPLICATION_RESTORE_SELF_MSG;
 import static org.thingsboard.server.common.data.msg.TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG;
 import static org.thingsboard.server.common.data.msg.TbMsgType.DELAY_TIMEOUT_SELF_MSG;
 import static org.thingsboard.server.common.data.msg.TbMsgType.DEVICE_PROFILE_PERIODIC_SELF_MSG;
+import static org.thingsboard.server.common.data.msg.TbMsgType.DEVICE_PROFILE_PERSIST_STATE_SELF_MSG;
+import static org.thingsboard.server.common.data.msg.TbMsgType.DEVICE_PROFILE_RESTORE_STATE_SELF_MSG;
+import static org.thingsboard.server.common.data.msg.TbMsgType.DEVICE_PROFILE_SNAPSHOT_SELF_MSG;
 import static org.thingsboard.server.common.data.msg.TbMsgType.DEVICE_PROFILE_UPDATE_SELF_MSG;
 import static org.thingsboard.server.common.data.msg.TbMsgType.DEVICE_UPDATE_SELF_MSG;
 import static org.thingsboard.server.common.data.msg.TbMsgType.ENTITY_ASSIGNED_TO_EDGE;
@@ -50,7 +54,11 @@ class TbMsgTypeTest {
             DEVICE_PROFILE_PERIODIC_SELF_MSG,
             DEVICE_PROFILE_UPDATE_SELF_MSG,
             DEVICE_UPDATE_SELF_MSG,
+            DEVICE_PROFILE_SNAPSHOT_SELF_MSG,
+            DEVICE_PROFILE_PERSIST_STATE_SELF_MSG,
+            DEVICE_PROFILE_RESTORE_STATE_SELF_MSG,
             DEDUPLICATION_TIMEOUT_SELF_MSG,
+            DEDUPLICATION_RESTORE_SELF_MSG,
             DELAY_TIMEOUT_SELF_MSG,
             MSG_COUNT_SELF_MSG,
             NA
@@ -23,11 +23,21 @@ import io.github.bucket4j.local.LocalBucketBuilder;
 import lombok.Getter;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by ashvayka on 22.10.18.
  */
 public class TbRateLimits {
+
+    private static final int MAX_CACHED_CONFIGURATIONS = 10000;
+    // Parsed bandwidths are immutable, so the buckets with the same configuration share them
+    private static final ConcurrentMap<String, Bandwidth[]> greedyBandwidths = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Bandwidth[]> intervalBandwidths = new ConcurrentHashMap<>();
+
     private final LocalBucket bucket;
 
     @Getter
@@ -39,19 +49,10 @@ public class TbRateLimits {
 
     public TbRateLimits(String limitsConfiguration, boolean refillIntervally) {
         LocalBucketBuilder builder = Bucket.builder();
-        boolean initialized = false;
-        for (String limitSrc : limitsConfiguration.split(",")) {
-            long capacity = Long.parseLong(limitSrc.split(":")[0]);
-            long duration = Long.parseLong(limitSrc.split(":")[1]);
-            Refill refill = refillIntervally ? Refill.intervally(capacity, Duration.ofSeconds(duration)) : Refill.greedy(capacity, Duration.ofSeconds(duration));
-            builder.addLimit(Bandwidth.classic(capacity, refill));
-            initialized = true;
-        }
-        if (initialized) {
-            bucket = builder.build();
-        } else {
-            throw new IllegalArgumentException("Failed to parse rate limits configuration: " + limitsConfiguration);
+        for (Bandwidth bandwidth : getBandwidths(limitsConfiguration, refillIntervally)) {
+            builder.addLimit(bandwidth);
         }
+        this.bucket = builder.build();
         this.configuration = limitsConfiguration;
     }
 
@@ -63,4 +64,34 @@ public class TbRateLimits {
         return bucket.tryConsume(number);
     }
 
+    public long tryConsumeAsMuchAsPossible(long limit) {
+        return bucket.tryConsumeAsMuchAsPossible(limit);
+    }
+
+    private static Bandwidth[] getBandwidths(String limitsConfiguration, boolean refillIntervally) {
+        ConcurrentMap<String, Bandwidth[]> cache = refillIntervally ? intervalBandwidths : greedyBandwidths;
+        Bandwidth[] bandwidths = cache.get(limitsConfiguration);
+        if (bandwidths == null) {
+            bandwidths = parseBandwidths(limitsConfiguration, refillIntervally);
+            if (cache.size() < MAX_CACHED_CONFIGURATIONS) {
+                cache.putIfAbsent(limitsConfiguration, bandwidths);
+            }
+        }
+        return bandwidths;
+    }
+
+    private static Bandwidth[] parseBandwidths(String limitsConfiguration, boolean refillIntervally) {
+        List<Bandwidth> bandwidths = new ArrayList<>();
+        for (String limitSrc : limitsConfiguration.split(",")) {
+            long capacity = Long.parseLong(limitSrc.split(":")[0]);
+            long duration = Long.parseLong(limitSrc.split(":")[1]);
+            Refill refill = refillIntervally ? Refill.intervally(capacity, Duration.ofSeconds(duration)) : Refill.greedy(capacity, Duration.ofSeconds(duration));
+            bandwidths.add(Bandwidth.classic(capacity, refill));
+        }
+        if (bandwidths.isEmpty()) {
+            throw new IllegalArgumentException("Failed to parse rate limits configuration: " + limitsConfiguration);
+        }
+        return bandwidths.toArray(new Bandwidth[0]);
+    }
+
 }
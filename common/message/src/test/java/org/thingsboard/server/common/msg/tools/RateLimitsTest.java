@@ -83,4 +83,15 @@ public class RateLimitsTest {
                 });
     }
 
+    @Test
+    public void testRateLimits_sameConfigurationHasSeparateBuckets() {
+        TbRateLimits first = new TbRateLimits("2:60,10:3600");
+        TbRateLimits second = new TbRateLimits("2:60,10:3600");
+
+        assertThat(first.tryConsume(2)).isTrue();
+        assertThat(first.tryConsume()).isFalse();
+        assertThat(second.tryConsumeAsMuchAsPossible(5)).isEqualTo(2);
+        assertThat(second.tryConsume()).isFalse();
+    }
+
 }
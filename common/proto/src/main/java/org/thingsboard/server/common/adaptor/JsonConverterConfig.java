@@ -34,4 +34,10 @@ public class JsonConverterConfig {
         JsonConverter.setMaxStringValueLength(maxStringValueLength);
         log.info("JSON max string value length = {}", maxStringValueLength);
     }
+
+    @Value("${transport.json.streaming_parser_enabled:false}")
+    public void setStreamingParserEnabled(boolean streamingParserEnabled) {
+        JsonStreamingConverter.setEnabled(streamingParserEnabled);
+        log.info("JSON streaming parser enabled = {}", streamingParserEnabled);
+    }
 }
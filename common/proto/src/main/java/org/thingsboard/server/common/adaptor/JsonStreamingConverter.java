@@ -0,0 +1,385 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Converts telemetry and attributes JSON payloads to proto messages with a pull parser, reading the payload directly
+ * instead of building an intermediate {@link com.google.gson.JsonElement} tree.
+ * The result is the same as of {@link JsonConverter#convertToTelemetryProto} and {@link JsonConverter#convertToAttributesProto}
+ * on the parsed payload: the same type inference rules for strings, numbers, booleans and JSON values are applied,
+ * and for duplicate keys the last value wins.
+ */
+public class JsonStreamingConverter {
+
+    private static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+
+    private static boolean enabled = false;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean enabled) {
+        JsonStreamingConverter.enabled = enabled;
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(byte[] payload) throws JsonSyntaxException {
+        return convertToTelemetryProto(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Reads UTF-8 payload from the buffer position to its limit, e.g. the {@code ByteBuf.nioBuffer()} view of the MQTT payload.
+     */
+    public static PostTelemetryMsg convertToTelemetryProto(ByteBuffer payload) throws JsonSyntaxException {
+        return convertToTelemetryProto(new Utf8ByteBufferReader(payload), System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(String json) throws JsonSyntaxException {
+        return convertToTelemetryProto(new StringReader(json), System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(Reader payload, long systemTs) throws JsonSyntaxException {
+        try (JsonReader reader = newReader(payload)) {
+            PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_OBJECT) {
+                parseTelemetryObject(reader, systemTs, builder);
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readJson(reader));
+                    }
+                    parseTelemetryObject(reader, systemTs, builder);
+                }
+                reader.endArray();
+            } else {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readJson(reader));
+            }
+            checkDocumentEnd(reader);
+            return builder.build();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    public static PostAttributeMsg convertToAttributesProto(byte[] payload) throws JsonSyntaxException {
+        return convertToAttributesProto(ByteBuffer.wrap(payload));
+    }
+
+    public static PostAttributeMsg convertToAttributesProto(ByteBuffer payload) throws JsonSyntaxException {
+        return convertToAttributesProto(new Utf8ByteBufferReader(payload));
+    }
+
+    public static PostAttributeMsg convertToAttributesProto(String json) throws JsonSyntaxException {
+        return convertToAttributesProto(new StringReader(json));
+    }
+
+    public static PostAttributeMsg convertToAttributesProto(Reader payload) throws JsonSyntaxException {
+        try (JsonReader reader = newReader(payload)) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readJson(reader));
+            }
+            ParsedValues values = parseValues(reader, null, false);
+            checkDocumentEnd(reader);
+            PostAttributeMsg.Builder result = PostAttributeMsg.newBuilder();
+            values.addTo(result::addKv);
+            return result.build();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static void parseTelemetryObject(JsonReader reader, long systemTs, PostTelemetryMsg.Builder builder) throws IOException {
+        Map<String, KeyValueProto> kvs = new LinkedHashMap<>();
+        boolean hasTs = false;
+        String tsValue = null;
+        JsonToken tsToken = null;
+        boolean hasValues = false;
+        ParsedValues values = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (TS.equals(key)) {
+                // the key value is built later, only if the object is not in the {"ts": ..., "values": {...}} format
+                hasTs = true;
+                tsToken = reader.peek();
+                if (tsToken == JsonToken.STRING || tsToken == JsonToken.NUMBER) {
+                    tsValue = reader.nextString();
+                    kvs.put(key, null);
+                } else if (tsToken == JsonToken.BOOLEAN) {
+                    tsValue = Boolean.toString(reader.nextBoolean());
+                    kvs.put(key, null);
+                } else {
+                    tsValue = null;
+                    kvs.put(key, readKeyValue(reader, key, null));
+                }
+            } else if (VALUES.equals(key)) {
+                hasValues = true;
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    if (hasTs) {
+                        // the object is already known to be in the {"ts": ..., "values": {...}} format
+                        values = parseValues(reader, null, false);
+                        kvs.put(key, null);
+                    } else {
+                        // keep the JSON of the values in case there is no "ts" key and "values" is a regular JSON value
+                        StringWriter json = new StringWriter();
+                        values = parseValues(reader, newWriter(json), true);
+                        kvs.put(key, buildJsonKeyValueProto(key, json.toString()));
+                    }
+                } else {
+                    values = null;
+                    kvs.put(key, readKeyValue(reader, key, null));
+                }
+            } else {
+                kvs.put(key, readKeyValue(reader, key, null));
+            }
+        }
+        reader.endObject();
+
+        TsKvListProto.Builder tsKvList = TsKvListProto.newBuilder();
+        if (hasTs && hasValues) {
+            tsKvList.setTs(parseTs(tsValue, tsToken));
+            if (values == null) {
+                throw new IllegalStateException("Not a JSON Object: " + kvs.get(VALUES));
+            }
+            if (values.failure != null) {
+                throw values.failure;
+            }
+            values.addTo(tsKvList::addKv);
+        } else {
+            if (tsValue != null) {
+                kvs.put(TS, buildPrimitiveKeyValueProto(TS, tsValue, tsToken));
+            }
+            tsKvList.setTs(systemTs);
+            kvs.values().forEach(kv -> {
+                if (kv != null) {
+                    tsKvList.addKv(kv);
+                }
+            });
+        }
+        builder.addTsKvList(tsKvList.build());
+    }
+
+    /**
+     * Reads the object of key-value pairs. When the mirror writer is set, the object is also written to it as JSON,
+     * and with deferred failures the conversion errors are kept instead of thrown, so the caller may still use the object as a JSON value.
+     */
+    private static ParsedValues parseValues(JsonReader reader, JsonWriter mirror, boolean deferFailures) throws IOException {
+        ParsedValues result = new ParsedValues();
+        reader.beginObject();
+        if (mirror != null) {
+            mirror.beginObject();
+        }
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (mirror != null) {
+                mirror.name(key);
+            }
+            try {
+                result.kvs.put(key, readKeyValue(reader, key, mirror));
+            } catch (RuntimeException e) {
+                if (!deferFailures) {
+                    throw e;
+                }
+                result.kvs.put(key, null);
+                if (result.failure == null) {
+                    result.failure = e;
+                }
+            }
+        }
+        reader.endObject();
+        if (mirror != null) {
+            mirror.endObject();
+            mirror.flush();
+        }
+        return result;
+    }
+
+    private static KeyValueProto readKeyValue(JsonReader reader, String key, JsonWriter mirror) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case STRING:
+            case NUMBER:
+                String value = reader.nextString();
+                if (mirror != null) {
+                    if (token == JsonToken.NUMBER) {
+                        mirror.jsonValue(value);
+                    } else {
+                        mirror.value(value);
+                    }
+                }
+                return buildPrimitiveKeyValueProto(key, value, token);
+            case BOOLEAN:
+                boolean boolValue = reader.nextBoolean();
+                if (mirror != null) {
+                    mirror.value(boolValue);
+                }
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(boolValue).build();
+            case NULL:
+                reader.nextNull();
+                if (mirror != null) {
+                    mirror.nullValue();
+                }
+                return null;
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                String json = readJson(reader);
+                if (mirror != null) {
+                    mirror.jsonValue(json);
+                }
+                return buildJsonKeyValueProto(key, json);
+            default:
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + token);
+        }
+    }
+
+    private static KeyValueProto buildPrimitiveKeyValueProto(String key, String value, JsonToken token) {
+        switch (token) {
+            case NUMBER:
+                return JsonConverter.buildNumericKeyValueProto(value, key);
+            case BOOLEAN:
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(Boolean.parseBoolean(value)).build();
+            default:
+                return JsonConverter.buildStringKeyValueProto(key, value);
+        }
+    }
+
+    private static KeyValueProto buildJsonKeyValueProto(String key, String json) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(json).build();
+    }
+
+    private static long parseTs(String tsValue, JsonToken tsToken) {
+        if (tsValue == null) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + TS);
+        }
+        try {
+            return Long.parseLong(tsValue);
+        } catch (NumberFormatException e) {
+            if (tsToken == JsonToken.NUMBER) {
+                return new BigDecimal(tsValue).longValue();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the current value as compact JSON, the same way {@link com.google.gson.JsonElement#toString()} prints it.
+     */
+    private static String readJson(JsonReader reader) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonWriter writer = newWriter(json);
+        copy(reader, writer);
+        writer.flush();
+        return json.toString();
+    }
+
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + reader.peek());
+        }
+    }
+
+    private static void checkDocumentEnd(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Did not consume the entire document.");
+        }
+    }
+
+    private static JsonReader newReader(Reader payload) {
+        JsonReader reader = new JsonReader(payload);
+        reader.setLenient(true);
+        return reader;
+    }
+
+    private static JsonWriter newWriter(StringWriter out) {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setLenient(true);
+        return writer;
+    }
+
+    private static class ParsedValues {
+
+        private final Map<String, KeyValueProto> kvs = new LinkedHashMap<>();
+        private RuntimeException failure;
+
+        void addTo(Consumer<KeyValueProto> consumer) {
+            kvs.values().forEach(kv -> {
+                if (kv != null) {
+                    consumer.accept(kv);
+                }
+            });
+        }
+
+    }
+
+}
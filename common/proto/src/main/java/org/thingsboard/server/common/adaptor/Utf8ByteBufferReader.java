@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes UTF-8 bytes straight from the buffer into the caller's char array, without the intermediate byte and char
+ * buffers {@link java.io.InputStreamReader} allocates. Malformed sequences are replaced with U+FFFD.
+ */
+class Utf8ByteBufferReader extends Reader {
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer buffer;
+    private int pendingLowSurrogate = -1;
+
+    Utf8ByteBufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int pos = off;
+        int end = off + len;
+        if (pendingLowSurrogate >= 0) {
+            cbuf[pos++] = (char) pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+        }
+        while (pos < end && buffer.hasRemaining()) {
+            int b = buffer.get();
+            if (b >= 0) {
+                cbuf[pos++] = (char) b;
+                continue;
+            }
+            int codePoint = decode(b & 0xFF);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                cbuf[pos++] = (char) codePoint;
+            } else {
+                cbuf[pos++] = Character.highSurrogate(codePoint);
+                if (pos < end) {
+                    cbuf[pos++] = Character.lowSurrogate(codePoint);
+                } else {
+                    pendingLowSurrogate = Character.lowSurrogate(codePoint);
+                }
+            }
+        }
+        int read = pos - off;
+        return read > 0 ? read : -1;
+    }
+
+    private int decode(int b) {
+        int length;
+        int codePoint;
+        int min;
+        if ((b & 0xE0) == 0xC0) {
+            length = 1;
+            codePoint = b & 0x1F;
+            min = 0x80;
+        } else if ((b & 0xF0) == 0xE0) {
+            length = 2;
+            codePoint = b & 0x0F;
+            min = 0x800;
+        } else if ((b & 0xF8) == 0xF0) {
+            length = 3;
+            codePoint = b & 0x07;
+            min = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        } else {
+            return REPLACEMENT;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!buffer.hasRemaining()) {
+                return REPLACEMENT;
+            }
+            int next = buffer.get(buffer.position());
+            if ((next & 0xC0) != 0x80) {
+                // the continuation byte is missing, the next byte is decoded on its own
+                return REPLACEMENT;
+            }
+            buffer.get();
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
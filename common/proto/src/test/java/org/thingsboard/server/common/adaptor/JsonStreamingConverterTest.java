@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Isolated("JsonConverter static settings being modified")
+public class JsonStreamingConverterTest {
+
+    @BeforeEach
+    public void before() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @AfterEach
+    public void after() {
+        //restore default state for a static class
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"temperature\": 42, \"humidity\": 73.5, \"active\": true, \"name\": \"sensor\"}",
+            "{\"long\": \"123\", \"double\": \"1.5\", \"big\": 12345678901234567890, \"exp\": 1E+1, \"expDouble\": 101E-1, \"zero\": 42.0}",
+            "{\"precise\": 1.12345678901234567890, \"text\": \"1.2.3\", \"nan\": \"NaN\", \"escaped\": \"a\\\"b\\u00e9\"}",
+            "{\"json\": {\"a\": [1, 2.50, {\"b\": null}], \"c\": \"d\"}, \"array\": [true, false], \"empty\": {}, \"null\": null}",
+            "{\"ts\": 1451649600512, \"values\": {\"key1\": \"value1\", \"key2\": {\"nested\": 1.0}, \"key3\": null}}",
+            "{\"values\": {\"key1\": 5}, \"ts\": \"1451649600512\"}",
+            "{\"values\": {\"key1\": 5}, \"other\": 1}",
+            "{\"ts\": 1451649600512, \"other\": 1}",
+            "{\"ts\": {\"a\": 1}, \"other\": [1]}",
+            "[{\"ts\": 1451649600512, \"values\": {\"key1\": 1}}, {\"ts\": 1451649600513, \"values\": {\"key1\": 2}}, {\"key2\": false}]",
+            "{\"dup\": 1, \"other\": 2, \"dup\": \"3\"}",
+            "{\"dup\": 1, \"dup\": null}",
+            "{unquoted: 'single', lenient: NaN}",
+            "{}",
+            "[]"
+    })
+    public void givenPayload_whenConvertToTelemetry_thenSameAsJsonConverter(String json) {
+        PostTelemetryMsg expected = JsonConverter.convertToTelemetryProto(JsonParser.parseString(json), 100L);
+
+        assertThat(JsonStreamingConverter.convertToTelemetryProto(new StringReader(json), 100L)).isEqualTo(expected);
+    }
+
+    @Test
+    public void givenUtf8Bytes_whenConvertToTelemetry_thenSameAsJsonConverter() {
+        String json = "[{\"ts\": 1451649600512, \"values\": {\"név\": \"értéke 温度\", \"key2\": 2}}]";
+        assertThat(JsonStreamingConverter.convertToTelemetryProto(json.getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(JsonConverter.convertToTelemetryProto(JsonParser.parseString(json)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"temperature\": 42, \"humidity\": 73.5, \"active\": true, \"name\": \"sensor\", \"long\": \"123\"}",
+            "{\"json\": {\"a\": [1, 2.50]}, \"null\": null, \"ts\": 1, \"values\": {\"a\": 1}}",
+            "{\"dup\": 1, \"dup\": false}"
+    })
+    public void givenPayload_whenConvertToAttributes_thenSameAsJsonConverter(String json) {
+        assertThat(JsonStreamingConverter.convertToAttributesProto(json.getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(JsonConverter.convertToAttributesProto(JsonParser.parseString(json)));
+    }
+
+    @Test
+    public void givenUtf8Bytes_whenRead_thenSameAsStringDecoding() throws Exception {
+        String text = "ascii, é, 温度, \uD83D\uDE00 and more";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int chunk : new int[]{1, 2, 3, 1024}) {
+            StringBuilder result = new StringBuilder();
+            Utf8ByteBufferReader reader = new Utf8ByteBufferReader(ByteBuffer.wrap(bytes));
+            char[] buf = new char[chunk];
+            int read;
+            while ((read = reader.read(buf, 0, chunk)) != -1) {
+                result.append(buf, 0, read);
+            }
+            assertThat(result.toString()).isEqualTo(text);
+        }
+
+        byte[] malformed = {'a', (byte) 0xE6, (byte) 0xB8, 'b', (byte) 0xFF};
+        char[] buf = new char[10];
+        int read = new Utf8ByteBufferReader(ByteBuffer.wrap(malformed)).read(buf, 0, 10);
+        assertThat(new String(buf, 0, read)).isEqualTo("a\uFFFDb\uFFFD");
+    }
+
+    @Test
+    public void givenTypeCastDisabled_whenConvert_thenSameAsJsonConverter() {
+        JsonConverter.setTypeCastEnabled(false);
+        String json = "{\"long\": \"123\", \"double\": 1.5}";
+        assertThat(JsonStreamingConverter.convertToTelemetryProto(new StringReader(json), 100L))
+                .isEqualTo(JsonConverter.convertToTelemetryProto(JsonParser.parseString(json), 100L));
+        assertThatThrownBy(() -> JsonStreamingConverter.convertToAttributesProto("{\"big\": 12345678901234567890}"))
+                .isInstanceOf(JsonSyntaxException.class);
+    }
+
+    @Test
+    public void givenLongStringInValuesWithoutTs_whenConvert_thenValuesAreKeptAsJson() {
+        JsonConverter.setMaxStringValueLength(3);
+        String json = "{\"values\": {\"key\": \"long string\"}}";
+        assertThat(JsonStreamingConverter.convertToTelemetryProto(new StringReader(json), 100L))
+                .isEqualTo(JsonConverter.convertToTelemetryProto(JsonParser.parseString(json), 100L));
+        assertThatThrownBy(() -> JsonStreamingConverter.convertToTelemetryProto("{\"ts\": 1, \"values\": {\"key\": \"long string\"}}"))
+                .isInstanceOf(JsonSyntaxException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "42", "\"text\"", "[1, 2]", "{\"a\": 1", "{\"a\": 1} {\"b\": 2}", "{\"ts\": 1, \"values\": 2}"})
+    public void givenInvalidPayload_whenConvertToTelemetry_thenError(String json) {
+        assertThatThrownBy(() -> JsonConverter.convertToTelemetryProto(JsonParser.parseString(json)))
+                .isInstanceOfAny(JsonSyntaxException.class, IllegalStateException.class);
+        assertThatThrownBy(() -> JsonStreamingConverter.convertToTelemetryProto(json))
+                .isInstanceOfAny(JsonSyntaxException.class, IllegalStateException.class);
+    }
+
+}
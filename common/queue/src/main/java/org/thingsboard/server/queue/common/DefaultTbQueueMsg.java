@@ -26,6 +26,12 @@ public class DefaultTbQueueMsg implements TbQueueMsg {
     private final byte[] data;
     private final DefaultTbQueueMsgHeaders headers;
 
+    public DefaultTbQueueMsg(UUID key, byte[] data, DefaultTbQueueMsgHeaders headers) {
+        this.key = key;
+        this.data = data;
+        this.headers = headers;
+    }
+
     public DefaultTbQueueMsg(TbQueueMsg msg) {
         this.key = msg.getKey();
         this.data = msg.getData();
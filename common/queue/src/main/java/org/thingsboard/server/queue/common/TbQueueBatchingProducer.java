@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.TbQueueProducer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer wrapper that accumulates messages per topic partition and publishes them as a single envelope message
+ * (see {@link TbQueueMsgBatch}) once the batch is full or the linger time is over.
+ * Callbacks of the individual messages are notified with the result of the envelope.
+ * With a zero linger time single messages are sent as is, and only the groups passed to {@link #sendAll} are packed.
+ */
+@Slf4j
+public class TbQueueBatchingProducer<T extends TbQueueMsg> implements TbQueueProducer<T> {
+
+    private final TbQueueProducer<TbQueueMsg> delegate;
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final ConcurrentMap<TopicPartitionInfo, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public TbQueueBatchingProducer(TbQueueProducer<TbQueueMsg> delegate, int maxBatchSize, int maxBatchBytes, long lingerMs) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        if (lingerMs > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("queue-batching-producer-" + delegate.getDefaultTopic()));
+            this.scheduler.scheduleWithFixedDelay(this::flush, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public String getDefaultTopic() {
+        return delegate.getDefaultTopic();
+    }
+
+    @Override
+    public void send(TopicPartitionInfo tpi, T msg, TbQueueCallback callback) {
+        if (scheduler == null) {
+            delegate.send(tpi, msg, callback);
+            return;
+        }
+        Batch batch = batches.computeIfAbsent(tpi, Batch::new);
+        synchronized (batch) {
+            batch.add(msg, callback);
+            if (batch.msgs.size() >= maxBatchSize || batch.bytes >= maxBatchBytes) {
+                publish(batch);
+            }
+        }
+    }
+
+    /**
+     * Publishes the messages that are already grouped by the caller right away, without waiting for the linger time.
+     */
+    public void sendAll(TopicPartitionInfo tpi, List<T> msgs, List<TbQueueCallback> callbacks) {
+        Batch batch = batches.computeIfAbsent(tpi, Batch::new);
+        synchronized (batch) {
+            for (int i = 0; i < msgs.size(); i++) {
+                batch.add(msgs.get(i), callbacks.get(i));
+                if (batch.msgs.size() >= maxBatchSize || batch.bytes >= maxBatchBytes) {
+                    publish(batch);
+                }
+            }
+            if (!batch.msgs.isEmpty()) {
+                publish(batch);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flush();
+        delegate.stop();
+    }
+
+    private void flush() {
+        batches.values().forEach(batch -> {
+            synchronized (batch) {
+                if (!batch.msgs.isEmpty()) {
+                    publish(batch);
+                }
+            }
+        });
+    }
+
+    // called under the batch lock, which keeps the order of envelopes for the same partition
+    private void publish(Batch batch) {
+        List<TbQueueMsg> msgs = batch.msgs;
+        List<TbQueueCallback> callbacks = batch.callbacks;
+        batch.reset();
+        try {
+            if (msgs.size() == 1) {
+                delegate.send(batch.tpi, msgs.get(0), callbacks.get(0));
+            } else {
+                delegate.send(batch.tpi, TbQueueMsgBatch.pack(msgs), new BatchCallback(callbacks));
+            }
+        } catch (Exception e) {
+            // the delegate has already notified the callbacks
+            log.debug("[{}] Failed to publish batch of {} messages", batch.tpi.getFullTopicName(), msgs.size(), e);
+        }
+    }
+
+    private static class Batch {
+
+        private final TopicPartitionInfo tpi;
+        private List<TbQueueMsg> msgs;
+        private List<TbQueueCallback> callbacks;
+        private int bytes;
+
+        Batch(TopicPartitionInfo tpi) {
+            this.tpi = tpi;
+            reset();
+        }
+
+        void add(TbQueueMsg msg, TbQueueCallback callback) {
+            msgs.add(msg);
+            callbacks.add(callback);
+            bytes += msg.getData().length;
+        }
+
+        void reset() {
+            msgs = new ArrayList<>();
+            callbacks = new ArrayList<>();
+            bytes = 0;
+        }
+
+    }
+
+    private static class BatchCallback implements TbQueueCallback {
+
+        private final List<TbQueueCallback> callbacks;
+
+        BatchCallback(List<TbQueueCallback> callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void onSuccess(TbQueueMsgMetadata metadata) {
+            for (TbQueueCallback callback : callbacks) {
+                if (callback != null) {
+                    callback.onSuccess(metadata);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            for (TbQueueCallback callback : callbacks) {
+                if (callback != null) {
+                    callback.onFailure(t);
+                }
+            }
+        }
+
+    }
+
+}
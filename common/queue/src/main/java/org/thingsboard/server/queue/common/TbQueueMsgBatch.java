@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import com.google.protobuf.ByteString;
+import org.thingsboard.server.gen.transport.TransportProtos.QueueMsgBatchProto;
+import org.thingsboard.server.gen.transport.TransportProtos.QueueMsgProto;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Packs several queue messages into a single envelope message and back.
+ * The envelope is marked with a header, so consumers can tell it from regular messages.
+ */
+public class TbQueueMsgBatch {
+
+    public static final String BATCH_HEADER = "_batch";
+    private static final byte[] BATCH_HEADER_VALUE = "1".getBytes(StandardCharsets.UTF_8);
+
+    private TbQueueMsgBatch() {
+    }
+
+    public static boolean isBatch(TbQueueMsg msg) {
+        return msg.getHeaders() != null && msg.getHeaders().get(BATCH_HEADER) != null;
+    }
+
+    public static TbQueueMsg pack(List<? extends TbQueueMsg> msgs) {
+        QueueMsgBatchProto.Builder batch = QueueMsgBatchProto.newBuilder();
+        for (TbQueueMsg msg : msgs) {
+            QueueMsgProto.Builder msgProto = QueueMsgProto.newBuilder()
+                    .setKeyMSB(msg.getKey().getMostSignificantBits())
+                    .setKeyLSB(msg.getKey().getLeastSignificantBits())
+                    .setData(ByteString.copyFrom(msg.getData()));
+            if (msg.getHeaders() != null) {
+                msg.getHeaders().getData().forEach((key, value) -> msgProto.putHeaders(key, ByteString.copyFrom(value)));
+            }
+            batch.addMsgs(msgProto);
+        }
+        DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put(BATCH_HEADER, BATCH_HEADER_VALUE);
+        // the key of the first message keeps the envelope in the same Kafka partition as the messages would be
+        return new DefaultTbQueueMsg(msgs.get(0).getKey(), batch.build().toByteArray(), headers);
+    }
+
+    public static List<TbQueueMsg> unpack(TbQueueMsg batchMsg) throws IOException {
+        QueueMsgBatchProto batch = QueueMsgBatchProto.parseFrom(batchMsg.getData());
+        List<TbQueueMsg> msgs = new ArrayList<>(batch.getMsgsCount());
+        for (QueueMsgProto msgProto : batch.getMsgsList()) {
+            DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+            msgProto.getHeadersMap().forEach((key, value) -> headers.put(key, value.toByteArray()));
+            msgs.add(new DefaultTbQueueMsg(new UUID(msgProto.getKeyMSB(), msgProto.getKeyLSB()), msgProto.getData().toByteArray(), headers));
+        }
+        return msgs;
+    }
+
+}
@@ -19,6 +19,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
@@ -27,7 +28,10 @@ import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.discovery.PartitionService;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -40,6 +44,45 @@ public class TbRuleEngineProducerService {
     public void sendToRuleEngine(TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer,
                                  TenantId tenantId, TbMsg tbMsg, TbQueueCallback callback) {
         List<TopicPartitionInfo> tpis = partitionService.resolveAll(ServiceType.TB_RULE_ENGINE, tbMsg.getQueueName(), tenantId, tbMsg.getOriginator());
+        sendToRuleEngine(producer, tpis, tenantId, tbMsg, callback);
+    }
+
+    /**
+     * Sends the messages of a single tenant grouped by the target partition.
+     * A {@link TbQueueBatchingProducer} publishes the messages of each partition as one batch record,
+     * other producers get the messages of the same partition one after another.
+     * Messages that are duplicated to several partitions are sent the same way as single messages.
+     */
+    public void sendToRuleEngine(TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer,
+                                 TenantId tenantId, List<TbPair<TbMsg, TbQueueCallback>> tbMsgs) {
+        Map<TopicPartitionInfo, List<TbPair<TbMsg, TbQueueCallback>>> partitionMsgs = new LinkedHashMap<>();
+        for (TbPair<TbMsg, TbQueueCallback> tbMsg : tbMsgs) {
+            List<TopicPartitionInfo> tpis = partitionService.resolveAll(ServiceType.TB_RULE_ENGINE, tbMsg.getFirst().getQueueName(), tenantId, tbMsg.getFirst().getOriginator());
+            if (tpis.size() > 1) {
+                sendToRuleEngine(producer, tpis, tenantId, tbMsg.getFirst(), tbMsg.getSecond());
+            } else {
+                partitionMsgs.computeIfAbsent(tpis.get(0), tpi -> new ArrayList<>()).add(tbMsg);
+            }
+        }
+        partitionMsgs.forEach((tpi, msgs) -> {
+            if (msgs.size() > 1 && producer instanceof TbQueueBatchingProducer<TbProtoQueueMsg<ToRuleEngineMsg>> batchingProducer) {
+                List<TbProtoQueueMsg<ToRuleEngineMsg>> queueMsgs = new ArrayList<>(msgs.size());
+                List<TbQueueCallback> callbacks = new ArrayList<>(msgs.size());
+                for (TbPair<TbMsg, TbQueueCallback> tbMsg : msgs) {
+                    queueMsgs.add(toQueueMsg(tpi, tenantId, tbMsg.getFirst()));
+                    callbacks.add(tbMsg.getSecond());
+                }
+                batchingProducer.sendAll(tpi, queueMsgs, callbacks);
+            } else {
+                for (TbPair<TbMsg, TbQueueCallback> tbMsg : msgs) {
+                    sendToRuleEngine(producer, tpi, tenantId, tbMsg.getFirst(), tbMsg.getSecond());
+                }
+            }
+        });
+    }
+
+    private void sendToRuleEngine(TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer, List<TopicPartitionInfo> tpis,
+                                  TenantId tenantId, TbMsg tbMsg, TbQueueCallback callback) {
         if (tpis.size() > 1) {
             UUID correlationId = UUID.randomUUID();
             for (int i = 0; i < tpis.size(); i++) {
@@ -61,6 +104,10 @@ public class TbRuleEngineProducerService {
 
     private void sendToRuleEngine(TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer, TopicPartitionInfo tpi,
                                   TenantId tenantId, TbMsg tbMsg, TbQueueCallback callback) {
+        producer.send(tpi, toQueueMsg(tpi, tenantId, tbMsg), callback);
+    }
+
+    private TbProtoQueueMsg<ToRuleEngineMsg> toQueueMsg(TopicPartitionInfo tpi, TenantId tenantId, TbMsg tbMsg) {
         if (log.isTraceEnabled()) {
             log.trace("[{}][{}] Pushing to topic {} message {}", tenantId, tbMsg.getOriginator(), tpi.getFullTopicName(), tbMsg);
         }
@@ -68,7 +115,7 @@ public class TbRuleEngineProducerService {
                 .setTbMsg(TbMsg.toByteString(tbMsg))
                 .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
                 .setTenantIdLSB(tenantId.getId().getLeastSignificantBits()).build();
-        producer.send(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), callback);
+        return new TbProtoQueueMsg<>(tbMsg.getId(), msg);
     }
 
 }
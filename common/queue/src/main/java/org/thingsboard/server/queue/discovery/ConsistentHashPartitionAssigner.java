@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.discovery;
+
+import com.google.common.hash.HashFunction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Assigns partitions to services using consistent hashing with bounded loads.
+ * Every service is placed on the hash circle as a number of virtual nodes, and every partition is assigned to the first
+ * service clockwise from the partition hash that has not reached its capacity yet. The capacity is the average number
+ * of partitions per service multiplied by the load factor, so the partitions stay evenly spread while adding or removing
+ * a service only moves the partitions that belonged to it (or are taken over by it) plus a small overflow.
+ */
+public class ConsistentHashPartitionAssigner {
+
+    private final HashFunction hashFunction;
+    private final int virtualNodes;
+    private final double loadFactor;
+
+    public ConsistentHashPartitionAssigner(HashFunction hashFunction, int virtualNodes, double loadFactor) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes count must be positive");
+        }
+        if (loadFactor < 1.0) {
+            throw new IllegalArgumentException("Load factor must be greater than or equal to 1.0");
+        }
+        this.hashFunction = hashFunction;
+        this.virtualNodes = virtualNodes;
+        this.loadFactor = loadFactor;
+    }
+
+    /**
+     * Returns the list of services indexed by partition. The result depends only on the queue id, the partitions count
+     * and the service ids, so every node of the cluster computes the same assignment.
+     */
+    public <T> List<T> assign(String queueId, int partitions, List<T> services, Function<T, String> idFunction) {
+        if (services == null || services.isEmpty()) {
+            return Collections.nCopies(partitions, null);
+        }
+        ConsistentHashCircle<T> circle = new ConsistentHashCircle<>();
+        for (T service : services) {
+            String serviceId = idFunction.apply(service);
+            for (int i = 0; i < virtualNodes; i++) {
+                long hash = hash(serviceId + "#" + i);
+                while (circle.containsKey(hash)) {
+                    hash++;
+                }
+                circle.put(hash, service);
+            }
+        }
+
+        int capacity = (int) Math.ceil(loadFactor * partitions / services.size());
+        Map<T, Integer> loads = new HashMap<>();
+        List<T> result = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            long hash = hash(queueId + "#" + partition);
+            T service = findService(circle, hash, loads, capacity);
+            loads.merge(service, 1, Integer::sum);
+            result.add(service);
+        }
+        return result;
+    }
+
+    private <T> T findService(ConsistentHashCircle<T> circle, long hash, Map<T, Integer> loads, int capacity) {
+        for (T service : circle.tailMap(hash).values()) {
+            if (loads.getOrDefault(service, 0) < capacity) {
+                return service;
+            }
+        }
+        for (T service : circle.headMap(hash).values()) {
+            if (loads.getOrDefault(service, 0) < capacity) {
+                return service;
+            }
+        }
+        // can't happen since total capacity is not less than the partitions count
+        return circle.get(circle.firstKey());
+    }
+
+    private long hash(String key) {
+        return hashFunction.hashString(key, StandardCharsets.UTF_8).padToLong();
+    }
+
+}
@@ -57,6 +57,8 @@ import static org.thingsboard.server.common.data.DataConstants.MAIN_QUEUE_NAME;
 @Slf4j
 public class HashPartitionService implements PartitionService {
 
+    static final String CONSISTENT_HASH_STRATEGY = "consistent_hash";
+
     @Value("${queue.core.topic}")
     private String coreTopic;
     @Value("${queue.core.partitions:100}")
@@ -67,6 +69,12 @@ public class HashPartitionService implements PartitionService {
     private Integer vcPartitions;
     @Value("${queue.partitions.hash_function_name:murmur3_128}")
     private String hashFunctionName;
+    @Value("${queue.partitions.assignment_strategy:modulo}")
+    private String assignmentStrategy;
+    @Value("${queue.partitions.consistent_hash.virtual_nodes:64}")
+    private int consistentHashVirtualNodes;
+    @Value("${queue.partitions.consistent_hash.load_factor:1.25}")
+    private double consistentHashLoadFactor;
 
     private final ApplicationEventPublisher applicationEventPublisher;
     private final TbServiceInfoProvider serviceInfoProvider;
@@ -87,6 +95,7 @@ public class HashPartitionService implements PartitionService {
     private volatile Map<TenantProfileId, List<ServiceInfo>> responsibleServices = Collections.emptyMap();
 
     private HashFunction hashFunction;
+    private ConsistentHashPartitionAssigner consistentHashAssigner;
 
     public HashPartitionService(TbServiceInfoProvider serviceInfoProvider,
                                 TenantRoutingInfoService tenantRoutingInfoService,
@@ -103,6 +112,10 @@ public class HashPartitionService implements PartitionService {
     @PostConstruct
     public void init() {
         this.hashFunction = forName(hashFunctionName);
+        if (CONSISTENT_HASH_STRATEGY.equalsIgnoreCase(assignmentStrategy)) {
+            this.consistentHashAssigner = new ConsistentHashPartitionAssigner(hashFunction, consistentHashVirtualNodes, consistentHashLoadFactor);
+            log.info("Using consistent hash partitions assignment with {} virtual nodes and load factor {}", consistentHashVirtualNodes, consistentHashLoadFactor);
+        }
         QueueKey coreKey = new QueueKey(ServiceType.TB_CORE);
         partitionSizesMap.put(coreKey, corePartitions);
         partitionTopicsMap.put(coreKey, coreTopic);
@@ -365,6 +378,21 @@ public class HashPartitionService implements PartitionService {
 
         final ConcurrentMap<QueueKey, List<Integer>> newPartitions = new ConcurrentHashMap<>();
         partitionSizesMap.forEach((queueKey, size) -> {
+            if (consistentHashAssigner != null) {
+                try {
+                    List<ServiceInfo> assignment = resolvePartitionsAssignment(queueServicesMap.get(queueKey), queueKey, size, responsibleServices);
+                    for (int i = 0; i < size; i++) {
+                        ServiceInfo serviceInfo = assignment.get(i);
+                        log.trace("Server responsible for {}[{}] - {}", queueKey, i, serviceInfo != null ? serviceInfo.getServiceId() : "none");
+                        if (currentService.equals(serviceInfo)) {
+                            newPartitions.computeIfAbsent(queueKey, key -> new ArrayList<>()).add(i);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to resolve servers responsible for {}", queueKey, e);
+                }
+                return;
+            }
             for (int i = 0; i < size; i++) {
                 try {
                     ServiceInfo serviceInfo = resolveByPartitionIdx(queueServicesMap.get(queueKey), queueKey, i, responsibleServices);
@@ -600,10 +628,36 @@ public class HashPartitionService implements PartitionService {
 
     protected ServiceInfo resolveByPartitionIdx(List<ServiceInfo> servers, QueueKey queueKey, int partition,
                                                 Map<TenantProfileId, List<ServiceInfo>> responsibleServices) {
+        if (consistentHashAssigner != null) {
+            int size = Math.max(partitionSizesMap.getOrDefault(queueKey, 0), partition + 1);
+            return resolvePartitionsAssignment(servers, queueKey, size, responsibleServices).get(partition);
+        }
+        servers = resolveResponsibleServers(servers, queueKey, responsibleServices);
         if (servers == null || servers.isEmpty()) {
             return null;
         }
 
+        if (queueKey.getType() == ServiceType.TB_RULE_ENGINE) {
+            int hash = hash(queueKey.getTenantId().getId());
+            return servers.get(Math.abs((hash + partition) % servers.size()));
+        } else {
+            return servers.get(partition % servers.size());
+        }
+    }
+
+    private List<ServiceInfo> resolvePartitionsAssignment(List<ServiceInfo> servers, QueueKey queueKey, int partitions,
+                                                          Map<TenantProfileId, List<ServiceInfo>> responsibleServices) {
+        servers = resolveResponsibleServers(servers, queueKey, responsibleServices);
+        String queueId = queueKey.getType() + "_" + queueKey.getQueueName() + "_" + queueKey.getTenantId().getId();
+        return consistentHashAssigner.assign(queueId, partitions, servers, ServiceInfo::getServiceId);
+    }
+
+    private List<ServiceInfo> resolveResponsibleServers(List<ServiceInfo> servers, QueueKey queueKey,
+                                                        Map<TenantProfileId, List<ServiceInfo>> responsibleServices) {
+        if (servers == null || servers.isEmpty()) {
+            return servers;
+        }
+
         TenantId tenantId = queueKey.getTenantId();
         if (queueKey.getType() == ServiceType.TB_RULE_ENGINE) {
             if (!responsibleServices.isEmpty()) { // if there are any dedicated servers
@@ -628,17 +682,10 @@ public class HashPartitionService implements PartitionService {
                     }
                     responsibleServices.put(profileId, responsible);
                 }
-                if (responsible.isEmpty()) {
-                    return null;
-                }
-                servers = responsible;
+                return responsible;
             }
-
-            int hash = hash(tenantId.getId());
-            return servers.get(Math.abs((hash + partition) % servers.size()));
-        } else {
-            return servers.get(partition % servers.size());
         }
+        return servers;
     }
 
     private int hash(UUID key) {
@@ -0,0 +1,125 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.discovery;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Simulates a sequence of cluster topology changes and reports how many partitions change their owner on each step
+ * with the modulo and the consistent hash assignment strategies.
+ * <p>
+ * Usage: {@code java -cp <classpath> org.thingsboard.server.queue.discovery.PartitionAssignmentSimulator
+ * <partitions> <comma separated services counts> [virtual nodes] [load factor] [hash function]},
+ * e.g. {@code 100 3,4,5,4,3 64 1.25 murmur3_128}
+ */
+public class PartitionAssignmentSimulator {
+
+    private static final String QUEUE_ID = "TB_CORE_Main_13814000-1dd2-11b2-8080-808080808080";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: PartitionAssignmentSimulator <partitions> <comma separated services counts> [virtual nodes] [load factor] [hash function]");
+            System.exit(1);
+        }
+        int partitions = Integer.parseInt(args[0]);
+        List<Integer> servicesCounts = Arrays.stream(args[1].split(",")).map(String::trim).map(Integer::parseInt).collect(Collectors.toList());
+        int virtualNodes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        double loadFactor = args.length > 3 ? Double.parseDouble(args[3]) : 1.25;
+        String hashFunctionName = args.length > 4 ? args[4] : "murmur3_128";
+
+        ConsistentHashPartitionAssigner assigner = new ConsistentHashPartitionAssigner(HashPartitionService.forName(hashFunctionName), virtualNodes, loadFactor);
+        System.out.printf("%-12s %-18s %-18s %-18s %-18s%n", "Change", "Modulo moved", "Modulo max load", "Consistent moved", "Consistent max load");
+        for (StepResult result : simulate(partitions, servicesCounts, assigner)) {
+            System.out.printf("%-12s %-18s %-18d %-18s %-18d%n", result.getFromServices() + " -> " + result.getToServices(),
+                    result.getModuloMoved() + " (" + percent(result.getModuloMoved(), partitions) + "%)", result.getModuloMaxLoad(),
+                    result.getConsistentHashMoved() + " (" + percent(result.getConsistentHashMoved(), partitions) + "%)", result.getConsistentHashMaxLoad());
+        }
+    }
+
+    public static List<StepResult> simulate(int partitions, List<Integer> servicesCounts, ConsistentHashPartitionAssigner assigner) {
+        List<StepResult> results = new ArrayList<>();
+        List<String> previousModulo = null;
+        List<String> previousConsistentHash = null;
+        int previousCount = 0;
+        for (int servicesCount : servicesCounts) {
+            List<String> services = new ArrayList<>();
+            for (int i = 0; i < servicesCount; i++) {
+                services.add("tb-node-" + i);
+            }
+            services.sort(String::compareTo);
+
+            List<String> modulo = new ArrayList<>(partitions);
+            for (int partition = 0; partition < partitions; partition++) {
+                modulo.add(services.get(partition % services.size()));
+            }
+            List<String> consistentHash = assigner.assign(QUEUE_ID, partitions, services, Function.identity());
+
+            if (previousModulo != null) {
+                StepResult result = new StepResult();
+                result.setFromServices(previousCount);
+                result.setToServices(servicesCount);
+                result.setModuloMoved(countMoved(previousModulo, modulo));
+                result.setModuloMaxLoad(maxLoad(modulo));
+                result.setConsistentHashMoved(countMoved(previousConsistentHash, consistentHash));
+                result.setConsistentHashMaxLoad(maxLoad(consistentHash));
+                results.add(result);
+            }
+            previousModulo = modulo;
+            previousConsistentHash = consistentHash;
+            previousCount = servicesCount;
+        }
+        return results;
+    }
+
+    private static int countMoved(List<String> before, List<String> after) {
+        int moved = 0;
+        for (int i = 0; i < before.size(); i++) {
+            if (!before.get(i).equals(after.get(i))) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static int maxLoad(List<String> assignment) {
+        Map<String, Integer> loads = new HashMap<>();
+        assignment.forEach(service -> loads.merge(service, 1, Integer::sum));
+        return loads.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    private static long percent(int value, int total) {
+        return Math.round(value * 100.0 / total);
+    }
+
+    @Data
+    public static class StepResult {
+        private int fromServices;
+        private int toServices;
+        private int moduloMoved;
+        private int moduloMaxLoad;
+        private int consistentHashMoved;
+        private int consistentHashMaxLoad;
+    }
+
+}
@@ -46,6 +46,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Component
@@ -53,6 +55,7 @@ import java.util.concurrent.TimeUnit;
 @ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka")
 public class TbKafkaConsumerStatsService {
     private final Set<String> monitoredGroups = ConcurrentHashMap.newKeySet();
+    private final Map<String, CommitStats> commitStats = new ConcurrentHashMap<>();
 
     private final TbKafkaSettings kafkaSettings;
     private final TbKafkaConsumerStatisticConfig statsConfig;
@@ -82,6 +85,7 @@ public class TbKafkaConsumerStatsService {
     private void startLogScheduling() {
         Duration timeoutDuration = Duration.ofMillis(statsConfig.getKafkaResponseTimeoutMs());
         statsPrintScheduler.scheduleWithFixedDelay(() -> {
+            printCommitStats();
             if (!isStatsPrintRequired()) {
                 return;
             }
@@ -111,6 +115,22 @@ public class TbKafkaConsumerStatsService {
         }, statsConfig.getPrintIntervalMs(), statsConfig.getPrintIntervalMs(), TimeUnit.MILLISECONDS);
     }
 
+    private void printCommitStats() {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        commitStats.forEach((groupId, stats) -> {
+            long count = stats.count.sumThenReset();
+            long failed = stats.failed.sumThenReset();
+            long totalLatencyMs = stats.totalLatencyMs.sumThenReset();
+            long maxLatencyMs = stats.maxLatencyMs.getAndSet(0);
+            if (count > 0) {
+                log.info("[{}] Offset commits: [{}], failed: [{}], avg latency: [{}ms], max latency: [{}ms].",
+                        groupId, count, failed, totalLatencyMs / count, maxLatencyMs);
+            }
+        });
+    }
+
     private boolean isStatsPrintRequired() {
         boolean isMyRuleEnginePartition = partitionService.isMyPartition(ServiceType.TB_RULE_ENGINE, TenantId.SYS_TENANT_ID, TenantId.SYS_TENANT_ID);
         boolean isMyCorePartition = partitionService.isMyPartition(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, TenantId.SYS_TENANT_ID);
@@ -137,6 +157,18 @@ public class TbKafkaConsumerStatsService {
         return consumerGroupStats;
     }
 
+    public void reportCommit(String groupId, long latencyMs, boolean success) {
+        if (statsConfig.getEnabled() && !StringUtils.isEmpty(groupId)) {
+            CommitStats stats = commitStats.computeIfAbsent(groupId, k -> new CommitStats());
+            stats.count.increment();
+            if (!success) {
+                stats.failed.increment();
+            }
+            stats.totalLatencyMs.add(latencyMs);
+            stats.maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        }
+    }
+
     public void registerClientGroup(String groupId) {
         if (statsConfig.getEnabled() && !StringUtils.isEmpty(groupId)) {
             monitoredGroups.add(groupId);
@@ -146,6 +178,7 @@ public class TbKafkaConsumerStatsService {
     public void unregisterClientGroup(String groupId) {
         if (statsConfig.getEnabled() && !StringUtils.isEmpty(groupId)) {
             monitoredGroups.remove(groupId);
+            commitStats.remove(groupId);
         }
     }
 
@@ -160,6 +193,13 @@ public class TbKafkaConsumerStatsService {
     }
 
 
+    private static class CommitStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalLatencyMs = new LongAdder();
+        private final AtomicLong maxLatencyMs = new AtomicLong();
+    }
+
     @Builder
     @Data
     private static class GroupTopicStats {
@@ -18,20 +18,25 @@ package org.thingsboard.server.queue.kafka;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.util.StopWatch;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
+import org.thingsboard.server.queue.common.TbQueueMsgBatch;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by ashvayka on 24.09.18.
@@ -46,6 +51,12 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
     private final TbKafkaConsumerStatsService statsService;
     private final String groupId;
 
+    private final boolean asyncCommit;
+    private final int maxPendingCommits;
+    // accessed from the consumer thread only: commit callbacks are invoked within poll() and commit calls
+    private int pendingCommits;
+    private boolean asyncCommitFailed;
+
     @Builder
     private TbKafkaConsumerTemplate(TbKafkaSettings settings, TbKafkaDecoder<T> decoder,
                                     String clientId, String groupId, String topic,
@@ -59,6 +70,8 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
 
         this.statsService = statsService;
         this.groupId = groupId;
+        this.asyncCommit = settings.isAsyncCommitEnabled() && groupId != null;
+        this.maxPendingCommits = Math.max(1, settings.getAsyncCommitMaxPendingCommits());
 
         if (statsService != null) {
             statsService.registerClientGroup(groupId);
@@ -73,7 +86,11 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
     protected void doSubscribe(List<String> topicNames) {
         if (!topicNames.isEmpty()) {
             topicNames.forEach(admin::createTopicIfNotExists);
-            consumer.subscribe(topicNames);
+            if (asyncCommit) {
+                consumer.subscribe(topicNames, new AsyncCommitRebalanceListener());
+            } else {
+                consumer.subscribe(topicNames);
+            }
         } else {
             log.info("unsubscribe due to empty topic list");
             consumer.unsubscribe();
@@ -106,14 +123,69 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return decoder.decode(new KafkaTbQueueMsg(record));
     }
 
+    @Override
+    protected void decode(ConsumerRecord<String, byte[]> record, List<T> result) throws IOException {
+        KafkaTbQueueMsg msg = new KafkaTbQueueMsg(record);
+        if (TbQueueMsgBatch.isBatch(msg)) {
+            for (TbQueueMsg batchMsg : TbQueueMsgBatch.unpack(msg)) {
+                result.add(decoder.decode(batchMsg));
+            }
+        } else {
+            result.add(decoder.decode(msg));
+        }
+    }
+
     @Override
     protected void doCommit() {
-        consumer.commitSync();
+        if (asyncCommit && !asyncCommitFailed && pendingCommits < maxPendingCommits) {
+            commitAsync();
+        } else {
+            // also waits for the pending async commits, which bounds the lag of committed offsets
+            commitSync();
+        }
+    }
+
+    private void commitAsync() {
+        long startTs = System.nanoTime();
+        pendingCommits++;
+        consumer.commitAsync((offsets, exception) -> {
+            pendingCommits--;
+            if (exception != null) {
+                log.debug("[{}] Failed to commit offsets {} asynchronously", getTopic(), offsets, exception);
+                asyncCommitFailed = true;
+            }
+            reportCommit(startTs, exception == null);
+        });
+    }
+
+    private void commitSync() {
+        long startTs = System.nanoTime();
+        boolean success = false;
+        try {
+            consumer.commitSync();
+            asyncCommitFailed = false;
+            success = true;
+        } finally {
+            reportCommit(startTs, success);
+        }
+    }
+
+    private void reportCommit(long startTs, boolean success) {
+        if (statsService != null) {
+            statsService.reportCommit(groupId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTs), success);
+        }
     }
 
     @Override
     protected void doUnsubscribe() {
         if (consumer != null) {
+            if (asyncCommit && (pendingCommits > 0 || asyncCommitFailed)) {
+                try {
+                    commitSync();
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to commit offsets before unsubscribe", getTopic(), e);
+                }
+            }
             consumer.unsubscribe();
             consumer.close();
         }
@@ -127,4 +199,24 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return true;
     }
 
+    private class AsyncCommitRebalanceListener implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            // make sure offsets of processed records are committed before the partitions are assigned to another consumer
+            if (!partitions.isEmpty() && (pendingCommits > 0 || asyncCommitFailed)) {
+                try {
+                    commitSync();
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to commit offsets for revoked partitions {}", getTopic(), partitions, e);
+                }
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        }
+
+    }
+
 }
@@ -29,6 +29,7 @@ import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.common.TbQueueBatchingProducer;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -75,6 +76,30 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
         topics = ConcurrentHashMap.newKeySet();
     }
 
+    /**
+     * Wraps the producer with {@link TbQueueBatchingProducer} if producer batching is enabled in the Kafka settings.
+     */
+    public static <T extends TbQueueMsg> TbQueueProducer<T> withBatching(TbKafkaProducerTemplate<T> producer) {
+        return withBatching(producer, false);
+    }
+
+    /**
+     * Same as {@link #withBatching(TbKafkaProducerTemplate)}, but with {@code groupedBatches} the producer is wrapped
+     * even if producer batching is disabled. Such producer sends single messages as is and packs only the groups
+     * passed to {@link TbQueueBatchingProducer#sendAll}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends TbQueueMsg> TbQueueProducer<T> withBatching(TbKafkaProducerTemplate<T> producer, boolean groupedBatches) {
+        TbKafkaSettings settings = producer.getSettings();
+        if (!settings.isProducerBatchEnabled() && !groupedBatches) {
+            return producer;
+        }
+        // the template relies on the TbQueueMsg interface only, so it is able to send the batch envelopes as well
+        TbQueueProducer<TbQueueMsg> delegate = (TbQueueProducer<TbQueueMsg>) (TbQueueProducer<?>) producer;
+        return new TbQueueBatchingProducer<>(delegate, settings.getProducerBatchMaxSize(), settings.getProducerBatchMaxBytes(),
+                settings.isProducerBatchEnabled() ? settings.getProducerBatchLingerMs() : 0);
+    }
+
     @Override
     public void init() {
     }
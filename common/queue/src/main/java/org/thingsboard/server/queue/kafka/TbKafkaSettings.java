@@ -120,6 +120,30 @@ public class TbKafkaSettings {
     @Value("${queue.kafka.auto_offset_reset:earliest}")
     private String autoOffsetReset;
 
+    @Value("${queue.kafka.async_commit.enabled:false}")
+    @Getter
+    private boolean asyncCommitEnabled;
+
+    @Value("${queue.kafka.async_commit.max_pending_commits:8}")
+    @Getter
+    private int asyncCommitMaxPendingCommits;
+
+    @Value("${queue.kafka.producer_batch.enabled:false}")
+    @Getter
+    private boolean producerBatchEnabled;
+
+    @Value("${queue.kafka.producer_batch.max_size:100}")
+    @Getter
+    private int producerBatchMaxSize;
+
+    @Value("${queue.kafka.producer_batch.max_bytes:262144}")
+    @Getter
+    private int producerBatchMaxBytes;
+
+    @Value("${queue.kafka.producer_batch.linger_ms:5}")
+    @Getter
+    private long producerBatchLingerMs;
+
     @Value("${queue.kafka.use_confluent_cloud:false}")
     private boolean useConfluent;
 
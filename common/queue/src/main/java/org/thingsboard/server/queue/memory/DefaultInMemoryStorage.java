@@ -16,6 +16,7 @@
 package org.thingsboard.server.queue.memory;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.queue.TbQueueMsg;
 
@@ -30,6 +31,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 @Component
 @Slf4j
+@ConditionalOnProperty(prefix = "queue.in_memory.storage", value = "type", havingValue = "default", matchIfMissing = true)
 public final class DefaultInMemoryStorage implements InMemoryStorage {
     private final ConcurrentHashMap<String, BlockingQueue<TbQueueMsg>> storage = new ConcurrentHashMap<>();
 
@@ -0,0 +1,27 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.memory;
+
+public enum InMemoryBackpressurePolicy {
+
+    // wait until the consumer frees space in the buffer, reject the message if it does not happen within the block timeout
+    BLOCK,
+    // remove the oldest message from the buffer to make space for the new one
+    DROP_OLDEST,
+    // reject the new message, the producer callback is notified with a failure
+    REJECT
+
+}
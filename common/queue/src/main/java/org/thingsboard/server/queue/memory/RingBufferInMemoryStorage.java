@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory storage with a bounded ring buffer per topic, which protects single node deployments from running out of
+ * memory when consumers fall behind. What happens to new messages when the buffer is full is defined by the
+ * {@link InMemoryBackpressurePolicy}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "queue.in_memory.storage", value = "type", havingValue = "ring_buffer")
+public final class RingBufferInMemoryStorage implements InMemoryStorage {
+
+    static final int MAX_POLL_SIZE = 1000;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final ConcurrentHashMap<String, TopicBuffer> storage = new ConcurrentHashMap<>();
+
+    private final int capacity;
+    private final InMemoryBackpressurePolicy backpressurePolicy;
+    private final long blockTimeoutNanos;
+
+    public RingBufferInMemoryStorage(@Value("${queue.in_memory.storage.ring_buffer.capacity:32768}") int capacity,
+                                     @Value("${queue.in_memory.storage.ring_buffer.backpressure_policy:BLOCK}") InMemoryBackpressurePolicy backpressurePolicy,
+                                     @Value("${queue.in_memory.storage.ring_buffer.block_timeout_ms:1000}") long blockTimeoutMs) {
+        this.capacity = capacity;
+        this.backpressurePolicy = backpressurePolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+    }
+
+    @Override
+    public void printStats() {
+        if (log.isDebugEnabled()) {
+            storage.forEach((topic, topicBuffer) -> {
+                int size = topicBuffer.buffer.size();
+                long dropped = topicBuffer.dropped.getAndSet(0);
+                long rejected = topicBuffer.rejected.getAndSet(0);
+                if (size > 0 || dropped > 0 || rejected > 0) {
+                    log.debug("[{}] Queue Size [{}], occupancy [{}%], dropped [{}], rejected [{}]",
+                            topic, size, size * 100 / topicBuffer.buffer.getCapacity(), dropped, rejected);
+                }
+            });
+        }
+    }
+
+    @Override
+    public int getLagTotal() {
+        return storage.values().stream().mapToInt(topicBuffer -> topicBuffer.buffer.size()).sum();
+    }
+
+    @Override
+    public int getLag(String topic) {
+        TopicBuffer topicBuffer = storage.get(topic);
+        return topicBuffer != null ? topicBuffer.buffer.size() : 0;
+    }
+
+    /**
+     * Returns the share of the topic buffer capacity occupied by pending messages, from 0 to 1.
+     */
+    public double getOccupancy(String topic) {
+        TopicBuffer topicBuffer = storage.get(topic);
+        return topicBuffer != null ? (double) topicBuffer.buffer.size() / topicBuffer.buffer.getCapacity() : 0.0;
+    }
+
+    @Override
+    public boolean put(String topic, TbQueueMsg msg) {
+        TopicBuffer topicBuffer = storage.computeIfAbsent(topic, t -> new TopicBuffer(capacity));
+        InMemoryRingBuffer buffer = topicBuffer.buffer;
+        if (buffer.offer(msg)) {
+            return true;
+        }
+        switch (backpressurePolicy) {
+            case DROP_OLDEST:
+                while (!buffer.offer(msg)) {
+                    if (buffer.poll() != null) {
+                        topicBuffer.dropped.incrementAndGet();
+                    }
+                }
+                return true;
+            case BLOCK:
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    if (buffer.offer(msg)) {
+                        return true;
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        topicBuffer.rejected.incrementAndGet();
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends TbQueueMsg> List<T> get(String topic) throws InterruptedException {
+        TopicBuffer topicBuffer = storage.get(topic);
+        if (topicBuffer != null) {
+            TbQueueMsg firstMsg = topicBuffer.buffer.poll();
+            if (firstMsg != null) {
+                int size = topicBuffer.buffer.size();
+                if (size == 0) {
+                    return Collections.singletonList((T) firstMsg);
+                }
+                List<TbQueueMsg> entities = new ArrayList<>(Math.min(size, MAX_POLL_SIZE - 1) + 1);
+                entities.add(firstMsg);
+                TbQueueMsg msg;
+                while (entities.size() < MAX_POLL_SIZE && (msg = topicBuffer.buffer.poll()) != null) {
+                    entities.add(msg);
+                }
+                return (List<T>) entities;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static class TopicBuffer {
+
+        private final InMemoryRingBuffer buffer;
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        TopicBuffer(int capacity) {
+            this.buffer = new InMemoryRingBuffer(capacity);
+        }
+
+    }
+
+}
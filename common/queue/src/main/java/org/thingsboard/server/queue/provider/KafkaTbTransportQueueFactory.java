@@ -16,6 +16,7 @@
 package org.thingsboard.server.queue.provider;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.gen.transport.TransportProtos;
@@ -69,6 +70,10 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
     private final TbQueueAdmin notificationAdmin;
     private final TbQueueAdmin housekeeperAdmin;
 
+    // gateway sub-device telemetry is sent as one batch record per partition
+    @Value("${transport.mqtt.gateway_telemetry_batching.enabled:false}")
+    private boolean gatewayTelemetryBatchingEnabled;
+
     public KafkaTbTransportQueueFactory(TbKafkaSettings kafkaSettings,
                                         TbServiceInfoProvider serviceInfoProvider,
                                         TbQueueCoreSettings coreSettings,
@@ -130,7 +135,7 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         requestBuilder.clientId("transport-node-rule-engine-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(topicService.buildTopicName(ruleEngineSettings.getTopic()));
         requestBuilder.admin(ruleEngineAdmin);
-        return requestBuilder.build();
+        return TbKafkaProducerTemplate.withBatching(requestBuilder.build(), gatewayTelemetryBatchingEnabled);
     }
 
     @Override
@@ -140,7 +145,7 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         requestBuilder.clientId("transport-node-core-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(topicService.buildTopicName(coreSettings.getTopic()));
         requestBuilder.admin(coreAdmin);
-        return requestBuilder.build();
+        return TbKafkaProducerTemplate.withBatching(requestBuilder.build());
     }
 
     @Override
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.TbQueueProducer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TbQueueBatchingProducerTest {
+
+    @Mock
+    TbQueueProducer<TbQueueMsg> delegate;
+    TbQueueBatchingProducer<TbQueueMsg> producer;
+    TopicPartitionInfo tpi = new TopicPartitionInfo("tb_rule_engine.main", null, 0, true);
+
+    @BeforeEach
+    void setUp() {
+        producer = new TbQueueBatchingProducer<>(delegate, 3, 1024, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        producer.stop();
+    }
+
+    @Test
+    void givenFullBatch_whenSend_thenPublishEnvelopeAndNotifyAllCallbacks() throws Exception {
+        List<TbQueueMsg> msgs = List.of(createMsg("a"), createMsg("b"), createMsg("c"));
+        List<TbQueueCallback> callbacks = List.of(mock(TbQueueCallback.class), mock(TbQueueCallback.class), mock(TbQueueCallback.class));
+        for (int i = 0; i < msgs.size(); i++) {
+            producer.send(tpi, msgs.get(i), callbacks.get(i));
+        }
+
+        ArgumentCaptor<TbQueueMsg> envelopeCaptor = ArgumentCaptor.forClass(TbQueueMsg.class);
+        ArgumentCaptor<TbQueueCallback> callbackCaptor = ArgumentCaptor.forClass(TbQueueCallback.class);
+        verify(delegate).send(eq(tpi), envelopeCaptor.capture(), callbackCaptor.capture());
+
+        TbQueueMsg envelope = envelopeCaptor.getValue();
+        assertThat(TbQueueMsgBatch.isBatch(envelope)).isTrue();
+        List<TbQueueMsg> unpacked = TbQueueMsgBatch.unpack(envelope);
+        assertThat(unpacked).hasSize(3);
+        for (int i = 0; i < msgs.size(); i++) {
+            assertThat(unpacked.get(i).getKey()).isEqualTo(msgs.get(i).getKey());
+            assertThat(unpacked.get(i).getData()).isEqualTo(msgs.get(i).getData());
+            assertThat(unpacked.get(i).getHeaders().get("header")).isEqualTo(msgs.get(i).getHeaders().get("header"));
+        }
+
+        TbQueueMsgMetadata metadata = mock(TbQueueMsgMetadata.class);
+        callbackCaptor.getValue().onSuccess(metadata);
+        callbacks.forEach(callback -> verify(callback).onSuccess(metadata));
+    }
+
+    @Test
+    void givenSingleMsg_whenLingerIsOver_thenPublishMsgAsIs() {
+        TbQueueMsg msg = createMsg("a");
+        TbQueueCallback callback = mock(TbQueueCallback.class);
+        producer.send(tpi, msg, callback);
+        verify(delegate, never()).send(any(), any(), any());
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(delegate).send(tpi, msg, callback));
+    }
+
+    @Test
+    void givenZeroLinger_whenSendAndSendAll_thenSendSingleMsgAsIsAndPackGroup() throws Exception {
+        TbQueueBatchingProducer<TbQueueMsg> groupedProducer = new TbQueueBatchingProducer<>(delegate, 3, 1024, 0);
+        TbQueueMsg single = createMsg("a");
+        TbQueueCallback singleCallback = mock(TbQueueCallback.class);
+        groupedProducer.send(tpi, single, singleCallback);
+        verify(delegate).send(tpi, single, singleCallback);
+
+        List<TbQueueMsg> msgs = List.of(createMsg("b"), createMsg("c"));
+        groupedProducer.sendAll(tpi, msgs, List.of(mock(TbQueueCallback.class), mock(TbQueueCallback.class)));
+
+        ArgumentCaptor<TbQueueMsg> envelopeCaptor = ArgumentCaptor.forClass(TbQueueMsg.class);
+        verify(delegate, times(2)).send(eq(tpi), envelopeCaptor.capture(), any());
+        TbQueueMsg envelope = envelopeCaptor.getAllValues().get(1);
+        assertThat(TbQueueMsgBatch.isBatch(envelope)).isTrue();
+        assertThat(TbQueueMsgBatch.unpack(envelope)).extracting(TbQueueMsg::getKey)
+                .containsExactly(msgs.get(0).getKey(), msgs.get(1).getKey());
+        groupedProducer.stop();
+    }
+
+    private TbQueueMsg createMsg(String data) {
+        DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put("header", data.getBytes(StandardCharsets.UTF_8));
+        return new DefaultTbQueueMsg(UUID.randomUUID(), data.getBytes(StandardCharsets.UTF_8), headers);
+    }
+
+}
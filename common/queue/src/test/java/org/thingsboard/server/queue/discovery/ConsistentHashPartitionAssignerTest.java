@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashPartitionAssignerTest {
+
+    private final ConsistentHashPartitionAssigner assigner = new ConsistentHashPartitionAssigner(HashPartitionService.forName("murmur3_128"), 64, 1.25);
+
+    @Test
+    public void givenServices_whenAssign_thenLoadIsBounded() {
+        List<String> services = List.of("tb-node-0", "tb-node-1", "tb-node-2");
+        List<String> assignment = assigner.assign("queue", 100, services, Function.identity());
+
+        assertThat(assignment).hasSize(100).doesNotContainNull();
+        Map<String, Integer> loads = new HashMap<>();
+        assignment.forEach(service -> loads.merge(service, 1, Integer::sum));
+        assertThat(loads).containsOnlyKeys(services);
+        assertThat(loads.values()).allMatch(load -> load <= 42);
+    }
+
+    @Test
+    public void givenSameServicesInDifferentOrder_whenAssign_thenAssignmentIsSame() {
+        List<String> services = List.of("tb-node-0", "tb-node-1", "tb-node-2", "tb-node-3");
+        List<String> reversed = new ArrayList<>(services);
+        Collections.reverse(reversed);
+
+        assertThat(assigner.assign("queue", 12, services, Function.identity()))
+                .isEqualTo(assigner.assign("queue", 12, reversed, Function.identity()));
+    }
+
+    @Test
+    public void givenNoServices_whenAssign_thenNoOwners() {
+        assertThat(assigner.assign("queue", 3, List.of(), Function.identity())).containsExactly(null, null, null);
+    }
+
+    @Test
+    public void givenTopologyChanges_whenSimulate_thenConsistentHashMovesLessPartitions() {
+        List<PartitionAssignmentSimulator.StepResult> results = PartitionAssignmentSimulator.simulate(100, List.of(3, 4, 5, 4, 3), assigner);
+
+        assertThat(results).hasSize(4);
+        for (PartitionAssignmentSimulator.StepResult result : results) {
+            assertThat(result.getConsistentHashMoved()).isLessThan(result.getModuloMoved());
+            // ideal movement is 1/N of the partitions, allow the overflow caused by the load bound
+            int ideal = 100 / Math.max(result.getFromServices(), result.getToServices());
+            assertThat(result.getConsistentHashMoved()).isLessThanOrEqualTo(ideal * 2);
+            assertThat(result.getConsistentHashMaxLoad()).isLessThanOrEqualTo((int) Math.ceil(1.25 * 100 / result.getToServices()));
+        }
+    }
+
+}
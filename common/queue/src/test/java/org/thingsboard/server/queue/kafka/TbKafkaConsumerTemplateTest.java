@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.queue.TbQueueAdmin;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TbKafkaConsumerTemplateTest {
+
+    TbKafkaConsumerTemplate<TbQueueMsg> consumerTemplate;
+    KafkaConsumer<String, byte[]> consumer;
+    TbKafkaConsumerStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        TbKafkaSettings settings = mock(TbKafkaSettings.class);
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        when(settings.toConsumerProps(any())).thenReturn(props);
+        when(settings.isAsyncCommitEnabled()).thenReturn(true);
+        when(settings.getAsyncCommitMaxPendingCommits()).thenReturn(2);
+        statsService = mock(TbKafkaConsumerStatsService.class);
+
+        consumerTemplate = TbKafkaConsumerTemplate.builder()
+                .settings(settings)
+                .clientId("test-client")
+                .groupId("test-group")
+                .topic("test-topic")
+                .admin(mock(TbQueueAdmin.class))
+                .statsService(statsService)
+                .build();
+        @SuppressWarnings("unchecked")
+        KafkaConsumer<String, byte[]> realConsumer = (KafkaConsumer<String, byte[]>) ReflectionTestUtils.getField(consumerTemplate, "consumer");
+        realConsumer.close();
+        @SuppressWarnings("unchecked")
+        KafkaConsumer<String, byte[]> mockConsumer = mock(KafkaConsumer.class);
+        consumer = mockConsumer;
+        ReflectionTestUtils.setField(consumerTemplate, "consumer", consumer);
+    }
+
+    @Test
+    void givenAsyncCommit_whenPendingCommitsLimitReached_thenCommitSync() {
+        consumerTemplate.doCommit();
+        consumerTemplate.doCommit();
+        verify(consumer, times(2)).commitAsync(any(OffsetCommitCallback.class));
+        verify(consumer, never()).commitSync();
+
+        consumerTemplate.doCommit();
+        verify(consumer, times(1)).commitSync();
+        verify(statsService).reportCommit(eq("test-group"), anyLong(), eq(true));
+    }
+
+    @Test
+    void givenAsyncCommitFailed_whenCommit_thenCommitSyncAndResumeAsync() {
+        ArgumentCaptor<OffsetCommitCallback> callbackCaptor = ArgumentCaptor.forClass(OffsetCommitCallback.class);
+        consumerTemplate.doCommit();
+        verify(consumer).commitAsync(callbackCaptor.capture());
+        callbackCaptor.getValue().onComplete(Collections.emptyMap(), new RetriableCommitFailedException("test"));
+        verify(statsService).reportCommit(eq("test-group"), anyLong(), eq(false));
+
+        consumerTemplate.doCommit();
+        verify(consumer, times(1)).commitSync();
+
+        consumerTemplate.doCommit();
+        verify(consumer, times(2)).commitAsync(any(OffsetCommitCallback.class));
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.memory;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RingBufferInMemoryStorageTest {
+
+    final String topic = "tb_core_notification.tb-node-0";
+
+    @Test
+    public void givenQueueWithMoreThenBatchSize_whenPoll_thenReturnFullListAndSecondList() throws InterruptedException {
+        RingBufferInMemoryStorage storage = new RingBufferInMemoryStorage(2048, InMemoryBackpressurePolicy.REJECT, 0);
+        List<TbQueueMsg> msgs = new ArrayList<>();
+        for (int i = 0; i < RingBufferInMemoryStorage.MAX_POLL_SIZE + 1; i++) {
+            TbQueueMsg msg = mock(TbQueueMsg.class);
+            msgs.add(msg);
+            assertThat(storage.put(topic, msg)).isTrue();
+        }
+
+        assertThat(storage.getLag(topic)).isEqualTo(RingBufferInMemoryStorage.MAX_POLL_SIZE + 1);
+        assertThat(storage.getLagTotal()).isEqualTo(RingBufferInMemoryStorage.MAX_POLL_SIZE + 1);
+        assertThat(storage.get(topic)).isEqualTo(msgs.subList(0, RingBufferInMemoryStorage.MAX_POLL_SIZE));
+        assertThat(storage.get(topic)).isEqualTo(msgs.subList(RingBufferInMemoryStorage.MAX_POLL_SIZE, RingBufferInMemoryStorage.MAX_POLL_SIZE + 1));
+        assertThat(storage.get(topic)).isEmpty();
+        assertThat(storage.getLagTotal()).isEqualTo(0);
+    }
+
+    @Test
+    public void givenFullBuffer_whenPutWithReject_thenMessageIsRejected() throws InterruptedException {
+        RingBufferInMemoryStorage storage = new RingBufferInMemoryStorage(4, InMemoryBackpressurePolicy.REJECT, 0);
+        for (int i = 0; i < 4; i++) {
+            assertThat(storage.put(topic, mock(TbQueueMsg.class))).isTrue();
+        }
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).isFalse();
+        assertThat(storage.getOccupancy(topic)).isEqualTo(1.0);
+
+        assertThat(storage.get(topic)).hasSize(4);
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).isTrue();
+        assertThat(storage.getOccupancy(topic)).isEqualTo(0.25);
+    }
+
+    @Test
+    public void givenFullBuffer_whenPutWithDropOldest_thenOldestMessageIsDropped() throws InterruptedException {
+        RingBufferInMemoryStorage storage = new RingBufferInMemoryStorage(4, InMemoryBackpressurePolicy.DROP_OLDEST, 0);
+        List<TbQueueMsg> msgs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            TbQueueMsg msg = mock(TbQueueMsg.class);
+            msgs.add(msg);
+            assertThat(storage.put(topic, msg)).isTrue();
+        }
+
+        assertThat(storage.getLag(topic)).isEqualTo(4);
+        assertThat(storage.get(topic)).isEqualTo(msgs.subList(2, 6));
+    }
+
+    @Test
+    public void givenFullBuffer_whenPutWithBlock_thenWaitForConsumerOrTimeout() throws Exception {
+        RingBufferInMemoryStorage storage = new RingBufferInMemoryStorage(2, InMemoryBackpressurePolicy.BLOCK, 50);
+        storage.put(topic, mock(TbQueueMsg.class));
+        storage.put(topic, mock(TbQueueMsg.class));
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).as("rejected after block timeout").isFalse();
+
+        RingBufferInMemoryStorage blockingStorage = new RingBufferInMemoryStorage(2, InMemoryBackpressurePolicy.BLOCK, TimeUnit.SECONDS.toMillis(10));
+        blockingStorage.put(topic, mock(TbQueueMsg.class));
+        blockingStorage.put(topic, mock(TbQueueMsg.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var future = executor.submit(() -> blockingStorage.put(topic, mock(TbQueueMsg.class)));
+            Thread.sleep(50);
+            assertThat(future.isDone()).isFalse();
+            assertThat(blockingStorage.get(topic)).hasSize(2);
+            assertThat(future.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(blockingStorage.getLag(topic)).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenConcurrentProducers_whenPoll_thenAllMessagesDelivered() throws Exception {
+        int producers = 4;
+        int msgsPerProducer = 10000;
+        RingBufferInMemoryStorage storage = new RingBufferInMemoryStorage(1024, InMemoryBackpressurePolicy.BLOCK, TimeUnit.SECONDS.toMillis(10));
+        TbQueueMsg msg = mock(TbQueueMsg.class);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch latch = new CountDownLatch(producers);
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            for (int p = 0; p < producers; p++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < msgsPerProducer; i++) {
+                        if (!storage.put(topic, msg)) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    latch.countDown();
+                });
+            }
+            int received = 0;
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (received < producers * msgsPerProducer && System.currentTimeMillis() < deadline) {
+                received += storage.get(topic).size();
+            }
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(rejected.get()).isZero();
+            assertThat(received).isEqualTo(producers * msgsPerProducer);
+            assertThat(storage.getLagTotal()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
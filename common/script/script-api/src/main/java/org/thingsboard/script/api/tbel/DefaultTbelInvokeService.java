@@ -17,6 +17,7 @@ package org.thingsboard.script.api.tbel;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -52,6 +53,8 @@ import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
@@ -68,7 +71,8 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
 
     protected final Map<UUID, String> scriptIdToHash = new ConcurrentHashMap<>();
     protected final Map<String, TbelScript> scriptMap = new ConcurrentHashMap<>();
-    protected Cache<String, Serializable> compiledScriptsCache;
+    protected final Map<String, TbelScriptStats> scriptStats = new ConcurrentHashMap<>();
+    protected Cache<String, TbelCompiledScript> compiledScriptsCache;
 
     private SandboxedParserConfiguration parserConfig;
     private final Optional<TbApiUsageStateClient> apiUsageStateClient;
@@ -109,6 +113,12 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Value("${tbel.compiled_scripts_cache_size:1000}")
     private int compiledScriptsCacheSize;
 
+    @Value("${tbel.compiled_scripts_cache_max_weight:0}")
+    private long compiledScriptsCacheMaxWeight;
+
+    @Value("${tbel.stats.top_scripts_count:10}")
+    private int statsTopScriptsCount;
+
     private ListeningExecutorService executor;
 
     private final Lock lock = new ReentrantLock();
@@ -121,6 +131,24 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Scheduled(fixedDelayString = "${tbel.stats.print_interval_ms:10000}")
     public void printStats() {
         super.printStats();
+        if (isStatsEnabled() && statsTopScriptsCount > 0 && !scriptStats.isEmpty()) {
+            List<TbelScriptStats> topStats = scriptStats.values().stream()
+                    .filter(stats -> stats.getInvocations() > 0)
+                    .sorted(Comparator.comparingLong(TbelScriptStats::getTotalTimeMs).reversed())
+                    .limit(statsTopScriptsCount)
+                    .toList();
+            for (TbelScriptStats stats : topStats) {
+                log.info("{}: script [{}] invocations [{}] failed [{}] recompilations [{}] avg time [{}ms] latency [{}]",
+                        getStatsName(), stats.getScriptHash(), stats.getInvocations(), stats.getFailures(), stats.getRecompilations(),
+                        String.format("%.3f", stats.getAvgTimeMs()), stats.histogramToString());
+            }
+        }
+    }
+
+    @Override
+    public TbelScriptStats getScriptStats(UUID scriptId) {
+        String scriptHash = scriptIdToHash.get(scriptId);
+        return scriptHash != null ? scriptStats.get(scriptHash) : null;
     }
 
     @SneakyThrows
@@ -143,9 +171,20 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
         } catch (Exception e) {
             // do nothing
         }
-        compiledScriptsCache = Caffeine.newBuilder()
-                .maximumSize(compiledScriptsCacheSize)
-                .build();
+        Caffeine<String, TbelCompiledScript> cacheBuilder = Caffeine.newBuilder()
+                .removalListener((String hash, TbelCompiledScript script, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        log.debug("[{}] Compiled script evicted from cache", hash);
+                    }
+                });
+        if (compiledScriptsCacheMaxWeight > 0) {
+            // big scripts hold big expression trees, so the cache is bounded by their estimated size rather than count
+            cacheBuilder.maximumWeight(compiledScriptsCacheMaxWeight)
+                    .weigher((String hash, TbelCompiledScript script) -> script.getWeight());
+        } else {
+            cacheBuilder.maximumSize(compiledScriptsCacheSize);
+        }
+        compiledScriptsCache = cacheBuilder.build();
     }
 
     @PreDestroy
@@ -187,11 +226,12 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
         return executor.submit(() -> {
             try {
                 String scriptHash = hash(scriptBody, argNames);
-                compiledScriptsCache.get(scriptHash, k -> compileScript(scriptBody));
+                compiledScriptsCache.get(scriptHash, k -> compileScript(scriptHash, scriptBody));
                 lock.lock();
                 try {
                     scriptIdToHash.put(scriptId, scriptHash);
                     scriptMap.computeIfAbsent(scriptHash, k -> new TbelScript(scriptBody, argNames));
+                    scriptStats.computeIfAbsent(scriptHash, TbelScriptStats::new);
                 } finally {
                     lock.unlock();
                 }
@@ -211,13 +251,22 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
                 throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException("Script not found!"));
             }
             TbelScript script = scriptMap.get(scriptHash);
-            Serializable compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody()));
+            TbelCompiledScript compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(scriptHash, script.getScriptBody()));
+            TbelScriptStats stats = scriptStats.get(scriptHash);
+            long startTs = System.nanoTime();
+            boolean success = false;
             try {
-                return MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args));
+                Object result = MVEL.executeTbExpression(compiledScript.getCompiledScript(), executionContext, script.createVars(args));
+                success = true;
+                return result;
             } catch (ScriptMemoryOverflowException e) {
                 throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, script.getScriptBody(), new RuntimeException("Script memory overflow!"));
             } catch (Exception e) {
                 throw new TbScriptException(scriptId, TbScriptException.ErrorCode.RUNTIME, script.getScriptBody(), e);
+            } finally {
+                if (stats != null) {
+                    stats.recordInvocation(System.nanoTime() - startTs, success);
+                }
             }
         }));
     }
@@ -230,6 +279,7 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
             try {
                 if (!scriptIdToHash.containsValue(scriptHash)) {
                     scriptMap.remove(scriptHash);
+                    scriptStats.remove(scriptHash);
                     compiledScriptsCache.invalidate(scriptHash);
                 }
             } finally {
@@ -242,6 +292,15 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
         return MVEL.compileExpression(scriptBody, new ParserContext());
     }
 
+    private TbelCompiledScript compileScript(String scriptHash, String scriptBody) {
+        TbelScriptStats stats = scriptStats.get(scriptHash);
+        if (stats != null) {
+            // the script was evicted from the cache after the initial compilation
+            stats.recordRecompilation();
+        }
+        return new TbelCompiledScript(compileScript(scriptBody), scriptBody);
+    }
+
     @SuppressWarnings("UnstableApiUsage")
     protected String hash(String scriptBody, String[] argNames) {
         Hasher hasher = Hashing.murmur3_128().newHasher();
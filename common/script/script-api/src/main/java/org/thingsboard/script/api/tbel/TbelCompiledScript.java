@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class TbelCompiledScript {
+
+    // approximate memory footprint of the compiled expression tree per symbol of the script body
+    private static final int WEIGHT_PER_SYMBOL = 16;
+    private static final int MIN_WEIGHT = 1024;
+
+    private final Serializable compiledScript;
+    private final int weight;
+
+    public TbelCompiledScript(Serializable compiledScript, String scriptBody) {
+        this.compiledScript = compiledScript;
+        this.weight = Math.max(MIN_WEIGHT, scriptBody.length() * WEIGHT_PER_SYMBOL);
+    }
+
+}
@@ -18,6 +18,8 @@ package org.thingsboard.script.api.tbel;
 import org.thingsboard.script.api.ScriptInvokeService;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 
+import java.util.UUID;
+
 public interface TbelInvokeService extends ScriptInvokeService {
 
     @Override
@@ -25,4 +27,9 @@ public interface TbelInvokeService extends ScriptInvokeService {
         return ScriptLanguage.TBEL;
     }
 
+    /**
+     * Returns cumulative execution stats of the script with the given id, or null if the script is not present.
+     */
+    TbelScriptStats getScriptStats(UUID scriptId);
+
 }
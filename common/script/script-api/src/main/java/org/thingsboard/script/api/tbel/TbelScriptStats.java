@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative execution stats of a single compiled script, shared by all script ids with the same body.
+ */
+public class TbelScriptStats {
+
+    static final long[] LATENCY_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000};
+
+    @Getter
+    private final String scriptHash;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder recompilations = new LongAdder();
+    private final LongAdder totalTimeNanos = new LongAdder();
+    private final LongAdder[] latencyHistogram;
+
+    public TbelScriptStats(String scriptHash) {
+        this.scriptHash = scriptHash;
+        this.latencyHistogram = new LongAdder[LATENCY_BUCKETS_MS.length + 1];
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            latencyHistogram[i] = new LongAdder();
+        }
+    }
+
+    public void recordInvocation(long durationNanos, boolean success) {
+        invocations.increment();
+        if (!success) {
+            failures.increment();
+        }
+        totalTimeNanos.add(durationNanos);
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS_MS.length && durationMs >= LATENCY_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        latencyHistogram[bucket].increment();
+    }
+
+    public void recordRecompilation() {
+        recompilations.increment();
+    }
+
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRecompilations() {
+        return recompilations.sum();
+    }
+
+    public long getTotalTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(totalTimeNanos.sum());
+    }
+
+    public double getAvgTimeMs() {
+        long count = invocations.sum();
+        return count == 0 ? 0.0 : (double) totalTimeNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Invocation counts per latency bucket: the i-th element counts invocations faster than
+     * {@code LATENCY_BUCKETS_MS[i]} milliseconds, the last one counts all slower invocations.
+     */
+    public long[] getLatencyHistogram() {
+        long[] result = new long[latencyHistogram.length];
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            result[i] = latencyHistogram[i].sum();
+        }
+        return result;
+    }
+
+    public String histogramToString() {
+        long[] histogram = getLatencyHistogram();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            if (i < LATENCY_BUCKETS_MS.length) {
+                sb.append('<').append(LATENCY_BUCKETS_MS[i]).append("ms");
+            } else {
+                sb.append(">=").append(LATENCY_BUCKETS_MS[i - 1]).append("ms");
+            }
+            sb.append(": ").append(histogram[i]);
+        }
+        return sb.toString();
+    }
+
+}
@@ -31,6 +31,7 @@ import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.adaptor.AdaptorException;
 import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.JsonStreamingConverter;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.transport.coap.CoapTransportResource;
 
@@ -43,6 +44,13 @@ public class JsonCoapAdaptor implements CoapTransportAdaptor {
 
     @Override
     public TransportProtos.PostTelemetryMsg convertToPostTelemetry(UUID sessionId, Request inbound, Descriptors.Descriptor telemetryMsgDescriptor) throws AdaptorException {
+        if (JsonStreamingConverter.isEnabled()) {
+            try {
+                return JsonStreamingConverter.convertToTelemetryProto(validatePayloadBytes(sessionId, inbound));
+            } catch (IllegalStateException | JsonSyntaxException ex) {
+                throw new AdaptorException(ex);
+            }
+        }
         String payload = validatePayload(sessionId, inbound, false);
         try {
             return JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload));
@@ -53,6 +61,13 @@ public class JsonCoapAdaptor implements CoapTransportAdaptor {
 
     @Override
     public TransportProtos.PostAttributeMsg convertToPostAttributes(UUID sessionId, Request inbound, Descriptors.Descriptor attributesMsgDescriptor) throws AdaptorException {
+        if (JsonStreamingConverter.isEnabled()) {
+            try {
+                return JsonStreamingConverter.convertToAttributesProto(validatePayloadBytes(sessionId, inbound));
+            } catch (IllegalStateException | JsonSyntaxException ex) {
+                throw new AdaptorException(ex);
+            }
+        }
         String payload = validatePayload(sessionId, inbound, false);
         try {
             return JsonConverter.convertToAttributesProto(JsonParser.parseString(payload));
@@ -161,6 +176,15 @@ public class JsonCoapAdaptor implements CoapTransportAdaptor {
         return payload;
     }
 
+    private byte[] validatePayloadBytes(UUID sessionId, Request inbound) throws AdaptorException {
+        byte[] payload = inbound.getPayload();
+        if (payload == null || payload.length == 0) {
+            log.debug("[{}] Payload is empty!", sessionId);
+            throw new AdaptorException(new IllegalArgumentException("Payload is empty!"));
+        }
+        return payload;
+    }
+
     @Override
     public int getContentFormat() {
         return MediaTypeRegistry.APPLICATION_JSON;
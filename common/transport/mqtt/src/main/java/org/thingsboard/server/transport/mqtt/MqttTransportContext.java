@@ -22,13 +22,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.transport.TransportContext;
 import org.thingsboard.server.transport.mqtt.adaptors.JsonMqttAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.ProtoMqttAdaptor;
+import org.thingsboard.server.transport.mqtt.session.GatewayTelemetryBatcher;
 
 import jakarta.annotation.PostConstruct;
 import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -79,8 +83,25 @@ public class MqttTransportContext extends TransportContext {
     @Value("${transport.mqtt.proxy_enabled:false}")
     private boolean proxyEnabled;
 
+    @Getter
+    @Value("${transport.mqtt.gateway_telemetry_batching.enabled:false}")
+    private boolean gatewayTelemetryBatchingEnabled;
+
+    @Getter
+    @Value("${transport.mqtt.gateway_telemetry_batching.window_ms:0}")
+    private long gatewayTelemetryBatchingWindowMs;
+
+    @Getter
+    @Value("${transport.mqtt.gateway_telemetry_batching.max_size:1000}")
+    private int gatewayTelemetryBatchingMaxSize;
+
+    @Value("${transport.stats.enabled:true}")
+    private boolean statsEnabled;
+
     private final AtomicInteger connectionsCounter = new AtomicInteger();
 
+    private final Set<GatewayTelemetryBatcher> gatewayTelemetryBatchers = ConcurrentHashMap.newKeySet();
+
     @PostConstruct
     public void init() {
         super.init();
@@ -95,6 +116,21 @@ public class MqttTransportContext extends TransportContext {
         connectionsCounter.decrementAndGet();
     }
 
+    public void registerGatewayTelemetryBatcher(GatewayTelemetryBatcher batcher) {
+        gatewayTelemetryBatchers.add(batcher);
+    }
+
+    public void unregisterGatewayTelemetryBatcher(GatewayTelemetryBatcher batcher) {
+        gatewayTelemetryBatchers.remove(batcher);
+    }
+
+    @Scheduled(fixedDelayString = "${transport.stats.print-interval-ms:60000}")
+    public void printGatewayTelemetryBatchingStats() {
+        if (statsEnabled && gatewayTelemetryBatchingEnabled) {
+            gatewayTelemetryBatchers.forEach(GatewayTelemetryBatcher::printStats);
+        }
+    }
+
     public boolean checkAddress(InetSocketAddress address) {
         return rateLimitService.checkAddress(address);
     }
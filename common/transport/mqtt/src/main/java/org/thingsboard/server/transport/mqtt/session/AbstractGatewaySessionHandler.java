@@ -114,6 +114,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     protected final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
     protected final ChannelHandlerContext channel;
     protected final DeviceSessionCtx deviceSessionCtx;
+    private final GatewayTelemetryBatcher telemetryBatcher;
 
     @Getter
     @Setter
@@ -131,6 +132,13 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         this.mqttQoSMap = deviceSessionCtx.getMqttQoSMap();
         this.channel = deviceSessionCtx.getChannel();
         this.overwriteDevicesActivity = overwriteDevicesActivity;
+        if (context.isGatewayTelemetryBatchingEnabled()) {
+            this.telemetryBatcher = new GatewayTelemetryBatcher(transportService, context.getScheduler(), gateway.getTenantId(), gateway.getDeviceId(),
+                    context.getGatewayTelemetryBatchingWindowMs(), context.getGatewayTelemetryBatchingMaxSize());
+            context.registerGatewayTelemetryBatcher(telemetryBatcher);
+        } else {
+            this.telemetryBatcher = null;
+        }
     }
 
     ConcurrentReferenceHashMap<String, Lock> createWeakMap() {
@@ -190,6 +198,10 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     }
 
     public void onDevicesDisconnect() {
+        if (telemetryBatcher != null) {
+            telemetryBatcher.flush();
+            context.unregisterGatewayTelemetryBatcher(telemetryBatcher);
+        }
         devices.forEach(this::deregisterSession);
     }
 
@@ -367,21 +379,26 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     protected void onDeviceTelemetryJson(int msgId, ByteBuf payload) throws AdaptorException {
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         validateJsonObject(json);
-        for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
-            if (!deviceEntry.getValue().isJsonArray()) {
-                log.warn("{}[{}]", CAN_T_PARSE_VALUE, json);
-                continue;
+        onTelemetryPublishStarted();
+        try {
+            for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
+                if (!deviceEntry.getValue().isJsonArray()) {
+                    log.warn("{}[{}]", CAN_T_PARSE_VALUE, json);
+                    continue;
+                }
+                String deviceName = deviceEntry.getKey();
+                process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, deviceEntry.getValue(), deviceName, msgId),
+                        t -> failedToProcessLog(deviceName, TELEMETRY, t));
             }
-            String deviceName = deviceEntry.getKey();
-            process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, deviceEntry.getValue(), deviceName, msgId),
-                    t -> failedToProcessLog(deviceName, TELEMETRY, t));
+        } finally {
+            onTelemetryPublishProcessed();
         }
     }
 
     private void processPostTelemetryMsg(T deviceCtx, JsonElement msg, String deviceName, int msgId) {
         try {
             TransportProtos.PostTelemetryMsg postTelemetryMsg = JsonConverter.convertToTelemetryProto(msg.getAsJsonArray());
-            transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
+            sendPostTelemetryMsg(deviceCtx.getSessionInfo(), postTelemetryMsg, deviceName, msgId);
         } catch (Throwable e) {
             log.warn("[{}][{}][{}] Failed to convert telemetry: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
             ackOrClose(msgId);
@@ -397,11 +414,16 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
                 throw new IllegalArgumentException("[" + sessionId + "] Devices telemetry messages is empty for [" + gateway.getDeviceId() + "]");
             }
 
-            deviceMsgList.forEach(telemetryMsg -> {
-                String deviceName = checkDeviceName(telemetryMsg.getDeviceName());
-                process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, telemetryMsg.getMsg(), deviceName, msgId),
-                        t -> failedToProcessLog(deviceName, TELEMETRY, t));
-            });
+            onTelemetryPublishStarted();
+            try {
+                deviceMsgList.forEach(telemetryMsg -> {
+                    String deviceName = checkDeviceName(telemetryMsg.getDeviceName());
+                    process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, telemetryMsg.getMsg(), deviceName, msgId),
+                            t -> failedToProcessLog(deviceName, TELEMETRY, t));
+                });
+            } finally {
+                onTelemetryPublishProcessed();
+            }
         } catch (RuntimeException | InvalidProtocolBufferException e) {
             throw new AdaptorException(e);
         }
@@ -410,13 +432,34 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     protected void processPostTelemetryMsg(MqttDeviceAwareSessionContext deviceCtx, TransportProtos.PostTelemetryMsg msg, String deviceName, int msgId) {
         try {
             TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg.toByteArray());
-            transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
+            sendPostTelemetryMsg(deviceCtx.getSessionInfo(), postTelemetryMsg, deviceName, msgId);
         } catch (Throwable e) {
             log.warn("[{}][{}][{}] Failed to convert telemetry: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
             ackOrClose(msgId);
         }
     }
 
+    private void sendPostTelemetryMsg(SessionInfoProto sessionInfo, TransportProtos.PostTelemetryMsg postTelemetryMsg, String deviceName, int msgId) {
+        TransportServiceCallback<Void> callback = getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg);
+        if (telemetryBatcher != null) {
+            telemetryBatcher.add(sessionInfo, postTelemetryMsg, callback);
+        } else {
+            transportService.process(sessionInfo, postTelemetryMsg, callback);
+        }
+    }
+
+    protected void onTelemetryPublishStarted() {
+        if (telemetryBatcher != null) {
+            telemetryBatcher.onPublishStarted();
+        }
+    }
+
+    protected void onTelemetryPublishProcessed() {
+        if (telemetryBatcher != null) {
+            telemetryBatcher.onPublishProcessed();
+        }
+    }
+
     public TransportProtos.PostTelemetryMsg postTelemetryMsgCreated(TransportProtos.KeyValueProto keyValueProto, long ts) {
         List<TransportProtos.KeyValueProto> result = new ArrayList<>();
         result.add(keyValueProto);
@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportPostTelemetryMsg;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the telemetry of the gateway sub-devices and submits it to the transport service in batches.
+ * <p>
+ * With zero window the batch holds the telemetry of a single gateway publish and is submitted as soon as
+ * the publish is processed. With positive window the telemetry of several publishes is accumulated
+ * for up to window milliseconds. In both cases the batch is submitted once it reaches the max size.
+ * Each message keeps its own callback, so the acknowledgement of the publish is not affected by batching.
+ */
+@Slf4j
+public class GatewayTelemetryBatcher {
+
+    private final TransportService transportService;
+    private final SchedulerComponent scheduler;
+    private final TenantId tenantId;
+    private final DeviceId gatewayId;
+    private final long windowMs;
+    private final int maxSize;
+
+    private final Lock lock = new ReentrantLock();
+    private List<TransportPostTelemetryMsg> pending = new ArrayList<>();
+    private ScheduledFuture<?> flushFuture;
+    private int publishesInProgress;
+
+    private final AtomicInteger publishes = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+    private final AtomicInteger batches = new AtomicInteger();
+    private volatile long statsStartTs = System.currentTimeMillis();
+
+    public GatewayTelemetryBatcher(TransportService transportService, SchedulerComponent scheduler,
+                                   TenantId tenantId, DeviceId gatewayId, long windowMs, int maxSize) {
+        this.transportService = transportService;
+        this.scheduler = scheduler;
+        this.tenantId = tenantId;
+        this.gatewayId = gatewayId;
+        this.windowMs = windowMs;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public void onPublishStarted() {
+        lock.lock();
+        try {
+            publishesInProgress++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onPublishProcessed() {
+        publishes.incrementAndGet();
+        List<TransportPostTelemetryMsg> toSubmit = null;
+        lock.lock();
+        try {
+            publishesInProgress--;
+            if (windowMs <= 0 && publishesInProgress <= 0) {
+                toSubmit = drain();
+            }
+        } finally {
+            lock.unlock();
+        }
+        submit(toSubmit);
+    }
+
+    public void add(SessionInfoProto sessionInfo, PostTelemetryMsg msg, TransportServiceCallback<Void> callback) {
+        List<TransportPostTelemetryMsg> toSubmit = null;
+        lock.lock();
+        try {
+            pending.add(new TransportPostTelemetryMsg(sessionInfo, msg, callback));
+            if (pending.size() >= maxSize) {
+                toSubmit = drain();
+            } else if (windowMs > 0) {
+                if (flushFuture == null) {
+                    flushFuture = scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+                }
+            } else if (publishesInProgress <= 0) {
+                // The device was resolved asynchronously after the publish had been processed.
+                toSubmit = drain();
+            }
+        } finally {
+            lock.unlock();
+        }
+        submit(toSubmit);
+    }
+
+    public void flush() {
+        List<TransportPostTelemetryMsg> toSubmit;
+        lock.lock();
+        try {
+            toSubmit = drain();
+        } finally {
+            lock.unlock();
+        }
+        submit(toSubmit);
+    }
+
+    public void printStats() {
+        long ts = System.currentTimeMillis();
+        long duration = Math.max(1, ts - statsStartTs);
+        statsStartTs = ts;
+        int publishesCount = publishes.getAndSet(0);
+        int messagesCount = messages.getAndSet(0);
+        int batchesCount = batches.getAndSet(0);
+        if (messagesCount > 0) {
+            log.info("[{}][{}] Gateway telemetry batching stats: publishes [{}], messages [{}], batches [{}], avg batch size [{}], throughput [{}] msg/s",
+                    tenantId, gatewayId, publishesCount, messagesCount, batchesCount,
+                    batchesCount > 0 ? messagesCount / batchesCount : 0, messagesCount * 1000L / duration);
+        }
+    }
+
+    private List<TransportPostTelemetryMsg> drain() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+            flushFuture = null;
+        }
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<TransportPostTelemetryMsg> result = pending;
+        pending = new ArrayList<>();
+        return result;
+    }
+
+    private void submit(List<TransportPostTelemetryMsg> msgs) {
+        if (msgs == null || msgs.isEmpty()) {
+            return;
+        }
+        batches.incrementAndGet();
+        messages.addAndGet(msgs.size());
+        log.trace("[{}][{}] Submitting batch of {} telemetry messages", tenantId, gatewayId, msgs.size());
+        transportService.process(msgs);
+    }
+
+}
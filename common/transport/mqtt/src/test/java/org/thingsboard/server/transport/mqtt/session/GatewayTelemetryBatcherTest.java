@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.session;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportPostTelemetryMsg;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class GatewayTelemetryBatcherTest {
+
+    @Mock
+    private TransportService transportService;
+
+    @Mock
+    private SchedulerComponent scheduler;
+
+    @Mock
+    private TransportServiceCallback<Void> callback;
+
+    @Test
+    public void givenZeroWindow_whenPublishProcessed_thenSubmitSingleBatch() {
+        GatewayTelemetryBatcher batcher = createBatcher(0, 1000);
+
+        batcher.onPublishStarted();
+        batcher.add(sessionInfo("device1"), telemetryMsg(), callback);
+        batcher.add(sessionInfo("device2"), telemetryMsg(), callback);
+        batcher.add(sessionInfo("device3"), telemetryMsg(), callback);
+        verify(transportService, never()).process(anyList());
+        batcher.onPublishProcessed();
+
+        List<TransportPostTelemetryMsg> batch = captureBatches(1).get(0);
+        assertThat(batch).extracting(msg -> msg.getSessionInfo().getDeviceName()).containsExactly("device1", "device2", "device3");
+        assertThat(batch).allMatch(msg -> msg.getCallback() == callback);
+    }
+
+    @Test
+    public void givenZeroWindow_whenDeviceResolvedAfterPublish_thenSubmitImmediately() {
+        GatewayTelemetryBatcher batcher = createBatcher(0, 1000);
+
+        batcher.onPublishStarted();
+        batcher.onPublishProcessed();
+        batcher.add(sessionInfo("device1"), telemetryMsg(), callback);
+
+        assertThat(captureBatches(1).get(0)).hasSize(1);
+    }
+
+    @Test
+    public void givenMaxSizeReached_whenAdd_thenSubmitFullBatch() {
+        GatewayTelemetryBatcher batcher = createBatcher(0, 2);
+
+        batcher.onPublishStarted();
+        for (int i = 0; i < 5; i++) {
+            batcher.add(sessionInfo("device" + i), telemetryMsg(), callback);
+        }
+        batcher.onPublishProcessed();
+
+        assertThat(captureBatches(3)).extracting(List::size).containsExactly(2, 2, 1);
+    }
+
+    @Test
+    public void givenWindow_whenPublishesProcessed_thenSubmitOnScheduledFlush() {
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+        GatewayTelemetryBatcher batcher = createBatcher(50, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            batcher.onPublishStarted();
+            batcher.add(sessionInfo("device" + i), telemetryMsg(), callback);
+            batcher.onPublishProcessed();
+        }
+        verify(transportService, never()).process(anyList());
+
+        ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(1)).schedule(flushCaptor.capture(), eq(50L), eq(TimeUnit.MILLISECONDS));
+        flushCaptor.getValue().run();
+
+        assertThat(captureBatches(1).get(0)).hasSize(3);
+    }
+
+    @Test
+    public void givenPendingMessages_whenFlush_thenSubmitAndIgnoreEmptyFlush() {
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+        GatewayTelemetryBatcher batcher = createBatcher(50, 1000);
+
+        batcher.add(sessionInfo("device1"), telemetryMsg(), callback);
+        batcher.flush();
+        batcher.flush();
+
+        assertThat(captureBatches(1).get(0)).hasSize(1);
+    }
+
+    private GatewayTelemetryBatcher createBatcher(long windowMs, int maxSize) {
+        return new GatewayTelemetryBatcher(transportService, scheduler, TenantId.fromUUID(UUID.randomUUID()),
+                new DeviceId(UUID.randomUUID()), windowMs, maxSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<TransportPostTelemetryMsg>> captureBatches(int expectedBatches) {
+        ArgumentCaptor<List<TransportPostTelemetryMsg>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transportService, times(expectedBatches)).process(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static TransportProtos.SessionInfoProto sessionInfo(String deviceName) {
+        return TransportProtos.SessionInfoProto.newBuilder().setDeviceName(deviceName).build();
+    }
+
+    private static TransportProtos.PostTelemetryMsg telemetryMsg() {
+        return TransportProtos.PostTelemetryMsg.newBuilder()
+                .addTsKvList(TransportProtos.TsKvListProto.newBuilder().setTs(1L)
+                        .addKv(TransportProtos.KeyValueProto.newBuilder().setKey("temperature").setType(TransportProtos.KeyValueType.LONG_V).setLongV(42)))
+                .build();
+    }
+
+}
@@ -303,11 +303,20 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         return StringUtils.isEmpty(config) ? ALLOW : new SimpleTransportRateLimit(config);
     }
 
+    // The limits are read without computeIfAbsent first, since it may lock the map bin even if the key is present
     private EntityTransportRateLimits getTenantRateLimits(TenantId tenantId) {
+        EntityTransportRateLimits rateLimits = perTenantLimits.get(tenantId);
+        if (rateLimits != null) {
+            return rateLimits;
+        }
         return perTenantLimits.computeIfAbsent(tenantId, k -> createRateLimits(tenantProfileCache.get(tenantId), TENANT_LIMITS));
     }
 
     private EntityTransportRateLimits getDeviceRateLimits(TenantId tenantId, DeviceId deviceId) {
+        EntityTransportRateLimits rateLimits = perDeviceLimits.get(deviceId);
+        if (rateLimits != null) {
+            return rateLimits;
+        }
         return perDeviceLimits.computeIfAbsent(deviceId, k -> {
             EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), DEVICE_LIMITS);
             getTenantDevices(tenantId).add(deviceId);
@@ -316,6 +325,10 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     }
 
     private EntityTransportRateLimits getGatewayRateLimits(TenantId tenantId, DeviceId gatewayId) {
+        EntityTransportRateLimits rateLimits = perGatewayLimits.get(gatewayId);
+        if (rateLimits != null) {
+            return rateLimits;
+        }
         return perGatewayLimits.computeIfAbsent(gatewayId, k -> {
             EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_LIMITS);
             getTenantGateways(tenantId).add(gatewayId);
@@ -324,6 +337,10 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     }
 
     private EntityTransportRateLimits getGatewayDeviceRateLimits(TenantId tenantId, DeviceId gatewayId) {
+        EntityTransportRateLimits rateLimits = perGatewayDeviceLimits.get(gatewayId);
+        if (rateLimits != null) {
+            return rateLimits;
+        }
         return perGatewayDeviceLimits.computeIfAbsent(gatewayId, k -> {
             EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_DEVICE_LIMITS);
             getTenantGatewayDevices(tenantId).add(gatewayId);
@@ -57,6 +57,7 @@ import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.notification.rule.trigger.RateLimitsTrigger;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.data.rpc.RpcStatus;
+import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
@@ -72,6 +73,7 @@ import org.thingsboard.server.common.transport.DeviceProfileUpdatedEvent;
 import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
 import org.thingsboard.server.common.transport.SessionMsgListener;
 import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
+import org.thingsboard.server.common.transport.TransportPostTelemetryMsg;
 import org.thingsboard.server.common.transport.TransportResourceCache;
 import org.thingsboard.server.common.transport.TransportService;
 import org.thingsboard.server.common.transport.TransportServiceCallback;
@@ -111,6 +113,8 @@ import org.thingsboard.server.queue.scheduler.SchedulerComponent;
 import org.thingsboard.server.queue.util.AfterStartUp;
 import org.thingsboard.server.queue.util.TbTransportComponent;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -540,6 +544,25 @@ public class DefaultTransportService extends TransportActivityManager implements
 
     @Override
     public void process(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.PostTelemetryMsg msg, TbMsgMetaData md, TransportServiceCallback<Void> callback) {
+        processPostTelemetryMsg(sessionInfo, msg, md, callback, (tenantId, tbMsg, packCallback) ->
+                sendToRuleEngine(tenantId, tbMsg, packCallback));
+    }
+
+    @Override
+    public void process(List<TransportPostTelemetryMsg> msgs) {
+        Map<TenantId, List<TbPair<TbMsg, TbQueueCallback>>> tenantMsgs = new HashMap<>();
+        for (TransportPostTelemetryMsg telemetryMsg : msgs) {
+            processPostTelemetryMsg(telemetryMsg.getSessionInfo(), telemetryMsg.getMsg(), null, telemetryMsg.getCallback(), (tenantId, tbMsg, packCallback) ->
+                    tenantMsgs.computeIfAbsent(tenantId, id -> new ArrayList<>()).add(TbPair.of(tbMsg, new StatsCallback(packCallback, ruleEngineProducerStats))));
+        }
+        tenantMsgs.forEach((tenantId, tbMsgs) -> {
+            ruleEngineProducerService.sendToRuleEngine(ruleEngineMsgProducer, tenantId, tbMsgs);
+            tbMsgs.forEach(tbMsg -> ruleEngineProducerStats.incrementTotal());
+        });
+    }
+
+    private void processPostTelemetryMsg(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.PostTelemetryMsg msg, TbMsgMetaData md,
+                                         TransportServiceCallback<Void> callback, RuleEngineMsgConsumer ruleEngineMsgConsumer) {
         int dataPoints = 0;
         for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
             dataPoints += tsKv.getKvCount();
@@ -556,7 +579,8 @@ public class DefaultTransportService extends TransportActivityManager implements
                 metaData.putValue("deviceType", sessionInfo.getDeviceType());
                 metaData.putValue("ts", tsKv.getTs() + "");
                 JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
-                sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, json, metaData, TbMsgType.POST_TELEMETRY_REQUEST, packCallback);
+                TbMsg tbMsg = toRuleEngineMsg(deviceId, customerId, sessionInfo, json, metaData, TbMsgType.POST_TELEMETRY_REQUEST);
+                ruleEngineMsgConsumer.accept(tenantId, tbMsg, packCallback);
             }
         }
     }
@@ -1114,6 +1138,16 @@ public class DefaultTransportService extends TransportActivityManager implements
 
     private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
                                   TbMsgMetaData metaData, TbMsgType tbMsgType, TbQueueCallback callback) {
+        sendToRuleEngine(tenantId, toRuleEngineMsg(deviceId, customerId, sessionInfo, json, metaData, tbMsgType), callback);
+    }
+
+    private void sendToRuleEngine(TenantId tenantId, TbMsg tbMsg, TbQueueCallback callback) {
+        ruleEngineProducerService.sendToRuleEngine(ruleEngineMsgProducer, tenantId, tbMsg, new StatsCallback(callback, ruleEngineProducerStats));
+        ruleEngineProducerStats.incrementTotal();
+    }
+
+    private TbMsg toRuleEngineMsg(DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
+                                  TbMsgMetaData metaData, TbMsgType tbMsgType) {
         DeviceProfileId deviceProfileId = new DeviceProfileId(new UUID(sessionInfo.getDeviceProfileIdMSB(), sessionInfo.getDeviceProfileIdLSB()));
         DeviceProfile deviceProfile = deviceProfileCache.get(deviceProfileId);
         RuleChainId ruleChainId;
@@ -1128,9 +1162,12 @@ public class DefaultTransportService extends TransportActivityManager implements
             queueName = deviceProfile.getDefaultQueueName();
         }
 
-        TbMsg tbMsg = TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
-        ruleEngineProducerService.sendToRuleEngine(ruleEngineMsgProducer, tenantId, tbMsg, new StatsCallback(callback, ruleEngineProducerStats));
-        ruleEngineProducerStats.incrementTotal();
+        return TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
+    }
+
+    @FunctionalInterface
+    private interface RuleEngineMsgConsumer {
+        void accept(TenantId tenantId, TbMsg tbMsg, TbQueueCallback callback);
     }
 
     private class TransportTbQueueCallback implements TbQueueCallback {
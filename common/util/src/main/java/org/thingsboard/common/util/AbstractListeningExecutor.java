@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Created by igor on 4/13/18.
@@ -32,7 +33,11 @@ public abstract class AbstractListeningExecutor implements ListeningExecutor {
 
     @PostConstruct
     public void init() {
-        this.service = MoreExecutors.listeningDecorator(ThingsBoardExecutors.newWorkStealingPool(getThreadPollSize(), getClass()));
+        ExecutorService executor = isVirtualThreadsEnabled() ? ThingsBoardExecutors.newVirtualThreadPool(getThreadPollSize(), getClass()) : null;
+        if (executor == null) {
+            executor = ThingsBoardExecutors.newWorkStealingPool(getThreadPollSize(), getClass());
+        }
+        this.service = MoreExecutors.listeningDecorator(executor);
     }
 
     @PreDestroy
@@ -62,4 +67,11 @@ public abstract class AbstractListeningExecutor implements ListeningExecutor {
 
     protected abstract int getThreadPollSize();
 
+    /**
+     * If enabled, tasks are executed on virtual threads and the thread pool size limits the number of concurrently running tasks.
+     */
+    protected boolean isVirtualThreadsEnabled() {
+        return false;
+    }
+
 }
@@ -15,11 +15,18 @@
  */
 package org.thingsboard.common.util;
 
+import lombok.extern.slf4j.Slf4j;
+
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 
+@Slf4j
 public class ThingsBoardExecutors {
 
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = newVirtualThreadFactory("virtual-threads-check") != null;
+
     /**
      * Method forked from ExecutorService to provide thread poll name
      *
@@ -48,4 +55,56 @@ public class ThingsBoardExecutors {
         return newWorkStealingPool(parallelism, clazz.getSimpleName());
     }
 
+    /**
+     * Creates an executor that starts a new virtual thread for each worker
+     * and runs at most {@code maxConcurrency} tasks at the same time.
+     * Virtual threads are resolved at runtime, since the code is compiled for Java 17,
+     * so the caller falls back to its own platform thread pool when the JVM does not support them.
+     *
+     * @param maxConcurrency the maximum number of concurrently running tasks
+     * @param namePrefix used to define thread name
+     * @return the newly created executor, or {@code null} if virtual threads are not supported
+     */
+    public static ExecutorService newVirtualThreadPool(int maxConcurrency, String namePrefix) {
+        ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor(namePrefix);
+        if (virtualThreadExecutor == null) {
+            log.warn("[{}] Virtual threads are not supported by the current JVM", namePrefix);
+            return null;
+        }
+        return new BoundedExecutorService(virtualThreadExecutor, maxConcurrency);
+    }
+
+    public static ExecutorService newVirtualThreadPool(int maxConcurrency, Class clazz) {
+        return newVirtualThreadPool(maxConcurrency, clazz.getSimpleName());
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREADS_SUPPORTED;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newVirtualThreadFactory(namePrefix);
+        if (threadFactory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("[{}] Failed to create thread per task executor", namePrefix, e);
+            return null;
+        }
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.trace("[{}] Virtual threads are not available", namePrefix, e);
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedExecutorServiceTest {
+
+    private static final int MAX_CONCURRENCY = 3;
+
+    private ExecutorService delegate;
+    private BoundedExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = Executors.newCachedThreadPool(ThingsBoardThreadFactory.forName(getClass().getSimpleName()));
+        executor = new BoundedExecutorService(delegate, MAX_CONCURRENCY);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenBlockingTasks_whenExecute_thenConcurrencyIsBounded() throws InterruptedException {
+        int tasksCount = 100;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasksCount);
+        for (int i = 0; i < tasksCount; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(MAX_CONCURRENCY);
+    }
+
+    @Test
+    public void givenFailingTask_whenExecute_thenNextTasksAreExecuted() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            throw new RuntimeException("Test");
+        });
+        executor.execute(done::countDown);
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void givenShutdownExecutor_whenExecute_thenRejected() {
+        executor.shutdown();
+
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void givenVirtualThreadPool_whenExecute_thenTaskIsExecuted() throws InterruptedException {
+        ExecutorService virtualThreadPool = ThingsBoardExecutors.newVirtualThreadPool(MAX_CONCURRENCY, getClass());
+        if (!ThingsBoardExecutors.isVirtualThreadsSupported()) {
+            assertThat(virtualThreadPool).isNull();
+            return;
+        }
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            virtualThreadPool.execute(done::countDown);
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(virtualThreadPool).isInstanceOf(BoundedExecutorService.class);
+        } finally {
+            virtualThreadPool.shutdownNow();
+        }
+    }
+
+}
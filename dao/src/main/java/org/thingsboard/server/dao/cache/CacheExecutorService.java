@@ -25,9 +25,17 @@ public class CacheExecutorService extends AbstractListeningExecutor {
     @Value("${cache.maximumPoolSize}")
     private int poolSize;
 
+    @Value("${cache.virtual_threads_enabled:false}")
+    private boolean virtualThreadsEnabled;
+
     @Override
     protected int getThreadPollSize() {
         return poolSize;
     }
 
+    @Override
+    protected boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
 }
@@ -582,6 +582,7 @@ public class ModelConstants {
     public static final String TS_KV_CF = "ts_kv_cf";
     public static final String TS_KV_PARTITIONS_CF = "ts_kv_partitions_cf";
     public static final String TS_KV_LATEST_CF = "ts_kv_latest_cf";
+    public static final String TS_KV_ROLLUP_CF = "ts_kv_rollup_cf";
 
     public static final String PARTITION_COLUMN = "partition";
     public static final String KEY_COLUMN = "key";
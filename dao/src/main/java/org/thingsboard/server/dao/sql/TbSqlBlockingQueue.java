@@ -17,9 +17,11 @@ package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -28,7 +30,10 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,48 +41,78 @@ import java.util.stream.Stream;
 @Slf4j
 public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
-    private final BlockingQueue<TbSqlQueueElement<E>> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TbSqlQueueElement<E>> queue;
     private final TbSqlBlockingQueueParams params;
 
     private ExecutorService executor;
+    private ExecutorService[] flushExecutors;
+    private Semaphore inFlightBatches;
     private final MessagesStats stats;
+    private final StatsFactory statsFactory;
 
-    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicInteger currentBatchSize = new AtomicInteger();
+    private Timer flushTimer;
+
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, StatsFactory statsFactory) {
         this.params = params;
+        this.queue = params.getMaxQueueSize() > 0 ? new LinkedBlockingQueue<>(params.getMaxQueueSize()) : new LinkedBlockingQueue<>();
         this.stats = stats;
+        this.statsFactory = statsFactory;
     }
 
     @Override
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int index) {
-        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
+        String threadName = "sql-queue-" + index + "-" + params.getLogName().toLowerCase();
+        boolean adaptive = params.isAdaptiveBatchEnabled();
+        int maxBatchSize = params.getBatchSize();
+        int minBatchSize = Math.max(1, Math.min(params.getMinBatchSize(), maxBatchSize));
+        int lanes = Math.max(1, params.getMaxInFlightBatches());
+        currentBatchSize.set(adaptive ? minBatchSize : maxBatchSize);
+
+        String statsName = params.getStatsNamePrefix() + ".queue." + index;
+        statsFactory.createGauge("sql_queue_size", queueSize, "statsName", statsName);
+        statsFactory.createGauge("sql_queue_batch_size", currentBatchSize, "statsName", statsName);
+        flushTimer = statsFactory.createTimer("sql_queue_flush_time", "statsName", statsName);
+
+        if (lanes > 1) {
+            inFlightBatches = new Semaphore(lanes);
+            flushExecutors = new ExecutorService[lanes];
+            for (int i = 0; i < lanes; i++) {
+                flushExecutors[i] = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(threadName + "-flush-" + i));
+            }
+        }
+
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(threadName));
         executor.submit(() -> {
             String logName = params.getLogName();
-            int batchSize = params.getBatchSize();
             long maxDelay = params.getMaxDelay();
-            final List<TbSqlQueueElement<E>> entities = new ArrayList<>(batchSize);
+            final List<TbSqlQueueElement<E>> entities = new ArrayList<>(maxBatchSize);
             while (!Thread.interrupted()) {
                 try {
                     long currentTs = System.currentTimeMillis();
                     TbSqlQueueElement<E> attr = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
                     if (attr == null) {
+                        queueSize.set(0);
                         continue;
                     } else {
                         entities.add(attr);
                     }
+                    int batchSize = currentBatchSize.get();
                     queue.drainTo(entities, batchSize - 1);
+                    queueSize.set(queue.size());
                     boolean fullPack = entities.size() == batchSize;
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Going to save {} entities", logName, entities.size());
                         log.trace("[{}] Going to save entities: {}", logName, entities);
                     }
-                    Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
-                    saveFunction.accept(
-                            (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
-                                    .collect(Collectors.toList())
-                    );
-                    entities.forEach(v -> v.getFuture().set(null));
-                    stats.incrementSuccessful(entities.size());
-                    if (!fullPack) {
+                    if (lanes == 1) {
+                        flush(logName, new ArrayList<>(entities), saveFunction, batchUpdateComparator);
+                    } else {
+                        submitToLanes(logName, entities, lanes, saveFunction, batchUpdateComparator);
+                    }
+                    // In adaptive mode the next batch accumulates while the previous one is being saved
+                    if (!fullPack && !adaptive) {
                         long remainingDelay = maxDelay - (System.currentTimeMillis() - currentTs);
                         if (remainingDelay > 0) {
                             Thread.sleep(remainingDelay);
@@ -89,12 +124,7 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
                         break;
                     } else {
                         log.error("[{}] Failed to save {} entities", logName, entities.size(), t);
-                        try {
-                            stats.incrementFailed(entities.size());
-                            entities.forEach(entityFutureWrapper -> entityFutureWrapper.getFuture().setException(t));
-                        } catch (Throwable th) {
-                            log.error("[{}] Failed to set future exception", logName, th);
-                        }
+                        failBatch(logName, entities, t);
                     }
                 } finally {
                     entities.clear();
@@ -105,25 +135,117 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
         logExecutor.scheduleAtFixedRate(() -> {
             if (queue.size() > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
-                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
-                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                log.info("Queue-{} [{}] queueSize [{}] batchSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
+                        params.getLogName(), queue.size(), currentBatchSize.get(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
                 stats.reset();
             }
         }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
     }
 
+    private void submitToLanes(String logName, List<TbSqlQueueElement<E>> entities, int lanes,
+                               Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) throws InterruptedException {
+        List<List<TbSqlQueueElement<E>>> batches = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (TbSqlQueueElement<E> element : entities) {
+            batches.get(element.getLaneHash() % lanes).add(element);
+        }
+        for (int i = 0; i < lanes; i++) {
+            List<TbSqlQueueElement<E>> batch = batches.get(i);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            inFlightBatches.acquire();
+            try {
+                flushExecutors[i].execute(() -> {
+                    try {
+                        flush(logName, batch, saveFunction, batchUpdateComparator);
+                    } finally {
+                        inFlightBatches.release();
+                    }
+                });
+            } catch (Throwable t) {
+                inFlightBatches.release();
+                throw t;
+            }
+        }
+    }
+
+    private void flush(String logName, List<TbSqlQueueElement<E>> batch, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
+        long startTime = System.nanoTime();
+        try {
+            Stream<E> entitiesStream = batch.stream().map(TbSqlQueueElement::getEntity);
+            saveFunction.accept(
+                    (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
+                            .collect(Collectors.toList())
+            );
+            batch.forEach(v -> v.getFuture().set(null));
+            stats.incrementSuccessful(batch.size());
+        } catch (Throwable t) {
+            log.error("[{}] Failed to save {} entities", logName, batch.size(), t);
+            failBatch(logName, batch, t);
+        } finally {
+            long flushTime = System.nanoTime() - startTime;
+            flushTimer.record(flushTime, TimeUnit.NANOSECONDS);
+            if (params.isAdaptiveBatchEnabled()) {
+                adjustBatchSize(batch.size(), flushTime);
+            }
+        }
+    }
+
+    private void failBatch(String logName, List<TbSqlQueueElement<E>> batch, Throwable t) {
+        try {
+            stats.incrementFailed(batch.size());
+            batch.forEach(entityFutureWrapper -> entityFutureWrapper.getFuture().setException(t));
+        } catch (Throwable th) {
+            log.error("[{}] Failed to set future exception", logName, th);
+        }
+    }
+
+    /**
+     * Shrinks the batch by a quarter when the flush was slower than the target latency
+     * and grows it by a quarter when the flush was fast, the batch was full and there is a backlog.
+     */
+    private void adjustBatchSize(int flushedSize, long flushTimeNanos) {
+        int current = currentBatchSize.get();
+        int next;
+        if (flushTimeNanos > TimeUnit.MILLISECONDS.toNanos(params.getTargetFlushLatencyMs())) {
+            next = Math.max(Math.max(1, params.getMinBatchSize()), current - current / 4);
+        } else if (flushedSize * Math.max(1, params.getMaxInFlightBatches()) >= current && queueSize.get() > 0) {
+            next = Math.min(params.getBatchSize(), current + Math.max(1, current / 4));
+        } else {
+            return;
+        }
+        if (next != current) {
+            currentBatchSize.compareAndSet(current, next);
+        }
+    }
+
     @Override
     public void destroy() {
         if (executor != null) {
             executor.shutdownNow();
         }
+        if (flushExecutors != null) {
+            for (ExecutorService flushExecutor : flushExecutors) {
+                flushExecutor.shutdownNow();
+            }
+        }
     }
 
     @Override
     public ListenableFuture<Void> add(E element) {
+        return add(element, 0);
+    }
+
+    public ListenableFuture<Void> add(E element, int laneHash) {
         SettableFuture<Void> future = SettableFuture.create();
-        queue.add(new TbSqlQueueElement<>(future, element));
         stats.incrementTotal();
+        if (!queue.offer(new TbSqlQueueElement<>(future, element, laneHash))) {
+            stats.incrementFailed();
+            future.setException(new RejectedExecutionException("[" + params.getLogName() + "] Queue is full"));
+        }
         return future;
     }
 }
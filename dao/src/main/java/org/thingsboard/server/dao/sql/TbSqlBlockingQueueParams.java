@@ -30,4 +30,23 @@ public class TbSqlBlockingQueueParams {
     private final long statsPrintIntervalMs;
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
+
+    /**
+     * When enabled, the queue does not sleep between batches and adjusts the batch size
+     * between {@link #minBatchSize} and {@link #batchSize} to keep the flush latency close to {@link #targetFlushLatencyMs}.
+     */
+    private final boolean adaptiveBatchEnabled;
+    private final int minBatchSize;
+    private final long targetFlushLatencyMs;
+    /**
+     * Number of batches that may be saved concurrently by a single queue.
+     * Entities with the same hash are always saved by the same flush thread, so their order is preserved.
+     */
+    @Builder.Default
+    private final int maxInFlightBatches = 1;
+    /**
+     * Max number of entities waiting to be saved by a single queue. The entities added to the full queue are rejected
+     * with {@link java.util.concurrent.RejectedExecutionException}. 0 means that the queue is unbounded.
+     */
+    private final int maxQueueSize;
 }
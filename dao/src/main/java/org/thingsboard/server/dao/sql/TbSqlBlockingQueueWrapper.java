@@ -48,15 +48,15 @@ public class TbSqlBlockingQueueWrapper<E> {
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
         for (int i = 0; i < maxThreads; i++) {
             MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats);
+            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats, statsFactory);
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, i);
         }
     }
 
     public ListenableFuture<Void> add(E element) {
-        int queueIndex = element != null ? (hashCodeFunction.apply(element) & 0x7FFFFFFF) % maxThreads : 0;
-        return queues.get(queueIndex).add(element);
+        int hash = element != null ? hashCodeFunction.apply(element) & 0x7FFFFFFF : 0;
+        return queues.get(hash % maxThreads).add(element, hash / maxThreads);
     }
 
     public void destroy() {
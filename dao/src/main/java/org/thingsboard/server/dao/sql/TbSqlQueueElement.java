@@ -25,10 +25,17 @@ public final class TbSqlQueueElement<E> {
     private final SettableFuture<Void> future;
     @Getter
     private final E entity;
+    @Getter
+    private final int laneHash;
 
     public TbSqlQueueElement(SettableFuture<Void> future, E entity) {
+        this(future, entity, 0);
+    }
+
+    public TbSqlQueueElement(SettableFuture<Void> future, E entity, int laneHash) {
         this.future = future;
         this.entity = entity;
+        this.laneHash = laneHash;
     }
 }
 
@@ -85,6 +85,18 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Value("${sql.attributes.batch_threads:4}")
     private int batchThreads;
 
+    @Value("${sql.attributes.adaptive_batch_enabled:false}")
+    private boolean attributesAdaptiveBatchEnabled;
+
+    @Value("${sql.attributes.adaptive_batch_min_size:100}")
+    private int attributesMinBatchSize;
+
+    @Value("${sql.attributes.adaptive_batch_target_latency_ms:100}")
+    private long attributesTargetFlushLatencyMs;
+
+    @Value("${sql.attributes.batch_max_in_flight:1}")
+    private int attributesMaxInFlightBatches;
+
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
@@ -99,6 +111,10 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("attributes")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptiveBatchEnabled(attributesAdaptiveBatchEnabled)
+                .minBatchSize(attributesMinBatchSize)
+                .targetFlushLatencyMs(attributesTargetFlushLatencyMs)
+                .maxInFlightBatches(attributesMaxInFlightBatches)
                 .build();
 
         Function<AttributeKvEntity, Integer> hashcodeFunction = entity -> entity.getId().getEntityId().hashCode();
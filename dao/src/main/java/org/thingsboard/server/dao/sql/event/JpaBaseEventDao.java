@@ -107,10 +107,23 @@ public class JpaBaseEventDao implements EventDao {
     @Value("${sql.events.batch_threads:3}")
     private int batchThreads;
 
+    @Value("${sql.events.debug_batch_size:1000}")
+    private int debugBatchSize;
+
+    @Value("${sql.events.debug_batch_max_delay:1000}")
+    private long debugMaxDelay;
+
+    @Value("${sql.events.debug_batch_threads:1}")
+    private int debugBatchThreads;
+
+    @Value("${sql.events.debug_max_queue_size:100000}")
+    private int debugMaxQueueSize;
+
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
     private TbSqlBlockingQueueWrapper<Event> queue;
+    private TbSqlBlockingQueueWrapper<Event> debugQueue;
 
     private final Map<EventType, EventRepository<?, ?>> repositories = new ConcurrentHashMap<>();
 
@@ -127,6 +140,18 @@ public class JpaBaseEventDao implements EventDao {
         Function<Event, Integer> hashcodeFunction = entity -> Objects.hash(super.hashCode(), entity.getTenantId(), entity.getEntityId());
         queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, batchThreads, statsFactory);
         queue.init(logExecutor, v -> eventInsertRepository.save(v), Comparator.comparing(Event::getCreatedTime));
+        // Debug events are saved by a separate bounded queue, so they can't delay or exhaust the memory of the regular events
+        TbSqlBlockingQueueParams debugParams = TbSqlBlockingQueueParams.builder()
+                .logName("Debug Events")
+                .batchSize(debugBatchSize)
+                .maxDelay(debugMaxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("debug_events")
+                .batchSortEnabled(batchSortEnabled)
+                .maxQueueSize(debugMaxQueueSize)
+                .build();
+        debugQueue = new TbSqlBlockingQueueWrapper<>(debugParams, hashcodeFunction, debugBatchThreads, statsFactory);
+        debugQueue.init(logExecutor, v -> eventInsertRepository.save(v), Comparator.comparing(Event::getCreatedTime));
         repositories.put(EventType.LC_EVENT, lcEventRepository);
         repositories.put(EventType.STATS, statsEventRepository);
         repositories.put(EventType.ERROR, errorEventRepository);
@@ -139,6 +164,9 @@ public class JpaBaseEventDao implements EventDao {
         if (queue != null) {
             queue.destroy();
         }
+        if (debugQueue != null) {
+            debugQueue.destroy();
+        }
     }
 
     @Override
@@ -158,7 +186,10 @@ public class JpaBaseEventDao implements EventDao {
         }
         partitioningRepository.createPartitionIfNotExists(event.getType().getTable(), event.getCreatedTime(),
                 partitionConfiguration.getPartitionSizeInMs(event.getType()));
-        return queue.add(event);
+        return switch (event.getType()) {
+            case DEBUG_RULE_NODE, DEBUG_RULE_CHAIN -> debugQueue.add(event);
+            default -> queue.add(event);
+        };
     }
 
     @Override
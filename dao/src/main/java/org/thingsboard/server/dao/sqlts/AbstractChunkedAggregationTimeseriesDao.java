@@ -76,6 +76,10 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptiveBatchEnabled(tsAdaptiveBatchEnabled)
+                .minBatchSize(tsMinBatchSize)
+                .targetFlushLatencyMs(tsTargetFlushLatencyMs)
+                .maxInFlightBatches(tsMaxInFlightBatches)
                 .build();
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
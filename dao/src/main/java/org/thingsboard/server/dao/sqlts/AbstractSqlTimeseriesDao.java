@@ -60,6 +60,18 @@ public abstract class AbstractSqlTimeseriesDao extends BaseAbstractSqlTimeseries
     @Value("${sql.ts.batch_threads:4}")
     protected int tsBatchThreads;
 
+    @Value("${sql.ts.adaptive_batch_enabled:false}")
+    protected boolean tsAdaptiveBatchEnabled;
+
+    @Value("${sql.ts.adaptive_batch_min_size:100}")
+    protected int tsMinBatchSize;
+
+    @Value("${sql.ts.adaptive_batch_target_latency_ms:100}")
+    protected long tsTargetFlushLatencyMs;
+
+    @Value("${sql.ts.batch_max_in_flight:1}")
+    protected int tsMaxInFlightBatches;
+
     @Value("${sql.timescale.batch_threads:4}")
     protected int timescaleBatchThreads;
 
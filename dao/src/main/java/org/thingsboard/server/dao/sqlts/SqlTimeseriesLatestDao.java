@@ -95,6 +95,18 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     @Value("${sql.ts_latest.batch_threads:4}")
     private int tsLatestBatchThreads;
 
+    @Value("${sql.ts_latest.adaptive_batch_enabled:false}")
+    private boolean tsLatestAdaptiveBatchEnabled;
+
+    @Value("${sql.ts_latest.adaptive_batch_min_size:100}")
+    private int tsLatestMinBatchSize;
+
+    @Value("${sql.ts_latest.adaptive_batch_target_latency_ms:100}")
+    private long tsLatestTargetFlushLatencyMs;
+
+    @Value("${sql.ts_latest.batch_max_in_flight:1}")
+    private int tsLatestMaxInFlightBatches;
+
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
@@ -116,6 +128,10 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
                 .statsPrintIntervalMs(tsLatestStatsPrintIntervalMs)
                 .statsNamePrefix("ts.latest")
                 .batchSortEnabled(false)
+                .adaptiveBatchEnabled(tsLatestAdaptiveBatchEnabled)
+                .minBatchSize(tsLatestMinBatchSize)
+                .targetFlushLatencyMs(tsLatestTargetFlushLatencyMs)
+                .maxInFlightBatches(tsLatestMaxInFlightBatches)
                 .build();
 
         java.util.function.Function<TsKvLatestEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
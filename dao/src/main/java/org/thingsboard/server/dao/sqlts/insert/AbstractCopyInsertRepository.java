@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Saves time-series batches with a single {@code COPY ... FROM STDIN (FORMAT binary)} into a session-local staging table
+ * followed by one set-based merge statement. Compared to batched {@code INSERT ... ON CONFLICT} statements this avoids
+ * parsing and planning a statement per row.
+ * <p>
+ * The staging table is a temporary table with {@code ON COMMIT DELETE ROWS}, so it is created once per pooled connection
+ * and is always empty at the start of a transaction. The connections that already have the table are tracked weakly,
+ * so the closed connections are forgotten together with their tables.
+ */
+public abstract class AbstractCopyInsertRepository extends AbstractInsertRepository {
+
+    private static final byte[] COPY_SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final short COPY_FIELD_COUNT = 9;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    protected static final String STAGING_COLUMNS = "seq, entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v";
+
+    private final Set<PGConnection> connectionsWithStagingTable = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    protected static String createStagingTableStatement(String stagingTable) {
+        return "CREATE TEMP TABLE IF NOT EXISTS " + stagingTable + " (seq int NOT NULL, entity_id uuid NOT NULL, key int NOT NULL, " +
+                "ts bigint NOT NULL, bool_v boolean, str_v varchar(10000000), long_v bigint, dbl_v double precision, json_v json) " +
+                "ON COMMIT DELETE ROWS";
+    }
+
+    protected static String copyStatement(String stagingTable) {
+        return "COPY " + stagingTable + " (" + STAGING_COLUMNS + ") FROM STDIN (FORMAT binary)";
+    }
+
+    protected void copyAndMerge(List<? extends AbstractTsKvEntity> entities, String createStagingTableSql, String copySql, String mergeSql) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        AtomicReference<PGConnection> createdOn = new AtomicReference<>();
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                        if (connectionsWithStagingTable.add(pgConnection)) {
+                            createdOn.set(pgConnection);
+                            try (Statement statement = connection.createStatement()) {
+                                statement.execute(createStagingTableSql);
+                            }
+                        }
+                        copy(pgConnection, copySql, entities);
+                        try (Statement statement = connection.createStatement()) {
+                            statement.executeUpdate(mergeSql);
+                        }
+                        return null;
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            // The staging table created in the failed transaction is rolled back together with it
+            PGConnection pgConnection = createdOn.get();
+            if (pgConnection != null) {
+                connectionsWithStagingTable.remove(pgConnection);
+            }
+            throw e;
+        }
+    }
+
+    private void copy(PGConnection connection, String copySql, List<? extends AbstractTsKvEntity> entities) throws SQLException {
+        PGCopyOutputStream copyStream = new PGCopyOutputStream(connection, copySql, COPY_BUFFER_SIZE);
+        try {
+            DataOutputStream out = new DataOutputStream(copyStream);
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+            for (int i = 0; i < entities.size(); i++) {
+                AbstractTsKvEntity entity = entities.get(i);
+                out.writeShort(COPY_FIELD_COUNT);
+                writeInt(out, i);
+                out.writeInt(16);
+                out.writeLong(entity.getEntityId().getMostSignificantBits());
+                out.writeLong(entity.getEntityId().getLeastSignificantBits());
+                writeInt(out, entity.getKey());
+                writeLong(out, entity.getTs());
+                if (entity.getBooleanValue() != null) {
+                    out.writeInt(1);
+                    out.writeByte(entity.getBooleanValue() ? 1 : 0);
+                } else {
+                    out.writeInt(-1);
+                }
+                writeString(out, replaceNullChars(entity.getStrValue()));
+                writeLong(out, entity.getLongValue());
+                if (entity.getDoubleValue() != null) {
+                    out.writeInt(8);
+                    out.writeDouble(entity.getDoubleValue());
+                } else {
+                    out.writeInt(-1);
+                }
+                writeString(out, replaceNullChars(entity.getJsonValue()));
+            }
+            out.writeShort(-1); // file trailer
+            out.flush();
+            copyStream.endCopy();
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy " + entities.size() + " entries", e);
+        } finally {
+            if (copyStream.isActive()) {
+                copyStream.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeInt(DataOutputStream out, int value) throws IOException {
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        if (value != null) {
+            out.writeInt(8);
+            out.writeLong(value);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.latest.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractCopyInsertRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
+import org.thingsboard.server.dao.util.SqlDao;
+import org.thingsboard.server.dao.util.SqlTsLatestAnyDao;
+
+import java.util.List;
+
+@SqlTsLatestAnyDao
+@ConditionalOnProperty(prefix = "sql.ts_latest", value = "insert_mode", havingValue = "copy")
+@Repository
+@SqlDao
+public class SqlLatestCopyInsertTsRepository extends AbstractCopyInsertRepository implements InsertLatestTsRepository {
+
+    private static final String STAGING_TABLE = "ts_kv_latest_staging";
+
+    private static final String CREATE_STAGING_TABLE = createStagingTableStatement(STAGING_TABLE);
+
+    private static final String COPY = copyStatement(STAGING_TABLE);
+
+    private static final String MERGE_TEMPLATE = "INSERT INTO ts_kv_latest (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) " +
+            "SELECT DISTINCT ON (entity_id, key) entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v FROM " + STAGING_TABLE +
+            " ORDER BY entity_id, key, %s seq DESC " +
+            "ON CONFLICT (entity_id, key) DO UPDATE SET ts = EXCLUDED.ts, bool_v = EXCLUDED.bool_v, str_v = EXCLUDED.str_v, " +
+            "long_v = EXCLUDED.long_v, dbl_v = EXCLUDED.dbl_v, json_v = EXCLUDED.json_v";
+
+    private static final String MERGE_BY_ORDER = String.format(MERGE_TEMPLATE, "");
+
+    private static final String MERGE_BY_LATEST_TS = String.format(MERGE_TEMPLATE, "ts DESC,") + " WHERE ts_kv_latest.ts <= EXCLUDED.ts";
+
+    @Value("${sql.ts_latest.update_by_latest_ts:true}")
+    private Boolean updateByLatestTs;
+
+    @Override
+    public void saveOrUpdate(List<TsKvLatestEntity> entities) {
+        copyAndMerge(entities, CREATE_STAGING_TABLE, COPY, updateByLatestTs ? MERGE_BY_LATEST_TS : MERGE_BY_ORDER);
+    }
+
+}
@@ -88,6 +88,10 @@ public class TimescaleTimeseriesDao extends AbstractSqlTimeseriesDao implements
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts.timescale")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptiveBatchEnabled(tsAdaptiveBatchEnabled)
+                .minBatchSize(tsMinBatchSize)
+                .targetFlushLatencyMs(tsTargetFlushLatencyMs)
+                .maxInFlightBatches(tsMaxInFlightBatches)
                 .build();
 
         Function<TimescaleTsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
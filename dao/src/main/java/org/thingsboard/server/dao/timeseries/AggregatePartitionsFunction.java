@@ -79,20 +79,26 @@ public class AggregatePartitionsFunction implements com.google.common.util.concu
                 Futures.allAsList(
                         rsList.stream().map(rs -> rs.allRows(this.executor))
                                 .collect(Collectors.toList())),
-                rowsList -> {
-                    try {
-                        AggregationResult aggResult = new AggregationResult();
-                        for (List<Row> rs : rowsList) {
-                            for (Row row : rs) {
-                                processResultSetRow(row, aggResult);
-                            }
-                        }
-                        return processAggregationResult(aggResult);
-                    } catch (Exception e) {
-                        log.error("[{}][{}][{}] Failed to aggregate data", key, ts, aggregation, e);
-                        return Optional.empty();
-                    }
-                }, this.executor);
+                this::aggregate, this.executor);
+    }
+
+    /**
+     * Aggregates rows that share the column layout of the partition aggregation query:
+     * long, double, boolean, string and json counts, max ts and the aggregated long, double, boolean, string and json values.
+     */
+    Optional<TsKvEntryAggWrapper> aggregate(List<List<Row>> rowsList) {
+        try {
+            AggregationResult aggResult = new AggregationResult();
+            for (List<Row> rs : rowsList) {
+                for (Row row : rs) {
+                    processResultSetRow(row, aggResult);
+                }
+            }
+            return processAggregationResult(aggResult);
+        } catch (Exception e) {
+            log.error("[{}][{}][{}] Failed to aggregate data", key, ts, aggregation, e);
+            return Optional.empty();
+        }
     }
 
     private void processResultSetRow(Row row, AggregationResult aggResult) {
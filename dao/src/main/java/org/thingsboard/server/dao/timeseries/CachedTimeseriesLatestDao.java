@@ -0,0 +1,181 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.cache.TbTransactionalCache;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.cache.CacheExecutorService;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Caches latest time-series values on top of the configured {@link TimeseriesLatestDao}.
+ * Cache misses are loaded in a cache transaction, the same way as in {@link org.thingsboard.server.dao.attributes.CachedAttributesService},
+ * and the key is evicted once the underlying DAO has persisted a new value, which also cancels a concurrent load.
+ * The local (caffeine) cache type is refused in the cluster mode, since other nodes would keep serving stale values.
+ */
+@Component
+@ConditionalOnProperty(prefix = "cache.tsLatest", value = "enabled", havingValue = "true")
+@Primary
+@Slf4j
+public class CachedTimeseriesLatestDao implements TimeseriesLatestDao {
+    private static final String STATS_NAME = "tsLatest.cache";
+    public static final String LOCAL_CACHE_TYPE = "caffeine";
+
+    private final TimeseriesLatestDao timeseriesLatestDao;
+    private final CacheExecutorService cacheExecutorService;
+    private final TbTransactionalCache<TsLatestCacheKey, TsKvEntry> cache;
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+    private ListeningExecutorService cacheExecutor;
+
+    @Value("${cache.type:caffeine}")
+    private String cacheType;
+    @Value("${zk.enabled:false}")
+    private boolean clusterEnabled;
+
+    public CachedTimeseriesLatestDao(List<TimeseriesLatestDao> timeseriesLatestDaos,
+                                     StatsFactory statsFactory,
+                                     CacheExecutorService cacheExecutorService,
+                                     TbTransactionalCache<TsLatestCacheKey, TsKvEntry> cache) {
+        List<TimeseriesLatestDao> delegates = timeseriesLatestDaos.stream()
+                .filter(dao -> !(dao instanceof CachedTimeseriesLatestDao))
+                .toList();
+        if (delegates.size() != 1) {
+            throw new IllegalStateException("Expected exactly one latest time-series DAO to cache, but found " + delegates.size());
+        }
+        this.timeseriesLatestDao = delegates.get(0);
+        this.cacheExecutorService = cacheExecutorService;
+        this.cache = cache;
+
+        this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+    }
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isEmpty(cacheType) || LOCAL_CACHE_TYPE.equals(cacheType)) {
+            if (clusterEnabled) {
+                throw new IllegalStateException("Latest time-series cache can't use the local cache type '" + cacheType +
+                        "' in the cluster mode, because its entries are not invalidated on other nodes. Use the 'redis' cache type or disable cache.tsLatest.enabled");
+            }
+            log.info("Going to use directExecutor for the local cache type {}", cacheType);
+            this.cacheExecutor = MoreExecutors.newDirectExecutorService();
+        } else {
+            log.info("Going to use cacheExecutorService for the remote cache type {}", cacheType);
+            this.cacheExecutor = cacheExecutorService.executor();
+        }
+    }
+
+    @Override
+    public ListenableFuture<Optional<TsKvEntry>> findLatestOpt(TenantId tenantId, EntityId entityId, String key) {
+        TsLatestCacheKey cacheKey = new TsLatestCacheKey(entityId, key);
+        return Futures.transformAsync(cacheExecutor.submit(() -> cache.get(cacheKey)), cachedValue -> {
+            if (cachedValue != null) {
+                hitCounter.increment();
+                return Futures.immediateFuture(Optional.ofNullable(cachedValue.get()));
+            }
+            missCounter.increment();
+            var cacheTransaction = cache.newTransactionForKey(cacheKey);
+            ListenableFuture<Optional<TsKvEntry>> dbFuture;
+            try {
+                dbFuture = timeseriesLatestDao.findLatestOpt(tenantId, entityId, key);
+            } catch (Throwable e) {
+                cacheTransaction.rollback();
+                throw e;
+            }
+            Futures.addCallback(dbFuture, new FutureCallback<>() {
+                @Override
+                public void onSuccess(Optional<TsKvEntry> result) {
+                    cacheTransaction.putIfAbsent(cacheKey, result.orElse(null));
+                    cacheTransaction.commit();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    cacheTransaction.rollback();
+                    log.debug("[{}] Could not find latest value for key [{}]", entityId, key, t);
+                }
+            }, cacheExecutor);
+            return dbFuture;
+        }, MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public ListenableFuture<TsKvEntry> findLatest(TenantId tenantId, EntityId entityId, String key) {
+        return Futures.transform(findLatestOpt(tenantId, entityId, key),
+                latest -> latest.orElseGet(() -> new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null))),
+                MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId) {
+        // The keys are unknown, so the cache can't be used.
+        return timeseriesLatestDao.findAllLatest(tenantId, entityId);
+    }
+
+    @Override
+    public ListenableFuture<Void> saveLatest(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry) {
+        ListenableFuture<Void> future = timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry);
+        return Futures.transform(future, v -> {
+            // Evict instead of put: concurrent saves may complete out of order, and the next read loads the persisted value in a transaction.
+            cache.evict(new TsLatestCacheKey(entityId, tsKvEntry.getKey()));
+            return v;
+        }, cacheExecutor);
+    }
+
+    @Override
+    public ListenableFuture<TsKvLatestRemovingResult> removeLatest(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        ListenableFuture<TsKvLatestRemovingResult> future = timeseriesLatestDao.removeLatest(tenantId, entityId, query);
+        return Futures.transform(future, result -> {
+            cache.evict(new TsLatestCacheKey(entityId, query.getKey()));
+            return result;
+        }, cacheExecutor);
+    }
+
+    @Override
+    public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
+        return timeseriesLatestDao.findAllKeysByDeviceProfileId(tenantId, deviceProfileId);
+    }
+
+    @Override
+    public List<String> findAllKeysByEntityIds(TenantId tenantId, List<EntityId> entityIds) {
+        return timeseriesLatestDao.findAllKeysByEntityIds(tenantId, entityIds);
+    }
+
+}
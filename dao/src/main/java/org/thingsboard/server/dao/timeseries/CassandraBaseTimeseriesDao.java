@@ -105,6 +105,9 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Autowired
     private Environment environment;
 
+    @Autowired(required = false)
+    private CassandraTsRollupDao rollupDao;
+
     @Getter
     @Value("${cassandra.query.ts_key_value_partitioning}")
     private String partitioning;
@@ -207,7 +210,13 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             }
         }
         BoundStatement stmt = stmtBuilder.build();
-        futures.add(getFuture(executeAsyncWrite(tenantId, stmt), rs -> null));
+        ListenableFuture<Void> saveFuture = getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+        if (rollupDao != null) {
+            // The save is acknowledged after the rollups that are changed by the value are marked dirty
+            long rollupTtl = ttl;
+            saveFuture = Futures.transformAsync(saveFuture, result -> rollupDao.accumulate(tenantId, entityId, tsKvEntry, rollupTtl), MoreExecutors.directExecutor());
+        }
+        futures.add(saveFuture);
         return Futures.transform(Futures.allAsList(futures), result -> dataPointDays, MoreExecutors.directExecutor());
     }
 
@@ -255,6 +264,9 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
                 log.error("[{}][{}] Failed to fetch partitions for interval {}-{}", entityId.getEntityType().name(), entityId.getId(), minPartition, maxPartition, t);
             }
         }, readResultsProcessingExecutor);
+        if (rollupDao != null) {
+            return Futures.transformAsync(resultFuture, result -> rollupDao.remove(tenantId, entityId, query), MoreExecutors.directExecutor());
+        }
         return resultFuture;
     }
 
@@ -278,7 +290,13 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
                 }
                 endTs = Math.min(endTs, endPeriod);
                 ReadTsKvQuery subQuery = new BaseReadTsKvQuery(query.getKey(), startTs, endTs, endTs - startTs, 1, query.getAggregation(), query.getOrder());
-                futures.add(findAndAggregateAsync(tenantId, entityId, subQuery, toPartitionTs(startTs), toPartitionTs(endTs)));
+                TsRollupGranularity rollupGranularity = rollupDao != null ? rollupDao.getReadGranularity(startTs, endTs) : null;
+                if (rollupGranularity != null) {
+                    futures.add(rollupDao.findAndAggregateAsync(tenantId, entityId, subQuery, rollupGranularity,
+                            () -> findAndAggregateAsync(tenantId, entityId, subQuery, toPartitionTs(subQuery.getStartTs()), toPartitionTs(subQuery.getEndTs()))));
+                } else {
+                    futures.add(findAndAggregateAsync(tenantId, entityId, subQuery, toPartitionTs(startTs), toPartitionTs(endTs)));
+                }
                 startPeriod = endTs;
             }
             ListenableFuture<List<Optional<TsKvEntryAggWrapper>>> future = Futures.allAsList(futures);
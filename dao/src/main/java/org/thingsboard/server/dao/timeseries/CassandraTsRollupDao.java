@@ -0,0 +1,694 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntryAggWrapper;
+import org.thingsboard.server.dao.model.ModelConstants;
+import org.thingsboard.server.dao.nosql.CassandraAbstractAsyncDao;
+import org.thingsboard.server.dao.nosql.TbResultSetFuture;
+import org.thingsboard.server.dao.util.NoSqlTsDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.thingsboard.server.dao.timeseries.AbstractCassandraBaseTimeseriesDao.EQUALS_PARAM;
+import static org.thingsboard.server.dao.timeseries.AbstractCassandraBaseTimeseriesDao.GENERATED_QUERY_FOR_ENTITY_TYPE_AND_ENTITY_ID;
+import static org.thingsboard.server.dao.timeseries.AbstractCassandraBaseTimeseriesDao.INSERT_INTO;
+import static org.thingsboard.server.dao.timeseries.AbstractCassandraBaseTimeseriesDao.SELECT_PREFIX;
+
+/**
+ * Maintains per-key minute, hour and day rollups (count, sum, min and max) of the saved time-series values
+ * and uses them to answer aggregation queries whose intervals are aligned to the rollup buckets.
+ * <p>
+ * Values are accumulated in memory and the accumulated partials are upserted into {@link ModelConstants#TS_KV_ROLLUP_CF}
+ * every flush interval. Before the save of a value is acknowledged, the partials that got new values since the last flush
+ * are marked dirty with a new version, and the flush saves the values together with the version they include. A partial
+ * whose dirty version is newer than the saved one, e.g. after a crash, is incomplete. Reads fall back to the raw data
+ * if the rollups for the interval are missing, incomplete or invalidated by a delete or a rewrite.
+ * <p>
+ * The time the rollups were first enabled is persisted, and the intervals that start before it are always read from the raw data.
+ * The buckets that started before this service are invalidated, since the values saved before the start may be missing in them.
+ */
+@Component
+@Slf4j
+@NoSqlTsDao
+@ConditionalOnProperty(prefix = "cassandra.query", value = "ts_rollups_enabled", havingValue = "true")
+public class CassandraTsRollupDao extends CassandraAbstractAsyncDao {
+
+    private static final String GRANULARITY_COLUMN = "granularity";
+    private static final String PARTIAL_ID_COLUMN = "partial_id";
+    private static final String INVALID_COLUMN = "invalid";
+    private static final String DIRTY_VERSION_COLUMN = "dirty_version";
+    private static final String FLUSHED_VERSION_COLUMN = "flushed_version";
+    private static final String[] ROLLUP_VALUE_COLUMNS = {"long_cnt", "long_sum", "long_min", "long_max",
+            "dbl_cnt", "dbl_sum", "dbl_min", "dbl_max", "bool_cnt", "str_cnt", "json_cnt", "max_ts", FLUSHED_VERSION_COLUMN};
+    // Fetched rows follow the layout expected by AggregatePartitionsFunction: counts, max ts, long and double values.
+    // The invalid flag and the versions go last; the boolean, string and json values are never read because such rollups fall back to raw data.
+    private static final int LONG_CNT_POS = 0;
+    private static final int DOUBLE_CNT_POS = 1;
+    private static final int BOOL_CNT_POS = 2;
+    private static final int STR_CNT_POS = 3;
+    private static final int JSON_CNT_POS = 4;
+    private static final int INVALID_POS = 8;
+    private static final int DIRTY_VERSION_POS = 9;
+    private static final int FLUSHED_VERSION_POS = 10;
+    // The time the rollups were enabled is kept in a reserved row of the rollups table
+    private static final String ENABLED_SINCE_ENTITY_TYPE = "TS_ROLLUPS";
+    private static final String ENABLED_SINCE_KEY = "enabledSince";
+
+    @Value("${cassandra.query.ts_rollups_granularities:MINUTE,HOUR,DAY}")
+    private String granularitiesStr;
+
+    @Value("${cassandra.query.ts_rollups_flush_interval_ms:10000}")
+    private long flushIntervalMs;
+
+    @Value("${cassandra.query.ts_rollups_read_delay_ms:60000}")
+    private long readDelayMs;
+
+    private final ConcurrentMap<TsRollupKey, TsKvRollup> rollups = new ConcurrentHashMap<>();
+    // Buckets invalidated since the last flush, to skip the repeated invalidation of the same bucket
+    private final Set<TsRollupKey> invalidated = ConcurrentHashMap.newKeySet();
+    // Buckets of the coarse granularities that started before this service, invalidated until they are closed
+    private final Set<TsRollupKey> untracked = ConcurrentHashMap.newKeySet();
+    private List<TsRollupGranularity> granularities;
+    private TsRollupGranularity finestGranularity;
+    private long startTs;
+    // Unknown until loaded, so the rollups are not read before that
+    private volatile long enabledSinceTs = Long.MAX_VALUE;
+    private ScheduledExecutorService flushExecutor;
+
+    private PreparedStatement saveStmt;
+    private PreparedStatement saveTtlStmt;
+    private PreparedStatement markDirtyStmt;
+    private PreparedStatement markDirtyTtlStmt;
+    private PreparedStatement invalidateStmt;
+    private PreparedStatement deleteStmt;
+    private PreparedStatement findEnabledSinceStmt;
+    private PreparedStatement saveEnabledSinceStmt;
+    private PreparedStatement[] fetchStmts;
+    private final Lock stmtCreationLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        granularities = Arrays.stream(granularitiesStr.split(","))
+                .map(String::trim)
+                .map(TsRollupGranularity::valueOf)
+                .distinct()
+                .sorted(Comparator.comparingLong(TsRollupGranularity::getDurationMs).reversed())
+                .collect(Collectors.toList());
+        finestGranularity = granularities.get(granularities.size() - 1);
+        startTs = System.currentTimeMillis();
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("ts-rollups-flush"));
+        flushExecutor.execute(this::initEnabledSinceTs);
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Time-series rollups enabled for granularities {}", granularities);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        flush();
+    }
+
+    /**
+     * Accumulates the saved value. The returned future completes when the partials changed by the value are marked dirty.
+     * <p>
+     * The value that rewrites an accumulated timestamp isn't accumulated, and neither is the value of a bucket that
+     * this service doesn't track since the bucket start: the late values and the values of the buckets that started
+     * before this service. Such a value may rewrite the value that is already counted, so its buckets are invalidated instead.
+     * The coarser buckets that started before this service may miss the values saved before the start, so they are invalidated too.
+     */
+    public ListenableFuture<Void> accumulate(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
+        if (tsKvEntry.getValue() == null) {
+            return Futures.immediateVoidFuture();
+        }
+        long ts = tsKvEntry.getTs();
+        long now = System.currentTimeMillis();
+        boolean[] accepted = new boolean[1];
+        rollups.compute(new TsRollupKey(entityId, tsKvEntry.getKey(), finestGranularity, finestGranularity.toBucketTs(ts)), (key, rollup) -> {
+            if (rollup == null) {
+                if (key.getBucketTs() < startTs || isClosed(key, now)) {
+                    return null;
+                }
+                rollup = new TsKvRollup(tenantId, true);
+            }
+            accepted[0] = rollup.addTimestamp(ts);
+            return rollup;
+        });
+        if (!accepted[0]) {
+            log.trace("[{}][{}] Invalidating the rollups of the rewritten or late value with ts {}", entityId, tsKvEntry.getKey(), ts);
+            return invalidate(tenantId, entityId, tsKvEntry.getKey(), ts);
+        }
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (TsRollupGranularity granularity : granularities) {
+            TsRollupKey rollupKey = new TsRollupKey(entityId, tsKvEntry.getKey(), granularity, granularity.toBucketTs(ts));
+            UUID[] partialId = new UUID[1];
+            long[] version = new long[1];
+            boolean[] startedBefore = new boolean[1];
+            rollups.compute(rollupKey, (key, rollup) -> {
+                if (rollup == null) {
+                    if (key.getBucketTs() < startTs) {
+                        startedBefore[0] = true;
+                        return null;
+                    }
+                    rollup = new TsKvRollup(tenantId, granularity == finestGranularity);
+                }
+                if (rollup.add(ts, tsKvEntry, ttl)) {
+                    partialId[0] = rollup.getPartialId();
+                    version[0] = rollup.getVersion();
+                }
+                return rollup;
+            });
+            if (partialId[0] != null) {
+                futures.add(markDirty(tenantId, rollupKey, partialId[0], version[0], ttl));
+            } else if (startedBefore[0] && untracked.add(rollupKey)) {
+                log.trace("[{}][{}] Invalidating the {} rollup that started before the service", entityId, tsKvEntry.getKey(), granularity);
+                futures.add(invalidateOrForget(tenantId, rollupKey, untracked));
+            }
+        }
+        return futures.isEmpty() ? Futures.immediateVoidFuture() :
+                Futures.transform(Futures.allAsList(futures), result -> null, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Returns the largest granularity the [startTs, endTs) interval is aligned to,
+     * or {@code null} if the rollups can't be used for this interval.
+     */
+    public TsRollupGranularity getReadGranularity(long startTs, long endTs) {
+        if (endTs <= startTs || startTs < enabledSinceTs || endTs + readDelayMs > System.currentTimeMillis()) {
+            return null;
+        }
+        for (TsRollupGranularity granularity : granularities) {
+            if (granularity.isAligned(startTs) && granularity.isAligned(endTs)) {
+                return granularity;
+            }
+        }
+        return null;
+    }
+
+    public ListenableFuture<Optional<TsKvEntryAggWrapper>> findAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, TsRollupGranularity granularity,
+                                                                                 Supplier<ListenableFuture<Optional<TsKvEntryAggWrapper>>> fallback) {
+        final Aggregation aggregation = query.getAggregation();
+        final String key = query.getKey();
+        final long startTs = query.getStartTs();
+        final long endTs = query.getEndTs();
+        final long ts = startTs + (endTs - startTs) / 2;
+        PreparedStatement proto = getFetchStmt(aggregation);
+        List<TbResultSetFuture> futures = new ArrayList<>();
+        for (Long partition : granularity.getPartitions(startTs, endTs)) {
+            BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
+            stmtBuilder.setString(0, entityId.getEntityType().name());
+            stmtBuilder.setUuid(1, entityId.getId());
+            stmtBuilder.setString(2, key);
+            stmtBuilder.setString(3, granularity.name());
+            stmtBuilder.setLong(4, partition);
+            stmtBuilder.setLong(5, startTs);
+            stmtBuilder.setLong(6, endTs);
+            var stmt = stmtBuilder.build();
+            log.debug(GENERATED_QUERY_FOR_ENTITY_TYPE_AND_ENTITY_ID, stmt, entityId.getEntityType(), entityId.getId());
+            futures.add(executeAsyncRead(tenantId, stmt));
+        }
+        ListenableFuture<List<List<Row>>> rowsFuture = Futures.transformAsync(Futures.allAsList(futures),
+                rsList -> Futures.allAsList(rsList.stream().map(rs -> rs.allRows(readResultsProcessingExecutor)).collect(Collectors.toList())),
+                readResultsProcessingExecutor);
+        return Futures.transformAsync(rowsFuture, rowsList -> {
+            if (isApplicable(rowsList, aggregation)) {
+                return Futures.immediateFuture(new AggregatePartitionsFunction(aggregation, key, ts, readResultsProcessingExecutor).aggregate(rowsList));
+            } else {
+                log.trace("[{}][{}][{}] Rollups are not applicable for interval {}-{}, using raw data", entityId, key, aggregation, startTs, endTs);
+                return fallback.get();
+            }
+        }, readResultsProcessingExecutor);
+    }
+
+    /**
+     * Removes the rollups of buckets fully covered by the query and marks partially covered buckets invalid,
+     * so that reads of these buckets fall back to the raw data.
+     */
+    public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        long startTs = query.getStartTs();
+        long endTs = query.getEndTs();
+        rollups.keySet().removeIf(rollupKey -> rollupKey.getEntityId().equals(entityId) && rollupKey.getKey().equals(query.getKey())
+                && rollupKey.getBucketTs() < endTs && rollupKey.getBucketTs() + rollupKey.getGranularity().getDurationMs() > startTs);
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (TsRollupGranularity granularity : granularities) {
+            long fullStartTs = granularity.isAligned(startTs) ? startTs : granularity.toBucketTs(startTs) + granularity.getDurationMs();
+            long fullEndTs = granularity.toBucketTs(endTs);
+            if (fullStartTs < fullEndTs) {
+                for (Long partition : granularity.getPartitions(fullStartTs, fullEndTs)) {
+                    futures.add(getFuture(executeAsyncWrite(tenantId, getDeleteStmt().bind(entityId.getEntityType().name(), entityId.getId(),
+                            query.getKey(), granularity.name(), partition, fullStartTs, fullEndTs)), rs -> null));
+                }
+            }
+            Set<Long> partialBuckets = new LinkedHashSet<>();
+            if (!granularity.isAligned(startTs)) {
+                partialBuckets.add(granularity.toBucketTs(startTs));
+            }
+            if (!granularity.isAligned(endTs)) {
+                partialBuckets.add(granularity.toBucketTs(endTs));
+            }
+            for (Long bucketTs : partialBuckets) {
+                futures.add(invalidate(tenantId, new TsRollupKey(entityId, query.getKey(), granularity, bucketTs)));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures), result -> null, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Void> invalidate(TenantId tenantId, EntityId entityId, String key, long ts) {
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (TsRollupGranularity granularity : granularities) {
+            TsRollupKey rollupKey = new TsRollupKey(entityId, key, granularity, granularity.toBucketTs(ts));
+            if (invalidated.add(rollupKey)) {
+                futures.add(invalidateOrForget(tenantId, rollupKey, invalidated));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures), result -> null, MoreExecutors.directExecutor());
+    }
+
+    // Removes the bucket from the set of invalidated ones if the invalidation fails, so the next value retries it
+    private ListenableFuture<Void> invalidateOrForget(TenantId tenantId, TsRollupKey rollupKey, Set<TsRollupKey> invalidatedKeys) {
+        ListenableFuture<Void> future = invalidate(tenantId, rollupKey);
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                invalidatedKeys.remove(rollupKey);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    ListenableFuture<Void> invalidate(TenantId tenantId, TsRollupKey rollupKey) {
+        TsRollupGranularity granularity = rollupKey.getGranularity();
+        return getFuture(executeAsyncWrite(tenantId, getInvalidateStmt().bind(rollupKey.getEntityId().getEntityType().name(), rollupKey.getEntityId().getId(),
+                rollupKey.getKey(), granularity.name(), granularity.toPartitionTs(rollupKey.getBucketTs()), rollupKey.getBucketTs(), ModelConstants.NULL_UUID, true)), rs -> null);
+    }
+
+    ListenableFuture<Void> markDirty(TenantId tenantId, TsRollupKey rollupKey, UUID partialId, long version, long ttl) {
+        try {
+            BoundStatementBuilder stmtBuilder = new BoundStatementBuilder((ttl > 0 ? getMarkDirtyTtlStmt() : getMarkDirtyStmt()).bind());
+            bindKey(stmtBuilder, rollupKey, partialId).setLong(7, version);
+            if (ttl > 0) {
+                stmtBuilder.setInt(8, (int) ttl);
+            }
+            return getFuture(executeAsyncWrite(tenantId, stmtBuilder.build()), rs -> null);
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    private boolean isClosed(TsRollupKey rollupKey, long now) {
+        return rollupKey.getBucketTs() + rollupKey.getGranularity().getDurationMs() + readDelayMs <= now;
+    }
+
+    private void initEnabledSinceTs() {
+        if (enabledSinceTs != Long.MAX_VALUE) {
+            return;
+        }
+        try {
+            enabledSinceTs = loadEnabledSinceTs(startTs);
+            log.info("Time-series rollups are used for intervals since {}", enabledSinceTs);
+        } catch (Exception e) {
+            log.warn("Failed to load the time the rollups were enabled, using raw data until the next flush", e);
+        }
+    }
+
+    /**
+     * Returns the persisted time the rollups were enabled, or persists the given time if the rollups are enabled for the first time.
+     */
+    long loadEnabledSinceTs(long ts) {
+        Row row = executeRead(TenantId.SYS_TENANT_ID, getFindEnabledSinceStmt().bind(ENABLED_SINCE_ENTITY_TYPE, ModelConstants.NULL_UUID,
+                ENABLED_SINCE_KEY, finestGranularity.name(), 0L)).one();
+        if (row != null) {
+            return row.getLong(0);
+        }
+        executeWrite(TenantId.SYS_TENANT_ID, getSaveEnabledSinceStmt().bind(ENABLED_SINCE_ENTITY_TYPE, ModelConstants.NULL_UUID,
+                ENABLED_SINCE_KEY, finestGranularity.name(), 0L, ts, ModelConstants.NULL_UUID));
+        return ts;
+    }
+
+    public void flush() {
+        initEnabledSinceTs();
+        long now = System.currentTimeMillis();
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        int evicted = 0;
+        for (TsRollupKey rollupKey : rollups.keySet()) {
+            TsKvRollup[] snapshot = new TsKvRollup[1];
+            boolean[] evict = new boolean[1];
+            rollups.computeIfPresent(rollupKey, (key, rollup) -> {
+                if (rollup.isDirty()) {
+                    snapshot[0] = rollup.copy();
+                    rollup.setDirty(false);
+                } else if (isClosed(key, now)) {
+                    evict[0] = true;
+                    return null;
+                }
+                return rollup;
+            });
+            if (snapshot[0] != null) {
+                futures.add(saveOrRetry(rollupKey, snapshot[0]));
+            } else if (evict[0]) {
+                evicted++;
+            }
+        }
+        if (!futures.isEmpty()) {
+            try {
+                Futures.successfulAsList(futures).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.warn("Failed to flush time-series rollups", e);
+            }
+        }
+        invalidated.clear();
+        untracked.removeIf(rollupKey -> isClosed(rollupKey, now));
+        log.debug("Flushed {} time-series rollups, evicted {}, in memory {}", futures.size(), evicted, rollups.size());
+    }
+
+    ListenableFuture<Void> save(TsRollupKey rollupKey, TsKvRollup rollup) {
+        long ttl = rollup.getTtl();
+        BoundStatementBuilder stmtBuilder = new BoundStatementBuilder((ttl > 0 ? getSaveTtlStmt() : getSaveStmt()).bind());
+        bindKey(stmtBuilder, rollupKey, rollup.getPartialId())
+                .setLong(7, rollup.getLongCount())
+                .setLong(8, rollup.getLongSum())
+                .setLong(11, rollup.getDoubleCount())
+                .setDouble(12, rollup.getDoubleSum())
+                .setLong(15, rollup.getBoolCount())
+                .setLong(16, rollup.getStrCount())
+                .setLong(17, rollup.getJsonCount())
+                .setLong(18, rollup.getMaxTs())
+                .setLong(19, rollup.getVersion());
+        // min and max values are left unset instead of null to avoid tombstones
+        if (rollup.getLongMin() != null) {
+            stmtBuilder.setLong(9, rollup.getLongMin()).setLong(10, rollup.getLongMax());
+        }
+        if (rollup.getDoubleMin() != null) {
+            stmtBuilder.setDouble(13, rollup.getDoubleMin()).setDouble(14, rollup.getDoubleMax());
+        }
+        if (ttl > 0) {
+            stmtBuilder.setInt(20, (int) ttl);
+        }
+        return getFuture(executeAsyncWrite(rollup.getTenantId(), stmtBuilder.build()), rs -> null);
+    }
+
+    private static BoundStatementBuilder bindKey(BoundStatementBuilder stmtBuilder, TsRollupKey rollupKey, UUID partialId) {
+        return stmtBuilder.setString(0, rollupKey.getEntityId().getEntityType().name())
+                .setUuid(1, rollupKey.getEntityId().getId())
+                .setString(2, rollupKey.getKey())
+                .setString(3, rollupKey.getGranularity().name())
+                .setLong(4, rollupKey.getGranularity().toPartitionTs(rollupKey.getBucketTs()))
+                .setLong(5, rollupKey.getBucketTs())
+                .setUuid(6, partialId);
+    }
+
+    private ListenableFuture<Void> saveOrRetry(TsRollupKey rollupKey, TsKvRollup rollup) {
+        ListenableFuture<Void> future;
+        try {
+            future = save(rollupKey, rollup);
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}] Failed to save rollup, will retry on next flush", rollupKey, t);
+                rollups.computeIfPresent(rollupKey, (key, current) -> {
+                    if (current.getPartialId().equals(rollup.getPartialId())) {
+                        current.setDirty(true);
+                    }
+                    return current;
+                });
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private boolean isApplicable(List<List<Row>> rowsList, Aggregation aggregation) {
+        boolean hasData = false;
+        for (List<Row> rows : rowsList) {
+            for (Row row : rows) {
+                if (row.getBoolean(INVALID_POS) || row.getLong(DIRTY_VERSION_POS) > row.getLong(FLUSHED_VERSION_POS)) {
+                    return false;
+                }
+                boolean hasNumeric = row.getLong(LONG_CNT_POS) > 0 || row.getLong(DOUBLE_CNT_POS) > 0;
+                boolean hasOther = row.getLong(BOOL_CNT_POS) > 0 || row.getLong(STR_CNT_POS) > 0 || row.getLong(JSON_CNT_POS) > 0;
+                if (!hasNumeric && hasOther && aggregation != Aggregation.COUNT) {
+                    return false;
+                }
+                hasData = true;
+            }
+        }
+        return hasData;
+    }
+
+    private PreparedStatement getFetchStmt(Aggregation aggregation) {
+        if (fetchStmts == null) {
+            stmtCreationLock.lock();
+            try {
+                if (fetchStmts == null) {
+                    var stmts = new PreparedStatement[Aggregation.values().length];
+                    for (Aggregation type : Aggregation.values()) {
+                        String valueColumns;
+                        switch (type) {
+                            case MIN:
+                                valueColumns = "long_min, dbl_min";
+                                break;
+                            case MAX:
+                                valueColumns = "long_max, dbl_max";
+                                break;
+                            default:
+                                valueColumns = "long_sum, dbl_sum";
+                        }
+                        stmts[type.ordinal()] = prepare(SELECT_PREFIX + "long_cnt, dbl_cnt, bool_cnt, str_cnt, json_cnt, max_ts, "
+                                + valueColumns + ", " + INVALID_COLUMN + ", " + DIRTY_VERSION_COLUMN + ", " + FLUSHED_VERSION_COLUMN
+                                + " FROM " + ModelConstants.TS_KV_ROLLUP_CF
+                                + " WHERE " + ModelConstants.ENTITY_TYPE_COLUMN + EQUALS_PARAM
+                                + "AND " + ModelConstants.ENTITY_ID_COLUMN + EQUALS_PARAM
+                                + "AND " + ModelConstants.KEY_COLUMN + EQUALS_PARAM
+                                + "AND " + GRANULARITY_COLUMN + EQUALS_PARAM
+                                + "AND " + ModelConstants.PARTITION_COLUMN + EQUALS_PARAM
+                                + "AND " + ModelConstants.TS_COLUMN + " >= ? "
+                                + "AND " + ModelConstants.TS_COLUMN + " < ?");
+                    }
+                    fetchStmts = stmts;
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return fetchStmts[aggregation.ordinal()];
+    }
+
+    private PreparedStatement getSaveStmt() {
+        if (saveStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (saveStmt == null) {
+                    saveStmt = prepare(getSaveQuery());
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return saveStmt;
+    }
+
+    private PreparedStatement getSaveTtlStmt() {
+        if (saveTtlStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (saveTtlStmt == null) {
+                    saveTtlStmt = prepare(getSaveQuery() + " USING TTL ?");
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return saveTtlStmt;
+    }
+
+    private PreparedStatement getMarkDirtyStmt() {
+        if (markDirtyStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (markDirtyStmt == null) {
+                    markDirtyStmt = prepare(getMarkDirtyQuery());
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return markDirtyStmt;
+    }
+
+    private PreparedStatement getMarkDirtyTtlStmt() {
+        if (markDirtyTtlStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (markDirtyTtlStmt == null) {
+                    markDirtyTtlStmt = prepare(getMarkDirtyQuery() + " USING TTL ?");
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return markDirtyTtlStmt;
+    }
+
+    private PreparedStatement getInvalidateStmt() {
+        if (invalidateStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (invalidateStmt == null) {
+                    invalidateStmt = prepare(INSERT_INTO + ModelConstants.TS_KV_ROLLUP_CF +
+                            "(" + getKeyColumns() + "," + INVALID_COLUMN + ")" +
+                            " VALUES(?, ?, ?, ?, ?, ?, ?, ?)");
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return invalidateStmt;
+    }
+
+    private PreparedStatement getDeleteStmt() {
+        if (deleteStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (deleteStmt == null) {
+                    deleteStmt = prepare("DELETE FROM " + ModelConstants.TS_KV_ROLLUP_CF +
+                            " WHERE " + ModelConstants.ENTITY_TYPE_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.ENTITY_ID_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.KEY_COLUMN + EQUALS_PARAM
+                            + "AND " + GRANULARITY_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.PARTITION_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.TS_COLUMN + " >= ? "
+                            + "AND " + ModelConstants.TS_COLUMN + " < ?");
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return deleteStmt;
+    }
+
+    private PreparedStatement getFindEnabledSinceStmt() {
+        if (findEnabledSinceStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (findEnabledSinceStmt == null) {
+                    findEnabledSinceStmt = prepare(SELECT_PREFIX + ModelConstants.TS_COLUMN
+                            + " FROM " + ModelConstants.TS_KV_ROLLUP_CF
+                            + " WHERE " + ModelConstants.ENTITY_TYPE_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.ENTITY_ID_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.KEY_COLUMN + EQUALS_PARAM
+                            + "AND " + GRANULARITY_COLUMN + EQUALS_PARAM
+                            + "AND " + ModelConstants.PARTITION_COLUMN + EQUALS_PARAM
+                            + "LIMIT 1");
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return findEnabledSinceStmt;
+    }
+
+    private PreparedStatement getSaveEnabledSinceStmt() {
+        if (saveEnabledSinceStmt == null) {
+            stmtCreationLock.lock();
+            try {
+                if (saveEnabledSinceStmt == null) {
+                    saveEnabledSinceStmt = prepare(INSERT_INTO + ModelConstants.TS_KV_ROLLUP_CF +
+                            "(" + getKeyColumns() + ")" +
+                            " VALUES(?, ?, ?, ?, ?, ?, ?)");
+                }
+            } finally {
+                stmtCreationLock.unlock();
+            }
+        }
+        return saveEnabledSinceStmt;
+    }
+
+    private static String getSaveQuery() {
+        return INSERT_INTO + ModelConstants.TS_KV_ROLLUP_CF +
+                "(" + getKeyColumns() + "," + String.join(",", ROLLUP_VALUE_COLUMNS) + ")" +
+                " VALUES(" + String.join(", ", Collections.nCopies(7 + ROLLUP_VALUE_COLUMNS.length, "?")) + ")";
+    }
+
+    private static String getMarkDirtyQuery() {
+        return INSERT_INTO + ModelConstants.TS_KV_ROLLUP_CF +
+                "(" + getKeyColumns() + "," + DIRTY_VERSION_COLUMN + ")" +
+                " VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    private static String getKeyColumns() {
+        return ModelConstants.ENTITY_TYPE_COLUMN +
+                "," + ModelConstants.ENTITY_ID_COLUMN +
+                "," + ModelConstants.KEY_COLUMN +
+                "," + GRANULARITY_COLUMN +
+                "," + ModelConstants.PARTITION_COLUMN +
+                "," + ModelConstants.TS_COLUMN +
+                "," + PARTIAL_ID_COLUMN;
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.KvEntry;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Partial rollup of a single bucket accumulated by this service.
+ * Each instance is persisted as a separate row identified by {@link #partialId}, so partials written
+ * by different services, or after the previous partial was evicted, are merged on read.
+ */
+@Getter
+public class TsKvRollup {
+
+    private final TenantId tenantId;
+    private final UUID partialId;
+
+    private long longCount;
+    private long longSum;
+    private Long longMin;
+    private Long longMax;
+    private long doubleCount;
+    private double doubleSum;
+    private Double doubleMin;
+    private Double doubleMax;
+    private long boolCount;
+    private long strCount;
+    private long jsonCount;
+    private long maxTs;
+    /**
+     * TTL of the rollup row in seconds: the longest TTL of accumulated values, 0 if any value never expires.
+     */
+    private long ttl = -1;
+    private boolean dirty;
+    /**
+     * Incremented when the saved rollup gets new values. The row is valid only if it was saved with the version
+     * written to its dirty marker, so a row that misses the values accumulated before a crash falls back to the raw data.
+     */
+    private long version;
+    /**
+     * Timestamps of the accumulated values, tracked to detect the rewrites of the same timestamp. {@code null} if not tracked.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<Long> timestamps;
+
+    public TsKvRollup(TenantId tenantId) {
+        this(tenantId, false);
+    }
+
+    public TsKvRollup(TenantId tenantId, boolean trackTimestamps) {
+        this(tenantId, UUID.randomUUID(), trackTimestamps ? new HashSet<>() : null);
+    }
+
+    private TsKvRollup(TenantId tenantId, UUID partialId, Set<Long> timestamps) {
+        this.tenantId = tenantId;
+        this.partialId = partialId;
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Returns {@code false} if the value with the same timestamp was already accumulated.
+     */
+    public boolean addTimestamp(long ts) {
+        return timestamps == null || timestamps.add(ts);
+    }
+
+    /**
+     * Returns {@code true} if the rollup was changed after it was saved, so the new version has to be marked dirty.
+     */
+    public boolean add(long ts, KvEntry entry, long ttl) {
+        switch (entry.getDataType()) {
+            case LONG:
+                if (entry.getLongValue().isEmpty()) {
+                    return false;
+                }
+                long l = entry.getLongValue().get();
+                longCount++;
+                longSum += l;
+                longMin = longMin == null ? l : Math.min(longMin, l);
+                longMax = longMax == null ? l : Math.max(longMax, l);
+                break;
+            case DOUBLE:
+                if (entry.getDoubleValue().isEmpty()) {
+                    return false;
+                }
+                double d = entry.getDoubleValue().get();
+                doubleCount++;
+                doubleSum += d;
+                doubleMin = doubleMin == null ? d : Math.min(doubleMin, d);
+                doubleMax = doubleMax == null ? d : Math.max(doubleMax, d);
+                break;
+            case BOOLEAN:
+                if (entry.getBooleanValue().isEmpty()) {
+                    return false;
+                }
+                boolCount++;
+                break;
+            case STRING:
+                if (entry.getStrValue().isEmpty()) {
+                    return false;
+                }
+                strCount++;
+                break;
+            case JSON:
+                if (entry.getJsonValue().isEmpty()) {
+                    return false;
+                }
+                jsonCount++;
+                break;
+            default:
+                return false;
+        }
+        maxTs = Math.max(maxTs, ts);
+        if (this.ttl != 0) {
+            this.ttl = ttl == 0 ? 0 : Math.max(this.ttl, ttl);
+        }
+        if (dirty) {
+            return false;
+        }
+        dirty = true;
+        version++;
+        return true;
+    }
+
+    public TsKvRollup copy() {
+        TsKvRollup copy = new TsKvRollup(tenantId, partialId, null);
+        copy.longCount = longCount;
+        copy.longSum = longSum;
+        copy.longMin = longMin;
+        copy.longMax = longMax;
+        copy.doubleCount = doubleCount;
+        copy.doubleSum = doubleSum;
+        copy.doubleMin = doubleMin;
+        copy.doubleMax = doubleMax;
+        copy.boolCount = boolCount;
+        copy.strCount = strCount;
+        copy.jsonCount = jsonCount;
+        copy.maxTs = maxTs;
+        copy.ttl = ttl;
+        copy.version = version;
+        return copy;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+}
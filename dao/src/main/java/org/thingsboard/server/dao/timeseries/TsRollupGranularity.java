@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bucket sizes of the time-series rollups stored in the {@code ts_kv_rollup_cf} table.
+ * Buckets are aligned to UTC and grouped into partitions that hold a bounded number of buckets.
+ */
+public enum TsRollupGranularity {
+
+    MINUTE(TimeUnit.MINUTES.toMillis(1), NoSqlTsPartitionDate.MONTHS),
+    HOUR(TimeUnit.HOURS.toMillis(1), NoSqlTsPartitionDate.YEARS),
+    DAY(TimeUnit.DAYS.toMillis(1), NoSqlTsPartitionDate.INDEFINITE);
+
+    @Getter
+    private final long durationMs;
+    private final NoSqlTsPartitionDate partitioning;
+
+    TsRollupGranularity(long durationMs, NoSqlTsPartitionDate partitioning) {
+        this.durationMs = durationMs;
+        this.partitioning = partitioning;
+    }
+
+    public long toBucketTs(long ts) {
+        return Math.floorDiv(ts, durationMs) * durationMs;
+    }
+
+    public boolean isAligned(long ts) {
+        return Math.floorMod(ts, durationMs) == 0;
+    }
+
+    public long toPartitionTs(long ts) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), ZoneOffset.UTC);
+        return partitioning.truncatedTo(time).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Returns partitions that may contain buckets starting in the [startTs, endTs) interval.
+     */
+    public List<Long> getPartitions(long startTs, long endTs) {
+        long minPartition = toPartitionTs(startTs);
+        long maxPartition = toPartitionTs(Math.max(startTs, endTs - 1));
+        List<Long> partitions = new ArrayList<>();
+        partitions.add(minPartition);
+        if (minPartition != maxPartition) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(minPartition), ZoneOffset.UTC);
+            long partition = minPartition;
+            while (partition < maxPartition) {
+                time = time.plus(1, partitioning.getTruncateUnit());
+                partition = time.toInstant(ZoneOffset.UTC).toEpochMilli();
+                partitions.add(partition);
+            }
+        }
+        return partitions;
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.thingsboard.server.cache.limits.RateLimitLease;
+import org.thingsboard.server.cache.limits.RedisRateLimitTokenStore;
+import org.thingsboard.server.dao.AbstractRedisContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RedisRateLimitTokenStoreTest extends AbstractRedisContainer {
+
+    private JedisConnectionFactory connectionFactory;
+    private RedisRateLimitTokenStore tokenStore;
+    private String key;
+
+    @Before
+    public void before() {
+        connectionFactory = new JedisConnectionFactory(new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        tokenStore = new RedisRateLimitTokenStore(connectionFactory, 1000);
+        key = UUID.randomUUID().toString();
+        awaitStartOfSecond();
+    }
+
+    @After
+    public void after() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    public void testPartialGrant() {
+        assertThat(tokenStore.lease(key, "3:3600", 2)).isEqualTo(RateLimitLease.granted(2));
+        assertThat(tokenStore.lease(key, "3:3600", 2)).isEqualTo(RateLimitLease.granted(1));
+
+        RateLimitLease lease = tokenStore.lease(key, "3:3600", 2);
+        assertThat(lease.isExhausted()).isTrue();
+        assertThat(lease.retryAfterMs()).isBetween(1L, 3600_000L);
+    }
+
+    @Test
+    public void testLeaseIsLimitedByAllBandwidths() {
+        String configuration = "5:1,8:3600";
+        assertThat(tokenStore.lease(key, configuration, 10)).isEqualTo(RateLimitLease.granted(5));
+
+        RateLimitLease lease = tokenStore.lease(key, configuration, 10);
+        assertThat(lease.isExhausted()).isTrue();
+        assertThat(lease.retryAfterMs()).isBetween(1L, 1000L);
+
+        sleep(lease.retryAfterMs());
+        assertThat(tokenStore.lease(key, configuration, 10)).isEqualTo(RateLimitLease.granted(3));
+
+        lease = tokenStore.lease(key, configuration, 10);
+        assertThat(lease.isExhausted()).isTrue();
+        assertThat(lease.retryAfterMs()).isGreaterThan(1000L);
+    }
+
+    @Test
+    public void testWindowRolloverAndExpiry() {
+        String configuration = "2:1,100:3600";
+        assertThat(tokenStore.lease(key, configuration, 2)).isEqualTo(RateLimitLease.granted(2));
+        assertThat(getWindowTtls()).hasSize(2).allSatisfy(ttl -> assertThat(ttl).isBetween(1L, 3600_000L));
+        assertThat(getWindowTtls()).anySatisfy(ttl -> assertThat(ttl).isLessThanOrEqualTo(1000L));
+
+        RateLimitLease lease = tokenStore.lease(key, configuration, 2);
+        assertThat(lease.isExhausted()).isTrue();
+
+        sleep(lease.retryAfterMs());
+        assertThat(tokenStore.lease(key, configuration, 2)).isEqualTo(RateLimitLease.granted(2));
+
+        sleep(2000);
+        // the exhausted one second windows have expired, only the hour window is left
+        assertThat(getWindowTtls()).hasSize(1);
+    }
+
+    private List<Long> getWindowTtls() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Set<byte[]> windows = connection.keyCommands().keys(("{rateLimits::" + key + "}*").getBytes(StandardCharsets.UTF_8));
+            return windows.stream().map(window -> connection.keyCommands().pTtl(window)).toList();
+        }
+    }
+
+    // The windows are aligned to the period, so the test starts at the beginning of a second not to cross its end
+    private static void awaitStartOfSecond() {
+        sleep(1000 - System.currentTimeMillis() % 1000);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
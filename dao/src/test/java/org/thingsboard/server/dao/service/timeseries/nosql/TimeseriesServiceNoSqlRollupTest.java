@@ -0,0 +1,188 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.nosql;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.Futures;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntryAggWrapper;
+import org.thingsboard.server.dao.service.DaoNoSqlTest;
+import org.thingsboard.server.dao.service.timeseries.BaseTimeseriesServiceTest;
+import org.thingsboard.server.dao.timeseries.CassandraBaseTimeseriesDao;
+import org.thingsboard.server.dao.timeseries.CassandraTsRollupDao;
+import org.thingsboard.server.dao.timeseries.TsRollupGranularity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DaoNoSqlTest
+@TestPropertySource(properties = {
+        "cassandra.query.ts_rollups_enabled=true",
+        "cassandra.query.ts_rollups_flush_interval_ms=3600000"
+})
+public class TimeseriesServiceNoSqlRollupTest extends BaseTimeseriesServiceTest {
+
+    private static final String KEY = "rollupKey";
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Autowired
+    private CassandraTsRollupDao rollupDao;
+
+    @Autowired
+    private CassandraBaseTimeseriesDao timeseriesDao;
+
+    private long hourStart;
+
+    @Before
+    public void beforeRollupTest() {
+        hourStart = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(2);
+        // Accept the values of the buckets in the past as if they were written in time
+        ReflectionTestUtils.setField(rollupDao, "startTs", 0L);
+        ReflectionTestUtils.setField(rollupDao, "enabledSinceTs", 0L);
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", TimeUnit.DAYS.toMillis(10));
+    }
+
+    @Test
+    public void testAggregationIsReadFromFlushedRollups() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        save(deviceId, hourStart + 1000, 5L);
+        save(deviceId, hourStart + TimeUnit.MINUTES.toMillis(10), -3L);
+        save(deviceId, hourStart + TimeUnit.MINUTES.toMillis(59), 10L);
+        rollupDao.flush();
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", 0L);
+
+        assertThat(findRollup(deviceId, Aggregation.SUM)).flatMap(TsKvEntry::getLongValue).contains(12L);
+        assertThat(findRollup(deviceId, Aggregation.MIN)).flatMap(TsKvEntry::getLongValue).contains(-3L);
+        assertThat(findRollup(deviceId, Aggregation.MAX)).flatMap(TsKvEntry::getLongValue).contains(10L);
+        assertThat(findRollup(deviceId, Aggregation.COUNT)).flatMap(TsKvEntry::getLongValue).contains(3L);
+        assertThat(findAggregated(deviceId, Aggregation.AVG).getDoubleValue()).contains(4.0);
+    }
+
+    @Test
+    public void testValuesNotFlushedBeforeRestartFallBackToRawData() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        save(deviceId, hourStart + 1000, 5L);
+        rollupDao.flush();
+        save(deviceId, hourStart + 2000, 7L);
+        // The accumulated value is lost without the flush
+        ((Map<?, ?>) ReflectionTestUtils.getField(rollupDao, "rollups")).clear();
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", 0L);
+
+        assertThat(findRollup(deviceId, Aggregation.SUM)).isEmpty();
+        assertThat(findAggregated(deviceId, Aggregation.SUM).getLongValue()).contains(12L);
+    }
+
+    @Test
+    public void testRewrittenValueIsNotCountedTwice() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        save(deviceId, hourStart + 1000, 5L);
+        save(deviceId, hourStart + 2000, 7L);
+        rollupDao.flush();
+        save(deviceId, hourStart + 2000, 8L);
+        rollupDao.flush();
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", 0L);
+
+        assertThat(findRollup(deviceId, Aggregation.SUM)).isEmpty();
+        assertThat(findAggregated(deviceId, Aggregation.SUM).getLongValue()).contains(13L);
+        assertThat(findAggregated(deviceId, Aggregation.COUNT).getLongValue()).contains(2L);
+    }
+
+    @Test
+    public void testLateValueInvalidatesRollups() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        save(deviceId, hourStart + 1000, 5L);
+        rollupDao.flush();
+        // The bucket is closed, so the value may rewrite the one that is already counted
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", 0L);
+        ((Map<?, ?>) ReflectionTestUtils.getField(rollupDao, "rollups")).clear();
+        save(deviceId, hourStart + 2000, 7L);
+
+        assertThat(findRollup(deviceId, Aggregation.SUM)).isEmpty();
+        assertThat(findAggregated(deviceId, Aggregation.SUM).getLongValue()).contains(12L);
+    }
+
+    @Test
+    public void testValuesSavedBeforeRollupsWereEnabledAreRead() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        long hour = hourStart + 10 * HOUR;
+        // The value is saved while the rollups are disabled
+        ReflectionTestUtils.setField(timeseriesDao, "rollupDao", null);
+        try {
+            save(deviceId, hour + TimeUnit.MINUTES.toMillis(10), 5L);
+        } finally {
+            ReflectionTestUtils.setField(timeseriesDao, "rollupDao", rollupDao);
+        }
+        long enabledTs = hour + TimeUnit.MINUTES.toMillis(30);
+        ReflectionTestUtils.setField(rollupDao, "startTs", enabledTs);
+        ReflectionTestUtils.setField(rollupDao, "enabledSinceTs", enabledTs);
+        save(deviceId, hour + TimeUnit.MINUTES.toMillis(45), 7L);
+        rollupDao.flush();
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", 0L);
+
+        assertThat(findAggregated(deviceId, hour, hour + HOUR, Aggregation.SUM).getLongValue()).contains(12L);
+        long dayStart = TsRollupGranularity.DAY.toBucketTs(hour);
+        assertThat(findAggregated(deviceId, dayStart, dayStart + TimeUnit.DAYS.toMillis(1), Aggregation.SUM).getLongValue()).contains(12L);
+
+        // Even if the rollups were enabled earlier, the buckets that started before the service are not used
+        ReflectionTestUtils.setField(rollupDao, "enabledSinceTs", 0L);
+        assertThat(findRollup(deviceId, hour, Aggregation.SUM)).isEmpty();
+        assertThat(findAggregated(deviceId, dayStart, dayStart + TimeUnit.DAYS.toMillis(1), Aggregation.SUM).getLongValue()).contains(12L);
+    }
+
+    private void save(DeviceId deviceId, long ts, long value) throws Exception {
+        tsService.save(tenantId, deviceId, List.of(new BasicTsKvEntry(ts, new LongDataEntry(KEY, value))), 0)
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private Optional<TsKvEntry> findRollup(DeviceId deviceId, Aggregation aggregation) throws Exception {
+        return findRollup(deviceId, hourStart, aggregation);
+    }
+
+    private Optional<TsKvEntry> findRollup(DeviceId deviceId, long hourStart, Aggregation aggregation) throws Exception {
+        ReadTsKvQuery query = new BaseReadTsKvQuery(KEY, hourStart, hourStart + HOUR, HOUR, 1, aggregation);
+        assertThat(rollupDao.getReadGranularity(query.getStartTs(), query.getEndTs())).isEqualTo(TsRollupGranularity.HOUR);
+        return rollupDao.findAndAggregateAsync(tenantId, deviceId, query, TsRollupGranularity.HOUR, () -> Futures.immediateFuture(Optional.empty()))
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS).map(TsKvEntryAggWrapper::getEntry);
+    }
+
+    private TsKvEntry findAggregated(DeviceId deviceId, Aggregation aggregation) throws Exception {
+        return findAggregated(deviceId, hourStart, hourStart + HOUR, aggregation);
+    }
+
+    private TsKvEntry findAggregated(DeviceId deviceId, long startTs, long endTs, Aggregation aggregation) throws Exception {
+        List<TsKvEntry> result = tsService.findAll(tenantId, deviceId, Collections.singletonList(
+                new BaseReadTsKvQuery(KEY, startTs, endTs, endTs - startTs, 1, aggregation))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        assertThat(result).hasSize(1);
+        return result.get(0);
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.sql;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.service.timeseries.BaseTimeseriesServiceTest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DaoSqlTest
+@TestPropertySource(properties = {
+        "sql.ts.insert_mode=copy",
+        "sql.ts_latest.insert_mode=copy",
+        "sql.ts_latest.update_by_latest_ts=true"
+})
+public class TimeseriesServiceSqlCopyInsertTest extends BaseTimeseriesServiceTest {
+
+    private static final String KEY = "copyKey";
+
+    @Test
+    public void testCopyValuesOfEachType() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        List<TsKvEntry> entries = List.of(
+                new BasicTsKvEntry(1000, new BooleanDataEntry(KEY, false)),
+                new BasicTsKvEntry(2000, new StringDataEntry(KEY, "text\u0000with null char")),
+                new BasicTsKvEntry(3000, new LongDataEntry(KEY, Long.MIN_VALUE)),
+                new BasicTsKvEntry(4000, new DoubleDataEntry(KEY, -0.5)),
+                new BasicTsKvEntry(5000, new JsonDataEntry(KEY, "{\"test\":[1,2,3]}")));
+        tsService.save(tenantId, deviceId, entries, 0).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        List<TsKvEntry> saved = findAll(deviceId);
+        assertThat(saved).hasSize(5);
+        assertThat(saved.get(0).getBooleanValue()).contains(false);
+        assertThat(saved.get(1).getStrValue()).contains("textwith null char");
+        assertThat(saved.get(2).getLongValue()).contains(Long.MIN_VALUE);
+        assertThat(saved.get(3).getDoubleValue()).contains(-0.5);
+        assertThat(saved.get(4).getJsonValue()).contains("{\"test\":[1,2,3]}");
+
+        TsKvEntry latest = tsService.findLatest(tenantId, deviceId, KEY).get(MAX_TIMEOUT, TimeUnit.SECONDS).orElseThrow();
+        assertThat(latest.getTs()).isEqualTo(5000);
+        assertThat(latest.getJsonValue()).contains("{\"test\":[1,2,3]}");
+    }
+
+    @Test
+    public void testCopyOverwritesValueOfAnotherTypeWithNulls() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        tsService.save(tenantId, deviceId, List.of(new BasicTsKvEntry(1000, new DoubleDataEntry(KEY, 20.5))), 0)
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        tsService.save(tenantId, deviceId, List.of(new BasicTsKvEntry(1000, new LongDataEntry(KEY, 21L))), 0)
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        List<TsKvEntry> saved = findAll(deviceId);
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).getLongValue()).contains(21L);
+        assertThat(saved.get(0).getDoubleValue()).isEmpty();
+
+        TsKvEntry latest = tsService.findLatest(tenantId, deviceId, KEY).get(MAX_TIMEOUT, TimeUnit.SECONDS).orElseThrow();
+        assertThat(latest.getLongValue()).contains(21L);
+        assertThat(latest.getDoubleValue()).isEmpty();
+    }
+
+    @Test
+    public void testCopyDuplicatesInOneBatchKeepLastEntry() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        List<TsKvEntry> entries = List.of(
+                new BasicTsKvEntry(1000, new LongDataEntry(KEY, 1L)),
+                new BasicTsKvEntry(1000, new DoubleDataEntry(KEY, 2.5)),
+                new BasicTsKvEntry(1000, new LongDataEntry(KEY, 3L)));
+        tsService.save(tenantId, deviceId, entries, 0).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        List<TsKvEntry> saved = findAll(deviceId);
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).getLongValue()).contains(3L);
+        assertThat(saved.get(0).getDoubleValue()).isEmpty();
+
+        TsKvEntry latest = tsService.findLatest(tenantId, deviceId, KEY).get(MAX_TIMEOUT, TimeUnit.SECONDS).orElseThrow();
+        assertThat(latest.getLongValue()).contains(3L);
+    }
+
+    @Test
+    public void testCopyUpdatesLatestByLatestTs() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        // The newest entry of the batch wins even if it isn't the last one
+        tsService.save(tenantId, deviceId, List.of(
+                new BasicTsKvEntry(2000, new LongDataEntry(KEY, 2L)),
+                new BasicTsKvEntry(1000, new LongDataEntry(KEY, 1L))), 0).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        assertLatest(deviceId, 2000, 2L);
+
+        // The older entry of the next batch doesn't overwrite the latest value
+        tsService.save(tenantId, deviceId, List.of(new BasicTsKvEntry(1500, new LongDataEntry(KEY, 15L))), 0)
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        assertLatest(deviceId, 2000, 2L);
+
+        // The entry with the same timestamp updates the latest value
+        tsService.save(tenantId, deviceId, List.of(new BasicTsKvEntry(2000, new LongDataEntry(KEY, 20L))), 0)
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        assertLatest(deviceId, 2000, 20L);
+
+        tsService.save(tenantId, deviceId, List.of(new BasicTsKvEntry(3000, new LongDataEntry(KEY, 3L))), 0)
+                .get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        assertLatest(deviceId, 3000, 3L);
+
+        assertThat(findAll(deviceId)).hasSize(4);
+    }
+
+    private void assertLatest(DeviceId deviceId, long ts, long value) throws Exception {
+        Optional<TsKvEntry> latest = tsService.findLatest(tenantId, deviceId, KEY).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        assertThat(latest).isPresent();
+        assertThat(latest.get().getTs()).isEqualTo(ts);
+        assertThat(latest.get().getLongValue()).contains(value);
+    }
+
+    private List<TsKvEntry> findAll(DeviceId deviceId) throws Exception {
+        return tsService.findAll(tenantId, deviceId, Collections.singletonList(new BaseReadTsKvQuery(KEY, 0L,
+                TimeUnit.MINUTES.toMillis(1), 1000, 100, Aggregation.NONE, "ASC"))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.DefaultMessagesStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TbSqlBlockingQueueWrapperTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ScheduledLogExecutorComponent logExecutor;
+    private StatsFactory statsFactory;
+    private TbSqlBlockingQueueWrapper<Entry> queue;
+
+    @BeforeEach
+    void setUp() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createMessagesStats(anyString())).thenAnswer(inv -> {
+            String key = inv.getArgument(0);
+            return new DefaultMessagesStats(counter(key + ".total"), counter(key + ".successful"), counter(key + ".failed"));
+        });
+        when(statsFactory.createGauge(anyString(), any(), any(String[].class))).thenAnswer(inv -> inv.getArgument(1));
+        when(statsFactory.createTimer(anyString(), any(String[].class))).thenAnswer(inv -> meterRegistry.timer(inv.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        logExecutor.stop();
+    }
+
+    @Test
+    void testParallelFlushPreservesOrderPerEntity() throws Exception {
+        Map<Integer, List<Integer>> saved = new ConcurrentHashMap<>();
+        queue = createQueue(1000, 10, 4, 2, entries -> {
+            for (Entry entry : entries) {
+                saved.computeIfAbsent(entry.entityId(), id -> new CopyOnWriteArrayList<>()).add(entry.seq());
+            }
+        });
+
+        int entities = 50;
+        int perEntity = 200;
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (int seq = 0; seq < perEntity; seq++) {
+            for (int entityId = 0; entityId < entities; entityId++) {
+                futures.add(queue.add(new Entry(entityId, seq)));
+            }
+        }
+        Futures.allAsList(futures).get(30, TimeUnit.SECONDS);
+
+        assertThat(saved).hasSize(entities);
+        saved.values().forEach(seqs -> assertThat(seqs).hasSize(perEntity).isSorted());
+        assertThat(meterRegistry.timer("sql_queue_flush_time").count()).isPositive();
+    }
+
+    @Test
+    void testAdaptiveBatchSizeGrowsUnderBacklog() throws Exception {
+        CountDownLatch firstFlush = new CountDownLatch(1);
+        CountDownLatch backlogCreated = new CountDownLatch(1);
+        AtomicInteger maxBatchSize = new AtomicInteger();
+        queue = createQueue(1000, 10, 1, 1, entries -> {
+            maxBatchSize.accumulateAndGet(entries.size(), Math::max);
+            firstFlush.countDown();
+            try {
+                backlogCreated.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        futures.add(queue.add(new Entry(0, 0)));
+        assertThat(firstFlush.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int seq = 1; seq < 5000; seq++) {
+            futures.add(queue.add(new Entry(0, seq)));
+        }
+        backlogCreated.countDown();
+        Futures.allAsList(futures).get(30, TimeUnit.SECONDS);
+
+        assertThat(maxBatchSize.get()).isGreaterThan(10).isLessThanOrEqualTo(1000);
+    }
+
+    @Test
+    void testFullQueueRejectsEntities() throws Exception {
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch flushReleased = new CountDownLatch(1);
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(1)
+                .maxDelay(10)
+                .statsPrintIntervalMs(60000)
+                .statsNamePrefix("test")
+                .maxQueueSize(5)
+                .build();
+        queue = new TbSqlBlockingQueueWrapper<>(params, Entry::entityId, 1, statsFactory);
+        queue.init(logExecutor, entries -> {
+            flushStarted.countDown();
+            try {
+                flushReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Comparator.comparingInt(Entry::seq));
+
+        ListenableFuture<Void> first = queue.add(new Entry(0, 0));
+        assertThat(flushStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        List<ListenableFuture<Void>> accepted = new ArrayList<>();
+        for (int seq = 1; seq <= 5; seq++) {
+            accepted.add(queue.add(new Entry(0, seq)));
+        }
+        ListenableFuture<Void> rejected = queue.add(new Entry(0, 6));
+
+        assertThat(rejected.isDone()).isTrue();
+        assertThatThrownBy(rejected::get).hasCauseInstanceOf(RejectedExecutionException.class);
+        flushReleased.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        Futures.allAsList(accepted).get(10, TimeUnit.SECONDS);
+    }
+
+    private TbSqlBlockingQueueWrapper<Entry> createQueue(int batchSize, int minBatchSize, int maxInFlightBatches, int threads,
+                                                         Consumer<List<Entry>> saveFunction) {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(batchSize)
+                .maxDelay(10)
+                .statsPrintIntervalMs(60000)
+                .statsNamePrefix("test")
+                .batchSortEnabled(true)
+                .adaptiveBatchEnabled(true)
+                .minBatchSize(minBatchSize)
+                .targetFlushLatencyMs(1000)
+                .maxInFlightBatches(maxInFlightBatches)
+                .build();
+        TbSqlBlockingQueueWrapper<Entry> wrapper = new TbSqlBlockingQueueWrapper<>(params, Entry::entityId, threads, statsFactory);
+        wrapper.init(logExecutor, saveFunction, Comparator.comparingInt(Entry::entityId).thenComparingInt(Entry::seq));
+        return wrapper;
+    }
+
+    private StatsCounter counter(String name) {
+        return new StatsCounter(new AtomicInteger(), meterRegistry.counter(name), name);
+    }
+
+    private record Entry(int entityId, int seq) {
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BaseDeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.cache.CacheExecutorService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachedTimeseriesLatestDaoTest {
+
+    private static final String KEY = "temperature";
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    private TimeseriesLatestDao timeseriesLatestDao;
+    private DefaultCounter hitCounter;
+    private DefaultCounter missCounter;
+    private CachedTimeseriesLatestDao cachedDao;
+
+    @BeforeEach
+    void setUp() {
+        timeseriesLatestDao = mock(TimeseriesLatestDao.class);
+        hitCounter = mock(DefaultCounter.class);
+        missCounter = mock(DefaultCounter.class);
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createDefaultCounter(anyString(), eq("result"), eq("hit"))).thenReturn(hitCounter);
+        when(statsFactory.createDefaultCounter(anyString(), eq("result"), eq("miss"))).thenReturn(missCounter);
+
+        cachedDao = new CachedTimeseriesLatestDao(List.of(timeseriesLatestDao), statsFactory, mock(CacheExecutorService.class),
+                new TsLatestCaffeineCache(new CaffeineCacheManager()));
+        cachedDao.init();
+    }
+
+    @Test
+    void testFindLatestLoadsValueOnce() throws Exception {
+        TsKvEntry entry = entry(100, 1.0);
+        when(timeseriesLatestDao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.of(entry)));
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(entry);
+        assertThat(cachedDao.findLatest(tenantId, deviceId, KEY).get()).isEqualTo(entry);
+
+        verify(timeseriesLatestDao, times(1)).findLatestOpt(tenantId, deviceId, KEY);
+        verify(missCounter, times(1)).increment();
+        verify(hitCounter, times(1)).increment();
+    }
+
+    @Test
+    void testFindLatestCachesAbsentValue() throws Exception {
+        when(timeseriesLatestDao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.empty()));
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).isEmpty();
+        TsKvEntry latest = cachedDao.findLatest(tenantId, deviceId, KEY).get();
+        assertThat(latest.getKey()).isEqualTo(KEY);
+        assertThat(latest.getValue()).isNull();
+
+        verify(timeseriesLatestDao, times(1)).findLatestOpt(tenantId, deviceId, KEY);
+    }
+
+    @Test
+    void testSaveLatestEvictsCachedValue() throws Exception {
+        TsKvEntry newer = entry(200, 2.0);
+        when(timeseriesLatestDao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(
+                Futures.immediateFuture(Optional.of(entry(100, 1.0))),
+                Futures.immediateFuture(Optional.of(newer)));
+        when(timeseriesLatestDao.saveLatest(eq(tenantId), eq(deviceId), any())).thenReturn(Futures.immediateFuture(null));
+        cachedDao.findLatestOpt(tenantId, deviceId, KEY).get();
+
+        cachedDao.saveLatest(tenantId, deviceId, newer).get();
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(newer);
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(newer);
+
+        verify(timeseriesLatestDao, times(2)).findLatestOpt(tenantId, deviceId, KEY);
+    }
+
+    @Test
+    void testLocalCacheIsRefusedInCluster() {
+        ReflectionTestUtils.setField(cachedDao, "clusterEnabled", true);
+
+        assertThatThrownBy(cachedDao::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testRemoveLatestEvictsCachedValue() throws Exception {
+        when(timeseriesLatestDao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.of(entry(100, 1.0))));
+        when(timeseriesLatestDao.removeLatest(eq(tenantId), eq(deviceId), any()))
+                .thenReturn(Futures.immediateFuture(new TsKvLatestRemovingResult(KEY, true)));
+        cachedDao.findLatestOpt(tenantId, deviceId, KEY).get();
+
+        cachedDao.removeLatest(tenantId, deviceId, new BaseDeleteTsKvQuery(KEY, 0, 1000)).get();
+        cachedDao.findLatestOpt(tenantId, deviceId, KEY).get();
+
+        verify(timeseriesLatestDao, times(2)).findLatestOpt(tenantId, deviceId, KEY);
+    }
+
+    private static TsKvEntry entry(long ts, double value) {
+        return new BasicTsKvEntry(ts, new DoubleDataEntry(KEY, value));
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntryAggWrapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CassandraTsRollupDaoTest {
+
+    private static final String KEY = "temperature";
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    private CassandraTsRollupDao rollupDao;
+
+    @BeforeEach
+    void setUp() {
+        rollupDao = spy(new CassandraTsRollupDao());
+        ReflectionTestUtils.setField(rollupDao, "granularitiesStr", "MINUTE, HOUR, DAY");
+        ReflectionTestUtils.setField(rollupDao, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", TimeUnit.MINUTES.toMillis(1));
+        doReturn(Futures.immediateVoidFuture()).when(rollupDao).save(any(), any());
+        doReturn(Futures.immediateVoidFuture()).when(rollupDao).markDirty(any(), any(), any(), anyLong(), anyLong());
+        doReturn(Futures.immediateVoidFuture()).when(rollupDao).invalidate(any(), any());
+        doReturn(0L).when(rollupDao).loadEnabledSinceTs(anyLong());
+        rollupDao.init();
+        ReflectionTestUtils.setField(rollupDao, "enabledSinceTs", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rollupDao.stop();
+    }
+
+    @Test
+    void testReadGranularityIsTheLargestAlignedOne() {
+        long dayStart = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(7);
+
+        assertThat(rollupDao.getReadGranularity(dayStart, dayStart + TimeUnit.DAYS.toMillis(1))).isEqualTo(TsRollupGranularity.DAY);
+        assertThat(rollupDao.getReadGranularity(dayStart + HOUR, dayStart + 7 * HOUR)).isEqualTo(TsRollupGranularity.HOUR);
+        assertThat(rollupDao.getReadGranularity(dayStart + 60000, dayStart + 120000)).isEqualTo(TsRollupGranularity.MINUTE);
+        assertThat(rollupDao.getReadGranularity(dayStart, dayStart + 30000)).isNull();
+        long minuteStart = TsRollupGranularity.MINUTE.toBucketTs(System.currentTimeMillis());
+        assertThat(rollupDao.getReadGranularity(minuteStart - 60000, minuteStart)).isNull();
+    }
+
+    @Test
+    void testAccumulatedRollupsAreFlushedAndEvicted() {
+        long bucketTs = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(2);
+        acceptValuesOfPastBuckets();
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(bucketTs + 1000, new LongDataEntry(KEY, 5L)), 0);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(bucketTs + 2000, new DoubleDataEntry(KEY, 1.5)), 100);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(bucketTs + 3000, new LongDataEntry(KEY, -3L)), 200);
+
+        rollupDao.flush();
+
+        ArgumentCaptor<TsRollupKey> keyCaptor = ArgumentCaptor.forClass(TsRollupKey.class);
+        ArgumentCaptor<TsKvRollup> rollupCaptor = ArgumentCaptor.forClass(TsKvRollup.class);
+        verify(rollupDao, times(3)).save(keyCaptor.capture(), rollupCaptor.capture());
+        assertThat(keyCaptor.getAllValues()).extracting(TsRollupKey::getGranularity)
+                .containsExactlyInAnyOrder(TsRollupGranularity.MINUTE, TsRollupGranularity.HOUR, TsRollupGranularity.DAY);
+        assertThat(keyCaptor.getAllValues()).extracting(TsRollupKey::getBucketTs).containsOnly(bucketTs);
+        TsKvRollup rollup = rollupCaptor.getValue();
+        assertThat(rollup.getLongCount()).isEqualTo(2);
+        assertThat(rollup.getLongSum()).isEqualTo(2);
+        assertThat(rollup.getLongMin()).isEqualTo(-3);
+        assertThat(rollup.getLongMax()).isEqualTo(5);
+        assertThat(rollup.getDoubleCount()).isEqualTo(1);
+        assertThat(rollup.getDoubleSum()).isEqualTo(1.5);
+        assertThat(rollup.getMaxTs()).isEqualTo(bucketTs + 3000);
+        assertThat(rollup.getTtl()).isZero();
+
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", TimeUnit.MINUTES.toMillis(1));
+        rollupDao.flush();
+        verify(rollupDao, times(3)).save(any(), any());
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(rollupDao, "rollups")).isEmpty();
+    }
+
+    @Test
+    void testRollupsAreMarkedDirtyOncePerFlush() {
+        long ts = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(2);
+        acceptValuesOfPastBuckets();
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, 1L)), 0);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts + 1, new LongDataEntry(KEY, 2L)), 0);
+        verify(rollupDao, times(3)).markDirty(any(), any(), any(), eq(1L), eq(0L));
+
+        rollupDao.flush();
+        ArgumentCaptor<TsKvRollup> rollupCaptor = ArgumentCaptor.forClass(TsKvRollup.class);
+        verify(rollupDao, times(3)).save(any(), rollupCaptor.capture());
+        assertThat(rollupCaptor.getAllValues()).extracting(TsKvRollup::getVersion).containsOnly(1L);
+
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts + 2, new LongDataEntry(KEY, 3L)), 0);
+        verify(rollupDao, times(3)).markDirty(any(), any(), any(), eq(2L), eq(0L));
+    }
+
+    @Test
+    void testRewrittenTimestampInvalidatesBuckets() {
+        long ts = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(2);
+        acceptValuesOfPastBuckets();
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, 1L)), 0);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, 2L)), 0);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, 3L)), 0);
+
+        ArgumentCaptor<TsRollupKey> keyCaptor = ArgumentCaptor.forClass(TsRollupKey.class);
+        verify(rollupDao, times(3)).invalidate(any(), keyCaptor.capture());
+        assertThat(keyCaptor.getAllValues()).extracting(TsRollupKey::getGranularity)
+                .containsExactlyInAnyOrder(TsRollupGranularity.MINUTE, TsRollupGranularity.HOUR, TsRollupGranularity.DAY);
+
+        rollupDao.flush();
+        ArgumentCaptor<TsKvRollup> rollupCaptor = ArgumentCaptor.forClass(TsKvRollup.class);
+        verify(rollupDao, times(3)).save(any(), rollupCaptor.capture());
+        assertThat(rollupCaptor.getAllValues()).extracting(TsKvRollup::getLongSum).containsOnly(1L);
+    }
+
+    @Test
+    void testValuesOfUntrackedBucketsInvalidateBuckets() {
+        long ts = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(2);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, 1L)), 0);
+
+        verify(rollupDao, times(3)).invalidate(any(), any());
+        verify(rollupDao, never()).markDirty(any(), any(), any(), anyLong(), anyLong());
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(rollupDao, "rollups")).isEmpty();
+    }
+
+    @Test
+    void testCoarseBucketsThatStartedBeforeServiceAreInvalidated() {
+        long hourStart = TsRollupGranularity.DAY.toBucketTs(System.currentTimeMillis()) - TimeUnit.DAYS.toMillis(2) + 10 * HOUR;
+        long startTs = hourStart + TimeUnit.MINUTES.toMillis(30);
+        acceptValuesOfPastBuckets();
+        ReflectionTestUtils.setField(rollupDao, "startTs", startTs);
+        ReflectionTestUtils.setField(rollupDao, "enabledSinceTs", startTs);
+
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(hourStart + TimeUnit.MINUTES.toMillis(45), new LongDataEntry(KEY, 1L)), 0);
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(hourStart + TimeUnit.MINUTES.toMillis(46), new LongDataEntry(KEY, 2L)), 0);
+
+        ArgumentCaptor<TsRollupKey> invalidatedCaptor = ArgumentCaptor.forClass(TsRollupKey.class);
+        verify(rollupDao, times(2)).invalidate(any(), invalidatedCaptor.capture());
+        assertThat(invalidatedCaptor.getAllValues()).extracting(TsRollupKey::getGranularity)
+                .containsExactlyInAnyOrder(TsRollupGranularity.HOUR, TsRollupGranularity.DAY);
+
+        rollupDao.flush();
+        ArgumentCaptor<TsRollupKey> savedCaptor = ArgumentCaptor.forClass(TsRollupKey.class);
+        verify(rollupDao, times(2)).save(savedCaptor.capture(), any());
+        assertThat(savedCaptor.getAllValues()).extracting(TsRollupKey::getGranularity).containsOnly(TsRollupGranularity.MINUTE);
+
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", TimeUnit.MINUTES.toMillis(1));
+        assertThat(rollupDao.getReadGranularity(hourStart, hourStart + HOUR)).isNull();
+        assertThat(rollupDao.getReadGranularity(hourStart + HOUR, hourStart + 2 * HOUR)).isEqualTo(TsRollupGranularity.HOUR);
+    }
+
+    @Test
+    void testFailedFlushIsRetried() {
+        long ts = System.currentTimeMillis();
+        acceptValuesOfPastBuckets();
+        doReturn(Futures.immediateFailedFuture(new RuntimeException("test"))).when(rollupDao).save(any(), any());
+        rollupDao.accumulate(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, 1L)), 0);
+
+        rollupDao.flush();
+        rollupDao.flush();
+
+        verify(rollupDao, times(6)).save(any(), any());
+    }
+
+    @Test
+    void testRollupRowsAreAggregated() {
+        List<List<Row>> rows = List.of(List.of(mockRow(2, 0, 7L, null, 1000), mockRow(1, 1, 3L, 0.5, 2000)));
+
+        Optional<TsKvEntryAggWrapper> avg = new AggregatePartitionsFunction(Aggregation.AVG, KEY, 500, MoreExecutors.directExecutor()).aggregate(rows);
+        assertThat(avg).isPresent();
+        assertThat(avg.get().getEntry().getDoubleValue()).contains(2.625);
+        assertThat(avg.get().getLastEntryTs()).isEqualTo(2000);
+
+        Optional<TsKvEntryAggWrapper> count = new AggregatePartitionsFunction(Aggregation.COUNT, KEY, 500, MoreExecutors.directExecutor()).aggregate(rows);
+        assertThat(count).isPresent();
+        assertThat(count.get().getEntry().getLongValue()).contains(4L);
+    }
+
+    private void acceptValuesOfPastBuckets() {
+        ReflectionTestUtils.setField(rollupDao, "startTs", 0L);
+        ReflectionTestUtils.setField(rollupDao, "readDelayMs", TimeUnit.DAYS.toMillis(10));
+    }
+
+    private static Row mockRow(long longCount, long doubleCount, Long longValue, Double doubleValue, long maxTs) {
+        Row row = mock(Row.class);
+        when(row.getLong(0)).thenReturn(longCount);
+        when(row.getLong(1)).thenReturn(doubleCount);
+        when(row.getLong(5)).thenReturn(maxTs);
+        if (longValue != null) {
+            when(row.getLong(6)).thenReturn(longValue);
+        }
+        if (doubleValue != null) {
+            when(row.getDouble(7)).thenReturn(doubleValue);
+        }
+        return row;
+    }
+
+}
@@ -42,6 +42,13 @@ public @interface RuleNode {
 
     ComponentClusteringMode clusteringMode() default ComponentClusteringMode.ENABLED;
 
+    /**
+     * Marks the rule nodes that have no internal state and call one of the tell methods of the {@link TbContext}
+     * before {@link TbNode#onMsg} returns. The rule chain actor may execute such rule nodes inline,
+     * without sending the message to the rule node actor.
+     */
+    boolean inlineExecution() default false;
+
     boolean hasQueueName() default false;
 
     boolean inEnabled() default true;
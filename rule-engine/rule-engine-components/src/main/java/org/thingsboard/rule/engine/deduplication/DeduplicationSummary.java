@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.deduplication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.Setter;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.Base64;
+
+/**
+ * Compact state of a single deduplication window: the first or the last message for the FIRST and LAST strategies,
+ * or the merged data of all messages for the ALL strategy, instead of the list of pending messages.
+ */
+@Getter
+public class DeduplicationSummary {
+
+    private final long startTs;
+    private final long endTs;
+    private TbMsg msg;
+    private ArrayNode mergedData;
+    private int count;
+    @Setter
+    private boolean dirty;
+    @Setter
+    private RuleNodeState state;
+
+    public DeduplicationSummary(long startTs, long endTs) {
+        this.startTs = startTs;
+        this.endTs = endTs;
+    }
+
+    public void add(TbMsg msg, DeduplicationStrategy strategy) {
+        switch (strategy) {
+            case FIRST:
+                if (this.msg == null || msg.getMetaDataTs() < this.msg.getMetaDataTs()) {
+                    this.msg = msg;
+                }
+                break;
+            case LAST:
+                if (this.msg == null || msg.getMetaDataTs() > this.msg.getMetaDataTs()) {
+                    this.msg = msg;
+                }
+                break;
+            case ALL:
+                if (mergedData == null) {
+                    mergedData = JacksonUtil.newArrayNode();
+                }
+                mergedData.add(toMergedEntry(msg));
+                break;
+        }
+        count++;
+        dirty = true;
+    }
+
+    public String toStateData() {
+        ObjectNode stateData = JacksonUtil.newObjectNode();
+        stateData.put("startTs", startTs);
+        stateData.put("endTs", endTs);
+        stateData.put("count", count);
+        if (msg != null) {
+            stateData.put("msg", Base64.getEncoder().encodeToString(TbMsg.toByteArray(msg)));
+        }
+        if (mergedData != null) {
+            stateData.set("mergedData", mergedData);
+        }
+        return JacksonUtil.toString(stateData);
+    }
+
+    public static DeduplicationSummary fromStateData(String queueName, String stateData) {
+        JsonNode node = JacksonUtil.toJsonNode(stateData);
+        DeduplicationSummary summary = new DeduplicationSummary(node.get("startTs").asLong(), node.get("endTs").asLong());
+        summary.count = node.get("count").asInt();
+        if (node.hasNonNull("msg")) {
+            summary.msg = TbMsg.fromBytes(queueName, Base64.getDecoder().decode(node.get("msg").asText()), TbMsgCallback.EMPTY);
+        }
+        if (node.has("mergedData") && node.get("mergedData").isArray()) {
+            summary.mergedData = (ArrayNode) node.get("mergedData");
+        }
+        return summary;
+    }
+
+    static ObjectNode toMergedEntry(TbMsg msg) {
+        ObjectNode msgNode = JacksonUtil.newObjectNode();
+        msgNode.set("msg", JacksonUtil.toJsonNode(msg.getData()));
+        msgNode.set("metadata", JacksonUtil.valueToTree(msg.getMetaData().getData()));
+        return msgNode;
+    }
+
+}
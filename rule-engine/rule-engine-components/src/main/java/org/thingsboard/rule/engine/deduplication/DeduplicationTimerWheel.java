@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.deduplication;
+
+import org.thingsboard.server.common.data.id.EntityId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel that tracks deduplication deadlines of all originators with a single periodic tick.
+ * Deadlines further than one wheel rotation stay in their slot until the rotation they belong to.
+ * Not thread-safe, intended to be used from the rule node actor only.
+ */
+public class DeduplicationTimerWheel {
+
+    private final long tickMs;
+    private final List<Map<EntityId, Long>> slots;
+    private long currentTick;
+    private int size;
+
+    public DeduplicationTimerWheel(long tickMs, int wheelSize, long nowMs) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.currentTick = nowMs / tickMs;
+    }
+
+    public void schedule(EntityId id, long deadlineMs) {
+        // rounding up guarantees the deadline has passed by the time its slot is visited in the matching rotation
+        long tick = Math.max((deadlineMs + tickMs - 1) / tickMs, currentTick + 1);
+        if (slots.get(slotIdx(tick)).put(id, deadlineMs) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and returns ids with deadlines that are not after it.
+     */
+    public List<EntityId> advance(long nowMs) {
+        long nowTick = nowMs / tickMs;
+        List<EntityId> expired = new ArrayList<>();
+        if (nowTick <= currentTick) {
+            return expired;
+        }
+        long ticks = Math.min(nowTick - currentTick, slots.size());
+        for (long tick = nowTick - ticks + 1; tick <= nowTick; tick++) {
+            Iterator<Map.Entry<EntityId, Long>> iterator = slots.get(slotIdx(tick)).entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<EntityId, Long> entry = iterator.next();
+                if (entry.getValue() <= nowMs) {
+                    expired.add(entry.getKey());
+                    iterator.remove();
+                    size--;
+                }
+            }
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        slots.forEach(Map::clear);
+        size = 0;
+    }
+
+    private int slotIdx(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+
+}
@@ -18,7 +18,12 @@ package org.thingsboard.rule.engine.deduplication;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.EnumUtils;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
@@ -29,20 +34,30 @@ import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.plugin.ComponentType;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static org.thingsboard.server.common.data.DataConstants.QUEUE_NAME;
 
@@ -57,7 +72,10 @@ import static org.thingsboard.server.common.data.DataConstants.QUEUE_NAME;
         nodeDetails = "Deduplication strategies: <ul><li><strong>FIRST</strong> - return first message that arrived during deduplication period.</li>" +
                 "<li><strong>LAST</strong> - return last message that arrived during deduplication period.</li>" +
                 "<li><strong>ALL</strong> - return all messages as a single JSON array message. " +
-                "Where each element represents object with <strong><i>msg</i></strong> and <strong><i>metadata</i></strong> inner properties.</li></ul>",
+                "Where each element represents object with <strong><i>msg</i></strong> and <strong><i>metadata</i></strong> inner properties.</li></ul>" +
+                "With <strong>compact state</strong> enabled the node keeps only the selected message (or the merged data for ALL strategy) per originator " +
+                "and expires all deduplication periods with a single periodic tick. " +
+                "With <strong>persist state</strong> enabled the pending periods are periodically saved and restored after restart or repartitioning.",
         icon = "content_copy",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbActionNodeMsgDeduplicationConfig"
@@ -66,15 +84,34 @@ import static org.thingsboard.server.common.data.DataConstants.QUEUE_NAME;
 public class TbMsgDeduplicationNode implements TbNode {
 
     public static final int TB_MSG_DEDUPLICATION_RETRY_DELAY = 10;
+    public static final long TB_MSG_DEDUPLICATION_TICK_MS = 1000;
+    public static final long TB_MSG_DEDUPLICATION_SNAPSHOT_INTERVAL_MS = 5000;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    // size of the rule_node_state.state_data column
+    private static final int MAX_STATE_DATA_LENGTH = 16384;
 
     private TbMsgDeduplicationNodeConfiguration config;
 
     private final Map<EntityId, DeduplicationData> deduplicationMap;
+    private final Map<EntityId, DeduplicationSummary> summaries;
+    private DeduplicationTimerWheel timerWheel;
+    private boolean tickScheduled;
+    private long lastSnapshotTs;
     private long deduplicationInterval;
     private String queueName;
+    // null when the configured output type is a custom one
+    private TbMsgType outMsgType;
+
+    // States that are removed since the last save. Accessed from the rule node actor only.
+    private final Set<EntityId> statesToRemove = new LinkedHashSet<>();
+    private ListenableFuture<?> persistFuture;
+    // Results of the DB callback executor tasks, applied on the rule node actor.
+    private final Queue<SavedState> savedStates = new ConcurrentLinkedQueue<>();
+    private final Queue<RuleNodeState> restoredStates = new ConcurrentLinkedQueue<>();
 
     public TbMsgDeduplicationNode() {
         this.deduplicationMap = new HashMap<>();
+        this.summaries = new HashMap<>();
     }
 
     @Override
@@ -82,20 +119,56 @@ public class TbMsgDeduplicationNode implements TbNode {
         this.config = TbNodeUtils.convert(configuration, TbMsgDeduplicationNodeConfiguration.class);
         this.deduplicationInterval = TimeUnit.SECONDS.toMillis(config.getInterval());
         this.queueName = ctx.getQueueName();
+        this.outMsgType = EnumUtils.getEnum(TbMsgType.class, config.getOutMsgType());
+        if (config.isCompactState()) {
+            long now = System.currentTimeMillis();
+            this.timerWheel = new DeduplicationTimerWheel(TB_MSG_DEDUPLICATION_TICK_MS, TIMER_WHEEL_SIZE, now);
+            this.lastSnapshotTs = now;
+            if (config.isPersistState()) {
+                restoreSummaries(ctx);
+            } else if (ctx.isLocalEntity(ctx.getSelfId())) {
+                ctx.clearRuleNodeStates();
+            }
+        }
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
-        if (msg.isTypeOf(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG)) {
+        if (config.isCompactState()) {
+            if (msg.isTypeOf(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG)) {
+                processTick(ctx);
+            } else if (msg.isTypeOf(TbMsgType.DEDUPLICATION_RESTORE_SELF_MSG)) {
+                applyRestoredStates(ctx);
+            } else {
+                processOnRegularMsgCompact(ctx, msg);
+            }
+        } else if (msg.isTypeOf(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG)) {
             processDeduplication(ctx, msg.getOriginator());
         } else {
             processOnRegularMsg(ctx, msg);
         }
     }
 
+    @Override
+    public void onPartitionChangeMsg(TbContext ctx, PartitionChangeMsg msg) {
+        if (config.isCompactState() && config.isPersistState()) {
+            // save the pending periods before the new owner of the originator restores them
+            persistStates(ctx, id -> !ctx.isLocalEntity(id));
+            summaries.keySet().removeIf(id -> !ctx.isLocalEntity(id));
+            restoreSummaries(ctx);
+        }
+    }
+
     @Override
     public void destroy() {
         deduplicationMap.clear();
+        summaries.clear();
+        statesToRemove.clear();
+        savedStates.clear();
+        restoredStates.clear();
+        if (timerWheel != null) {
+            timerWheel.clear();
+        }
     }
 
     @Override
@@ -128,6 +201,226 @@ public class TbMsgDeduplicationNode implements TbNode {
         }
     }
 
+    private void processOnRegularMsgCompact(TbContext ctx, TbMsg msg) {
+        EntityId id = msg.getOriginator();
+        long msgTs = msg.getMetaDataTs();
+        DeduplicationSummary summary = summaries.get(id);
+        if (summary != null && msgTs >= summary.getEndTs()) {
+            summaries.remove(id);
+            processSummary(ctx, id, summary);
+            summary = null;
+        }
+        if (summary == null) {
+            summary = new DeduplicationSummary(msgTs, msgTs + deduplicationInterval);
+            summaries.put(id, summary);
+            timerWheel.schedule(id, summary.getEndTs());
+        } else if (DeduplicationStrategy.ALL.equals(config.getStrategy()) && summary.getCount() >= config.getMaxPendingMsgs()) {
+            log.trace("[{}] Max limit of pending messages reached for deduplication id: [{}]", ctx.getSelfId(), id);
+            ctx.tellFailure(msg, new RuntimeException("[" + ctx.getSelfId() + "] Max limit of pending messages reached for deduplication id: [" + id + "]"));
+            return;
+        }
+        log.trace("[{}][{}] Adding msg: [{}][{}] to the deduplication summary ...", ctx.getSelfId(), id, msg.getId(), msgTs);
+        summary.add(msg, config.getStrategy());
+        ctx.ack(msg);
+        scheduleTickMsg(ctx);
+    }
+
+    private void processTick(TbContext ctx) {
+        tickScheduled = false;
+        long now = System.currentTimeMillis();
+        for (EntityId id : timerWheel.advance(now)) {
+            DeduplicationSummary summary = summaries.get(id);
+            if (summary == null) {
+                continue;
+            }
+            if (summary.getEndTs() <= now) {
+                summaries.remove(id);
+                processSummary(ctx, id, summary);
+            } else {
+                // the period was restarted by a message that arrived after the end of the previous one
+                timerWheel.schedule(id, summary.getEndTs());
+            }
+        }
+        if (config.isPersistState()) {
+            if (now - lastSnapshotTs >= TB_MSG_DEDUPLICATION_SNAPSHOT_INTERVAL_MS) {
+                lastSnapshotTs = now;
+                persistStates(ctx, id -> true);
+            } else {
+                // removes the states of the processed periods
+                persistStates(ctx, id -> false);
+            }
+        }
+        scheduleTickMsg(ctx);
+    }
+
+    private void processSummary(TbContext ctx, EntityId id, DeduplicationSummary summary) {
+        emitSummary(ctx, id, summary);
+        if (summary.getState() != null) {
+            statesToRemove.add(id);
+        }
+    }
+
+    private void emitSummary(TbContext ctx, EntityId id, DeduplicationSummary summary) {
+        if (DeduplicationStrategy.ALL.equals(config.getStrategy())) {
+            if (summary.getMergedData() != null) {
+                enqueueForTellNextWithRetry(ctx, newMergedMsg(id, JacksonUtil.toString(summary.getMergedData())), 0);
+            }
+        } else if (summary.getMsg() != null) {
+            enqueueForTellNextWithRetry(ctx, copyResultMsg(summary.getMsg()), 0);
+        }
+    }
+
+    private void scheduleTickMsg(TbContext ctx) {
+        if (!tickScheduled && !summaries.isEmpty()) {
+            ctx.tellSelf(ctx.newMsg(null, TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG, ctx.getSelfId(), TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), TB_MSG_DEDUPLICATION_TICK_MS);
+            tickScheduled = true;
+        }
+    }
+
+    /**
+     * Saves the changed summaries that match the filter and removes the states of the processed periods in a single
+     * task of the DB callback executor. The tasks are chained, so the writes of the same originator are not reordered.
+     */
+    private void persistStates(TbContext ctx, Predicate<EntityId> filter) {
+        applySavedStates();
+        List<SavedState> toSave = new ArrayList<>();
+        summaries.forEach((id, summary) -> {
+            if (!summary.isDirty() || !filter.test(id)) {
+                return;
+            }
+            summary.setDirty(false);
+            String stateData = summary.toStateData();
+            if (stateData.length() > MAX_STATE_DATA_LENGTH) {
+                log.warn("[{}][{}] Deduplication state of {} characters exceeds the limit of {} characters and is not saved. " +
+                        "Decrease the max pending messages or the deduplication interval", ctx.getSelfId(), id, stateData.length(), MAX_STATE_DATA_LENGTH);
+                return;
+            }
+            RuleNodeState state = new RuleNodeState();
+            state.setRuleNodeId(ctx.getSelfId());
+            state.setEntityId(id);
+            state.setStateData(stateData);
+            if (summary.getState() != null) {
+                state.setId(summary.getState().getId());
+                state.setCreatedTime(summary.getState().getCreatedTime());
+            } else {
+                // the state is removed once the period is processed, even if it is not saved yet
+                summary.setState(state);
+            }
+            toSave.add(new SavedState(summary, state));
+        });
+        if (toSave.isEmpty() && statesToRemove.isEmpty()) {
+            return;
+        }
+        List<EntityId> toRemove = new ArrayList<>(statesToRemove);
+        statesToRemove.clear();
+        ListenableFuture<?> previous = persistFuture != null ? persistFuture : Futures.immediateVoidFuture();
+        persistFuture = Futures.whenAllComplete(previous).callAsync(() -> ctx.getDbCallbackExecutor().executeAsync(() -> {
+            for (EntityId id : toRemove) {
+                try {
+                    ctx.removeRuleNodeStateForEntity(id);
+                } catch (Exception e) {
+                    log.warn("[{}][{}] Failed to remove deduplication state", ctx.getSelfId(), id, e);
+                }
+            }
+            for (SavedState saved : toSave) {
+                try {
+                    savedStates.add(new SavedState(saved.summary(), ctx.saveRuleNodeState(saved.state())));
+                } catch (Exception e) {
+                    log.warn("[{}][{}] Failed to save deduplication state", ctx.getSelfId(), saved.state().getEntityId(), e);
+                    savedStates.add(new SavedState(saved.summary(), null));
+                }
+            }
+            return null;
+        }), MoreExecutors.directExecutor());
+    }
+
+    private void applySavedStates() {
+        SavedState saved;
+        while ((saved = savedStates.poll()) != null) {
+            if (saved.state() != null) {
+                saved.summary().setState(saved.state());
+            } else {
+                // the state is saved again with the next snapshot
+                saved.summary().setDirty(true);
+            }
+        }
+    }
+
+    /**
+     * Loads the states of the originators that are assigned to this server and are not loaded yet in the DB callback executor.
+     * The states are not partitioned in the database, so they are filtered while reading.
+     */
+    private void restoreSummaries(TbContext ctx) {
+        Set<EntityId> loaded = new HashSet<>(summaries.keySet());
+        ListenableFuture<List<RuleNodeState>> future = ctx.getDbCallbackExecutor().executeAsync(() -> {
+            List<RuleNodeState> result = new ArrayList<>();
+            PageLink pageLink = new PageLink(1024);
+            while (true) {
+                PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
+                for (RuleNodeState rns : states.getData()) {
+                    if (!loaded.contains(rns.getEntityId()) && ctx.isLocalEntity(rns.getEntityId())) {
+                        result.add(rns);
+                    }
+                }
+                if (!states.hasNext()) {
+                    break;
+                }
+                pageLink = pageLink.nextPageLink();
+            }
+            return result;
+        });
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(List<RuleNodeState> result) {
+                restoredStates.addAll(result);
+                ctx.tellSelf(ctx.newMsg(null, TbMsgType.DEDUPLICATION_RESTORE_SELF_MSG, ctx.getSelfId(), TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), 0L);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}] Failed to restore deduplication state", ctx.getSelfId(), t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void applyRestoredStates(TbContext ctx) {
+        int restoredCount = 0;
+        RuleNodeState rns;
+        while ((rns = restoredStates.poll()) != null) {
+            EntityId id = rns.getEntityId();
+            if (!ctx.isLocalEntity(id)) {
+                continue;
+            }
+            DeduplicationSummary summary;
+            try {
+                summary = DeduplicationSummary.fromStateData(queueName, rns.getStateData());
+            } catch (Exception e) {
+                log.warn("[{}][{}] Failed to restore deduplication state", ctx.getSelfId(), id, e);
+                statesToRemove.add(id);
+                continue;
+            }
+            DeduplicationSummary current = summaries.get(id);
+            if (current != null) {
+                // the messages that arrived during the restore started a new period, so the restored one is processed right away
+                emitSummary(ctx, id, summary);
+                if (current.getState() == null) {
+                    current.setState(rns);
+                }
+                current.setDirty(true);
+                continue;
+            }
+            summary.setState(rns);
+            summaries.put(id, summary);
+            timerWheel.schedule(id, summary.getEndTs());
+            restoredCount++;
+        }
+        log.debug("[{}] Restored deduplication state for {} entities", ctx.getSelfId(), restoredCount);
+        if (!statesToRemove.isEmpty()) {
+            persistStates(ctx, id -> false);
+        }
+        scheduleTickMsg(ctx);
+    }
+
     private void processDeduplication(TbContext ctx, EntityId deduplicationId) {
         DeduplicationData data = deduplicationMap.get(deduplicationId);
         if (data == null) {
@@ -154,12 +447,7 @@ public class TbMsgDeduplicationNode implements TbNode {
                             iterator.remove();
                         }
                     }
-                    deduplicationResults.add(TbMsg.newMsg(
-                            queueName,
-                            config.getOutMsgType(),
-                            deduplicationId,
-                            getMetadata(),
-                            getMergedData(pack)));
+                    deduplicationResults.add(newMergedMsg(deduplicationId, getMergedData(pack)));
                 } else {
                     TbMsg resultMsg = null;
                     boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
@@ -176,13 +464,7 @@ public class TbMsgDeduplicationNode implements TbNode {
                         }
                     }
                     if (resultMsg != null) {
-                        deduplicationResults.add(TbMsg.newMsg(
-                                queueName != null ? queueName : resultMsg.getQueueName(),
-                                resultMsg.getType(),
-                                resultMsg.getOriginator(),
-                                resultMsg.getCustomerId(),
-                                resultMsg.getMetaData(),
-                                resultMsg.getData()));
+                        deduplicationResults.add(copyResultMsg(resultMsg));
                     }
                 }
                 packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
@@ -229,18 +511,31 @@ public class TbMsgDeduplicationNode implements TbNode {
         }
     }
 
+    private TbMsg newMergedMsg(EntityId originator, String data) {
+        if (outMsgType != null) {
+            return TbMsg.newMsg(queueName, outMsgType, originator, getMetadata(), data);
+        }
+        // TbMsg allows custom message types only through the factory method with the string type
+        return TbMsg.newMsg(queueName, config.getOutMsgType(), originator, getMetadata(), data);
+    }
+
+    private TbMsg copyResultMsg(TbMsg resultMsg) {
+        return TbMsg.newMsg(
+                queueName != null ? queueName : resultMsg.getQueueName(),
+                resultMsg.getType(),
+                resultMsg.getOriginator(),
+                resultMsg.getCustomerId(),
+                resultMsg.getMetaData(),
+                resultMsg.getData());
+    }
+
     private void scheduleTickMsg(TbContext ctx, EntityId deduplicationId) {
         ctx.tellSelf(ctx.newMsg(null, TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG, deduplicationId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), deduplicationInterval + 1);
     }
 
     private String getMergedData(List<TbMsg> msgs) {
         ArrayNode mergedData = JacksonUtil.newArrayNode();
-        msgs.forEach(msg -> {
-            ObjectNode msgNode = JacksonUtil.newObjectNode();
-            msgNode.set("msg", JacksonUtil.toJsonNode(msg.getData()));
-            msgNode.set("metadata", JacksonUtil.valueToTree(msg.getMetaData().getData()));
-            mergedData.add(msgNode);
-        });
+        msgs.forEach(msg -> mergedData.add(DeduplicationSummary.toMergedEntry(msg)));
         return JacksonUtil.toString(mergedData);
     }
 
@@ -250,4 +545,7 @@ public class TbMsgDeduplicationNode implements TbNode {
         return metaData;
     }
 
+    private record SavedState(DeduplicationSummary summary, RuleNodeState state) {
+    }
+
 }
@@ -31,6 +31,11 @@ public class TbMsgDeduplicationNodeConfiguration implements NodeConfiguration<Tb
     private int maxPendingMsgs;
     private int maxRetries;
 
+    // keep a single summary per originator instead of the list of pending messages
+    private boolean compactState;
+    // only for compactState: save pending summaries to survive restart and repartitioning
+    private boolean persistState;
+
     @Override
     public TbMsgDeduplicationNodeConfiguration defaultConfiguration() {
         TbMsgDeduplicationNodeConfiguration configuration = new TbMsgDeduplicationNodeConfiguration();
@@ -34,6 +34,7 @@ import org.thingsboard.server.common.msg.TbMsg;
         type = ComponentType.FILTER,
         name = "message type filter",
         configClazz = TbMsgTypeFilterNodeConfiguration.class,
+        inlineExecution = true,
         relationTypes = {TbNodeConnectionType.TRUE, TbNodeConnectionType.FALSE},
         nodeDescription = "Filter incoming messages by Message Type",
         nodeDetails = "If incoming message type is expected - send Message via <b>True</b> chain, otherwise <b>False</b> chain is used.<br><br>" +
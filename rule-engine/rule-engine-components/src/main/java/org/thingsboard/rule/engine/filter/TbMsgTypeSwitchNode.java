@@ -31,6 +31,7 @@ import org.thingsboard.server.common.msg.TbMsg;
         type = ComponentType.FILTER,
         name = "message type switch",
         configClazz = EmptyNodeConfiguration.class,
+        inlineExecution = true,
         relationTypes = {}, // should always be empty. We add the relation types for this node in AnnotationComponentDiscoveryService.
         nodeDescription = "Route incoming messages by Message Type",
         nodeDetails = "Sends messages with message types <b>\"Post attributes\", \"Post telemetry\", \"RPC Request\"</b>" +
@@ -29,6 +29,7 @@ import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.msg.TbMsg;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -48,17 +49,11 @@ public abstract class AbstractGeofencingNode<T extends TbGpsGeofencingFilterNode
     abstract protected Class<T> getConfigClazz();
 
     protected boolean checkMatches(TbMsg msg) throws TbNodeException {
-        JsonElement msgDataElement = JsonParser.parseString(msg.getData());
-        if (!msgDataElement.isJsonObject()) {
-            throw new TbNodeException("Incoming Message is not a valid JSON object!");
-        }
-        JsonObject msgDataObj = msgDataElement.getAsJsonObject();
-        double latitude = getValueFromMessageByName(msg, msgDataObj, config.getLatitudeKeyName());
-        double longitude = getValueFromMessageByName(msg, msgDataObj, config.getLongitudeKeyName());
+        Coordinates coordinates = getCoordinates(msg);
         List<Perimeter> perimeters = getPerimeters(msg);
         boolean matches = false;
         for (Perimeter perimeter : perimeters) {
-            if (checkMatches(perimeter, latitude, longitude)) {
+            if (checkMatches(perimeter, coordinates.getLatitude(), coordinates.getLongitude())) {
                 matches = true;
                 break;
             }
@@ -66,6 +61,27 @@ public abstract class AbstractGeofencingNode<T extends TbGpsGeofencingFilterNode
         return matches;
     }
 
+    protected List<Perimeter> getMatchingPerimeters(PerimeterIndex index, Coordinates coordinates) throws TbNodeException {
+        List<Perimeter> matching = new ArrayList<>();
+        for (Perimeter perimeter : index.getCandidates(coordinates.getLatitude(), coordinates.getLongitude())) {
+            if (checkMatches(perimeter, coordinates.getLatitude(), coordinates.getLongitude())) {
+                matching.add(perimeter);
+            }
+        }
+        return matching;
+    }
+
+    protected Coordinates getCoordinates(TbMsg msg) throws TbNodeException {
+        JsonElement msgDataElement = JsonParser.parseString(msg.getData());
+        if (!msgDataElement.isJsonObject()) {
+            throw new TbNodeException("Incoming Message is not a valid JSON object!");
+        }
+        JsonObject msgDataObj = msgDataElement.getAsJsonObject();
+        double latitude = getValueFromMessageByName(msg, msgDataObj, config.getLatitudeKeyName());
+        double longitude = getValueFromMessageByName(msg, msgDataObj, config.getLongitudeKeyName());
+        return new Coordinates(latitude, longitude);
+    }
+
     protected boolean checkMatches(Perimeter perimeter, double latitude, double longitude) throws TbNodeException {
         if (perimeter.getPerimeterType() == PerimeterType.CIRCLE) {
             Coordinates entityCoordinates = new Coordinates(latitude, longitude);
@@ -15,13 +15,18 @@
  */
 package org.thingsboard.rule.engine.geo;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import lombok.NonNull;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.geom.util.GeometryFixer;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContext;
@@ -38,12 +43,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class GeoUtil {
 
     private static final SpatialContext distCtx = SpatialContext.GEO;
     private static final JtsSpatialContext jtsCtx;
+    private static final int POLYGONS_CACHE_MAX_SIZE = 10000;
+    private static final long POLYGONS_CACHE_EXPIRE_AFTER_ACCESS_MIN = 60;
+    // Compiled polygons by their definition, so the definition is parsed once instead of on each message
+    private static final Cache<String, PreparedGeometry> polygonsCache = Caffeine.newBuilder()
+            .maximumSize(POLYGONS_CACHE_MAX_SIZE)
+            .expireAfterAccess(POLYGONS_CACHE_EXPIRE_AFTER_ACCESS_MIN, TimeUnit.MINUTES)
+            .build();
 
     static {
         JtsSpatialContextFactory factory = new JtsSpatialContextFactory();
@@ -57,21 +70,55 @@ public class GeoUtil {
         return unit.fromKm(distCtx.getDistCalc().distance(xLL, yLL) * DistanceUtils.DEG_TO_KM);
     }
 
-    public static synchronized boolean contains(@NonNull String polygonInString, @NonNull Coordinates coordinates) {
+    public static boolean contains(@NonNull String polygonInString, @NonNull Coordinates coordinates) {
+        var point = jtsCtx.getShapeFactory().getGeometryFactory()
+                .createPoint(new Coordinate(coordinates.getLatitude(), coordinates.getLongitude()));
+
+        return getPolygon(polygonInString).contains(point);
+    }
+
+    /**
+     * Returns the bounding box of the polygon, with latitude as x and longitude as y.
+     */
+    public static Envelope getPolygonEnvelope(@NonNull String polygonInString) {
+        return getPolygon(polygonInString).getGeometry().getEnvelopeInternal();
+    }
+
+    /**
+     * Returns the bounding box of the circle, with latitude as x and longitude as y.
+     * The box spans all longitudes if the circle crosses the antimeridian or reaches a pole.
+     */
+    public static Envelope getCircleEnvelope(@NonNull Coordinates center, double range, @NonNull RangeUnit unit) {
+        // 1% margin to stay conservative against rounding errors of the distance calculation
+        double rangeDeg = range / unit.fromKm(1.0) / DistanceUtils.DEG_TO_KM * 1.01;
+        double minLat = center.getLatitude() - rangeDeg;
+        double maxLat = center.getLatitude() + rangeDeg;
+        if (minLat <= -90 || maxLat >= 90) {
+            return new Envelope(Math.max(minLat, -90), Math.min(maxLat, 90), -180, 180);
+        }
+        double lonDeg = rangeDeg / Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double minLon = center.getLongitude() - lonDeg;
+        double maxLon = center.getLongitude() + lonDeg;
+        if (minLon <= -180 || maxLon >= 180) {
+            return new Envelope(minLat, maxLat, -180, 180);
+        }
+        return new Envelope(minLat, maxLat, minLon, maxLon);
+    }
+
+    private static PreparedGeometry getPolygon(String polygonInString) {
         if (polygonInString.isEmpty() || polygonInString.isBlank()) {
             throw new RuntimeException("Polygon string can't be empty or null!");
         }
+        return polygonsCache.get(polygonInString, GeoUtil::buildPolygon);
+    }
 
+    private static synchronized PreparedGeometry buildPolygon(String polygonInString) {
         JsonArray polygonsJson = normalizePolygonsJson(JsonParser.parseString(polygonInString).getAsJsonArray());
         List<Geometry> polygons = buildPolygonsFromJson(polygonsJson);
         Set<Geometry> holes = extractHolesFrom(polygons);
         polygons.removeIf(holes::contains);
 
-        Geometry globalGeometry = unionToGlobalGeometry(polygons, holes);
-        var point = jtsCtx.getShapeFactory().getGeometryFactory()
-                .createPoint(new Coordinate(coordinates.getLatitude(), coordinates.getLongitude()));
-
-        return globalGeometry.contains(point);
+        return PreparedGeometryFactory.prepare(unionToGlobalGeometry(polygons, holes));
     }
 
     private static Geometry unionToGlobalGeometry(List<Geometry> polygons, Set<Geometry> holes) {
@@ -20,6 +20,8 @@ import lombok.Data;
 @Data
 public class Perimeter {
 
+    // Optional identifier of the perimeter within the zone set
+    private String id;
     private PerimeterType perimeterType;
 
     //For Polygons
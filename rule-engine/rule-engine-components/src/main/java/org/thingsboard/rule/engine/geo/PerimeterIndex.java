@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.geo;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.List;
+
+/**
+ * Set of perimeters with an R-tree over their bounding boxes.
+ * The tree is built only when the set is large enough for the lookup to be cheaper than the linear scan.
+ */
+public class PerimeterIndex {
+
+    static final int MIN_PERIMETERS_TO_INDEX = 8;
+
+    private final List<Perimeter> perimeters;
+    private final STRtree tree;
+
+    public PerimeterIndex(List<Perimeter> perimeters) {
+        this.perimeters = perimeters;
+        if (perimeters.size() >= MIN_PERIMETERS_TO_INDEX) {
+            tree = new STRtree();
+            for (Perimeter perimeter : perimeters) {
+                tree.insert(getEnvelope(perimeter), perimeter);
+            }
+            tree.build();
+        } else {
+            tree = null;
+        }
+    }
+
+    public List<Perimeter> getPerimeters() {
+        return perimeters;
+    }
+
+    public boolean isIndexed() {
+        return tree != null;
+    }
+
+    /**
+     * Returns perimeters whose bounding boxes contain the point. The result still needs the exact check.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Perimeter> getCandidates(double latitude, double longitude) {
+        if (tree == null) {
+            return perimeters;
+        }
+        return tree.query(new Envelope(new Coordinate(latitude, longitude)));
+    }
+
+    private static Envelope getEnvelope(Perimeter perimeter) {
+        if (perimeter.getPerimeterType() == PerimeterType.POLYGON) {
+            return GeoUtil.getPolygonEnvelope(perimeter.getPolygonsDefinition());
+        } else if (perimeter.getPerimeterType() == PerimeterType.CIRCLE) {
+            return GeoUtil.getCircleEnvelope(new Coordinates(perimeter.getCenterLatitude(), perimeter.getCenterLongitude()),
+                    perimeter.getRange(), perimeter.getRangeUnit());
+        } else {
+            throw new IllegalArgumentException("Unsupported perimeter type: " + perimeter.getPerimeterType() + "!");
+        }
+    }
+
+}
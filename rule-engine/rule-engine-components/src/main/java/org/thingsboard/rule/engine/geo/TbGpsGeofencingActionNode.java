@@ -15,16 +15,26 @@
  */
 package org.thingsboard.rule.engine.geo;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.server.common.data.AttributeScope;
+import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
@@ -32,12 +42,13 @@ import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -65,6 +76,9 @@ import static org.thingsboard.rule.engine.util.GpsGeofencingEvents.OUTSIDE;
                 "If the presence monitoring strategy <b>\"On first message\"</b> is selected, sends messages via rule node connection type <code>Inside</code> or <code>Outside</code> only the first time the geofencing and duration conditions are satisfied; otherwise sends messages via rule node connection type <code>Success</code>. " +
                 "If the presence monitoring strategy <b>\"On each message\"</b> is selected, sends messages via rule node connection type <code>Inside</code> or <code>Outside</code> every time the geofencing condition is satisfied. " +
                 "<br><br>" +
+                "If the zones attribute key is set, the coordinates are checked against the whole zone set stored as a JSON array of perimeters in the originator server attribute with this key. " +
+                "The object is inside the geofence if it is inside any of the zones; ids of the matched zones are added to the outgoing message metadata as <code>zones</code>. " +
+                "<br><br>" +
                 "Output connections: <code>Entered</code>, <code>Left</code>, <code>Inside</code>, <code>Outside</code>, <code>Success</code>",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbActionNodeGpsGeofencingConfig"
@@ -72,30 +86,78 @@ import static org.thingsboard.rule.engine.util.GpsGeofencingEvents.OUTSIDE;
 public class TbGpsGeofencingActionNode extends AbstractGeofencingNode<TbGpsGeofencingActionNodeConfiguration> {
 
     private static final String REPORT_PRESENCE_STATUS_ON_EACH_MESSAGE = "reportPresenceStatusOnEachMessage";
-    private final Map<EntityId, EntityGeofencingState> entityStates = new HashMap<>();
+    private static final String ZONES_METADATA_KEY = "zones";
+    private static final int ZONES_CACHE_MAX_SIZE = 1000;
+    private static final long ZONES_CACHE_EXPIRE_AFTER_ACCESS_MIN = 10;
+    // Updated in the DB callback executor when the zones attribute key is set
+    private final Map<EntityId, EntityGeofencingState> entityStates = new ConcurrentHashMap<>();
+    // The last message of the originator that waits for the zones, so the messages of the same originator are processed in order
+    private final Map<EntityId, ListenableFuture<?>> pendingMsgs = new ConcurrentHashMap<>();
     private final Gson gson = new Gson();
+    // Parsed and indexed zone sets by the attribute value, shared by entities with the same zones
+    private Cache<String, PerimeterIndex> zonesCache;
+
+    @Override
+    public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
+        super.init(ctx, configuration);
+        if (StringUtils.isNotEmpty(config.getZonesAttributeKey())) {
+            zonesCache = Caffeine.newBuilder()
+                    .maximumSize(ZONES_CACHE_MAX_SIZE)
+                    .expireAfterAccess(ZONES_CACHE_EXPIRE_AFTER_ACCESS_MIN, TimeUnit.MINUTES)
+                    .build();
+        }
+    }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws TbNodeException {
+        if (zonesCache != null) {
+            processWithZones(ctx, msg);
+            return;
+        }
         boolean matches = checkMatches(msg);
-        long ts = System.currentTimeMillis();
-
         EntityGeofencingState entityState = entityStates.computeIfAbsent(msg.getOriginator(), key -> {
             try {
-                Optional<AttributeKvEntry> entry = ctx.getAttributesService()
+                return toEntityState(ctx.getAttributesService()
                         .find(ctx.getTenantId(), msg.getOriginator(), AttributeScope.SERVER_SCOPE, ctx.getServiceId())
-                        .get(1, TimeUnit.MINUTES);
-                if (entry.isPresent()) {
-                    JsonObject element = JsonParser.parseString(entry.get().getValueAsString()).getAsJsonObject();
-                    return new EntityGeofencingState(element.get("inside").getAsBoolean(), element.get("stateSwitchTime").getAsLong(), element.get("stayed").getAsBoolean());
-                } else {
-                    return new EntityGeofencingState(false, 0L, false);
-                }
+                        .get(1, TimeUnit.MINUTES));
             } catch (InterruptedException | TimeoutException | ExecutionException e) {
                 throw new RuntimeException(e);
             }
         });
+        process(ctx, msg, matches, entityState);
+    }
 
+    /**
+     * Looks up the zones and the state of the originator without blocking the rule node actor
+     * and processes the message in the DB callback executor once the previous message of the originator is processed.
+     */
+    private void processWithZones(TbContext ctx, TbMsg msg) throws TbNodeException {
+        Coordinates coordinates = getCoordinates(msg);
+        EntityId originator = msg.getOriginator();
+        ListenableFuture<Optional<AttributeKvEntry>> zonesFuture = ctx.getAttributesService()
+                .find(ctx.getTenantId(), originator, AttributeScope.SERVER_SCOPE, config.getZonesAttributeKey());
+        ListenableFuture<Optional<AttributeKvEntry>> stateFuture = entityStates.containsKey(originator) ? Futures.immediateFuture(Optional.empty()) :
+                ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SERVER_SCOPE, ctx.getServiceId());
+        ListenableFuture<?> previous = pendingMsgs.getOrDefault(originator, Futures.immediateVoidFuture());
+        ListenableFuture<Void> future = Futures.whenAllComplete(previous, zonesFuture, stateFuture).call(() -> {
+            try {
+                List<Perimeter> zones = getMatchingPerimeters(toZones(Futures.getDone(zonesFuture)), coordinates);
+                Optional<AttributeKvEntry> stateEntry = Futures.getDone(stateFuture);
+                EntityGeofencingState entityState = entityStates.computeIfAbsent(originator, key -> toEntityState(stateEntry));
+                process(ctx, addZonesToMetadata(msg, zones), !zones.isEmpty(), entityState);
+            } catch (ExecutionException e) {
+                ctx.tellFailure(msg, e.getCause());
+            } catch (Exception e) {
+                ctx.tellFailure(msg, e);
+            }
+            return null;
+        }, ctx.getDbCallbackExecutor());
+        pendingMsgs.put(originator, future);
+        future.addListener(() -> pendingMsgs.remove(originator, future), MoreExecutors.directExecutor());
+    }
+
+    private void process(TbContext ctx, TbMsg msg, boolean matches, EntityGeofencingState entityState) {
+        long ts = System.currentTimeMillis();
         if (entityState.getStateSwitchTime() == 0L || entityState.isInside() != matches) {
             switchState(ctx, msg.getOriginator(), entityState, matches, ts);
             ctx.tellNext(msg, matches ? ENTERED : LEFT);
@@ -124,6 +186,52 @@ public class TbGpsGeofencingActionNode extends AbstractGeofencingNode<TbGpsGeofe
         ctx.tellSuccess(msg);
     }
 
+    private EntityGeofencingState toEntityState(Optional<AttributeKvEntry> entry) {
+        if (entry.isPresent()) {
+            JsonObject element = JsonParser.parseString(entry.get().getValueAsString()).getAsJsonObject();
+            return new EntityGeofencingState(element.get("inside").getAsBoolean(), element.get("stateSwitchTime").getAsLong(), element.get("stayed").getAsBoolean());
+        } else {
+            return new EntityGeofencingState(false, 0L, false);
+        }
+    }
+
+    private PerimeterIndex toZones(Optional<AttributeKvEntry> entry) throws TbNodeException {
+        String zonesValue = entry.map(AttributeKvEntry::getValueAsString).orElse(null);
+        if (StringUtils.isEmpty(zonesValue)) {
+            throw new TbNodeException("Missing zones definition!");
+        }
+        try {
+            return zonesCache.get(zonesValue, this::parseZones);
+        } catch (IllegalArgumentException e) {
+            throw new TbNodeException("Invalid zones definition: " + e.getMessage());
+        }
+    }
+
+    private PerimeterIndex parseZones(String zonesValue) {
+        List<Perimeter> zones = JacksonUtil.fromString(zonesValue, new TypeReference<>() {});
+        if (zones == null) {
+            throw new IllegalArgumentException("zones must be a JSON array of perimeters");
+        }
+        for (int i = 0; i < zones.size(); i++) {
+            Perimeter zone = zones.get(i);
+            if (zone.getId() == null) {
+                zone.setId(Integer.toString(i));
+            }
+            if (zone.getPerimeterType() == PerimeterType.CIRCLE && zone.getRangeUnit() == null) {
+                zone.setRangeUnit(RangeUnit.METER);
+            }
+        }
+        return new PerimeterIndex(zones);
+    }
+
+    private TbMsg addZonesToMetadata(TbMsg msg, List<Perimeter> zones) {
+        ArrayNode zoneIds = JacksonUtil.newArrayNode();
+        zones.forEach(zone -> zoneIds.add(zone.getId()));
+        TbMsgMetaData metaData = msg.getMetaData().copy();
+        metaData.putValue(ZONES_METADATA_KEY, JacksonUtil.toString(zoneIds));
+        return TbMsg.transformMsgMetadata(msg, metaData);
+    }
+
     private void switchState(TbContext ctx, EntityId entityId, EntityGeofencingState entityState, boolean matches, long ts) {
         entityState.setInside(matches);
         entityState.setStateSwitchTime(ts);
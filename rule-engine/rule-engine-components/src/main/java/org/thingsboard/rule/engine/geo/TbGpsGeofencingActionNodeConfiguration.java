@@ -33,6 +33,9 @@ public class TbGpsGeofencingActionNodeConfiguration extends TbGpsGeofencingFilte
 
     private boolean reportPresenceStatusOnEachMessage;
 
+    // If set, the position is checked against the zone set stored in the originator server attribute with this key
+    private String zonesAttributeKey;
+
     @Override
     public TbGpsGeofencingActionNodeConfiguration defaultConfiguration() {
         TbGpsGeofencingActionNodeConfiguration configuration = new TbGpsGeofencingActionNodeConfiguration();
@@ -15,10 +15,16 @@
  */
 package org.thingsboard.rule.engine.profile;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.JsonParser;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.profile.DynamicPredicateValueCtxImpl.DynamicValues;
 import org.thingsboard.rule.engine.profile.state.PersistedAlarmState;
 import org.thingsboard.rule.engine.profile.state.PersistedDeviceState;
 import org.thingsboard.server.common.data.AttributeScope;
@@ -33,22 +39,26 @@ import org.thingsboard.server.common.data.device.profile.DeviceProfileAlarm;
 import org.thingsboard.server.common.data.exception.ApiUsageLimitsExceededException;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
-import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityKey;
 import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
 import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.adaptor.JsonConverter;
 import org.thingsboard.server.dao.sql.query.EntityKeyMapping;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -77,14 +87,22 @@ class DeviceState {
     private PersistedDeviceState pds;
     private DataSnapshot latestValues;
     private final ConcurrentMap<String, AlarmState> alarmStates = new ConcurrentHashMap<>();
-    private final DynamicPredicateValueCtx dynamicPredicateValueCtx;
+    private final DynamicPredicateValueCtxImpl dynamicPredicateValueCtx;
+    // Messages received while the latest values are being fetched. Accessed from the rule node actor only.
+    private final Queue<TbMsg> pendingMsgs = new ArrayDeque<>();
+    @Getter
+    @Setter
+    private boolean fetchRequested;
+    // Incremented when the set of keys changes, so the values fetched for the previous set of keys are discarded.
+    @Getter
+    private int snapshotVersion;
 
     DeviceState(TbContext ctx, TbDeviceProfileNodeConfiguration config, DeviceId deviceId, ProfileState deviceProfile, RuleNodeState state) {
         this.persistState = config.isPersistAlarmRulesState();
         this.deviceId = deviceId;
         this.deviceProfile = deviceProfile;
 
-        this.dynamicPredicateValueCtx = new DynamicPredicateValueCtxImpl(ctx.getTenantId(), deviceId, ctx);
+        this.dynamicPredicateValueCtx = new DynamicPredicateValueCtxImpl(ctx.getTenantId(), deviceId);
 
         if (config.isPersistAlarmRulesState()) {
             if (state != null) {
@@ -110,15 +128,18 @@ class DeviceState {
         }
     }
 
-    public void updateProfile(TbContext ctx, DeviceProfile deviceProfile) throws ExecutionException, InterruptedException {
+    public void updateProfile(TbContext ctx, DeviceProfile deviceProfile) {
         Set<AlarmConditionFilterKey> oldKeys = Set.copyOf(this.deviceProfile.getEntityKeys());
+        Set<String> oldTenantKeys = Set.copyOf(this.deviceProfile.getTenantKeys());
+        Set<String> oldCustomerKeys = Set.copyOf(this.deviceProfile.getCustomerKeys());
         this.deviceProfile.updateDeviceProfile(deviceProfile);
-        if (latestValues != null) {
-            Set<AlarmConditionFilterKey> keysToFetch = new HashSet<>(this.deviceProfile.getEntityKeys());
-            keysToFetch.removeAll(oldKeys);
-            if (!keysToFetch.isEmpty()) {
-                addEntityKeysToSnapshot(ctx, deviceId, keysToFetch, latestValues);
-            }
+        if (!oldKeys.containsAll(this.deviceProfile.getEntityKeys())) {
+            // The values of the new keys are fetched together with the rest of the snapshot before the next message is processed.
+            latestValues = null;
+            snapshotVersion++;
+        } else if (!oldTenantKeys.containsAll(this.deviceProfile.getTenantKeys()) || !oldCustomerKeys.containsAll(this.deviceProfile.getCustomerKeys())) {
+            dynamicPredicateValueCtx.invalidate();
+            snapshotVersion++;
         }
         Set<String> newAlarmStateIds = this.deviceProfile.getAlarmSettings().stream().map(DeviceProfileAlarm::getId).collect(Collectors.toSet());
         alarmStates.keySet().removeIf(id -> !newAlarmStateIds.contains(id));
@@ -131,21 +152,26 @@ class DeviceState {
         }
     }
 
-    public void harvestAlarms(TbContext ctx, long ts) throws ExecutionException, InterruptedException {
+    /**
+     * @return true if the alarm rule state was changed and should be persisted
+     */
+    public boolean harvestAlarms(TbContext ctx, long ts) throws ExecutionException, InterruptedException {
         log.debug("[{}] Going to harvest alarms: {}", ctx.getSelfId(), ts);
         boolean stateChanged = false;
         for (AlarmState state : alarmStates.values()) {
             stateChanged |= state.process(ctx, ts);
         }
-        if (persistState && stateChanged) {
-            state.setStateData(JacksonUtil.toString(pds));
-            state = ctx.saveRuleNodeState(state);
-        }
+        return persistState && stateChanged;
     }
 
-    public void process(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
+    /**
+     * Processes the message using the latest values that were set by {@link #setLatestValues(DataSnapshot)}.
+     *
+     * @return true if the alarm rule state was changed and should be persisted
+     */
+    public boolean process(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
         if (latestValues == null) {
-            latestValues = fetchLatestValues(ctx, deviceId);
+            throw new IllegalStateException("Latest values of the device " + deviceId + " are not fetched yet");
         }
         boolean stateChanged = false;
         if (msg.isTypeOf(POST_TELEMETRY_REQUEST)) {
@@ -170,9 +196,78 @@ class DeviceState {
             }
             ctx.tellSuccess(msg);
         }
-        if (persistState && stateChanged) {
-            state.setStateData(JacksonUtil.toString(pds));
-            state = ctx.saveRuleNodeState(state);
+        return persistState && stateChanged;
+    }
+
+    public boolean hasLatestValues() {
+        return latestValues != null;
+    }
+
+    public void setLatestValues(DataSnapshot latestValues) {
+        this.latestValues = latestValues;
+    }
+
+    public boolean hasDynamicValues() {
+        return !deviceProfile.hasTenantOrCustomerKeys() || dynamicPredicateValueCtx.isFetched();
+    }
+
+    public void setDynamicValues(DynamicValues dynamicValues) {
+        dynamicPredicateValueCtx.update(dynamicValues);
+    }
+
+    /**
+     * Marks the tenant and customer attributes as outdated, so the next message uses their current values
+     * like the device attributes that are updated by the messages.
+     */
+    public void invalidateDynamicValues() {
+        if (deviceProfile.hasTenantOrCustomerKeys()) {
+            dynamicPredicateValueCtx.invalidate();
+        }
+    }
+
+    /**
+     * @return true if the latest values of the device and the dynamic values are fetched, so the messages may be processed
+     */
+    public boolean isReady() {
+        return hasLatestValues() && hasDynamicValues();
+    }
+
+    public void addPendingMsg(TbMsg msg) {
+        pendingMsgs.add(msg);
+    }
+
+    public TbMsg pollPendingMsg() {
+        return pendingMsgs.poll();
+    }
+
+    public boolean hasPendingMsgs() {
+        return !pendingMsgs.isEmpty();
+    }
+
+    public DeviceId getDeviceId() {
+        return deviceId;
+    }
+
+    public Set<AlarmConditionFilterKey> getEntityKeys() {
+        return deviceProfile.getEntityKeys();
+    }
+
+    /**
+     * Returns a copy of the rule node state with the current alarm rule states, so it can be saved outside the rule node actor.
+     */
+    public RuleNodeState getStateToPersist() {
+        RuleNodeState copy = new RuleNodeState(state.getId());
+        copy.setCreatedTime(state.getCreatedTime());
+        copy.setRuleNodeId(state.getRuleNodeId());
+        copy.setEntityId(state.getEntityId());
+        copy.setStateData(JacksonUtil.toString(pds));
+        return copy;
+    }
+
+    public void onStateSaved(RuleNodeState savedState) {
+        if (state != null && state.getId() == null) {
+            state.setId(savedState.getId());
+            state.setCreatedTime(savedState.getCreatedTime());
         }
     }
 
@@ -329,67 +424,116 @@ class DeviceState {
         return EntityKeyType.ATTRIBUTE;
     }
 
-    private DataSnapshot fetchLatestValues(TbContext ctx, EntityId originator) throws ExecutionException, InterruptedException {
+    /**
+     * Fetches the latest values of the device without blocking the caller.
+     */
+    public ListenableFuture<DataSnapshot> fetchLatestValues(TbContext ctx) {
         Set<AlarmConditionFilterKey> entityKeysToFetch = deviceProfile.getEntityKeys();
-        DataSnapshot result = new DataSnapshot(entityKeysToFetch);
-        addEntityKeysToSnapshot(ctx, originator, entityKeysToFetch, result);
-        return result;
-    }
-
-    private void addEntityKeysToSnapshot(TbContext ctx, EntityId originator, Set<AlarmConditionFilterKey> entityKeysToFetch, DataSnapshot result) throws InterruptedException, ExecutionException {
         Set<String> attributeKeys = new HashSet<>();
         Set<String> latestTsKeys = new HashSet<>();
-
-        Device device = null;
+        Set<String> entityFields = new HashSet<>();
         for (AlarmConditionFilterKey entityKey : entityKeysToFetch) {
-            String key = entityKey.getKey();
             switch (entityKey.getType()) {
-                case ATTRIBUTE:
-                    attributeKeys.add(key);
-                    break;
-                case TIME_SERIES:
-                    latestTsKeys.add(key);
-                    break;
-                case ENTITY_FIELD:
-                    if (device == null) {
-                        device = ctx.getDeviceService().findDeviceById(ctx.getTenantId(), new DeviceId(originator.getId()));
-                    }
-                    if (device != null) {
-                        switch (key) {
-                            case EntityKeyMapping.NAME:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getName()));
-                                break;
-                            case EntityKeyMapping.TYPE:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getType()));
-                                break;
-                            case EntityKeyMapping.CREATED_TIME:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromLong(device.getCreatedTime()));
-                                break;
-                            case EntityKeyMapping.LABEL:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getLabel()));
-                                break;
-                        }
-                    }
-                    break;
+                case ATTRIBUTE -> attributeKeys.add(entityKey.getKey());
+                case TIME_SERIES -> latestTsKeys.add(entityKey.getKey());
+                case ENTITY_FIELD -> entityFields.add(entityKey.getKey());
             }
         }
 
-        if (!latestTsKeys.isEmpty()) {
-            List<TsKvEntry> data = ctx.getTimeseriesService().findLatest(ctx.getTenantId(), originator, latestTsKeys).get();
-            for (TsKvEntry entry : data) {
+        ListenableFuture<Device> deviceFuture = entityFields.isEmpty() ? Futures.immediateFuture(null) :
+                ctx.getDeviceService().findDeviceByIdAsync(ctx.getTenantId(), deviceId);
+        ListenableFuture<List<TsKvEntry>> tsFuture = latestTsKeys.isEmpty() ? Futures.immediateFuture(Collections.emptyList()) :
+                ctx.getTimeseriesService().findLatest(ctx.getTenantId(), deviceId, latestTsKeys);
+        List<ListenableFuture<List<AttributeKvEntry>>> attributeFutures = new ArrayList<>();
+        if (!attributeKeys.isEmpty()) {
+            // The order of the scopes defines which value is used when the same key exists in several scopes.
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), deviceId, AttributeScope.CLIENT_SCOPE, attributeKeys));
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), deviceId, AttributeScope.SHARED_SCOPE, attributeKeys));
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), deviceId, AttributeScope.SERVER_SCOPE, attributeKeys));
+        }
+
+        List<ListenableFuture<?>> futures = new ArrayList<>(attributeFutures);
+        futures.add(deviceFuture);
+        futures.add(tsFuture);
+        return Futures.whenAllSucceed(futures).call(() -> {
+            DataSnapshot result = new DataSnapshot(entityKeysToFetch);
+            Device device = Futures.getDone(deviceFuture);
+            if (device != null) {
+                for (String field : entityFields) {
+                    EntityKeyValue value = toEntityFieldValue(field, device);
+                    if (value != null) {
+                        result.putValue(new AlarmConditionFilterKey(AlarmConditionKeyType.ENTITY_FIELD, field), device.getCreatedTime(), value);
+                    }
+                }
+            }
+            for (TsKvEntry entry : Futures.getDone(tsFuture)) {
                 if (entry.getValue() != null) {
                     result.putValue(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, entry.getKey()), entry.getTs(), toEntityValue(entry));
                 }
             }
+            for (ListenableFuture<List<AttributeKvEntry>> attributeFuture : attributeFutures) {
+                addToSnapshot(result, Futures.getDone(attributeFuture));
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Fetches the tenant and customer attributes used by the dynamic values without blocking the caller.
+     */
+    public ListenableFuture<DynamicValues> fetchDynamicValues(TbContext ctx) {
+        return dynamicPredicateValueCtx.fetchValues(ctx, Set.copyOf(deviceProfile.getTenantKeys()), Set.copyOf(deviceProfile.getCustomerKeys()));
+    }
+
+    /**
+     * Creates the snapshot from the result of the entity data query, that fetches the latest values of many devices at once.
+     * The values of the query are strings, so the typed comparisons rely on the same conversions as the values from the message data.
+     */
+    public static DataSnapshot toSnapshot(Set<AlarmConditionFilterKey> entityKeys, EntityData entityData) {
+        DataSnapshot result = new DataSnapshot(entityKeys);
+        Map<String, TsValue> entityFields = entityData.getLatest().getOrDefault(EntityKeyType.ENTITY_FIELD, Collections.emptyMap());
+        TsValue createdTime = entityFields.get(EntityKeyMapping.CREATED_TIME);
+        long createdTs = createdTime != null && StringUtils.isNotEmpty(createdTime.getValue()) ? Long.parseLong(createdTime.getValue()) : 0L;
+        for (AlarmConditionFilterKey entityKey : entityKeys) {
+            switch (entityKey.getType()) {
+                case ENTITY_FIELD -> {
+                    TsValue value = entityFields.get(entityKey.getKey());
+                    if (value != null) {
+                        result.putValue(entityKey, createdTs, EntityKeyMapping.CREATED_TIME.equals(entityKey.getKey()) ?
+                                EntityKeyValue.fromLong(createdTs) : EntityKeyValue.fromString(value.getValue()));
+                    }
+                }
+                case TIME_SERIES -> putToSnapshot(result, entityKey, entityData, EntityKeyType.TIME_SERIES);
+                case ATTRIBUTE -> {
+                    putToSnapshot(result, entityKey, entityData, EntityKeyType.CLIENT_ATTRIBUTE);
+                    putToSnapshot(result, entityKey, entityData, EntityKeyType.SHARED_ATTRIBUTE);
+                    putToSnapshot(result, entityKey, entityData, EntityKeyType.SERVER_ATTRIBUTE);
+                }
+            }
         }
-        if (!attributeKeys.isEmpty()) {
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.CLIENT_SCOPE, attributeKeys).get());
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SHARED_SCOPE, attributeKeys).get());
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SERVER_SCOPE, attributeKeys).get());
+        return result;
+    }
+
+    private static void putToSnapshot(DataSnapshot snapshot, AlarmConditionFilterKey entityKey, EntityData entityData, EntityKeyType keyType) {
+        Map<String, TsValue> values = entityData.getLatest().get(keyType);
+        TsValue value = values != null ? values.get(entityKey.getKey()) : null;
+        // The query returns an empty value with zero timestamp for the keys that don't exist.
+        if (value != null && value.getTs() > 0) {
+            snapshot.putValue(entityKey, value.getTs(), EntityKeyValue.fromString(value.getValue()));
         }
     }
 
-    private void addToSnapshot(DataSnapshot snapshot, List<AttributeKvEntry> data) {
+    private static EntityKeyValue toEntityFieldValue(String field, Device device) {
+        return switch (field) {
+            case EntityKeyMapping.NAME -> EntityKeyValue.fromString(device.getName());
+            case EntityKeyMapping.TYPE -> EntityKeyValue.fromString(device.getType());
+            case EntityKeyMapping.CREATED_TIME -> EntityKeyValue.fromLong(device.getCreatedTime());
+            case EntityKeyMapping.LABEL -> EntityKeyValue.fromString(device.getLabel());
+            default -> null;
+        };
+    }
+
+    private static void addToSnapshot(DataSnapshot snapshot, List<AttributeKvEntry> data) {
         for (AttributeKvEntry entry : data) {
             if (entry.getValue() != null) {
                 EntityKeyValue value = toEntityValue(entry);
@@ -15,61 +15,115 @@
  */
 package org.thingsboard.rule.engine.profile;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.server.common.data.AttributeScope;
-import org.thingsboard.server.common.data.DataConstants;
-import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Keeps the tenant and customer attributes used by the dynamic predicate values. The attributes are fetched
+ * asynchronously together with the latest values of the device, so the rule node actor doesn't wait for them.
+ */
 @Slf4j
 public class DynamicPredicateValueCtxImpl implements DynamicPredicateValueCtx {
     private final TenantId tenantId;
     private CustomerId customerId;
+    private boolean customerFetched;
     private final DeviceId deviceId;
-    private final TbContext ctx;
+    private Map<String, EntityKeyValue> tenantValues = Collections.emptyMap();
+    private Map<String, EntityKeyValue> customerValues = Collections.emptyMap();
+    private boolean fetched;
 
-    public DynamicPredicateValueCtxImpl(TenantId tenantId, DeviceId deviceId, TbContext ctx) {
+    public DynamicPredicateValueCtxImpl(TenantId tenantId, DeviceId deviceId) {
         this.tenantId = tenantId;
         this.deviceId = deviceId;
-        this.ctx = ctx;
-        resetCustomer();
     }
 
     @Override
     public EntityKeyValue getTenantValue(String key) {
-        return getValue(tenantId, key);
+        return tenantValues.get(key);
     }
 
     @Override
     public EntityKeyValue getCustomerValue(String key) {
-        return customerId == null || customerId.isNullUid() ? null : getValue(customerId, key);
+        return customerId == null || customerId.isNullUid() ? null : customerValues.get(key);
     }
 
     @Override
     public void resetCustomer() {
-        Device device = ctx.getDeviceService().findDeviceById(tenantId, deviceId);
-        if (device != null) {
-            this.customerId = device.getCustomerId();
+        customerFetched = false;
+        fetched = false;
+    }
+
+    public boolean isFetched() {
+        return fetched;
+    }
+
+    /**
+     * Marks the values as outdated, so the values are fetched again before the next message is processed.
+     * The outdated values are still used by the periodic evaluation of the alarm rules.
+     */
+    public void invalidate() {
+        fetched = false;
+    }
+
+    public void update(DynamicValues values) {
+        this.customerId = values.customerId();
+        this.customerFetched = true;
+        this.tenantValues = values.tenantValues();
+        this.customerValues = values.customerValues();
+        this.fetched = true;
+    }
+
+    /**
+     * Fetches the values without blocking the caller. The values that fail to load are treated as missing.
+     */
+    public ListenableFuture<DynamicValues> fetchValues(TbContext ctx, Set<String> tenantKeys, Set<String> customerKeys) {
+        ListenableFuture<CustomerId> customerIdFuture;
+        if (customerKeys.isEmpty() || customerFetched) {
+            customerIdFuture = Futures.immediateFuture(customerId);
+        } else {
+            customerIdFuture = Futures.transform(ctx.getDeviceService().findDeviceByIdAsync(tenantId, deviceId),
+                    device -> device != null ? device.getCustomerId() : null, MoreExecutors.directExecutor());
         }
+        ListenableFuture<Map<String, EntityKeyValue>> tenantValuesFuture = getValues(ctx, tenantId, tenantKeys);
+        ListenableFuture<Map<String, EntityKeyValue>> customerValuesFuture = Futures.transformAsync(customerIdFuture,
+                id -> id == null || id.isNullUid() ? Futures.immediateFuture(Collections.emptyMap()) : getValues(ctx, id, customerKeys),
+                MoreExecutors.directExecutor());
+        return Futures.whenAllSucceed(customerIdFuture, tenantValuesFuture, customerValuesFuture).call(() ->
+                new DynamicValues(Futures.getDone(customerIdFuture), Futures.getDone(tenantValuesFuture), Futures.getDone(customerValuesFuture)),
+                MoreExecutors.directExecutor());
     }
 
-    private EntityKeyValue getValue(EntityId entityId, String key) {
-        try {
-            Optional<AttributeKvEntry> entry = ctx.getAttributesService().find(tenantId, entityId, AttributeScope.SERVER_SCOPE, key).get();
-            if (entry.isPresent()) {
-                return DeviceState.toEntityValue(entry.get());
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            log.warn("Failed to get attribute by key: {} for {}: [{}]", key, entityId.getEntityType(), entityId.getId());
+    private ListenableFuture<Map<String, EntityKeyValue>> getValues(TbContext ctx, EntityId entityId, Set<String> keys) {
+        if (keys.isEmpty()) {
+            return Futures.immediateFuture(Collections.emptyMap());
         }
-        return null;
+        ListenableFuture<Map<String, EntityKeyValue>> future = Futures.transform(
+                ctx.getAttributesService().find(tenantId, entityId, AttributeScope.SERVER_SCOPE, keys), entries -> {
+                    Map<String, EntityKeyValue> values = new HashMap<>();
+                    for (AttributeKvEntry entry : entries) {
+                        values.put(entry.getKey(), DeviceState.toEntityValue(entry));
+                    }
+                    return values;
+                }, MoreExecutors.directExecutor());
+        return Futures.catching(future, Throwable.class, t -> {
+            log.warn("Failed to get attributes by keys: {} for {}: [{}]", keys, entityId.getEntityType(), entityId.getId(), t);
+            return Collections.emptyMap();
+        }, MoreExecutors.directExecutor());
     }
+
+    record DynamicValues(CustomerId customerId, Map<String, EntityKeyValue> tenantValues, Map<String, EntityKeyValue> customerValues) {}
 }
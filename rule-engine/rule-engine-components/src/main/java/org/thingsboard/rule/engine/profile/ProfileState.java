@@ -52,6 +52,11 @@ class ProfileState {
     private final List<DeviceProfileAlarm> alarmSettings = new CopyOnWriteArrayList<>();
     @Getter(AccessLevel.PACKAGE)
     private final Set<AlarmConditionFilterKey> entityKeys = ConcurrentHashMap.newKeySet();
+    // Attributes of the tenant and the customer that are used by the dynamic values
+    @Getter(AccessLevel.PACKAGE)
+    private final Set<String> tenantKeys = ConcurrentHashMap.newKeySet();
+    @Getter(AccessLevel.PACKAGE)
+    private final Set<String> customerKeys = ConcurrentHashMap.newKeySet();
 
     private final Map<String, Map<AlarmSeverity, Set<AlarmConditionFilterKey>>> alarmCreateKeys = new HashMap<>();
     private final Map<String, Set<AlarmConditionFilterKey>> alarmClearKeys = new HashMap<>();
@@ -66,6 +71,8 @@ class ProfileState {
         alarmCreateKeys.clear();
         alarmClearKeys.clear();
         entityKeys.clear();
+        tenantKeys.clear();
+        customerKeys.clear();
         if (deviceProfile.getProfileData().getAlarms() != null) {
             alarmSettings.addAll(deviceProfile.getProfileData().getAlarms());
             for (DeviceProfileAlarm alarm : deviceProfile.getProfileData().getAlarms()) {
@@ -99,6 +106,7 @@ class ProfileState {
     private void addScheduleDynamicValues(AlarmSchedule schedule) {
         DynamicValue<String> dynamicValue = schedule.getDynamicValue();
         if (dynamicValue != null) {
+            addTenantAndCustomerKeys(dynamicValue);
             entityKeys.add(
                     new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE,
                             dynamicValue.getSourceAttribute())
@@ -117,6 +125,7 @@ class ProfileState {
                 DurationAlarmConditionSpec duration = (DurationAlarmConditionSpec) spec;
                 if(duration.getPredicate().getDynamicValue() != null
                         && duration.getPredicate().getDynamicValue().getSourceAttribute() != null) {
+                    addTenantAndCustomerKeys(duration.getPredicate().getDynamicValue());
                     entityKeys.add(
                             new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE,
                                     duration.getPredicate().getDynamicValue().getSourceAttribute())
@@ -127,6 +136,7 @@ class ProfileState {
                 RepeatingAlarmConditionSpec repeating = (RepeatingAlarmConditionSpec) spec;
                 if(repeating.getPredicate().getDynamicValue() != null
                         && repeating.getPredicate().getDynamicValue().getSourceAttribute() != null) {
+                    addTenantAndCustomerKeys(repeating.getPredicate().getDynamicValue());
                     entityKeys.add(
                             new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE,
                                     repeating.getPredicate().getDynamicValue().getSourceAttribute())
@@ -149,6 +159,7 @@ class ProfileState {
                     AlarmConditionFilterKey entityKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, value.getSourceAttribute());
                     entityKeys.add(entityKey);
                     ruleKeys.add(entityKey);
+                    addTenantAndCustomerKeys(value);
                 }
                 break;
             case COMPLEX:
@@ -159,6 +170,32 @@ class ProfileState {
         }
     }
 
+    private void addTenantAndCustomerKeys(DynamicValue<?> value) {
+        String key = value.getSourceAttribute();
+        if (key == null) {
+            return;
+        }
+        // Follows the lookup order of the dynamic value: device, customer and then tenant, when the value is inherited
+        switch (value.getSourceType()) {
+            case CURRENT_DEVICE:
+                if (!value.isInherit()) {
+                    break;
+                }
+            case CURRENT_CUSTOMER:
+                customerKeys.add(key);
+                if (!value.isInherit()) {
+                    break;
+                }
+            case CURRENT_TENANT:
+                tenantKeys.add(key);
+                break;
+        }
+    }
+
+    boolean hasTenantOrCustomerKeys() {
+        return !tenantKeys.isEmpty() || !customerKeys.isEmpty();
+    }
+
     DeviceProfileId getProfileId() {
         return deviceProfile.getId();
     }
@@ -17,6 +17,11 @@ package org.thingsboard.rule.engine.profile;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceProfileCache;
@@ -26,25 +31,50 @@ import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.profile.DynamicPredicateValueCtxImpl.DynamicValues;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
+import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.plugin.ComponentType;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityListFilter;
 import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
+import org.thingsboard.server.dao.sql.query.EntityKeyMapping;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RuleNode(
@@ -61,11 +91,34 @@ import java.util.concurrent.TimeUnit;
 )
 public class TbDeviceProfileNode implements TbNode {
 
+    // Hard-coded limit of the Entity Data Query.
+    private static final int SNAPSHOT_FETCH_BATCH_SIZE = 1000;
+    private static final long STATE_PERSIST_INTERVAL_MS = TimeUnit.SECONDS.toMillis(1);
+
     private TbDeviceProfileNodeConfiguration config;
     private RuleEngineDeviceProfileCache cache;
     private TbContext ctx;
     private final Map<DeviceId, DeviceState> deviceStates = new ConcurrentHashMap<>();
 
+    // Devices that wait for the latest values. Accessed from the rule node actor only.
+    private final Set<DeviceId> snapshotsToFetch = new LinkedHashSet<>();
+    private boolean snapshotFetchScheduled;
+    // Devices that are moved to another server while their messages wait for the latest values.
+    private final Set<DeviceId> statesToEvict = new HashSet<>();
+    // Results of the fetches, completed outside the rule node actor.
+    private final Queue<FetchedSnapshots> fetchedSnapshots = new ConcurrentLinkedQueue<>();
+
+    // Alarm rule states that are changed or removed since the last save. Accessed from the rule node actor only.
+    private final Set<DeviceId> dirtyStates = new LinkedHashSet<>();
+    private final Set<DeviceId> statesToRemove = new LinkedHashSet<>();
+    private boolean persistScheduled;
+    private ListenableFuture<?> persistFuture;
+    private final Queue<RuleNodeState> savedStates = new ConcurrentLinkedQueue<>();
+    // States inserted by the DB callback executor, so the following saves of the same devices update the inserted rows
+    private final Map<DeviceId, RuleNodeState> insertedStates = new ConcurrentHashMap<>();
+    // States of the devices that became local, fetched outside the rule node actor.
+    private final Queue<RestoredStates> restoredStates = new ConcurrentLinkedQueue<>();
+
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbDeviceProfileNodeConfiguration.class);
@@ -76,32 +129,72 @@ public class TbDeviceProfileNode implements TbNode {
         initAlarmRuleState(false);
     }
 
+    /**
+     * Fetches the alarm rule states of the local devices that are not loaded yet in the DB callback executor.
+     * The states are applied by the rule node actor, unless the messages of the device already loaded its state.
+     */
     private void initAlarmRuleState(boolean printNewlyAddedDeviceStates) {
         if (config.isFetchAlarmRulesStateOnStart()) {
-            log.info("[{}] Fetching alarm rule state", ctx.getSelfId());
-            int fetchCount = 0;
-            PageLink pageLink = new PageLink(1024);
-            while (true) {
-                PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
-                if (!states.getData().isEmpty()) {
+            Set<DeviceId> loaded = Set.copyOf(deviceStates.keySet());
+            ListenableFuture<List<RuleNodeState>> future = ctx.getDbCallbackExecutor().executeAsync(() -> {
+                log.info("[{}] Fetching alarm rule state", ctx.getSelfId());
+                int fetchCount = 0;
+                List<RuleNodeState> result = new ArrayList<>();
+                PageLink pageLink = new PageLink(1024);
+                while (true) {
+                    PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
                     for (RuleNodeState rns : states.getData()) {
                         fetchCount++;
-                        if (rns.getEntityId().getEntityType().equals(EntityType.DEVICE) && ctx.isLocalEntity(rns.getEntityId())) {
-                            getOrCreateDeviceState(ctx, new DeviceId(rns.getEntityId().getId()), rns, printNewlyAddedDeviceStates);
+                        EntityId entityId = rns.getEntityId();
+                        if (entityId.getEntityType().equals(EntityType.DEVICE) && !loaded.contains(entityId) && ctx.isLocalEntity(entityId)) {
+                            result.add(rns);
                         }
                     }
+                    if (!states.hasNext()) {
+                        break;
+                    } else {
+                        pageLink = pageLink.nextPageLink();
+                    }
                 }
-                if (!states.hasNext()) {
-                    break;
-                } else {
-                    pageLink = pageLink.nextPageLink();
+                log.info("[{}] Fetched alarm rule state for {} entities", ctx.getSelfId(), fetchCount);
+                return result;
+            });
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(List<RuleNodeState> states) {
+                    if (!states.isEmpty()) {
+                        restoredStates.add(new RestoredStates(states, printNewlyAddedDeviceStates));
+                        ctx.tellSelf(TbMsg.newMsg(TbMsgType.DEVICE_PROFILE_RESTORE_STATE_SELF_MSG, ctx.getTenantId(), TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), 0L);
+                    }
                 }
-            }
-            log.info("[{}] Fetched alarm rule state for {} entities", ctx.getSelfId(), fetchCount);
+
+                @Override
+                public void onFailure(Throwable t) {
+                    log.warn("[{}] Failed to fetch alarm rule state", ctx.getSelfId(), t);
+                }
+            }, MoreExecutors.directExecutor());
         }
         if (!config.isPersistAlarmRulesState() && ctx.isLocalEntity(ctx.getSelfId())) {
             log.debug("[{}] Going to cleanup rule node states", ctx.getSelfId());
-            ctx.clearRuleNodeStates();
+            ctx.getDbCallbackExecutor().executeAsync(ctx::clearRuleNodeStates);
+        }
+    }
+
+    private void applyRestoredStates(TbContext ctx) {
+        RestoredStates restored;
+        while ((restored = restoredStates.poll()) != null) {
+            for (RuleNodeState rns : restored.states()) {
+                DeviceId deviceId = new DeviceId(rns.getEntityId().getId());
+                // Skips the devices that moved again or were removed while the states were being fetched
+                if (!ctx.isLocalEntity(deviceId) || statesToRemove.contains(deviceId)) {
+                    continue;
+                }
+                try {
+                    getOrCreateDeviceState(ctx, deviceId, rns, restored.printNewlyAddedDeviceStates());
+                } catch (Exception e) {
+                    log.warn("[{}][{}] Failed to restore alarm rule state", ctx.getSelfId(), deviceId, e);
+                }
+            }
         }
     }
 
@@ -111,6 +204,15 @@ public class TbDeviceProfileNode implements TbNode {
         if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_PERIODIC_SELF_MSG)) {
             scheduleAlarmHarvesting(ctx, msg);
             harvestAlarms(ctx, System.currentTimeMillis());
+        } else if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_SNAPSHOT_SELF_MSG)) {
+            snapshotFetchScheduled = false;
+            applyFetchedSnapshots(ctx);
+            fetchSnapshots(ctx);
+        } else if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_PERSIST_STATE_SELF_MSG)) {
+            persistScheduled = false;
+            persistStates(ctx, deviceId -> true);
+        } else if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_RESTORE_STATE_SELF_MSG)) {
+            applyRestoredStates(ctx);
         } else if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_UPDATE_SELF_MSG)) {
             updateProfile(ctx, new DeviceProfileId(UUID.fromString(msg.getData())));
         } else if (msg.isTypeOf(TbMsgType.DEVICE_UPDATE_SELF_MSG)) {
@@ -133,7 +235,7 @@ public class TbDeviceProfileNode implements TbNode {
                 } else {
                     DeviceState deviceState = getOrCreateDeviceState(ctx, deviceId, null, false);
                     if (deviceState != null) {
-                        deviceState.process(ctx, msg);
+                        process(ctx, deviceState, msg);
                     } else {
                         log.info("Device was not found! Most probably device [" + deviceId + "] has been removed from the database. Acknowledging msg.");
                         ctx.ack(msg);
@@ -147,15 +249,322 @@ public class TbDeviceProfileNode implements TbNode {
 
     @Override
     public void onPartitionChangeMsg(TbContext ctx, PartitionChangeMsg msg) {
-        // Cleanup the cache for all entities that are no longer assigned to current server partitions
-        deviceStates.entrySet().removeIf(entry -> !ctx.isLocalEntity(entry.getKey()));
+        // Save the alarm rule state before the new owner of the device fetches it
+        persistStates(ctx, id -> !ctx.isLocalEntity(id));
+        // Cleanup the cache for all entities that are no longer assigned to current server partitions.
+        // The devices with messages that wait for the latest values are removed after the messages are processed.
+        statesToEvict.clear();
+        deviceStates.entrySet().removeIf(entry -> {
+            if (ctx.isLocalEntity(entry.getKey())) {
+                return false;
+            }
+            if (entry.getValue().isFetchRequested()) {
+                statesToEvict.add(entry.getKey());
+                return false;
+            }
+            return true;
+        });
+        // Only the devices that became local are restored, the states of the rest are already loaded
         initAlarmRuleState(true);
     }
 
     @Override
     public void destroy() {
         ctx.removeListeners();
+        persistStates(ctx, id -> true);
         deviceStates.clear();
+        statesToEvict.clear();
+        fetchedSnapshots.clear();
+        restoredStates.clear();
+    }
+
+    private void process(TbContext ctx, DeviceState deviceState, TbMsg msg) throws ExecutionException, InterruptedException {
+        if (!deviceState.hasLatestValues() && !deviceState.isFetchRequested() && deviceState.getEntityKeys().isEmpty()) {
+            deviceState.setLatestValues(new DataSnapshot(deviceState.getEntityKeys()));
+        }
+        if (deviceState.isReady() && !deviceState.hasPendingMsgs()) {
+            onStateChanged(ctx, deviceState, deviceState.process(ctx, msg));
+            deviceState.invalidateDynamicValues();
+        } else {
+            // The messages of the device are processed in order once the latest values are fetched
+            deviceState.addPendingMsg(msg);
+            requestSnapshot(ctx, deviceState);
+        }
+    }
+
+    private void processPendingMsgs(TbContext ctx, DeviceState deviceState) {
+        TbMsg msg;
+        while (deviceState.isReady() && (msg = deviceState.pollPendingMsg()) != null) {
+            try {
+                onStateChanged(ctx, deviceState, deviceState.process(ctx, msg));
+            } catch (Exception e) {
+                ctx.tellFailure(msg, e);
+            }
+        }
+        // The messages that arrive after the batch are processed with the current values of the tenant and customer attributes
+        deviceState.invalidateDynamicValues();
+        if (deviceState.hasPendingMsgs()) {
+            requestSnapshot(ctx, deviceState);
+        }
+    }
+
+    private void requestSnapshot(TbContext ctx, DeviceState deviceState) {
+        if (deviceState.isFetchRequested()) {
+            return;
+        }
+        deviceState.setFetchRequested(true);
+        snapshotsToFetch.add(deviceState.getDeviceId());
+        if (!snapshotFetchScheduled) {
+            // Lets the messages that are already in the mailbox add their devices to the same fetch
+            snapshotFetchScheduled = true;
+            tellSnapshotSelfMsg(ctx);
+        }
+    }
+
+    private void fetchSnapshots(TbContext ctx) {
+        if (snapshotsToFetch.isEmpty()) {
+            return;
+        }
+        Map<Set<AlarmConditionFilterKey>, List<DeviceState>> statesByKeys = new HashMap<>();
+        for (DeviceId deviceId : snapshotsToFetch) {
+            DeviceState deviceState = deviceStates.get(deviceId);
+            if (deviceState != null) {
+                statesByKeys.computeIfAbsent(Set.copyOf(deviceState.getEntityKeys()), keys -> new ArrayList<>()).add(deviceState);
+            }
+        }
+        snapshotsToFetch.clear();
+        statesByKeys.forEach((keys, states) -> {
+            for (List<DeviceState> batch : Lists.partition(states, SNAPSHOT_FETCH_BATCH_SIZE)) {
+                fetchSnapshots(ctx, keys, batch);
+            }
+        });
+    }
+
+    private void fetchSnapshots(TbContext ctx, Set<AlarmConditionFilterKey> keys, List<DeviceState> batch) {
+        Map<DeviceId, Integer> versions = new LinkedHashMap<>();
+        batch.forEach(deviceState -> versions.put(deviceState.getDeviceId(), deviceState.getSnapshotVersion()));
+        List<DeviceState> snapshotBatch = batch.stream().filter(deviceState -> !deviceState.hasLatestValues()).toList();
+        ListenableFuture<FetchedSnapshots> future;
+        try {
+            ListenableFuture<Map<DeviceId, DataSnapshot>> snapshotsFuture;
+            if (snapshotBatch.isEmpty()) {
+                snapshotsFuture = Futures.immediateFuture(Collections.emptyMap());
+            } else if (snapshotBatch.size() > 1 && isBulkFetchSupported(ctx, keys)) {
+                snapshotsFuture = fetchSnapshotsInBulk(ctx, keys, snapshotBatch.stream().map(DeviceState::getDeviceId).collect(Collectors.toSet()));
+            } else {
+                // A single device doesn't benefit from the entity data query, while the separate requests may use the caches
+                List<ListenableFuture<DataSnapshot>> futures = snapshotBatch.stream().map(deviceState -> deviceState.fetchLatestValues(ctx)).toList();
+                snapshotsFuture = Futures.transform(Futures.allAsList(futures), snapshots -> {
+                    Map<DeviceId, DataSnapshot> result = new HashMap<>();
+                    for (int i = 0; i < snapshotBatch.size(); i++) {
+                        result.put(snapshotBatch.get(i).getDeviceId(), snapshots.get(i));
+                    }
+                    return result;
+                }, MoreExecutors.directExecutor());
+            }
+            // The tenant and customer attributes of the dynamic values are fetched together with the latest values
+            Map<DeviceId, ListenableFuture<DynamicValues>> dynamicValuesFutures = new HashMap<>();
+            for (DeviceState deviceState : batch) {
+                if (!deviceState.hasDynamicValues()) {
+                    dynamicValuesFutures.put(deviceState.getDeviceId(), deviceState.fetchDynamicValues(ctx));
+                }
+            }
+            List<ListenableFuture<?>> futures = new ArrayList<>(dynamicValuesFutures.values());
+            futures.add(snapshotsFuture);
+            future = Futures.whenAllSucceed(futures).call(() -> {
+                Map<DeviceId, DynamicValues> dynamicValues = new HashMap<>();
+                for (Map.Entry<DeviceId, ListenableFuture<DynamicValues>> entry : dynamicValuesFutures.entrySet()) {
+                    dynamicValues.put(entry.getKey(), Futures.getDone(entry.getValue()));
+                }
+                return new FetchedSnapshots(versions, Futures.getDone(snapshotsFuture), dynamicValues, null);
+            }, MoreExecutors.directExecutor());
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(FetchedSnapshots result) {
+                fetchedSnapshots.add(result);
+                tellSnapshotSelfMsg(ctx);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fetchedSnapshots.add(new FetchedSnapshots(versions, null, null, t));
+                tellSnapshotSelfMsg(ctx);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private boolean isBulkFetchSupported(TbContext ctx, Set<AlarmConditionFilterKey> keys) {
+        // The entity data query reads the latest time series from the SQL database only
+        return keys.stream().noneMatch(key -> key.getType() == AlarmConditionKeyType.TIME_SERIES)
+                || ctx.getDbTypeInfoComponent().isLatestTsDaoStoredToSql();
+    }
+
+    private ListenableFuture<Map<DeviceId, DataSnapshot>> fetchSnapshotsInBulk(TbContext ctx, Set<AlarmConditionFilterKey> keys, Set<DeviceId> deviceIds) {
+        EntityListFilter filter = new EntityListFilter();
+        filter.setEntityType(EntityType.DEVICE);
+        filter.setEntityList(deviceIds.stream().map(DeviceId::getId).map(UUID::toString).toList());
+        List<EntityKey> entityFields = new ArrayList<>();
+        List<EntityKey> latestValues = new ArrayList<>();
+        for (AlarmConditionFilterKey key : keys) {
+            switch (key.getType()) {
+                case ENTITY_FIELD -> entityFields.add(new EntityKey(EntityKeyType.ENTITY_FIELD, key.getKey()));
+                case TIME_SERIES -> latestValues.add(new EntityKey(EntityKeyType.TIME_SERIES, key.getKey()));
+                case ATTRIBUTE -> {
+                    latestValues.add(new EntityKey(EntityKeyType.CLIENT_ATTRIBUTE, key.getKey()));
+                    latestValues.add(new EntityKey(EntityKeyType.SHARED_ATTRIBUTE, key.getKey()));
+                    latestValues.add(new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, key.getKey()));
+                }
+            }
+        }
+        if (!entityFields.isEmpty()) {
+            // The creation time is used as the timestamp of the entity fields
+            entityFields.add(new EntityKey(EntityKeyType.ENTITY_FIELD, EntityKeyMapping.CREATED_TIME));
+        }
+        EntityDataQuery query = new EntityDataQuery(filter, new EntityDataPageLink(deviceIds.size(), 0, null, null),
+                entityFields, latestValues, Collections.emptyList());
+        return ctx.getDbCallbackExecutor().executeAsync(() -> {
+            PageData<EntityData> data = ctx.getEntityService().findEntityDataByQuery(ctx.getTenantId(), new CustomerId(EntityId.NULL_UUID), query);
+            Map<DeviceId, DataSnapshot> result = new HashMap<>();
+            for (EntityData entityData : data.getData()) {
+                result.put(new DeviceId(entityData.getEntityId().getId()), DeviceState.toSnapshot(keys, entityData));
+            }
+            return result;
+        });
+    }
+
+    private void applyFetchedSnapshots(TbContext ctx) {
+        FetchedSnapshots fetched;
+        while ((fetched = fetchedSnapshots.poll()) != null) {
+            for (Map.Entry<DeviceId, Integer> entry : fetched.versions().entrySet()) {
+                DeviceState deviceState = deviceStates.get(entry.getKey());
+                if (deviceState == null || !deviceState.isFetchRequested()) {
+                    continue;
+                }
+                deviceState.setFetchRequested(false);
+                if (fetched.error() != null) {
+                    log.warn("[{}][{}] Failed to fetch latest values of the device", ctx.getSelfId(), entry.getKey(), fetched.error());
+                    TbMsg msg;
+                    while ((msg = deviceState.pollPendingMsg()) != null) {
+                        ctx.tellFailure(msg, fetched.error());
+                    }
+                } else if (deviceState.getSnapshotVersion() != entry.getValue()) {
+                    // The device profile was updated with new keys during the fetch
+                    requestSnapshot(ctx, deviceState);
+                } else {
+                    if (!deviceState.hasLatestValues()) {
+                        DataSnapshot snapshot = fetched.snapshots().get(entry.getKey());
+                        deviceState.setLatestValues(snapshot != null ? snapshot : new DataSnapshot(deviceState.getEntityKeys()));
+                    }
+                    DynamicValues dynamicValues = fetched.dynamicValues().get(entry.getKey());
+                    if (dynamicValues != null) {
+                        deviceState.setDynamicValues(dynamicValues);
+                    }
+                    processPendingMsgs(ctx, deviceState);
+                }
+                evictIfMoved(ctx, deviceState);
+            }
+        }
+    }
+
+    /**
+     * Saves and removes the state of the device that was moved to another server while its messages waited for the latest values.
+     */
+    private void evictIfMoved(TbContext ctx, DeviceState deviceState) {
+        DeviceId deviceId = deviceState.getDeviceId();
+        if (deviceState.isFetchRequested() || deviceState.hasPendingMsgs() || !statesToEvict.remove(deviceId)) {
+            return;
+        }
+        persistStates(ctx, deviceId::equals);
+        deviceStates.remove(deviceId);
+    }
+
+    private void tellSnapshotSelfMsg(TbContext ctx) {
+        ctx.tellSelf(TbMsg.newMsg(TbMsgType.DEVICE_PROFILE_SNAPSHOT_SELF_MSG, ctx.getTenantId(), TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), 0L);
+    }
+
+    private void onStateChanged(TbContext ctx, DeviceState deviceState, boolean stateChanged) {
+        if (stateChanged) {
+            dirtyStates.add(deviceState.getDeviceId());
+            schedulePersist(ctx);
+        }
+    }
+
+    private void schedulePersist(TbContext ctx) {
+        if (!persistScheduled) {
+            persistScheduled = true;
+            ctx.tellSelf(TbMsg.newMsg(TbMsgType.DEVICE_PROFILE_PERSIST_STATE_SELF_MSG, ctx.getTenantId(), TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), STATE_PERSIST_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Saves the alarm rule states changed since the previous call in a single task of the DB callback executor,
+     * so the states of the device that changed several times during the interval are saved once.
+     * The task starts after the previous one completes, so the older write can't overwrite the newer one.
+     */
+    private void persistStates(TbContext ctx, Predicate<DeviceId> filter) {
+        applySavedStates();
+        List<RuleNodeState> toSave = new ArrayList<>();
+        for (Iterator<DeviceId> iterator = dirtyStates.iterator(); iterator.hasNext(); ) {
+            DeviceId deviceId = iterator.next();
+            if (filter.test(deviceId)) {
+                iterator.remove();
+                DeviceState deviceState = deviceStates.get(deviceId);
+                if (deviceState != null) {
+                    toSave.add(deviceState.getStateToPersist());
+                }
+            }
+        }
+        if (toSave.isEmpty() && statesToRemove.isEmpty()) {
+            return;
+        }
+        List<DeviceId> toRemove = new ArrayList<>(statesToRemove);
+        statesToRemove.clear();
+        ListenableFuture<?> previous = persistFuture != null ? persistFuture : Futures.immediateVoidFuture();
+        persistFuture = Futures.whenAllComplete(previous).callAsync(() -> ctx.getDbCallbackExecutor().executeAsync(() -> {
+            for (DeviceId deviceId : toRemove) {
+                try {
+                    insertedStates.remove(deviceId);
+                    ctx.removeRuleNodeStateForEntity(deviceId);
+                } catch (Exception e) {
+                    log.warn("[{}][{}] Failed to remove alarm rule state", ctx.getSelfId(), deviceId, e);
+                }
+            }
+            for (RuleNodeState state : toSave) {
+                DeviceId deviceId = new DeviceId(state.getEntityId().getId());
+                try {
+                    RuleNodeState inserted = insertedStates.get(deviceId);
+                    if (state.getId() == null && inserted != null) {
+                        // The state was copied before the previous task inserted it
+                        state.setId(inserted.getId());
+                        state.setCreatedTime(inserted.getCreatedTime());
+                    }
+                    boolean insert = state.getId() == null;
+                    RuleNodeState savedState = ctx.saveRuleNodeState(state);
+                    if (insert) {
+                        insertedStates.put(deviceId, savedState);
+                    }
+                    savedStates.add(savedState);
+                } catch (Exception e) {
+                    log.warn("[{}][{}] Failed to save alarm rule state", ctx.getSelfId(), deviceId, e);
+                }
+            }
+            return null;
+        }), MoreExecutors.directExecutor());
+    }
+
+    private void applySavedStates() {
+        RuleNodeState savedState;
+        while ((savedState = savedStates.poll()) != null) {
+            DeviceId deviceId = new DeviceId(savedState.getEntityId().getId());
+            insertedStates.remove(deviceId, savedState);
+            DeviceState deviceState = deviceStates.get(deviceId);
+            if (deviceState != null) {
+                deviceState.onStateSaved(savedState);
+            }
+        }
     }
 
     protected DeviceState getOrCreateDeviceState(TbContext ctx, DeviceId deviceId, RuleNodeState rns, boolean printNewlyAddedDeviceStates) {
@@ -180,11 +589,11 @@ public class TbDeviceProfileNode implements TbNode {
 
     protected void harvestAlarms(TbContext ctx, long ts) throws ExecutionException, InterruptedException {
         for (DeviceState state : deviceStates.values()) {
-            state.harvestAlarms(ctx, ts);
+            onStateChanged(ctx, state, state.harvestAlarms(ctx, ts));
         }
     }
 
-    protected void updateProfile(TbContext ctx, DeviceProfileId deviceProfileId) throws ExecutionException, InterruptedException {
+    protected void updateProfile(TbContext ctx, DeviceProfileId deviceProfileId) {
         DeviceProfile deviceProfile = cache.get(ctx.getTenantId(), deviceProfileId);
         if (deviceProfile != null) {
             log.debug("[{}] Received device profile update notification: {}", ctx.getSelfId(), deviceProfile);
@@ -237,8 +646,32 @@ public class TbDeviceProfileNode implements TbNode {
 
     private void removeDeviceState(DeviceId deviceId) {
         DeviceState state = deviceStates.remove(deviceId);
+        dirtyStates.remove(deviceId);
         if (config.isPersistAlarmRulesState() && (state != null || !config.isFetchAlarmRulesStateOnStart())) {
-            ctx.removeRuleNodeStateForEntity(deviceId);
+            // Removed together with the pending saves, so the removal isn't overwritten by a save that is still in progress
+            statesToRemove.add(deviceId);
+            schedulePersist(ctx);
+        }
+        if (state != null && state.hasPendingMsgs()) {
+            // The device was deleted or moved to another profile while its latest values were being fetched
+            TbMsg msg;
+            while ((msg = state.pollPendingMsg()) != null) {
+                try {
+                    DeviceState newState = getOrCreateDeviceState(ctx, deviceId, null, false);
+                    if (newState != null) {
+                        process(ctx, newState, msg);
+                    } else {
+                        ctx.ack(msg);
+                    }
+                } catch (Exception e) {
+                    ctx.tellFailure(msg, e);
+                }
+            }
         }
     }
+
+    private record FetchedSnapshots(Map<DeviceId, Integer> versions, Map<DeviceId, DataSnapshot> snapshots,
+                                    Map<DeviceId, DynamicValues> dynamicValues, Throwable error) {}
+
+    private record RestoredStates(List<RuleNodeState> states, boolean printNewlyAddedDeviceStates) {}
 }
@@ -42,6 +42,7 @@ import java.util.stream.Collectors;
         name = "copy key-value pairs",
         version = 2,
         configClazz = TbCopyKeysNodeConfiguration.class,
+        inlineExecution = true,
         nodeDescription = "Copies key-value pairs from message to message metadata or vice-versa.",
         nodeDetails = "Copies key-value pairs from the message to message metadata, or vice-versa, according to the configured direction and keys. " +
                 "Regular expressions can be used to define which keys-value pairs to copy. Any configured key not found in the source will be ignored.<br><br>" +
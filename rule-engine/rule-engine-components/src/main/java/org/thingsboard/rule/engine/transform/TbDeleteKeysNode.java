@@ -42,6 +42,7 @@ import java.util.stream.Collectors;
         name = "delete key-value pairs",
         version = 2,
         configClazz = TbDeleteKeysNodeConfiguration.class,
+        inlineExecution = true,
         nodeDescription = "Deletes key-value pairs from message or message metadata.",
         nodeDetails = "Deletes key-value pairs from the message or message metadata according to the configured " +
                 "keys and/or regular expressions.<br><br>" +
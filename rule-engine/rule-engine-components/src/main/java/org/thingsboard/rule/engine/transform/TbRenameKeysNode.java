@@ -39,6 +39,7 @@ import java.util.concurrent.ExecutionException;
         name = "rename keys",
         version = 2,
         configClazz = TbRenameKeysNodeConfiguration.class,
+        inlineExecution = true,
         nodeDescription = "Renames message or message metadata keys.",
         nodeDetails = "Renames keys in the message or message metadata according to the provided mapping. " +
                 "If key to rename doesn't exist in the specified source (message or message metadata) it will be ignored.<br><br>" +
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.deduplication;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeduplicationTimerWheelTest {
+
+    @Test
+    public void givenDeadlines_whenAdvance_thenReturnOnlyExpired() {
+        DeduplicationTimerWheel wheel = new DeduplicationTimerWheel(100, 8, 0);
+        DeviceId first = new DeviceId(UUID.randomUUID());
+        DeviceId second = new DeviceId(UUID.randomUUID());
+        wheel.schedule(first, 250);
+        wheel.schedule(second, 450);
+
+        assertThat(wheel.advance(200)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactly(first);
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(500)).containsExactly(second);
+        assertThat(wheel.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenDeadlineAfterFullRotation_whenAdvance_thenKeepUntilDeadline() {
+        DeduplicationTimerWheel wheel = new DeduplicationTimerWheel(100, 4, 0);
+        DeviceId id = new DeviceId(UUID.randomUUID());
+        wheel.schedule(id, 1000);
+
+        assertThat(wheel.advance(400)).isEmpty();
+        assertThat(wheel.advance(900)).isEmpty();
+        assertThat(wheel.advance(1000)).containsExactly(id);
+    }
+
+    @Test
+    public void givenPastDeadline_whenAdvance_thenExpireOnNextTick() {
+        DeduplicationTimerWheel wheel = new DeduplicationTimerWheel(100, 4, 1000);
+        DeviceId id = new DeviceId(UUID.randomUUID());
+        wheel.schedule(id, 500);
+
+        assertThat(wheel.advance(1050)).isEmpty();
+        assertThat(wheel.advance(1100)).containsExactly(id);
+    }
+
+}
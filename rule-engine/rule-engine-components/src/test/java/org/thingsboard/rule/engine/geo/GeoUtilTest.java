@@ -160,4 +160,25 @@ public class GeoUtilTest {
                 );
     }
 
+    @Test
+    public void testCircleEnvelopeContainsAllPointsInRange() {
+        Coordinates[] centers = {new Coordinates(48.37, 32.67), new Coordinates(-33.86, 151.2),
+                new Coordinates(65.0, 179.9), new Coordinates(89.5, 0.0)};
+        for (Coordinates center : centers) {
+            double range = 50;
+            var envelope = GeoUtil.getCircleEnvelope(center, range, RangeUnit.KILOMETER);
+            for (double lat = center.getLatitude() - 1; lat <= center.getLatitude() + 1; lat += 0.01) {
+                for (double lon = center.getLongitude() - 3; lon <= center.getLongitude() + 3; lon += 0.01) {
+                    double normLat = Math.max(-90, Math.min(90, lat));
+                    double normLon = lon > 180 ? lon - 360 : lon;
+                    Coordinates point = new Coordinates(normLat, normLon);
+                    if (GeoUtil.distance(center, point, RangeUnit.KILOMETER) < range) {
+                        Assertions.assertTrue(envelope.contains(normLat, normLon),
+                                "Envelope " + envelope + " of the circle " + center + " must contain the dot " + point);
+                    }
+                }
+            }
+        }
+    }
+
 }
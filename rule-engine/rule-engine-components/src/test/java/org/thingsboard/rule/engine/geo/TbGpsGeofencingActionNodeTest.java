@@ -15,17 +15,24 @@
  */
 package org.thingsboard.rule.engine.geo;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.AbstractRuleNodeUpgradeTest;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
@@ -33,18 +40,26 @@ import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.dao.attributes.AttributesService;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -150,6 +165,91 @@ class TbGpsGeofencingActionNodeTest extends AbstractRuleNodeUpgradeTest {
         }
     }
 
+    @Test
+    void givenZonesAttributeKey_whenOnMsg_thenCheckAgainstAllZonesAndAddMatchedZonesToMetadata() throws TbNodeException {
+        // GIVEN
+        var config = new TbGpsGeofencingActionNodeConfiguration().defaultConfiguration();
+        config.setZonesAttributeKey("zones");
+        node.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        when(ctx.getAttributesService()).thenReturn(attributesService);
+        when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
+        when(attributesService.find(any(), eq(deviceId), eq(AttributeScope.SERVER_SCOPE), eq("zones")))
+                .thenReturn(Futures.immediateFuture(Optional.of(getZonesAttribute())));
+        when(attributesService.find(any(), eq(deviceId), eq(AttributeScope.SERVER_SCOPE), (String) eq(null)))
+                .thenReturn(Futures.immediateFuture(Optional.empty()));
+        TbMsg msg = getTbMsg(deviceId, new TbMsgMetaData(),
+                GeoUtilTest.POINT_INSIDE_SIMPLE_RECT_CENTER.getLatitude(), GeoUtilTest.POINT_INSIDE_SIMPLE_RECT_CENTER.getLongitude());
+
+        // WHEN
+        node.onMsg(ctx, msg);
+
+        // THEN
+        ArgumentCaptor<TbMsg> msgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx).tellNext(msgCaptor.capture(), eq(ENTERED));
+        assertThat(msgCaptor.getValue().getMetaData().getValue("zones")).isEqualTo("[\"rect\"]");
+        @SuppressWarnings("unchecked")
+        Cache<String, PerimeterIndex> zonesCache = (Cache<String, PerimeterIndex>) ReflectionTestUtils.getField(node, "zonesCache");
+        PerimeterIndex index = zonesCache.asMap().values().iterator().next();
+        assertThat(index.isIndexed()).isTrue();
+        assertThat(index.getCandidates(GeoUtilTest.POINT_OUTSIDE_SIMPLE_RECT.getLatitude(), GeoUtilTest.POINT_OUTSIDE_SIMPLE_RECT.getLongitude())).isEmpty();
+    }
+
+    @Test
+    void givenZonesAttributeKey_whenZonesOfFirstMsgAreLoadedLater_thenMsgsAreProcessedInOrder() throws TbNodeException {
+        // GIVEN
+        var config = new TbGpsGeofencingActionNodeConfiguration().defaultConfiguration();
+        config.setZonesAttributeKey("zones");
+        node.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        SettableFuture<Optional<AttributeKvEntry>> firstZonesFuture = SettableFuture.create();
+        when(ctx.getAttributesService()).thenReturn(attributesService);
+        when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
+        when(attributesService.find(any(), eq(deviceId), eq(AttributeScope.SERVER_SCOPE), eq("zones")))
+                .thenReturn(firstZonesFuture, Futures.immediateFuture(Optional.of(getZonesAttribute())));
+        when(attributesService.find(any(), eq(deviceId), eq(AttributeScope.SERVER_SCOPE), (String) eq(null)))
+                .thenReturn(Futures.immediateFuture(Optional.empty()));
+        TbMsg insideMsg = getTbMsg(deviceId, new TbMsgMetaData(),
+                GeoUtilTest.POINT_INSIDE_SIMPLE_RECT_CENTER.getLatitude(), GeoUtilTest.POINT_INSIDE_SIMPLE_RECT_CENTER.getLongitude());
+        TbMsg outsideMsg = getTbMsg(deviceId, new TbMsgMetaData(),
+                GeoUtilTest.POINT_OUTSIDE_SIMPLE_RECT.getLatitude(), GeoUtilTest.POINT_OUTSIDE_SIMPLE_RECT.getLongitude());
+
+        // WHEN
+        node.onMsg(ctx, insideMsg);
+        node.onMsg(ctx, outsideMsg);
+
+        // THEN
+        verify(ctx, never()).tellNext(any(), anyString());
+        firstZonesFuture.set(Optional.of(getZonesAttribute()));
+        ArgumentCaptor<TbMsg> msgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        InOrder inOrder = inOrder(ctx);
+        inOrder.verify(ctx).tellNext(msgCaptor.capture(), eq(ENTERED));
+        inOrder.verify(ctx).tellNext(msgCaptor.capture(), eq(LEFT));
+        assertThat(msgCaptor.getAllValues()).extracting(TbMsg::getId).containsExactly(insideMsg.getId(), outsideMsg.getId());
+    }
+
+    private AttributeKvEntry getZonesAttribute() {
+        List<Perimeter> zones = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Perimeter zone = new Perimeter();
+            zone.setId("circle" + i);
+            zone.setPerimeterType(PerimeterType.CIRCLE);
+            zone.setCenterLatitude(10.0 + i);
+            zone.setCenterLongitude(10.0 + i);
+            zone.setRange(1.0);
+            zone.setRangeUnit(RangeUnit.KILOMETER);
+            zones.add(zone);
+        }
+        Perimeter rect = new Perimeter();
+        rect.setId("rect");
+        rect.setPerimeterType(PerimeterType.POLYGON);
+        rect.setPolygonsDefinition(GeoUtilTest.SIMPLE_RECT);
+        zones.add(rect);
+        return new BaseAttributeKvEntry(new StringDataEntry("zones", JacksonUtil.toString(zones)), System.currentTimeMillis());
+    }
+
     private TbMsg getOutsideRectangleTbMsg(EntityId entityId) {
         return getTbMsg(entityId, getMetadataForNewVersionPolygonPerimeter(),
                 GeoUtilTest.POINT_OUTSIDE_SIMPLE_RECT.getLatitude(),
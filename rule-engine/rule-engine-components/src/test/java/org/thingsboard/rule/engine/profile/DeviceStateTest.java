@@ -41,20 +41,27 @@ import org.thingsboard.server.common.data.id.AlarmId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
 import org.thingsboard.server.common.data.query.EntityKeyValueType;
 import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.TsValue;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -146,6 +153,30 @@ public class DeviceStateTest {
         });
     }
 
+    @Test
+    public void whenEntityDataIsConvertedToSnapshot_thenOnlyExistingValuesAreAdded() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        AlarmConditionFilterKey nameKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ENTITY_FIELD, "name");
+        AlarmConditionFilterKey temperatureKey = new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature");
+        AlarmConditionFilterKey enabledKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, "enabled");
+        AlarmConditionFilterKey missingKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, "missing");
+
+        Map<EntityKeyType, Map<String, TsValue>> latest = new HashMap<>();
+        latest.put(EntityKeyType.ENTITY_FIELD, Map.of("name", new TsValue(System.currentTimeMillis(), "Device A"),
+                "createdTime", new TsValue(System.currentTimeMillis(), "100")));
+        latest.put(EntityKeyType.TIME_SERIES, Map.of("temperature", new TsValue(200, "42.5")));
+        latest.put(EntityKeyType.CLIENT_ATTRIBUTE, Map.of("enabled", TsValue.EMPTY, "missing", TsValue.EMPTY));
+        latest.put(EntityKeyType.SHARED_ATTRIBUTE, Map.of("enabled", new TsValue(300, "true"), "missing", TsValue.EMPTY));
+        latest.put(EntityKeyType.SERVER_ATTRIBUTE, Map.of("enabled", TsValue.EMPTY, "missing", TsValue.EMPTY));
+
+        DataSnapshot snapshot = DeviceState.toSnapshot(Set.of(nameKey, temperatureKey, enabledKey, missingKey),
+                new EntityData(deviceId, latest, Collections.emptyMap()));
+
+        assertEquals("Device A", snapshot.getValue(nameKey).getStrValue());
+        assertEquals("42.5", snapshot.getValue(temperatureKey).getStrValue());
+        assertEquals("true", snapshot.getValue(enabledKey).getStrValue());
+        assertNull(snapshot.getValue(missingKey));
+    }
 
     private DeviceState createDeviceState(DeviceId deviceId, DeviceProfileAlarm... alarmConfigs) {
         DeviceProfile deviceProfile = new DeviceProfile();
@@ -154,8 +185,14 @@ public class DeviceStateTest {
         deviceProfile.setProfileData(profileData);
 
         ProfileState profileState = new ProfileState(deviceProfile);
-        return new DeviceState(ctx, new TbDeviceProfileNodeConfiguration(),
+        DeviceState deviceState = new DeviceState(ctx, new TbDeviceProfileNodeConfiguration(),
                 deviceId, profileState, null);
+        try {
+            deviceState.setLatestValues(deviceState.fetchLatestValues(ctx).get());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return deviceState;
     }
 
     private DeviceProfileAlarm createAlarmConfigWithBoolAttrCondition(String key, boolean value) {
@@ -18,12 +18,16 @@ package org.thingsboard.rule.engine.profile;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ListeningExecutor;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceProfileCache;
 import org.thingsboard.rule.engine.api.TbContext;
@@ -52,18 +56,25 @@ import org.thingsboard.server.common.data.id.AlarmId;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.RuleNodeStateId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
 import org.thingsboard.server.common.data.query.DynamicValue;
 import org.thingsboard.server.common.data.query.DynamicValueSourceType;
 import org.thingsboard.server.common.data.query.EntityKeyValueType;
 import org.thingsboard.server.common.data.query.FilterPredicateValue;
 import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
 import org.thingsboard.server.dao.model.sql.AttributeKvCompositeKey;
@@ -77,11 +88,18 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -447,7 +465,7 @@ public class TbDeviceProfileNodeTest {
         deviceProfileData.setAlarms(Collections.singletonList(dpa));
         deviceProfile.setProfileData(deviceProfileData);
 
-        Mockito.when(deviceService.findDeviceById(tenantId, deviceId)).thenReturn(device);
+        Mockito.when(deviceService.findDeviceByIdAsync(tenantId, deviceId)).thenReturn(Futures.immediateFuture(device));
         Mockito.when(cache.get(tenantId, deviceId)).thenReturn(deviceProfile);
         Mockito.when(timeseriesService.findLatest(tenantId, deviceId, Collections.singleton("temperature")))
                 .thenReturn(Futures.immediateFuture(Collections.emptyList()));
@@ -457,10 +475,10 @@ public class TbDeviceProfileNodeTest {
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(Futures.immediateFuture(Collections.emptyList()));
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(Futures.immediateFuture(Optional.empty()));
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(attrListListenableFuture);
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anyCollection()))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyCollection()))
+                .thenReturn(toListFuture(attrListListenableFuture));
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
         when(ctx.newMsg(any(), any(TbMsgType.class), any(), any(), any(), Mockito.anyString()))
@@ -745,12 +763,12 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(null);
         registerCreateAlarmMock(alarmService.createAlarm(any()), true);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(optionalDurationAttribute);
-        Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
-                .thenReturn(device);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(emptyOptional);
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyCollection()))
+                .thenReturn(toListFuture(optionalDurationAttribute));
+        Mockito.when(ctx.getDeviceService().findDeviceByIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(device));
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyCollection()))
+                .thenReturn(toListFuture(emptyOptional));
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listNoDurationAttribute);
 
@@ -974,12 +992,12 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(null);
         registerCreateAlarmMock(alarmService.createAlarm(any()), true);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(optionalDurationAttribute);
-        Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
-                .thenReturn(device);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(emptyOptional);
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyCollection()))
+                .thenReturn(toListFuture(optionalDurationAttribute));
+        Mockito.when(ctx.getDeviceService().findDeviceByIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(device));
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyCollection()))
+                .thenReturn(toListFuture(emptyOptional));
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listNoDurationAttribute);
 
@@ -1433,10 +1451,10 @@ public class TbDeviceProfileNodeTest {
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
-                .thenReturn(device);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(optionalListenableFutureWithLess);
+        Mockito.when(ctx.getDeviceService().findDeviceByIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(device));
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyCollection()))
+                .thenReturn(toListFuture(optionalListenableFutureWithLess));
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
         when(ctx.newMsg(any(), any(TbMsgType.class), any(), any(), any(), Mockito.anyString()))
@@ -1509,8 +1527,8 @@ public class TbDeviceProfileNodeTest {
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(optionalListenableFutureWithLess);
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyCollection()))
+                .thenReturn(toListFuture(optionalListenableFutureWithLess));
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
         when(ctx.newMsg(any(), any(TbMsgType.class), any(), any(), any(), Mockito.anyString()))
@@ -1587,14 +1605,14 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(null);
         registerCreateAlarmMock(alarmService.createAlarm(any()), true);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
-        Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
-                .thenReturn(device);
+        Mockito.when(ctx.getDeviceService().findDeviceByIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(device));
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId),  Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(emptyOptionalFuture);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(optionalListenableFutureWithLess);
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId),  Mockito.any(AttributeScope.class), Mockito.anyCollection()))
+                .thenReturn(toListFuture(emptyOptionalFuture));
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyCollection()))
+                .thenReturn(toListFuture(optionalListenableFutureWithLess));
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
         when(ctx.newMsg(any(), any(TbMsgType.class), any(), any(), any(), Mockito.anyString()))
@@ -1673,14 +1691,14 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(null);
         registerCreateAlarmMock(alarmService.createAlarm(any()), true);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
-        Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
-                .thenReturn(device);
+        Mockito.when(ctx.getDeviceService().findDeviceByIdAsync(tenantId, deviceId))
+                .thenReturn(Futures.immediateFuture(device));
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(emptyOptionalFuture);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(optionalListenableFutureWithLess);
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anyCollection()))
+                .thenReturn(toListFuture(emptyOptionalFuture));
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyCollection()))
+                .thenReturn(toListFuture(optionalListenableFutureWithLess));
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
         when(ctx.newMsg(any(), any(TbMsgType.class), any(), any(), any(), Mockito.anyString()))
@@ -1697,18 +1715,206 @@ public class TbDeviceProfileNodeTest {
         verify(ctx, Mockito.never()).tellFailure(Mockito.any(), Mockito.any());
     }
 
+    @Test
+    public void testPartitionChangeSavesStatesAfterStatesBeingPersisted() throws Exception {
+        init(JacksonUtil.newObjectNode().put("persistAlarmRulesState", true));
+        Mockito.when(cache.get(tenantId, deviceId)).thenReturn(createRepeatingAlarmProfile());
+        Mockito.when(timeseriesService.findLatest(tenantId, deviceId, Collections.singleton("temperature")))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+
+        ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+        try {
+            Mockito.when(ctx.getDbCallbackExecutor()).thenReturn(new ListeningExecutor() {
+                @Override
+                public <T> ListenableFuture<T> executeAsync(Callable<T> task) {
+                    return MoreExecutors.listeningDecorator(dbExecutor).submit(task);
+                }
+
+                @Override
+                public void execute(Runnable command) {
+                    dbExecutor.execute(command);
+                }
+            });
+            RuleNodeStateId stateId = new RuleNodeStateId(UUID.randomUUID());
+            List<RuleNodeStateId> savedIds = new CopyOnWriteArrayList<>();
+            Thread testThread = Thread.currentThread();
+            when(ctx.saveRuleNodeState(any())).thenAnswer(invocation -> {
+                RuleNodeState state = invocation.getArgument(0);
+                if (Thread.currentThread() != testThread) {
+                    // The insert is still in progress when the partitions change
+                    Thread.sleep(100);
+                }
+                savedIds.add(state.getId());
+                if (state.getId() == null) {
+                    state.setId(stateId);
+                }
+                return state;
+            });
+
+            node.onMsg(ctx, createTelemetryMsg(42));
+            node.onMsg(ctx, TbMsg.newMsg(TbMsgType.DEVICE_PROFILE_PERSIST_STATE_SELF_MSG, tenantId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING));
+            node.onMsg(ctx, createTelemetryMsg(43));
+            node.onPartitionChangeMsg(ctx, Mockito.mock(PartitionChangeMsg.class));
+            // The partition change doesn't wait for the insert, the update is chained after it
+            verify(ctx, Mockito.timeout(TimeUnit.SECONDS.toMillis(10)).times(2)).saveRuleNodeState(any());
+            dbExecutor.shutdown();
+            assertThat(dbExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            // The state is inserted once and then updated with the latest changes
+            assertThat(savedIds).containsExactly(null, stateId);
+        } finally {
+            dbExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStateOfMovedDeviceIsRemovedAfterPendingMsgsAreProcessed() throws Exception {
+        init(JacksonUtil.newObjectNode().put("persistAlarmRulesState", true));
+        Mockito.when(cache.get(tenantId, deviceId)).thenReturn(createRepeatingAlarmProfile());
+        SettableFuture<List<TsKvEntry>> latestValues = SettableFuture.create();
+        Mockito.when(timeseriesService.findLatest(tenantId, deviceId, Collections.singleton("temperature")))
+                .thenReturn(latestValues, Futures.immediateFuture(Collections.emptyList()));
+        when(ctx.saveRuleNodeState(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TbMsg msg = createTelemetryMsg(42);
+        node.onMsg(ctx, msg);
+        node.onPartitionChangeMsg(ctx, Mockito.mock(PartitionChangeMsg.class));
+        verify(ctx, Mockito.never()).tellSuccess(msg);
+
+        latestValues.set(Collections.emptyList());
+        verify(ctx).tellSuccess(msg);
+        verify(ctx).saveRuleNodeState(any());
+
+        // The state is fetched again if the device returns to the current server
+        node.onMsg(ctx, createTelemetryMsg(43));
+        verify(timeseriesService, Mockito.times(2)).findLatest(tenantId, deviceId, Collections.singleton("temperature"));
+    }
+
+    @Test
+    public void testPartitionChangeRestoresStatesOfNewLocalDevicesOnly() throws Exception {
+        when(ctx.findRuleNodeStates(any())).thenReturn(PageData.emptyPageData());
+        init(JacksonUtil.newObjectNode().put("persistAlarmRulesState", true).put("fetchAlarmRulesStateOnStart", true));
+        DeviceProfile deviceProfile = createRepeatingAlarmProfile();
+        DeviceId newDeviceId = new DeviceId(UUID.randomUUID());
+        Mockito.when(cache.get(tenantId, deviceId)).thenReturn(deviceProfile);
+        Mockito.when(cache.get(tenantId, newDeviceId)).thenReturn(deviceProfile);
+        Mockito.when(timeseriesService.findLatest(tenantId, deviceId, Collections.singleton("temperature")))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        node.onMsg(ctx, createTelemetryMsg(42));
+
+        when(ctx.isLocalEntity(any())).thenReturn(true);
+        when(ctx.findRuleNodeStates(any())).thenReturn(new PageData<>(List.of(createRuleNodeState(deviceId), createRuleNodeState(newDeviceId)), 1, 2, false));
+        node.onPartitionChangeMsg(ctx, Mockito.mock(PartitionChangeMsg.class));
+
+        // The state of the loaded device is kept, while the device that became local is restored from the fetched state
+        verify(cache).get(tenantId, deviceId);
+        verify(cache).get(tenantId, newDeviceId);
+        verify(ctx, Mockito.never()).findRuleNodeStateForEntity(newDeviceId);
+    }
+
+    @Test
+    public void testTenantAttributeForDynamicValueIsFetchedWithLatestValuesOfEachMsg() throws Exception {
+        init();
+        NumericFilterPredicate highTemperaturePredicate = new NumericFilterPredicate();
+        highTemperaturePredicate.setOperation(NumericFilterPredicate.NumericOperation.GREATER);
+        highTemperaturePredicate.setValue(new FilterPredicateValue<>(0.0, null,
+                new DynamicValue<>(DynamicValueSourceType.CURRENT_TENANT, "maxTemperature")));
+        DeviceProfile deviceProfile = createRepeatingAlarmProfile();
+        deviceProfile.getProfileData().getAlarms().get(0).getCreateRules().get(AlarmSeverity.CRITICAL)
+                .getCondition().getCondition().get(0).setPredicate(highTemperaturePredicate);
+
+        Mockito.when(cache.get(tenantId, deviceId)).thenReturn(deviceProfile);
+        Mockito.when(timeseriesService.findLatest(tenantId, deviceId, Collections.singleton("temperature")))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        Mockito.when(attributesService.find(tenantId, tenantId, AttributeScope.SERVER_SCOPE, Set.of("maxTemperature")))
+                .thenReturn(Futures.immediateFuture(List.of(new BaseAttributeKvEntry(new DoubleDataEntry("maxTemperature", 50.0), 0L))));
+
+        TbMsg msg = createTelemetryMsg(42);
+        node.onMsg(ctx, msg);
+        TbMsg otherMsg = createTelemetryMsg(43);
+        node.onMsg(ctx, otherMsg);
+
+        verify(ctx).tellSuccess(msg);
+        verify(ctx).tellSuccess(otherMsg);
+        // The latest values of the device are kept in memory, while the tenant attribute is fetched for every message
+        verify(timeseriesService).findLatest(tenantId, deviceId, Collections.singleton("temperature"));
+        verify(attributesService, Mockito.times(2)).find(tenantId, tenantId, AttributeScope.SERVER_SCOPE, Set.of("maxTemperature"));
+        verify(deviceService, Mockito.never()).findDeviceById(any(), any());
+    }
+
+    private RuleNodeState createRuleNodeState(DeviceId deviceId) {
+        RuleNodeState state = new RuleNodeState(new RuleNodeStateId(UUID.randomUUID()));
+        state.setEntityId(deviceId);
+        state.setStateData(JacksonUtil.toString(JacksonUtil.newObjectNode().set("alarmStates", JacksonUtil.newObjectNode())));
+        return state;
+    }
+
+    private DeviceProfile createRepeatingAlarmProfile() {
+        AlarmConditionFilter highTempFilter = new AlarmConditionFilter();
+        highTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
+        highTempFilter.setValueType(EntityKeyValueType.NUMERIC);
+        NumericFilterPredicate highTemperaturePredicate = new NumericFilterPredicate();
+        highTemperaturePredicate.setOperation(NumericFilterPredicate.NumericOperation.GREATER);
+        highTemperaturePredicate.setValue(new FilterPredicateValue<>(30.0));
+        highTempFilter.setPredicate(highTemperaturePredicate);
+        AlarmCondition alarmCondition = new AlarmCondition();
+        alarmCondition.setCondition(Collections.singletonList(highTempFilter));
+        RepeatingAlarmConditionSpec repeatingSpec = new RepeatingAlarmConditionSpec();
+        repeatingSpec.setPredicate(new FilterPredicateValue<>(10));
+        alarmCondition.setSpec(repeatingSpec);
+
+        AlarmRule alarmRule = new AlarmRule();
+        alarmRule.setCondition(alarmCondition);
+        DeviceProfileAlarm dpa = new DeviceProfileAlarm();
+        dpa.setId("highTemperatureAlarmID");
+        dpa.setAlarmType("highTemperatureAlarm");
+        dpa.setCreateRules(new TreeMap<>(Collections.singletonMap(AlarmSeverity.CRITICAL, alarmRule)));
+
+        DeviceProfileData deviceProfileData = new DeviceProfileData();
+        deviceProfileData.setAlarms(Collections.singletonList(dpa));
+        DeviceProfile deviceProfile = new DeviceProfile();
+        deviceProfile.setProfileData(deviceProfileData);
+        return deviceProfile;
+    }
+
+    private TbMsg createTelemetryMsg(long temperature) {
+        ObjectNode data = JacksonUtil.newObjectNode();
+        data.put("temperature", temperature);
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY,
+                TbMsgDataType.JSON, JacksonUtil.toString(data), null, null);
+    }
+
     private void init() throws TbNodeException {
+        init(JacksonUtil.newObjectNode());
+    }
+
+    private void init(ObjectNode configuration) throws TbNodeException {
         Mockito.when(ctx.getTenantId()).thenReturn(tenantId);
         Mockito.when(ctx.getDeviceProfileCache()).thenReturn(cache);
         Mockito.lenient().when(ctx.getTimeseriesService()).thenReturn(timeseriesService);
         Mockito.lenient().when(ctx.getAlarmService()).thenReturn(alarmService);
-        Mockito.when(ctx.getDeviceService()).thenReturn(deviceService);
+        Mockito.lenient().when(ctx.getDeviceService()).thenReturn(deviceService);
         Mockito.lenient().when(ctx.getAttributesService()).thenReturn(attributesService);
-        TbNodeConfiguration nodeConfiguration = new TbNodeConfiguration(JacksonUtil.newObjectNode());
+        Mockito.lenient().when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
+        // Delivers the fetched latest values and alarm rule states to the node right away
+        Mockito.lenient().doAnswer(invocation -> {
+            TbMsg selfMsg = invocation.getArgument(0);
+            if (selfMsg.isTypeOneOf(TbMsgType.DEVICE_PROFILE_SNAPSHOT_SELF_MSG, TbMsgType.DEVICE_PROFILE_RESTORE_STATE_SELF_MSG)) {
+                node.onMsg(ctx, selfMsg);
+            }
+            return null;
+        }).when(ctx).tellSelf(any(), anyLong());
+        TbNodeConfiguration nodeConfiguration = new TbNodeConfiguration(configuration);
         node = new TbDeviceProfileNode();
         node.init(ctx, nodeConfiguration);
     }
 
+    private static ListenableFuture<List<AttributeKvEntry>> toListFuture(ListenableFuture<Optional<AttributeKvEntry>> future) {
+        return Futures.transform(future, entry -> entry.map(List::of).orElse(Collections.emptyList()), MoreExecutors.directExecutor());
+    }
+
     private void registerCreateAlarmMock(AlarmApiCallResult a, boolean created) {
         when(a).thenAnswer(invocationOnMock -> {
             AlarmInfo alarm = new AlarmInfo(new Alarm(new AlarmId(UUID.randomUUID())));
@@ -31,11 +31,13 @@ import org.mockito.stubbing.Answer;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.rule.engine.AbstractRuleNodeUpgradeTest;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.deduplication.DeduplicationStrategy;
+import org.thingsboard.rule.engine.deduplication.DeduplicationSummary;
 import org.thingsboard.rule.engine.deduplication.TbMsgDeduplicationNode;
 import org.thingsboard.rule.engine.deduplication.TbMsgDeduplicationNodeConfiguration;
 import org.thingsboard.server.common.data.DataConstants;
@@ -45,8 +47,12 @@ import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
+import org.thingsboard.server.common.msg.queue.ServiceType;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -106,7 +112,8 @@ public class TbMsgDeduplicationNodeTest extends AbstractRuleNodeUpgradeTest {
             TbMsgMetaData metaData = (TbMsgMetaData) (invocationOnMock.getArguments())[3];
             String data = (String) (invocationOnMock.getArguments())[4];
             return TbMsg.newMsg(type, originator, metaData.copy(), data);
-        }).when(ctx).newMsg(isNull(), eq(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG), nullable(EntityId.class), any(TbMsgMetaData.class), any(String.class));
+        }).when(ctx).newMsg(isNull(), any(TbMsgType.class), nullable(EntityId.class), any(TbMsgMetaData.class), any(String.class));
+        when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
         node = spy(new TbMsgDeduplicationNode());
         config = new TbMsgDeduplicationNodeConfiguration().defaultConfiguration();
     }
@@ -408,6 +415,119 @@ public class TbMsgDeduplicationNodeTest extends AbstractRuleNodeUpgradeTest {
         Assertions.assertEquals(msgWithLatestTsInSecondPack.getType(), actualMsg.getType());
     }
 
+    @Test
+    public void given_messages_compact_state_strategy_first_then_verifyOutputAndSkipLaterPeriod() throws TbNodeException, ExecutionException, InterruptedException {
+        int wantedNumberOfTellSelfInvocation = 1;
+        int msgCount = 10;
+        awaitTellSelfLatch = new CountDownLatch(wantedNumberOfTellSelfInvocation);
+        invokeTellSelf(wantedNumberOfTellSelfInvocation);
+
+        config.setInterval(deduplicationInterval);
+        config.setCompactState(true);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        long currentTimeMillis = System.currentTimeMillis();
+
+        // the first period is already over, the second one ends after the tick
+        List<TbMsg> inputMsgs = getTbMsgs(deviceId, msgCount, currentTimeMillis - 5000, 0);
+        TbMsg secondPeriodMsg = createMsg(deviceId, currentTimeMillis + 5000);
+        for (TbMsg msg : inputMsgs) {
+            node.onMsg(ctx, msg);
+        }
+
+        awaitTellSelfLatch.await();
+        node.onMsg(ctx, secondPeriodMsg);
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(msgCount + 1)).ack(any());
+        // the second period schedules the next tick
+        verify(ctx, times(2)).tellSelf(any(), eq(TbMsgDeduplicationNode.TB_MSG_DEDUPLICATION_TICK_MS));
+        verify(ctx, times(1)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+
+        TbMsg firstMsg = inputMsgs.get(0);
+        TbMsg actualMsg = newMsgCaptor.getValue();
+        Assertions.assertNotEquals(firstMsg.getId(), actualMsg.getId());
+        Assertions.assertEquals(firstMsg.getOriginator(), actualMsg.getOriginator());
+        Assertions.assertEquals(firstMsg.getData(), actualMsg.getData());
+        Assertions.assertEquals(firstMsg.getMetaData(), actualMsg.getMetaData());
+    }
+
+    @Test
+    public void given_persisted_compact_state_strategy_all_then_verifyRestoredOutput() throws TbNodeException, InterruptedException {
+        // the restore and the tick
+        int wantedNumberOfTellSelfInvocation = 2;
+        awaitTellSelfLatch = new CountDownLatch(wantedNumberOfTellSelfInvocation);
+        invokeTellSelf(wantedNumberOfTellSelfInvocation);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        long startTs = System.currentTimeMillis() - 5000;
+        DeduplicationSummary summary = new DeduplicationSummary(startTs, startTs + 1000);
+        List<TbMsg> inputMsgs = getTbMsgs(deviceId, 3, startTs, 0);
+        inputMsgs.forEach(msg -> summary.add(msg, DeduplicationStrategy.ALL));
+
+        RuleNodeState state = new RuleNodeState();
+        state.setRuleNodeId(ctx.getSelfId());
+        state.setEntityId(deviceId);
+        state.setStateData(summary.toStateData());
+        when(ctx.isLocalEntity(any())).thenReturn(true);
+        when(ctx.findRuleNodeStates(any())).thenReturn(new PageData<>(List.of(state), 1, 1, false));
+
+        config.setInterval(deduplicationInterval);
+        config.setStrategy(DeduplicationStrategy.ALL);
+        config.setOutMsgType(TbMsgType.POST_ATTRIBUTES_REQUEST.name());
+        config.setCompactState(true);
+        config.setPersistState(true);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        awaitTellSelfLatch.await();
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(1)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        verify(ctx, times(1)).removeRuleNodeStateForEntity(eq(deviceId));
+
+        TbMsg actualMsg = newMsgCaptor.getValue();
+        Assertions.assertEquals(deviceId, actualMsg.getOriginator());
+        Assertions.assertEquals(TbMsgType.POST_ATTRIBUTES_REQUEST.name(), actualMsg.getType());
+        ArrayNode mergedData = (ArrayNode) JacksonUtil.toJsonNode(actualMsg.getData());
+        Assertions.assertEquals(inputMsgs.size(), mergedData.size());
+        for (int i = 0; i < inputMsgs.size(); i++) {
+            Assertions.assertEquals(JacksonUtil.toJsonNode(inputMsgs.get(i).getData()), mergedData.get(i).get("msg"));
+        }
+    }
+
+    @Test
+    public void given_persisted_compact_state_when_partitionChange_then_verifyMovedOriginatorIsSaved() throws TbNodeException, ExecutionException, InterruptedException {
+        invokeTellSelf(0);
+
+        DeviceId localDeviceId = new DeviceId(UUID.randomUUID());
+        DeviceId movedDeviceId = new DeviceId(UUID.randomUUID());
+        when(ctx.isLocalEntity(any())).thenReturn(true);
+        when(ctx.findRuleNodeStates(any())).thenReturn(new PageData<>(List.of(), 0, 0, false));
+        when(ctx.saveRuleNodeState(any())).then(invocation -> invocation.getArgument(0));
+
+        config.setInterval(60);
+        config.setCompactState(true);
+        config.setPersistState(true);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        long ts = System.currentTimeMillis();
+        node.onMsg(ctx, createMsg(localDeviceId, ts));
+        node.onMsg(ctx, createMsg(movedDeviceId, ts));
+
+        when(ctx.isLocalEntity(eq(movedDeviceId))).thenReturn(false);
+        node.onPartitionChangeMsg(ctx, new PartitionChangeMsg(ServiceType.TB_RULE_ENGINE));
+
+        ArgumentCaptor<RuleNodeState> stateCaptor = ArgumentCaptor.forClass(RuleNodeState.class);
+        verify(ctx, times(1)).saveRuleNodeState(stateCaptor.capture());
+        Assertions.assertEquals(movedDeviceId, stateCaptor.getValue().getEntityId());
+        // the restore is done on init and on the partition change
+        verify(ctx, times(2)).findRuleNodeStates(any());
+    }
+
     // Rule nodes upgrade
     private static Stream<Arguments> givenFromVersionAndConfig_whenUpgrade_thenVerifyHasChangesAndConfig() {
         return Stream.of(